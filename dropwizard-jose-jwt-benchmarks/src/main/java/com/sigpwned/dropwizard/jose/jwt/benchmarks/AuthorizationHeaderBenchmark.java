@@ -0,0 +1,101 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt-benchmarks
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.benchmarks;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.sigpwned.dropwizard.jose.jwt.util.AuthorizationHeaders;
+
+/**
+ * Compares the original Authorization header parsing in JWTAuthFilter against
+ * {@link AuthorizationHeaders#extractCredentials(String, String)}. Run with {@code -prof gc} to see
+ * the allocations per call in {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthorizationHeaderBenchmark {
+  public static final String PREFIX = "Bearer";
+
+  @Param({"Bearer eyJraWQiOiJiZW5jaG1hcmsiLCJhbGciOiJSUzI1NiJ9.eyJpc3MiOiJiZW5jaG1hcmsifQ.c2ln",
+      "Basic YWxhZGRpbjpvcGVuc2VzYW1l", "garbage"})
+  public String header;
+
+  @Benchmark
+  public String legacyExtract() {
+    try {
+      return Optional.ofNullable(header).map(Authorization::fromString)
+          .filter(a -> a.getMethod().equalsIgnoreCase(PREFIX)).map(Authorization::getCredentials)
+          .orElse(null);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  @Benchmark
+  public String extractCredentials() {
+    return AuthorizationHeaders.extractCredentials(header, PREFIX);
+  }
+
+  /**
+   * The original parser from JWTAuthFilter
+   */
+  private static class Authorization {
+    public static Authorization fromString(String s) {
+      int index = s.indexOf(' ');
+      if (index == -1)
+        throw new IllegalArgumentException("no method");
+
+      String method = s.substring(0, index).strip();
+      String credentials = s.substring(index + 1, s.length()).strip();
+
+      return new Authorization(method, credentials);
+    }
+
+    private final String method;
+    private final String credentials;
+
+    public Authorization(String method, String credentials) {
+      this.method = method;
+      this.credentials = credentials;
+    }
+
+    public String getMethod() {
+      return method;
+    }
+
+    public String getCredentials() {
+      return credentials;
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.benchmarks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.sigpwned.dropwizard.jose.jwt.Issuance;
+import com.sigpwned.dropwizard.jose.jwt.IssuedJWT;
+import com.sigpwned.dropwizard.jose.jwt.JWTFactory;
+import com.sigpwned.dropwizard.jose.jwt.factory.DefaultJWTFactory;
+
+/**
+ * Compares issuing a batch of tokens one at a time on the calling thread against
+ * {@link JWTFactory#createAll(java.util.Collection, ForkJoinPool)} on a pool with one thread per
+ * core. Signing is CPU bound, so the batch API should approach one core's throughput times the
+ * number of cores.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchIssuanceBenchmark {
+  public static final String ISSUER = "benchmark";
+
+  public static final Duration TOKEN_LIFETIME = Duration.ofHours(1L);
+
+  @Param({"256"})
+  public int batchSize;
+
+  private List<JWTClaimsSet> claims;
+
+  private JWTFactory factory;
+
+  private ForkJoinPool pool;
+
+  @Setup
+  public void setupBatchIssuanceBenchmark() throws Exception {
+    JWKSet jwks = new JWKSet(new RSAKeyGenerator(2048).keyID("benchmark").generate());
+    factory = new DefaultJWTFactory(jwks, ISSUER, TOKEN_LIFETIME);
+    claims = new ArrayList<>(batchSize);
+    for (int i = 0; i < batchSize; i++)
+      claims.add(new JWTClaimsSet.Builder().claim("accountId", Integer.toString(i)).build());
+    pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+  }
+
+  @TearDown
+  public void teardownBatchIssuanceBenchmark() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public List<IssuedJWT> sequential() throws Exception {
+    List<IssuedJWT> result = new ArrayList<>(claims.size());
+    for (JWTClaimsSet c : claims)
+      result.add(factory.issue(c));
+    return result;
+  }
+
+  @Benchmark
+  public List<Issuance> createAll() {
+    return factory.createAll(claims, pool);
+  }
+}
@@ -0,0 +1,91 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.verification.HmacJWSVerifier;
+
+/**
+ * Compares verifying an HS256 signature with Nimbus's {@link MACVerifier}, which sets up a new
+ * {@link javax.crypto.Mac} for every token, against {@link HmacJWSVerifier}, which keeps one per
+ * thread. Parsing is left out, so the difference is all in the signature check.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class HmacVerifierBenchmark {
+  private byte[] signingInput;
+
+  private SignedJWT jwt;
+
+  private MACVerifier macVerifier;
+
+  private HmacJWSVerifier hmacJWSVerifier;
+
+  @Setup
+  public void setupHmacVerifierBenchmark() throws Exception {
+    OctetSequenceKey key = new OctetSequenceKeyGenerator(256).keyID("benchmark").generate();
+
+    JWSHeader header = new JWSHeader.Builder(JWSAlgorithm.HS256).keyID("benchmark").build();
+    JWTClaimsSet claims = new JWTClaimsSet.Builder().issuer("benchmark").claim("accountId", "100")
+        .claim("accountUsername", "administrator").claim("accountName", "Big Boss").build();
+
+    SignedJWT signed = new SignedJWT(header, claims);
+    signed.sign(new MACSigner(key));
+
+    jwt = SignedJWT.parse(signed.serialize());
+    signingInput = jwt.getSigningInput();
+    macVerifier = new MACVerifier(key);
+    hmacJWSVerifier = new HmacJWSVerifier(key, JWSAlgorithm.HS256);
+  }
+
+  @Benchmark
+  public boolean macVerifier() throws Exception {
+    return macVerifier.verify(jwt.getHeader(), signingInput, jwt.getSignature());
+  }
+
+  @Benchmark
+  public boolean hmacJWSVerifier() throws Exception {
+    return hmacJWSVerifier.verify(jwt.getHeader(), signingInput, jwt.getSignature());
+  }
+}
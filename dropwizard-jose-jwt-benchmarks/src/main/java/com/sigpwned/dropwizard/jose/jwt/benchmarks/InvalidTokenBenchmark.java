@@ -0,0 +1,157 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt-benchmarks
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.proc.DefaultJOSEObjectTypeVerifier;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.ConfigurableJWTProcessor;
+import com.nimbusds.jwt.proc.DefaultJWTClaimsVerifier;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import com.sigpwned.dropwizard.jose.jwt.JWTUnauthorizedHandler;
+import com.sigpwned.dropwizard.jose.jwt.factory.DefaultJWTFactory;
+import com.sigpwned.dropwizard.jose.jwt.verification.JWTVerifier;
+import com.sigpwned.dropwizard.jose.jwt.verification.Verification;
+import io.dropwizard.auth.DefaultUnauthorizedHandler;
+import io.dropwizard.auth.UnauthorizedHandler;
+
+/**
+ * Measures how many invalid tokens per millisecond JWTAuthFilter can turn into a 401. The
+ * "legacy" path lets the Nimbus processor throw and builds the response with
+ * {@link DefaultUnauthorizedHandler}. The "reason" path uses the exception-free
+ * {@link JWTVerifier} and the stackless {@link JWTUnauthorizedHandler}.
+ * 
+ * The {@code wrongAlgorithm} tokens never reach the signature check, so they show the cost of the
+ * failure path itself. The {@code badSignature} tokens pay for a full RSA signature check on both
+ * paths. The {@code expired} tokens pay for it only on the legacy path, since {@link JWTVerifier}
+ * checks claims first by default.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InvalidTokenBenchmark {
+  public static final String ISSUER = "benchmark";
+
+  public static final String PREFIX = "Bearer";
+
+  @Param({"wrongAlgorithm", "badSignature", "expired"})
+  public String scenario;
+
+  private String token;
+
+  private ConfigurableJWTProcessor<SecurityContext> processor;
+
+  private UnauthorizedHandler legacyHandler;
+
+  private JWTVerifier verifier;
+
+  private UnauthorizedHandler handler;
+
+  @Setup
+  public void setupInvalidTokenBenchmark() throws Exception {
+    JWKSet jwks = new JWKSet(new RSAKeyGenerator(2048).keyID("benchmark").generate());
+
+    JWTClaimsSet claims = new JWTClaimsSet.Builder().claim("accountId", "100").build();
+
+    String valid = new DefaultJWTFactory(jwks, ISSUER, Duration.ofDays(1L)).create(claims)
+        .serialize();
+    String other = new DefaultJWTFactory(jwks, ISSUER, Duration.ofDays(1L)).create(claims)
+        .serialize();
+
+    switch (scenario) {
+      case "wrongAlgorithm":
+        token = Base64URL.encode("{\"alg\":\"HS256\"}".getBytes(StandardCharsets.UTF_8))
+            + valid.substring(valid.indexOf('.'));
+        break;
+      case "badSignature":
+        token =
+            valid.substring(0, valid.lastIndexOf('.')) + other.substring(other.lastIndexOf('.'));
+        break;
+      case "expired":
+        token = new DefaultJWTFactory(jwks, ISSUER, Duration.ofHours(1L)) {
+          @Override
+          protected Instant now() {
+            return Instant.now().minus(Duration.ofDays(1L));
+          }
+        }.create(claims).serialize();
+        break;
+      default:
+        throw new IllegalArgumentException(scenario);
+    }
+
+    // This is exactly how JWTAuthFilter configured its processor before JWTVerifier
+    processor = new DefaultJWTProcessor<>();
+    processor.setJWETypeVerifier(DefaultJOSEObjectTypeVerifier.JWT);
+    processor.setJWSKeySelector(
+        new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, new ImmutableJWKSet<>(jwks)));
+    processor.setJWTClaimsSetVerifier(new DefaultJWTClaimsVerifier<>(
+        new JWTClaimsSet.Builder().issuer(ISSUER).build(), Set.of("iat", "exp", "jti")));
+    legacyHandler = new DefaultUnauthorizedHandler();
+
+    verifier = new JWTVerifier(ISSUER, JWSAlgorithm.RS256, new ImmutableJWKSet<>(jwks));
+    handler = new JWTUnauthorizedHandler();
+  }
+
+  @Benchmark
+  public RuntimeException legacyReject() {
+    try {
+      processor.process(SignedJWT.parse(token), null);
+      throw new AssertionError("token was accepted");
+    } catch (AssertionError e) {
+      throw e;
+    } catch (Exception e) {
+      return legacyHandler.buildException(PREFIX, ISSUER);
+    }
+  }
+
+  @Benchmark
+  public RuntimeException reasonReject() {
+    Verification verification = verifier.verify(token);
+    if (verification.isVerified())
+      throw new AssertionError("token was accepted");
+    return handler.buildException(PREFIX, ISSUER);
+  }
+}
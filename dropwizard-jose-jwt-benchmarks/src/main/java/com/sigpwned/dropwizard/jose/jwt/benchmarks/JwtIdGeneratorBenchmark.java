@@ -0,0 +1,79 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import com.sigpwned.dropwizard.jose.jwt.factory.JwtIdGenerator;
+import com.sigpwned.dropwizard.jose.jwt.factory.JwtIdStrategy;
+
+/**
+ * Compares the throughput of the built-in {@link JwtIdStrategy} generators as more threads share
+ * one generator, like a {@link com.sigpwned.dropwizard.jose.jwt.factory.DefaultJWTFactory} does
+ * under a burst of logins. Each benchmark method runs with a different number of threads, so
+ * compare the same strategy across methods to see how it scales. The results only mean something
+ * on a machine with at least as many cores as threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtIdGeneratorBenchmark {
+  @Param({"RANDOM_UUID", "THREAD_LOCAL_RANDOM_UUID", "ULID", "STRIPED_COUNTER"})
+  public JwtIdStrategy strategy;
+
+  private JwtIdGenerator generator;
+
+  @Setup
+  public void setupJwtIdGeneratorBenchmark() {
+    generator = strategy.newJwtIdGenerator();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public String threads1() {
+    return generator.generateJwtID();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public String threads4() {
+    return generator.generateJwtID();
+  }
+
+  @Benchmark
+  @Threads(Threads.MAX)
+  public String threadsMax() {
+    return generator.generateJwtID();
+  }
+}
@@ -0,0 +1,151 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyStore;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.sigpwned.dropwizard.jose.jwt.keys.JWKSetCache;
+import com.sigpwned.dropwizard.jose.jwt.keys.KeyStoreJWKSetLoader;
+import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenTool;
+import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenToolConfiguration;
+import com.sigpwned.dropwizard.jose.jwt.util.KeyStores;
+
+/**
+ * Compares loading our keys at startup by decrypting the PKCS12 key store and converting its
+ * entries with loading them from the encrypted {@link JWKSetCache}, and with parsing the same key
+ * as PEM or as a JSON JWK set. All include reading the source and computing its checksum.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KeyLoadBenchmark {
+  public static final String PASSWORD = "password";
+
+  public static final String CACHE_KEY = Base64.getEncoder().encodeToString(new byte[32]);
+
+  private File keyStoreFile;
+
+  private File cacheFile;
+
+  private KeyStoreJWKSetLoader keyStoreLoader;
+
+  private KeyStoreJWKSetLoader cacheLoader;
+
+  private File pemFile;
+
+  private KeyStoreJWKSetLoader pemLoader;
+
+  private File jwksFile;
+
+  private KeyStoreJWKSetLoader jwksLoader;
+
+  @Setup
+  public void setupKeyLoadBenchmark() throws Exception {
+    keyStoreFile = File.createTempFile("keystore.", ".p12");
+
+    KeygenToolConfiguration ktc = new KeygenToolConfiguration();
+    ktc.realm = "benchmark";
+    ktc.password = PASSWORD;
+    ktc.out = new PrintStream(new FileOutputStream(keyStoreFile));
+
+    KeygenTool.main(ktc);
+
+    cacheFile = File.createTempFile("keys.", ".cache");
+    cacheFile.delete();
+
+    keyStoreLoader = new KeyStoreJWKSetLoader(KeygenTool.KEY_STORE_TYPE,
+        keyStoreFile.getAbsolutePath(), PASSWORD, null, null);
+    cacheLoader = new KeyStoreJWKSetLoader(KeygenTool.KEY_STORE_TYPE,
+        keyStoreFile.getAbsolutePath(), PASSWORD, null,
+        new JWKSetCache(cacheFile, JWKSetCache.parseKey(CACHE_KEY)));
+
+    // Fill the cache
+    JWKSet jwks = cacheLoader.load();
+
+    KeyStore keyStore = KeyStores.loadKeyStore(keyStoreFile, PASSWORD);
+    String alias = keyStore.aliases().nextElement();
+    pemFile = File.createTempFile("keys.", ".pem");
+    Files.write(pemFile.toPath(),
+        (pem("CERTIFICATE", keyStore.getCertificate(alias).getEncoded())
+            + pem("PRIVATE KEY", keyStore.getKey(alias, null).getEncoded()))
+                .getBytes(StandardCharsets.US_ASCII));
+    pemLoader = new KeyStoreJWKSetLoader(KeyStores.PEM_TYPE, pemFile.getAbsolutePath(), null,
+        null, null);
+
+    jwksFile = File.createTempFile("keys.", ".json");
+    Files.write(jwksFile.toPath(), jwks.toString(false).getBytes(StandardCharsets.UTF_8));
+    jwksLoader = new KeyStoreJWKSetLoader(KeyStores.JWKS_TYPE, jwksFile.getAbsolutePath(), null,
+        null, null);
+  }
+
+  private static String pem(String type, byte[] der) {
+    return "-----BEGIN " + type + "-----\n" + Base64.getMimeEncoder().encodeToString(der)
+        + "\n-----END " + type + "-----\n";
+  }
+
+  @TearDown
+  public void teardownKeyLoadBenchmark() {
+    keyStoreFile.delete();
+    cacheFile.delete();
+    pemFile.delete();
+    jwksFile.delete();
+  }
+
+  @Benchmark
+  public JWKSet keyStore() throws Exception {
+    return keyStoreLoader.load();
+  }
+
+  @Benchmark
+  public JWKSet cache() throws Exception {
+    return cacheLoader.load();
+  }
+
+  @Benchmark
+  public JWKSet pem() throws Exception {
+    return pemLoader.load();
+  }
+
+  @Benchmark
+  public JWKSet jwks() throws Exception {
+    return jwksLoader.load();
+  }
+}
@@ -0,0 +1,101 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt-benchmarks
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.verification.IndexedSignatureVerifier;
+import com.sigpwned.dropwizard.jose.jwt.verification.SelectingSignatureVerifier;
+import com.sigpwned.dropwizard.jose.jwt.verification.SignatureVerifier;
+import com.sigpwned.dropwizard.jose.jwt.verification.Verification.Failure;
+
+/**
+ * Compares key selection by scanning the key set and building a new verifier on every call
+ * ({@link SelectingSignatureVerifier}) against dispatching to a prebuilt verifier by key ID
+ * ({@link IndexedSignatureVerifier}), as the number of rotated keys in the set grows. The token is
+ * always signed by the last key in the set. The RSA signature check itself dominates both, so run
+ * with {@code -prof gc} to see the difference in allocations as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SignatureVerifierBenchmark {
+  @Param({"1", "4", "16"})
+  public int keys;
+
+  private String token;
+
+  private SignatureVerifier selecting;
+
+  private SignatureVerifier indexed;
+
+  @Setup
+  public void setupSignatureVerifierBenchmark() throws Exception {
+    List<JWK> jwks = new ArrayList<>();
+    RSAKey last = null;
+    for (int i = 0; i < keys; i++)
+      jwks.add(last = new RSAKeyGenerator(2048).keyID("key" + i).generate());
+
+    SignedJWT jwt = new SignedJWT(
+        new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(last.getKeyID()).build(),
+        new JWTClaimsSet.Builder().subject("benchmark").build());
+    jwt.sign(new RSASSASigner(last));
+    token = jwt.serialize();
+
+    selecting = new SelectingSignatureVerifier(JWSAlgorithm.RS256,
+        new ImmutableJWKSet<>(new JWKSet(jwks)));
+    indexed = new IndexedSignatureVerifier(JWSAlgorithm.RS256, new JWKSet(jwks));
+  }
+
+  @Benchmark
+  public Failure selecting() throws Exception {
+    return selecting.verify(SignedJWT.parse(token));
+  }
+
+  @Benchmark
+  public Failure indexed() throws Exception {
+    return indexed.verify(SignedJWT.parse(token));
+  }
+}
@@ -0,0 +1,128 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.benchmarks;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.OctetKeyPairGenerator;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.factory.DefaultJWTFactory;
+import com.sigpwned.dropwizard.jose.jwt.verification.IndexedSignatureVerifier;
+import com.sigpwned.dropwizard.jose.jwt.verification.Verification.Failure;
+
+/**
+ * Compares issuing and verifying tokens with each of the supported public key algorithms, and with
+ * HS256 as a baseline. The cost of signing and verifying differs a lot between RSA, ECDSA, EdDSA,
+ * and HMAC, and so does the size of the signature, which travels with every request. The
+ * {@code issue} benchmark reports the size of the issued token as the {@code tokenBytes} counter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SigningAlgorithmBenchmark {
+  public static final String ISSUER = "benchmark";
+
+  public static final Duration TOKEN_LIFETIME = Duration.ofHours(1L);
+
+  @Param({"RS256", "PS256", "ES256", "EdDSA", "HS256"})
+  public String algorithm;
+
+  private JWTClaimsSet claims;
+
+  private DefaultJWTFactory factory;
+
+  private IndexedSignatureVerifier verifier;
+
+  private String token;
+
+  /**
+   * Reports the size of the tokens we issue alongside the timings
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class TokenSize {
+    public long tokenBytes;
+
+    @Setup(Level.Iteration)
+    public void resetTokenSize() {
+      tokenBytes = 0L;
+    }
+  }
+
+  @Setup
+  public void setupSigningAlgorithmBenchmark() throws Exception {
+    final JWSAlgorithm alg = JWSAlgorithm.parse(algorithm);
+
+    JWK jwk;
+    if (JWSAlgorithm.Family.EC.contains(alg))
+      jwk = new ECKeyGenerator(Curve.P_256).keyID("benchmark").generate();
+    else if (JWSAlgorithm.Family.ED.contains(alg))
+      jwk = new OctetKeyPairGenerator(Curve.Ed25519).keyID("benchmark").generate();
+    else if (JWSAlgorithm.Family.HMAC_SHA.contains(alg))
+      jwk = new OctetSequenceKeyGenerator(256).keyID("benchmark").generate();
+    else
+      jwk = new RSAKeyGenerator(2048).keyID("benchmark").generate();
+
+    claims = new JWTClaimsSet.Builder().claim("accountId", "100")
+        .claim("accountUsername", "administrator").claim("accountName", "Big Boss").build();
+    factory = new DefaultJWTFactory(new JWKSet(jwk), ISSUER, TOKEN_LIFETIME, alg);
+    // Secret keys have no public half, so verifiers get the secret itself
+    final JWK verificationKey = jwk.toPublicJWK() != null ? jwk.toPublicJWK() : jwk;
+    verifier = new IndexedSignatureVerifier(alg, new JWKSet(verificationKey));
+    token = factory.issue(claims).getToken();
+  }
+
+  @Benchmark
+  public String issue(TokenSize size) throws Exception {
+    final String result = factory.issue(claims).getToken();
+    // Compact tokens are pure ASCII, so each character is one byte
+    size.tokenBytes = result.length();
+    return result;
+  }
+
+  @Benchmark
+  public Failure verify() throws Exception {
+    return verifier.verify(SignedJWT.parse(token));
+  }
+}
@@ -0,0 +1,122 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt-benchmarks
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.benchmarks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSObject;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.mint.ConfigurableJWSMinter;
+import com.nimbusds.jose.mint.DefaultJWSMinter;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.JWTFactory;
+import com.sigpwned.dropwizard.jose.jwt.factory.DefaultJWTFactory;
+
+/**
+ * Compares the original {@link DefaultJWTFactory#create(JWTClaimsSet)}, which built a new minter,
+ * key source, header, and signer for every token, against the current implementation, which
+ * reuses them. The benchmark runs on several threads to resemble a burst of logins. The RSA
+ * signature itself dominates both, so run with {@code -prof gc} to see the difference in
+ * allocations as well. It also compares getting the compact token from
+ * {@link DefaultJWTFactory#create(JWTClaimsSet)} with getting it from
+ * {@link DefaultJWTFactory#issue(JWTClaimsSet)}, which never builds a {@link SignedJWT} at all.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class TokenIssuanceBenchmark {
+  public static final String ISSUER = "benchmark";
+
+  public static final Duration TOKEN_LIFETIME = Duration.ofHours(1L);
+
+  private JWKSet jwks;
+
+  private JWTClaimsSet claims;
+
+  private DefaultJWTFactory factory;
+
+  @Setup
+  public void setupTokenIssuanceBenchmark() throws Exception {
+    jwks = new JWKSet(new RSAKeyGenerator(2048).keyID("benchmark").generate());
+    claims = new JWTClaimsSet.Builder().claim("accountId", "100")
+        .claim("accountUsername", "administrator").claim("accountName", "Big Boss").build();
+    factory = new DefaultJWTFactory(jwks, ISSUER, TOKEN_LIFETIME);
+  }
+
+  @Benchmark
+  public SignedJWT legacyCreate() throws Exception {
+    final Instant now = Instant.now();
+
+    ConfigurableJWSMinter<SecurityContext> minter = new DefaultJWSMinter<>();
+
+    minter.setJWKSource(new ImmutableJWKSet<>(jwks));
+
+    JWSHeader header = new JWSHeader.Builder(JWTFactory.DEFAULT_SIGNING_ALGORITHM).build();
+
+    JWTClaimsSet.Builder csb = new JWTClaimsSet.Builder().issuer(ISSUER)
+        .jwtID(UUID.randomUUID().toString()).issueTime(Date.from(now))
+        .expirationTime(Date.from(now.plus(TOKEN_LIFETIME)));
+    for (Map.Entry<String, Object> claim : claims.getClaims().entrySet()) {
+      csb.claim(claim.getKey(), claim.getValue());
+    }
+
+    JWSObject jws = minter.mint(header, csb.build().toPayload(), null);
+    return SignedJWT.parse(jws.serialize());
+  }
+
+  @Benchmark
+  public SignedJWT create() throws Exception {
+    return factory.create(claims);
+  }
+
+  @Benchmark
+  public String serializedCreate() throws Exception {
+    return factory.create(claims).serialize();
+  }
+
+  @Benchmark
+  public String issue() throws Exception {
+    return factory.issue(claims).getToken();
+  }
+}
@@ -0,0 +1,114 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt-benchmarks
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.benchmarks;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.proc.DefaultJOSEObjectTypeVerifier;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.JWTParser;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.ConfigurableJWTProcessor;
+import com.nimbusds.jwt.proc.DefaultJWTClaimsVerifier;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import com.sigpwned.dropwizard.jose.jwt.factory.DefaultJWTFactory;
+import com.sigpwned.dropwizard.jose.jwt.verification.JWTVerifier;
+
+/**
+ * Compares the original JWTAuthFilter verification path, which parsed the header twice and asked
+ * for the claims set three times, against the single-pass {@link JWTVerifier}. The "parse"
+ * benchmarks leave out the signature check, which otherwise dominates the measurement.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VerificationPipelineBenchmark {
+  public static final String ISSUER = "benchmark";
+
+  private String token;
+
+  private ConfigurableJWTProcessor<SecurityContext> processor;
+
+  private JWTVerifier verifier;
+
+  @Setup
+  public void setupVerificationPipelineBenchmark() throws Exception {
+    JWKSet jwks = new JWKSet(new RSAKeyGenerator(2048).keyID("benchmark").generate());
+
+    token = new DefaultJWTFactory(jwks, ISSUER, Duration.ofDays(1L))
+        .create(new JWTClaimsSet.Builder().claim("accountId", "100")
+            .claim("accountUsername", "administrator").claim("accountName", "Big Boss").build())
+        .serialize();
+
+    // This is exactly how JWTAuthFilter configured its processor before JWTVerifier
+    processor = new DefaultJWTProcessor<>();
+    processor.setJWETypeVerifier(DefaultJOSEObjectTypeVerifier.JWT);
+    processor.setJWSKeySelector(
+        new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, new ImmutableJWKSet<>(jwks)));
+    processor.setJWTClaimsSetVerifier(new DefaultJWTClaimsVerifier<>(
+        new JWTClaimsSet.Builder().issuer(ISSUER).build(), Set.of("iat", "exp", "jti")));
+
+    verifier = new JWTVerifier(ISSUER, JWSAlgorithm.RS256, new ImmutableJWKSet<>(jwks));
+  }
+
+  @Benchmark
+  public JWTClaimsSet legacyVerify() throws Exception {
+    SignedJWT jwt = (SignedJWT) JWTParser.parse(token);
+    processor.process(jwt, null);
+    jwt.getJWTClaimsSet();
+    return jwt.getJWTClaimsSet();
+  }
+
+  @Benchmark
+  public JWTClaimsSet singlePassVerify() throws Exception {
+    return verifier.verify(token).getJwt().getClaims();
+  }
+
+  @Benchmark
+  public JWTClaimsSet legacyParse() throws Exception {
+    SignedJWT jwt = (SignedJWT) JWTParser.parse(token);
+    return jwt.getJWTClaimsSet();
+  }
+
+  @Benchmark
+  public JWTClaimsSet singlePassParse() throws Exception {
+    return SignedJWT.parse(token).getJWTClaimsSet();
+  }
+}
@@ -25,26 +25,26 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.JWTClaimsAuthenticator;
 import com.sigpwned.dropwizard.jose.jwt.example.webapp.model.Account;
 import io.dropwizard.auth.AuthenticationException;
-import io.dropwizard.auth.Authenticator;
 
 /**
  * Because we are using stateless JWTs, this object is basically just a mapping from JWT claims to
  * our application's specific user model object, {@link Account}.
  */
-public class ExampleAuthenticator implements Authenticator<SignedJWT, Account> {
+public class ExampleAuthenticator extends JWTClaimsAuthenticator<Account> {
   private static final Logger LOGGER = LoggerFactory.getLogger(ExampleAuthenticator.class);
 
   /**
    * The underlying JWT has already been parsed and verified by the time we reach this code, so you
-   * can trust the claims.
+   * can trust the claims. The claims were parsed during verification, so there's no need to parse
+   * them again here.
    */
   @Override
-  public Optional<Account> authenticate(SignedJWT jwt) throws AuthenticationException {
+  protected Optional<Account> authenticate(SignedJWT jwt, JWTClaimsSet claims)
+      throws AuthenticationException {
     try {
-      JWTClaimsSet claims = jwt.getJWTClaimsSet();
-
       // The whole point of stateless JWTs is that we put all of the required session information
       // into the JWT itself as claims. So let's just grab those claims and make our user!
       String id = claims.getStringClaim("accountId");
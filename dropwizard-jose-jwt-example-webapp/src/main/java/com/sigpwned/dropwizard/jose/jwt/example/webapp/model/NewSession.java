@@ -22,30 +22,29 @@ package com.sigpwned.dropwizard.jose.jwt.example.webapp.model;
 import java.util.Objects;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.nimbusds.jwt.SignedJWT;
 import com.sigpwned.dropwizard.jose.jwt.example.webapp.linting.Generated;
 
 public class NewSession {
   @JsonCreator
-  public static NewSession of(@JsonProperty("token") SignedJWT token,
+  public static NewSession of(@JsonProperty("token") String token,
       @JsonProperty("account") Account account) {
     return new NewSession(token, account);
   }
 
-  private final SignedJWT token;
+  private final String token;
   private final Account account;
 
   @Generated
-  public NewSession(SignedJWT token, Account account) {
+  public NewSession(String token, Account account) {
     this.token = token;
     this.account = account;
   }
 
   /**
-   * @return the token
+   * @return the token in compact serialization
    */
   @Generated
-  public SignedJWT getToken() {
+  public String getToken() {
     return token;
   }
 
@@ -74,7 +73,7 @@ public class NewSession {
       return false;
     NewSession other = (NewSession) obj;
     return Objects.equals(account, other.account)
-        && Objects.equals(token.serialize(), other.token.serialize());
+        && Objects.equals(token, other.token);
   }
 
   @Override
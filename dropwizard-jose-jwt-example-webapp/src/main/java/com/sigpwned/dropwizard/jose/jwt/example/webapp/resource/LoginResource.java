@@ -20,6 +20,7 @@
 package com.sigpwned.dropwizard.jose.jwt.example.webapp.resource;
 
 import java.io.IOException;
+import java.util.concurrent.CompletionException;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.FormParam;
@@ -27,14 +28,17 @@ import javax.ws.rs.NotAuthorizedException;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.MediaType;
-import com.nimbusds.jwt.SignedJWT;
 import com.sigpwned.dropwizard.jose.jwt.JWTFactory;
 import com.sigpwned.dropwizard.jose.jwt.example.webapp.AccountStore;
 import com.sigpwned.dropwizard.jose.jwt.example.webapp.linting.Generated;
 import com.sigpwned.dropwizard.jose.jwt.example.webapp.model.Account;
 import com.sigpwned.dropwizard.jose.jwt.example.webapp.model.NewSession;
 import com.sigpwned.dropwizard.jose.jwt.example.webapp.util.Accounts;
+import com.sigpwned.dropwizard.jose.jwt.factory.SigningQueueFullException;
 
 /**
  * A simple example endpoint that simulates a user logging in. Note that the class has no
@@ -56,14 +60,32 @@ public class LoginResource {
   @POST
   @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
   @Produces(MediaType.APPLICATION_JSON)
-  public NewSession login(@FormParam("username") String username,
-      @FormParam("password") String password) throws IOException {
+  public void login(@FormParam("username") String username,
+      @FormParam("password") String password, @Suspended AsyncResponse response) throws IOException {
     Account account = getAccountStore().authenticate(username, password)
         .orElseThrow(() -> new NotAuthorizedException("password"));
 
-    SignedJWT token = getTokenFactory().create(Accounts.toClaims(account));
+    // Signing a token is pure CPU work, so we let the JWTBundle's signing threads do it instead of
+    // tying up this request thread. If too many logins are already waiting, then we tell the client
+    // to come back later. We issue the token rather than create it, so it goes straight to the
+    // client without being parsed and serialized again.
+    getTokenFactory().issueAsync(Accounts.toClaims(account)).whenComplete((token, e) -> {
+      if (e == null)
+        response.resume(NewSession.of(token.getToken(), account));
+      else if (unwrap(e) instanceof SigningQueueFullException)
+        response.resume(new ServiceUnavailableException(RETRY_AFTER_SECONDS));
+      else
+        response.resume(unwrap(e));
+    });
+  }
+
+  /**
+   * How long clients should wait before trying again when we are too busy to sign their tokens
+   */
+  /* default */ static final long RETRY_AFTER_SECONDS = 1L;
 
-    return NewSession.of(token, account);
+  private static Throwable unwrap(Throwable e) {
+    return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
   }
 
   /**
@@ -61,7 +61,7 @@ public class NewSessionMessageBodyWriter implements MessageBodyWriter<NewSession
     // It's safe to build the header value this way because both the Cookie key and value are both
     // URL safe. The string "token" is URL safe by inspection, and JWTs are URL safe by design.
     httpHeaders.add(HttpHeaders.SET_COOKIE,
-        String.format("%s=%s", JWTAuthFilter.DEFAULT_COOKIE_PARAMETER_NAME, t.getToken().serialize()));
+        String.format("%s=%s", JWTAuthFilter.DEFAULT_COOKIE_PARAMETER_NAME, t.getToken()));
 
     // Otherwise, we write the account object like normal.
     mapper.writeValue(entityStream, t.getAccount());
@@ -21,7 +21,9 @@ package com.sigpwned.dropwizard.jose.jwt.example.webapp.resource;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -31,7 +33,10 @@ import java.security.KeyStore;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
 import javax.ws.rs.NotAuthorizedException;
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.container.AsyncResponse;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -42,6 +47,7 @@ import com.sigpwned.dropwizard.jose.jwt.example.webapp.AccountStore;
 import com.sigpwned.dropwizard.jose.jwt.example.webapp.model.Account;
 import com.sigpwned.dropwizard.jose.jwt.example.webapp.model.NewSession;
 import com.sigpwned.dropwizard.jose.jwt.example.webapp.util.Claims;
+import com.sigpwned.dropwizard.jose.jwt.factory.AsyncJWTFactory;
 import com.sigpwned.dropwizard.jose.jwt.factory.DefaultJWTFactory;
 import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenTool;
 import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenToolConfiguration;
@@ -110,11 +116,13 @@ public class LoginResourceTest {
 
     LoginResource unit = new LoginResource(accountStore, jwtFactory);
 
-    NewSession observed = unit.login(username, password);
+    AsyncResponse response = mock(AsyncResponse.class);
 
-    NewSession expected = NewSession.of(jwtFactory.create(claims), account);
+    unit.login(username, password, response);
 
-    assertThat(observed, is(expected));
+    NewSession expected = NewSession.of(jwtFactory.issue(claims).getToken(), account);
+
+    verify(response).resume(expected);
   }
 
   @Test(expected = NotAuthorizedException.class)
@@ -129,6 +137,27 @@ public class LoginResourceTest {
 
     LoginResource unit = new LoginResource(accountStore, jwtFactory);
 
-    unit.login(username, password);
+    unit.login(username, password, mock(AsyncResponse.class));
+  }
+
+  @Test
+  public void shouldFailWithServiceUnavailableIfSigningQueueIsFull() throws IOException {
+    final Account account = Account.of("id", "username", "User Name");
+
+    AccountStore accountStore = mock(AccountStore.class);
+    when(accountStore.authenticate("username", "password")).thenReturn(Optional.of(account));
+
+    JWTFactory jwtFactory =
+        new AsyncJWTFactory(new DefaultJWTFactory(jwks, ISSUER, Duration.ofHours(1L)), r -> {
+          throw new RejectedExecutionException();
+        });
+
+    LoginResource unit = new LoginResource(accountStore, jwtFactory);
+
+    AsyncResponse response = mock(AsyncResponse.class);
+
+    unit.login("username", "password", response);
+
+    verify(response).resume(any(ServiceUnavailableException.class));
   }
 }
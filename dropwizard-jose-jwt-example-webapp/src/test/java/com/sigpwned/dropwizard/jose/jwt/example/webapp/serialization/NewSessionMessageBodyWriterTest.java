@@ -31,7 +31,6 @@ import javax.ws.rs.core.MultivaluedHashMap;
 import javax.ws.rs.core.MultivaluedMap;
 import org.junit.Test;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.nimbusds.jwt.SignedJWT;
 import com.sigpwned.dropwizard.jose.jwt.JWTAuthFilter;
 import com.sigpwned.dropwizard.jose.jwt.example.webapp.model.Account;
 import com.sigpwned.dropwizard.jose.jwt.example.webapp.model.NewSession;
@@ -52,9 +51,7 @@ public class NewSessionMessageBodyWriterTest {
       }
     };
 
-    SignedJWT jwt = SignedJWT.parse(EXAMPLE_SIGNED_JWT_STRING);
-
-    NewSession ns = NewSession.of(jwt, Account.of("id", "username", "name"));
+    NewSession ns = NewSession.of(EXAMPLE_SIGNED_JWT_STRING, Account.of("id", "username", "name"));
 
     OutputStream entityStream = mock(OutputStream.class);
 
@@ -64,7 +61,7 @@ public class NewSessionMessageBodyWriterTest {
         MediaType.APPLICATION_JSON_TYPE, httpHeaders, entityStream);
 
     assertThat(httpHeaders.getFirst(HttpHeaders.SET_COOKIE),
-        is(JWTAuthFilter.DEFAULT_COOKIE_PARAMETER_NAME + "=" + jwt.serialize()));
+        is(JWTAuthFilter.DEFAULT_COOKIE_PARAMETER_NAME + "=" + EXAMPLE_SIGNED_JWT_STRING));
 
     verify(mapper).writeValue(entityStream, ns.getAccount());
   }
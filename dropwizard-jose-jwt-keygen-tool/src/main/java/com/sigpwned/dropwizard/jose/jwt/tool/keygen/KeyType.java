@@ -0,0 +1,131 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.tool.keygen;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+
+/**
+ * The kinds of keys the tool can generate. Each type knows how to generate its keys, which JWS
+ * algorithm its keys are for, and how to sign the certificate for its public key.
+ */
+public enum KeyType {
+  /**
+   * RSA keys for {@code RS256}. The key width and certificate hash length come from the
+   * {@code DEFAULT_JWK_KEY_WIDTH} and {@code DEFAULT_JWK_HASH_LENGTH} environment variables.
+   */
+  RSA("RSA", null, "RS256", "SHA256withRSA"),
+
+  /**
+   * EC keys on the P-256 curve for {@code ES256}
+   */
+  P256("EC", "secp256r1", "ES256", "SHA256withECDSA"),
+
+  /**
+   * EC keys on the P-384 curve for {@code ES384}
+   */
+  P384("EC", "secp384r1", "ES384", "SHA384withECDSA"),
+
+  /**
+   * Ed25519 keys for {@code EdDSA}. Requires Java 15 or later.
+   */
+  ED25519("Ed25519", null, "EdDSA", "Ed25519");
+
+  private final String keyAlgorithm;
+  private final String curve;
+  private final String signingAlgorithm;
+  private final String signatureAlgorithm;
+
+  private KeyType(String keyAlgorithm, String curve, String signingAlgorithm,
+      String signatureAlgorithm) {
+    this.keyAlgorithm = keyAlgorithm;
+    this.curve = curve;
+    this.signingAlgorithm = signingAlgorithm;
+    this.signatureAlgorithm = signatureAlgorithm;
+  }
+
+  /**
+   * @param keyWidth the width of RSA keys. Ignored for other key types.
+   */
+  public KeyPairGenerator newKeyPairGenerator(int keyWidth) throws GeneralSecurityException {
+    KeyPairGenerator result = KeyPairGenerator.getInstance(getKeyAlgorithm());
+    if (this == RSA)
+      result.initialize(keyWidth);
+    else if (getCurve() != null)
+      result.initialize(new ECGenParameterSpec(getCurve()));
+    return result;
+  }
+
+  /**
+   * @param hashLength the hash length of RSA certificate signatures. Ignored for other key types,
+   *        whose hash is fixed by the curve.
+   * @return the JCA name of the algorithm used to sign the certificate
+   */
+  public String getCertificateSignatureAlgorithm(int hashLength) {
+    if (this == RSA)
+      return "SHA" + hashLength + "With" + getKeyAlgorithm();
+    return getSignatureAlgorithm();
+  }
+
+  /**
+   * @param keyWidth the width of RSA keys. Ignored for other key types.
+   * @return the length of a JWS signature made with this type of key, in bytes
+   */
+  public int getSignatureLength(int keyWidth) {
+    switch (this) {
+      case RSA:
+        return keyWidth / 8;
+      case P384:
+        return 96;
+      default:
+        return 64;
+    }
+  }
+
+  /**
+   * @return the JCA name of the key algorithm
+   */
+  public String getKeyAlgorithm() {
+    return keyAlgorithm;
+  }
+
+  /**
+   * @return the JCA name of the EC curve, or {@code null} if this is not an EC key type
+   */
+  public String getCurve() {
+    return curve;
+  }
+
+  /**
+   * @return the name of the JWS algorithm that signs with this type of key, which is the value to
+   *         use for {@code signingAlgorithm} in the webapp configuration
+   */
+  public String getSigningAlgorithm() {
+    return signingAlgorithm;
+  }
+
+  /**
+   * @return the JCA name of the signature algorithm that the JWS algorithm uses
+   */
+  public String getSignatureAlgorithm() {
+    return signatureAlgorithm;
+  }
+}
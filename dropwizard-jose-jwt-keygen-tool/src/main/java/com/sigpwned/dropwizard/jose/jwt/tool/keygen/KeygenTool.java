@@ -19,17 +19,20 @@
  */
 package com.sigpwned.dropwizard.jose.jwt.tool.keygen;
 
+import java.io.PrintStream;
 import java.math.BigInteger;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.KeyPair;
-import java.security.KeyPairGenerator;
 import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.Signature;
 import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
@@ -45,8 +48,8 @@ import com.sigpwned.discourse.core.util.Discourse;
 import com.sigpwned.discourse.validation.ValidatingCommandBuilder;
 
 /**
- * Generates a KeyStore containing an RSA key suitable for use as a JWK. This implementation uses
- * BouncyCastle to ensure that certificate chains are generated as expected.
+ * Generates a KeyStore containing an RSA, EC, or Ed25519 key suitable for use as a JWK. This
+ * implementation uses BouncyCastle to ensure that certificate chains are generated as expected.
  */
 public class KeygenTool {
   /**
@@ -56,7 +59,8 @@ public class KeygenTool {
   public static final String KEY_STORE_TYPE = "PKCS12";
 
   /**
-   * We use RSA because we want a public key cryptosystem and the JDK supports RSA out of the box.
+   * We use RSA by default because we want a public key cryptosystem and every JDK supports RSA out
+   * of the box. See {@link KeyType} for the other options.
    */
   public static final String KEY_ALGORITHM = "RSA";
 
@@ -113,13 +117,13 @@ public class KeygenTool {
     final String keyAlias = Optional.ofNullable(configuration.keyAlias)
         .orElse(now.atOffset(ZoneOffset.UTC).toLocalDate().toString());
 
-    final String signatureAlgorithm = "SHA" + hashLength + "With" + KEY_ALGORITHM;
+    final KeyType keyType = configuration.keyType;
 
-    KeyPairGenerator kpg = KeyPairGenerator.getInstance(KEY_ALGORITHM);
-    kpg.initialize(keyWidth);
-    KeyPair kp = kpg.generateKeyPair();
-    RSAPublicKey pub = (RSAPublicKey) kp.getPublic();
-    RSAPrivateKey priv = (RSAPrivateKey) kp.getPrivate();
+    final String signatureAlgorithm = keyType.getCertificateSignatureAlgorithm(hashLength);
+
+    KeyPair kp = keyType.newKeyPairGenerator(keyWidth).generateKeyPair();
+    PublicKey pub = kp.getPublic();
+    PrivateKey priv = kp.getPrivate();
 
     X509Certificate cert;
     try {
@@ -144,5 +148,72 @@ public class KeygenTool {
     store.setKeyEntry(keyAlias, priv, null, new Certificate[] {cert});
 
     store.store(configuration.out, password.toCharArray());
+
+    if (configuration.err != null)
+      printCost(configuration.err, keyType, kp, keyWidth);
+  }
+
+  /**
+   * The number of signatures to make before measuring, so the JIT has a chance to warm up
+   */
+  private static final int COST_WARMUP_SAMPLES = 10;
+
+  /**
+   * The number of signatures to measure
+   */
+  private static final int COST_SAMPLES = 50;
+
+  /**
+   * Measures how long it takes to sign and verify a token-sized message with the given key on this
+   * machine, and prints the results along with the configuration the webapp needs to use the key.
+   * This is only a rough estimate, but it's enough to compare key types.
+   */
+  private static void printCost(PrintStream err, KeyType keyType, KeyPair kp, int keyWidth)
+      throws GeneralSecurityException {
+    final byte[] message = new byte[256];
+    new SecureRandom().nextBytes(message);
+
+    Signature signer = Signature.getInstance(keyType.getSignatureAlgorithm());
+    Signature verifier = Signature.getInstance(keyType.getSignatureAlgorithm());
+
+    byte[] signature = null;
+    for (int i = 0; i < COST_WARMUP_SAMPLES; i++) {
+      signature = sign(signer, kp.getPrivate(), message);
+      if (!verify(verifier, kp.getPublic(), message, signature))
+        throw new IllegalStateException("Generated key cannot verify its own signature");
+    }
+
+    long signNanos = 0L;
+    long verifyNanos = 0L;
+    for (int i = 0; i < COST_SAMPLES; i++) {
+      long start = System.nanoTime();
+      signature = sign(signer, kp.getPrivate(), message);
+      long middle = System.nanoTime();
+      verify(verifier, kp.getPublic(), message, signature);
+      long end = System.nanoTime();
+      signNanos = signNanos + (middle - start);
+      verifyNanos = verifyNanos + (end - middle);
+    }
+
+    err.printf("Generated a %s key for %s. Set signingAlgorithm to %s to use it.%n", keyType,
+        keyType.getSigningAlgorithm(), keyType.getSigningAlgorithm());
+    // This usually ends up in a log, so stick to ASCII units
+    err.printf("Expected cost on this machine: %.3fms to sign, %.3fms to verify, "
+        + "%d bytes per signature.%n", signNanos / COST_SAMPLES / 1000000.0,
+        verifyNanos / COST_SAMPLES / 1000000.0, keyType.getSignatureLength(keyWidth));
+  }
+
+  private static byte[] sign(Signature signer, PrivateKey key, byte[] message)
+      throws GeneralSecurityException {
+    signer.initSign(key);
+    signer.update(message);
+    return signer.sign();
+  }
+
+  private static boolean verify(Signature verifier, PublicKey key, byte[] message,
+      byte[] signature) throws GeneralSecurityException {
+    verifier.initVerify(key);
+    verifier.update(message);
+    return verifier.verify(signature);
   }
 }
@@ -22,6 +22,7 @@ package com.sigpwned.dropwizard.jose.jwt.tool.keygen;
 import java.io.PrintStream;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
 import com.sigpwned.discourse.core.StandardConfigurationBase;
 import com.sigpwned.discourse.core.annotation.Configurable;
 import com.sigpwned.discourse.core.annotation.OptionParameter;
@@ -45,6 +46,10 @@ public class KeygenToolConfiguration extends StandardConfigurationBase {
   @OptionParameter(shortName = "e", longName = "expirationMonths", required = false, description = "The expiration period of the generated keys in months. The default period is 12 months, or 1 year.")
   public int expirationMonths = DEFAULT_EXPIRATION_MONTHS;
 
+  @NotNull
+  @OptionParameter(shortName = "k", longName = "keyType", required = false, description = "The type of key to generate: RSA for RS256, P256 for ES256, P384 for ES384, or ED25519 for EdDSA. The default type is RSA.")
+  public KeyType keyType = KeyType.RSA;
+
   /**
    * Not configurable. For testing only.
    */
@@ -52,4 +57,10 @@ public class KeygenToolConfiguration extends StandardConfigurationBase {
 
   // Not configurable
   public PrintStream out = System.out;
+
+  /**
+   * Not configurable. Where to print the expected cost of the generated key, or {@code null} to skip
+   * measuring it.
+   */
+  public PrintStream err = System.err;
 }
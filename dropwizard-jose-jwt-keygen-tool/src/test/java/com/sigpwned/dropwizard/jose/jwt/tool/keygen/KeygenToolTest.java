@@ -19,15 +19,19 @@
  */
 package com.sigpwned.dropwizard.jose.jwt.tool.keygen;
 
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.PrintStream;
 import java.security.Key;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyStore;
+import java.security.cert.X509Certificate;
 import org.junit.Test;
 
 public class KeygenToolTest {
@@ -62,4 +66,49 @@ public class KeygenToolTest {
       keyStoreFile.delete();
     }
   }
+
+  @Test
+  public void shouldWriteEllipticCurveAndEdwardsCurveKeys() throws Exception {
+    assertWritesKeyStore(KeyType.P256, "EC", "SHA256withECDSA");
+    assertWritesKeyStore(KeyType.P384, "EC", "SHA384withECDSA");
+    assertWritesKeyStore(KeyType.ED25519, "EdDSA", "Ed25519");
+  }
+
+  private static void assertWritesKeyStore(KeyType keyType, String keyAlgorithm,
+      String certificateSignatureAlgorithm) throws Exception {
+    File keyStoreFile = File.createTempFile("keystore.", ".p12");
+    try {
+      ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+      KeygenToolConfiguration ktc = new KeygenToolConfiguration();
+      ktc.realm = "realm";
+      ktc.password = PASSWORD;
+      ktc.out = new PrintStream(new FileOutputStream(keyStoreFile));
+      ktc.err = new PrintStream(err, true, "UTF-8");
+      ktc.keyAlias = KEY_ALIAS;
+      ktc.keyType = keyType;
+
+      KeygenTool.main(ktc);
+
+      KeyStore keyStore = KeyStore.getInstance(KeygenTool.KEY_STORE_TYPE);
+
+      try (InputStream inputStream = new FileInputStream(keyStoreFile)) {
+        keyStore.load(inputStream, PASSWORD.toCharArray());
+      }
+
+      Key key = keyStore.getKey(KEY_ALIAS, null);
+      X509Certificate cert = (X509Certificate) keyStore.getCertificate(KEY_ALIAS);
+
+      assertThat(key.getAlgorithm(), is(keyAlgorithm));
+      assertThat(cert.getSigAlgName(), is(certificateSignatureAlgorithm));
+      cert.verify(cert.getPublicKey());
+
+      String report = new String(err.toByteArray(), StandardCharsets.UTF_8);
+      assertThat(report, containsString(keyType.getSigningAlgorithm()));
+      assertThat(report,
+          containsString(keyType.getSignatureLength(KeygenTool.KEY_WIDTH) + " bytes"));
+    } finally {
+      keyStoreFile.delete();
+    }
+  }
 }
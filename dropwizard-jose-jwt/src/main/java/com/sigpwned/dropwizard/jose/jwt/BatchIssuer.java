@@ -0,0 +1,104 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import com.nimbusds.jwt.JWTClaimsSet;
+
+/**
+ * Issues a sequence of tokens on a {@link ForkJoinPool}. Only a bounded window of tokens is in
+ * flight at any time, so arbitrarily long inputs can be streamed without holding them in memory,
+ * and results are handed back in input order.
+ */
+/* default */ final class BatchIssuer implements Iterator<Issuance> {
+  /**
+   * How many tokens per pool thread to keep in flight. A few per thread keeps every thread busy
+   * even when the consumer is briefly slow to take results.
+   */
+  private static final int TASKS_PER_THREAD = 4;
+
+  public static Stream<Issuance> stream(JWTFactory factory, Stream<JWTClaimsSet> claims,
+      ForkJoinPool pool) {
+    BatchIssuer issuer = new BatchIssuer(factory, claims.iterator(), pool,
+        Math.max(pool.getParallelism(), 1) * TASKS_PER_THREAD);
+    return StreamSupport
+        .stream(Spliterators.spliteratorUnknownSize(issuer,
+            Spliterator.ORDERED | Spliterator.NONNULL), false)
+        .onClose(claims::close);
+  }
+
+  private final JWTFactory factory;
+  private final Iterator<JWTClaimsSet> claims;
+  private final ForkJoinPool pool;
+  private final int window;
+  private final Deque<ForkJoinTask<Issuance>> pending;
+  private int index;
+
+  private BatchIssuer(JWTFactory factory, Iterator<JWTClaimsSet> claims, ForkJoinPool pool,
+      int window) {
+    this.factory = factory;
+    this.claims = claims;
+    this.pool = pool;
+    this.window = window;
+    this.pending = new ArrayDeque<>(window);
+  }
+
+  @Override
+  public boolean hasNext() {
+    fill();
+    return !pending.isEmpty();
+  }
+
+  @Override
+  public Issuance next() {
+    fill();
+    if (pending.isEmpty())
+      throw new NoSuchElementException();
+    return pending.removeFirst().join();
+  }
+
+  private void fill() {
+    while (pending.size() < window && claims.hasNext()) {
+      final int i = index++;
+      final JWTClaimsSet c = claims.next();
+      pending.addLast(pool.submit(() -> issue(i, c)));
+    }
+  }
+
+  /**
+   * Never throws, so one bad token cannot abort the batch
+   */
+  private Issuance issue(int i, JWTClaimsSet c) {
+    try {
+      return Issuance.issued(i, c, factory.issue(c));
+    } catch (Exception e) {
+      return Issuance.failed(i, c, e);
+    }
+  }
+}
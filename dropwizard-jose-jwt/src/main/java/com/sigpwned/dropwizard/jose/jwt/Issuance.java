@@ -0,0 +1,86 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt;
+
+import static java.util.Objects.requireNonNull;
+import com.nimbusds.jwt.JWTClaimsSet;
+
+/**
+ * The outcome of issuing one token in a batch. A failure to issue one token does not abort the
+ * batch, so each outcome carries either the issued token or the error that prevented it.
+ * 
+ * @see JWTFactory#createAll(java.util.Collection)
+ */
+public final class Issuance {
+  public static Issuance issued(int index, JWTClaimsSet claims, IssuedJWT jwt) {
+    return new Issuance(index, claims, requireNonNull(jwt), null);
+  }
+
+  public static Issuance failed(int index, JWTClaimsSet claims, Exception error) {
+    return new Issuance(index, claims, null, requireNonNull(error));
+  }
+
+  private final int index;
+  private final JWTClaimsSet claims;
+  private final IssuedJWT jwt;
+  private final Exception error;
+
+  private Issuance(int index, JWTClaimsSet claims, IssuedJWT jwt, Exception error) {
+    this.index = index;
+    this.claims = claims;
+    this.jwt = jwt;
+    this.error = error;
+  }
+
+  /**
+   * @return the position of the claims in the batch, starting at 0
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * @return the claims the token was requested with
+   */
+  public JWTClaimsSet getClaims() {
+    return claims;
+  }
+
+  /**
+   * @return {@code true} if the token was issued, or {@code false} otherwise
+   */
+  public boolean isIssued() {
+    return jwt != null;
+  }
+
+  /**
+   * @return the issued token, or {@code null} if issuing failed
+   */
+  public IssuedJWT getJwt() {
+    return jwt;
+  }
+
+  /**
+   * @return the reason issuing failed, or {@code null} if the token was issued
+   */
+  public Exception getError() {
+    return error;
+  }
+}
@@ -0,0 +1,81 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt;
+
+import static java.util.Objects.requireNonNull;
+import com.nimbusds.jwt.JWTClaimsSet;
+
+/**
+ * A freshly-issued JWT. The token is the compact serialization that goes out to the client, and the
+ * claims are the claims set that was signed, so callers can use both without parsing the token they
+ * just created.
+ */
+public final class IssuedJWT {
+  public static IssuedJWT of(String token, JWTClaimsSet claims) {
+    return new IssuedJWT(token, claims);
+  }
+
+  private final String token;
+  private final JWTClaimsSet claims;
+
+  public IssuedJWT(String token, JWTClaimsSet claims) {
+    this.token = requireNonNull(token);
+    this.claims = requireNonNull(claims);
+  }
+
+  /**
+   * @return the token in compact serialization
+   */
+  public String getToken() {
+    return token;
+  }
+
+  /**
+   * @return the claims
+   */
+  public JWTClaimsSet getClaims() {
+    return claims;
+  }
+
+  @Override
+  public int hashCode() {
+    return token.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    IssuedJWT other = (IssuedJWT) obj;
+    return token.equals(other.token);
+  }
+
+  /**
+   * Leaves out the token itself, since it is a credential.
+   */
+  @Override
+  public String toString() {
+    return "IssuedJWT [claims=" + claims + "]";
+  }
+}
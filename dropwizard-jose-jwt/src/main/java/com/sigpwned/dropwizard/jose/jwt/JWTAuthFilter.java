@@ -21,9 +21,10 @@ package com.sigpwned.dropwizard.jose.jwt;
 
 import static java.util.Objects.requireNonNull;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.security.Principal;
-import java.util.Optional;
-import java.util.Set;
+import java.util.Map;
+import java.util.function.Supplier;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.core.Cookie;
 import javax.ws.rs.core.HttpHeaders;
@@ -33,17 +34,19 @@ import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.jwk.JWKSet;
 import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
 import com.nimbusds.jose.jwk.source.JWKSource;
-import com.nimbusds.jose.proc.DefaultJOSEObjectTypeVerifier;
-import com.nimbusds.jose.proc.JWSVerificationKeySelector;
 import com.nimbusds.jose.proc.SecurityContext;
-import com.nimbusds.jwt.JWT;
-import com.nimbusds.jwt.JWTClaimsSet;
-import com.nimbusds.jwt.JWTParser;
 import com.nimbusds.jwt.SignedJWT;
-import com.nimbusds.jwt.proc.ConfigurableJWTProcessor;
-import com.nimbusds.jwt.proc.DefaultJWTClaimsVerifier;
-import com.nimbusds.jwt.proc.DefaultJWTProcessor;
-import com.nimbusds.jwt.proc.JWTProcessor;
+import com.sigpwned.dropwizard.jose.jwt.keys.RemoteJWKSet;
+import com.sigpwned.dropwizard.jose.jwt.util.AuthorizationHeaders;
+import com.sigpwned.dropwizard.jose.jwt.verification.IssuerPolicy;
+import com.sigpwned.dropwizard.jose.jwt.verification.JWTVerifier;
+import com.sigpwned.dropwizard.jose.jwt.verification.RefetchingSignatureVerifier;
+import com.sigpwned.dropwizard.jose.jwt.verification.ReloadableSignatureVerifier;
+import com.sigpwned.dropwizard.jose.jwt.verification.TokenPrevalidator;
+import com.sigpwned.dropwizard.jose.jwt.verification.Verification;
+import com.sigpwned.dropwizard.jose.jwt.verification.VerificationOrder;
+import com.sigpwned.dropwizard.jose.jwt.verification.VerifiedJWT;
+import com.sigpwned.dropwizard.jose.jwt.verification.VerifiedTokenCache;
 import io.dropwizard.auth.AuthFilter;
 import io.dropwizard.auth.Authenticator;
 import io.dropwizard.auth.Authorizer;
@@ -88,13 +91,22 @@ public class JWTAuthFilter<P extends Principal> extends AuthFilter<SignedJWT, P>
     private String issuer;
     private JWSAlgorithm signingAlgorithm;
     private JWKSource<SecurityContext> jwkSource;
+    private Supplier<JWKSet> jwkSupplier;
+    private RemoteJWKSet remoteJWKSet;
+    private Map<String, IssuerPolicy> issuers;
     private String queryParameterName;
     private String cookieParameterName;
+    private VerifiedTokenCache verifiedTokenCache;
+    private TokenPrevalidator tokenPrevalidator;
+    private VerificationOrder verificationOrder;
 
     private Builder() {
       setPrefix(DEFAULT_PREFIX);
       queryParameterName = DEFAULT_QUERY_PARAMETER_NAME;
       cookieParameterName = DEFAULT_COOKIE_PARAMETER_NAME;
+      tokenPrevalidator = new TokenPrevalidator();
+      verificationOrder = JWTVerifier.DEFAULT_VERIFICATION_ORDER;
+      setUnauthorizedHandler(new JWTUnauthorizedHandler());
     }
 
     /**
@@ -108,6 +120,20 @@ public class JWTAuthFilter<P extends Principal> extends AuthFilter<SignedJWT, P>
       return this;
     }
 
+    /**
+     * Accepts tokens from several issuers, each with its own algorithms, keys, and required claims.
+     * Each token is routed to its issuer's policy by its {@code iss} claim, so it is only ever
+     * checked against that issuer's keys. If this method is called, then the issuer, signing
+     * algorithm, and keys set using the other methods are ignored.
+     * 
+     * @param issuers the policy for each issuer whose tokens we accept
+     * @see IssuerPolicy
+     */
+    public Builder<P> setIssuers(Map<String, IssuerPolicy> issuers) {
+      this.issuers = issuers;
+      return this;
+    }
+
     /**
      * @param signingAlgorithm the signingAlgorithm to set
      */
@@ -121,6 +147,41 @@ public class JWTAuthFilter<P extends Principal> extends AuthFilter<SignedJWT, P>
      */
     public Builder<P> setJWKSource(JWKSource<SecurityContext> jwkSource) {
       this.jwkSource = jwkSource;
+      this.jwkSupplier = null;
+      this.remoteJWKSet = null;
+      return this;
+    }
+
+    /**
+     * Verifies tokens against whatever keys the given supplier returns at the time, so the keys can
+     * change without rebuilding the filter. The supplier should return the same instance until the
+     * keys change, since verifiers are rebuilt whenever it returns a new one. If this method is
+     * called, then there is no need to call {@link #setJWKSource(JWKSource)}.
+     * 
+     * @param jwkSupplier the jwkSupplier to set
+     * @see ReloadableSignatureVerifier
+     */
+    public Builder<P> setJWKSupplier(Supplier<JWKSet> jwkSupplier) {
+      this.jwkSupplier = jwkSupplier;
+      this.jwkSource = null;
+      this.remoteJWKSet = null;
+      return this;
+    }
+
+    /**
+     * Verifies tokens against the keys another service publishes, e.g., at its
+     * {@code /.well-known/jwks.json}. The keys are refreshed in the background, and refetched when
+     * a token names a key we have not seen yet. The caller is responsible for managing the
+     * lifecycle of the given keys, e.g., with {@code environment.lifecycle().manage(jwks)}. If this
+     * method is called, then there is no need to call {@link #setJWKSource(JWKSource)}.
+     * 
+     * @param remoteJWKSet the remoteJWKSet to set
+     * @see RefetchingSignatureVerifier
+     */
+    public Builder<P> setRemoteJWKSet(RemoteJWKSet remoteJWKSet) {
+      this.remoteJWKSet = remoteJWKSet;
+      this.jwkSource = null;
+      this.jwkSupplier = null;
       return this;
     }
 
@@ -150,6 +211,39 @@ public class JWTAuthFilter<P extends Principal> extends AuthFilter<SignedJWT, P>
       return this;
     }
 
+    /**
+     * Enables caching of verified tokens. By default, no cache is used, and every token is verified
+     * on every request. If the keys come from {@link #setJWKSupplier(Supplier)} or
+     * {@link #setRemoteJWKSet(RemoteJWKSet)}, then the filter clears the cache whenever the keys
+     * change. Otherwise, the caller must clear the cache when the keys change.
+     * 
+     * @param verifiedTokenCache the verifiedTokenCache to set, or {@code null} for no cache
+     */
+    public Builder<P> setVerifiedTokenCache(VerifiedTokenCache verifiedTokenCache) {
+      this.verifiedTokenCache = verifiedTokenCache;
+      return this;
+    }
+
+    /**
+     * Sets the structural checks that tokens must pass before they are parsed. By default, a
+     * {@link TokenPrevalidator} with default limits is used.
+     * 
+     * @param tokenPrevalidator the tokenPrevalidator to set, or {@code null} for no checks
+     */
+    public Builder<P> setTokenPrevalidator(TokenPrevalidator tokenPrevalidator) {
+      this.tokenPrevalidator = tokenPrevalidator;
+      return this;
+    }
+
+    /**
+     * @param verificationOrder the verificationOrder to set
+     * @see VerificationOrder
+     */
+    public Builder<P> setVerificationOrder(VerificationOrder verificationOrder) {
+      this.verificationOrder = verificationOrder;
+      return this;
+    }
+
     @Override
     public Builder<P> setRealm(String realm) {
       return (Builder<P>) super.setRealm(realm);
@@ -177,56 +271,35 @@ public class JWTAuthFilter<P extends Principal> extends AuthFilter<SignedJWT, P>
 
     @Override
     protected JWTAuthFilter<P> newInstance() {
-      requireNonNull(issuer, "issuer is not set");
-      requireNonNull(signingAlgorithm, "signingAlgorithm is not set");
-      requireNonNull(jwkSource, "jwkSource is not set");
-
-      return new JWTAuthFilter<>(issuer, signingAlgorithm, jwkSource, queryParameterName,
-          cookieParameterName);
-    }
-  }
-
-  private static class Authorization {
-    public static Authorization fromString(String s) {
-      int index = s.indexOf(' ');
-      if (index == -1)
-        throw new IllegalArgumentException("no method");
-
-      String method = s.substring(0, index).strip();
-      String credentials = s.substring(index + 1, s.length()).strip();
-
-      return of(method, credentials);
-    }
-
-    public static Authorization of(String method, String credentials) {
-      return new Authorization(method, credentials);
-    }
-
-    private final String method;
-    private final String credentials;
-
-    public Authorization(String method, String credentials) {
-      this.method = method;
-      this.credentials = credentials;
-    }
+      requireNonNull(verificationOrder, "verificationOrder is not set");
 
-    /**
-     * @return the method
-     */
-    public String getMethod() {
-      return method;
-    }
+      if (issuers != null) {
+        return new JWTAuthFilter<>(new JWTVerifier(issuers, verificationOrder), queryParameterName,
+            cookieParameterName, verifiedTokenCache, tokenPrevalidator);
+      }
 
-    /**
-     * @return the credentials
-     */
-    public String getCredentials() {
-      return credentials;
-    }
+      requireNonNull(issuer, "issuer is not set");
+      requireNonNull(signingAlgorithm, "signingAlgorithm is not set");
+      if (jwkSource == null && jwkSupplier == null && remoteJWKSet == null)
+        throw new NullPointerException("jwkSource is not set");
+
+      final JWTVerifier verifier;
+      if (remoteJWKSet != null) {
+        // Published key sets only hold public keys, so they can never hold an HMAC secret
+        if (JWSAlgorithm.Family.HMAC_SHA.contains(signingAlgorithm))
+          throw new IllegalArgumentException(
+              "Cannot verify " + signingAlgorithm + " tokens against a remote JWK set");
+        verifier = new JWTVerifier(issuer,
+            new RefetchingSignatureVerifier(signingAlgorithm, remoteJWKSet), verificationOrder);
+      } else if (jwkSupplier != null) {
+        verifier = new JWTVerifier(issuer,
+            new ReloadableSignatureVerifier(signingAlgorithm, jwkSupplier), verificationOrder);
+      } else {
+        verifier = new JWTVerifier(issuer, signingAlgorithm, jwkSource, verificationOrder);
+      }
 
-    @Override
-    public String toString() {
-      return getMethod() + " " + getCredentials();
+      return new JWTAuthFilter<>(verifier, queryParameterName, cookieParameterName,
+          verifiedTokenCache, tokenPrevalidator, remoteJWKSet != null ? remoteJWKSet : jwkSupplier);
     }
   }
 
@@ -244,7 +317,27 @@ public class JWTAuthFilter<P extends Principal> extends AuthFilter<SignedJWT, P>
    */
   private final String cookieParameterName;
 
-  private final JWTProcessor<SecurityContext> processor;
+  private final JWTVerifier verifier;
+
+  /**
+   * An optional cache of tokens that have already been verified
+   */
+  private final VerifiedTokenCache verifiedTokenCache;
+
+  /**
+   * The keys tokens are verified against, if they can change, so we know when to clear the cache
+   */
+  private final Supplier<JWKSet> jwks;
+
+  /**
+   * The keys we saw last time we used the cache
+   */
+  private volatile JWKSet cachedJwks;
+
+  /**
+   * Optional structural checks that reject garbage tokens before they are parsed
+   */
+  private final TokenPrevalidator tokenPrevalidator;
 
   public JWTAuthFilter(String issuer, JWSAlgorithm signingAlgorithm, JWKSet jwks) {
     this(issuer, signingAlgorithm, new ImmutableJWKSet<>(jwks));
@@ -256,40 +349,47 @@ public class JWTAuthFilter<P extends Principal> extends AuthFilter<SignedJWT, P>
         DEFAULT_COOKIE_PARAMETER_NAME);
   }
 
-  @SuppressWarnings("unchecked")
   public JWTAuthFilter(String issuer, JWSAlgorithm signingAlgorithm,
       JWKSource<SecurityContext> jwkSource, String queryParameterName, String cookieParameterName) {
-    if (issuer == null)
-      throw new NullPointerException();
-    if (signingAlgorithm == null)
-      throw new NullPointerException();
-    if (jwkSource == null)
-      throw new NullPointerException();
+    this(issuer, signingAlgorithm, jwkSource, queryParameterName, cookieParameterName, null);
+  }
 
-    // We're going to create our processor manually
-    ConfigurableJWTProcessor<SecurityContext> p = new DefaultJWTProcessor<>();
+  public JWTAuthFilter(String issuer, JWSAlgorithm signingAlgorithm,
+      JWKSource<SecurityContext> jwkSource, String queryParameterName, String cookieParameterName,
+      VerifiedTokenCache verifiedTokenCache) {
+    this(issuer, signingAlgorithm, jwkSource, queryParameterName, cookieParameterName,
+        verifiedTokenCache, new TokenPrevalidator());
+  }
 
-    // We don't need to check our type since we don't need to distinguish between JOSE types and,
-    // nothing other than a JWT will pass validation, but the framework forces us to attach a type
-    // to the object, so let's just check for it.
-    p.setJWETypeVerifier(DefaultJOSEObjectTypeVerifier.JWT);
+  public JWTAuthFilter(String issuer, JWSAlgorithm signingAlgorithm,
+      JWKSource<SecurityContext> jwkSource, String queryParameterName, String cookieParameterName,
+      VerifiedTokenCache verifiedTokenCache, TokenPrevalidator tokenPrevalidator) {
+    this(new JWTVerifier(issuer, signingAlgorithm, jwkSource), queryParameterName,
+        cookieParameterName, verifiedTokenCache, tokenPrevalidator);
+  }
 
-    // Tell the processor to use our default algorithms, and to look for keys in the given source.
-    p.setJWSKeySelector(new JWSVerificationKeySelector<>(signingAlgorithm, jwkSource));
+  public JWTAuthFilter(JWTVerifier verifier, String queryParameterName, String cookieParameterName,
+      VerifiedTokenCache verifiedTokenCache, TokenPrevalidator tokenPrevalidator) {
+    this(verifier, queryParameterName, cookieParameterName, verifiedTokenCache, tokenPrevalidator,
+        null);
+  }
 
-    // We need to validate some claim values:
-    // - iss: We always set to realm
-    //
-    // We also need to validate the presence of some other claims:
-    // - iat: Issued at, which we always set
-    // - exp: Expires at, which we always set
-    // - jti: JWT ID, which we always set
-    p.setJWTClaimsSetVerifier(new DefaultJWTClaimsVerifier<>(
-        new JWTClaimsSet.Builder().issuer(issuer).build(), Set.of("iat", "exp", "jti")));
+  /**
+   * @param jwks the keys the verifier checks tokens against, or {@code null} if they never change.
+   *        The cache is cleared whenever this returns a different instance.
+   */
+  public JWTAuthFilter(JWTVerifier verifier, String queryParameterName, String cookieParameterName,
+      VerifiedTokenCache verifiedTokenCache, TokenPrevalidator tokenPrevalidator,
+      Supplier<JWKSet> jwks) {
+    if (verifier == null)
+      throw new NullPointerException();
 
-    this.processor = p;
+    this.verifier = verifier;
     this.queryParameterName = queryParameterName;
     this.cookieParameterName = cookieParameterName;
+    this.verifiedTokenCache = verifiedTokenCache;
+    this.tokenPrevalidator = tokenPrevalidator;
+    this.jwks = jwks;
   }
 
   @Override
@@ -297,54 +397,93 @@ public class JWTAuthFilter<P extends Principal> extends AuthFilter<SignedJWT, P>
     String credentials;
 
     // Try to read a JWT from the query parameter first, if we have one
-    credentials = Optional
-        .ofNullable(requestContext.getUriInfo().getQueryParameters().getFirst(queryParameterName))
-        .orElse(null);
+    credentials = requestContext.getUriInfo().getQueryParameters().getFirst(queryParameterName);
 
     // Try to read a JWT from the cookie parameter next, if we have one
     if (credentials == null && cookieParameterName != null) {
-      credentials = Optional.ofNullable(requestContext.getCookies().get(cookieParameterName))
-          .map(Cookie::getValue).orElse(null);
+      Cookie cookie = requestContext.getCookies().get(cookieParameterName);
+      if (cookie != null)
+        credentials = cookie.getValue();
     }
 
-    // Try to read a JWT from the authentication header last, if we have one
+    // Try to read a JWT from the authentication header last, if we have one. A missing or malformed
+    // header just means this isn't valid authentication.
     if (credentials == null) {
-      try {
-        credentials = Optional.ofNullable(requestContext.getHeaderString(HttpHeaders.AUTHORIZATION))
-            .map(Authorization::fromString).filter(a -> a.getMethod().equalsIgnoreCase(prefix))
-            .map(Authorization::getCredentials).orElse(null);
-      } catch (IllegalArgumentException e) {
-        // No problem. This just isn't valid authentication.
+      credentials = AuthorizationHeaders
+          .extractCredentials(requestContext.getHeaderString(HttpHeaders.AUTHORIZATION), prefix);
+    }
+
+    // Throw away anything that obviously isn't a token before we spend any real effort on it
+    if (credentials != null && tokenPrevalidator != null) {
+      TokenPrevalidator.Rejection rejection = tokenPrevalidator.prevalidate(credentials);
+      if (rejection != null) {
         if (LOGGER.isDebugEnabled())
-          LOGGER.debug("Failed to parse authorization", e);
+          LOGGER.debug("Rejected malformed JWT: {}", rejection);
         credentials = null;
       }
     }
 
     // Treat the credentials as a JWT and try to extract claims from them
-    SignedJWT signedJwt = null;
-    if (credentials != null) {
-      try {
-        JWT jwt = JWTParser.parse(credentials);
-        if (jwt instanceof SignedJWT) {
-          signedJwt = (SignedJWT) jwt;
-
-          // Make sure our JWT is properly signed
-          processor.process(signedJwt, null);
-
-          // Make sure the claims can be parsed
-          signedJwt.getJWTClaimsSet();
-        }
-      } catch (Exception e) {
+    VerifiedJWT verifiedJwt = null;
+    boolean cacheable = false;
+    long generation = 0L;
+    if (credentials != null && verifiedTokenCache != null && isCacheCurrent()) {
+      // If we have already verified this exact token, then there's no need to do it again. We take
+      // the generation first, so a token verified against keys that change meanwhile is not kept.
+      cacheable = true;
+      generation = verifiedTokenCache.getGeneration();
+      verifiedJwt = verifiedTokenCache.getIfPresent(credentials);
+    }
+    if (credentials != null && verifiedJwt == null) {
+      // Parse the token, make sure it is properly signed, and check its claims, all in one go. A
+      // rejected token is reported as a reason, not an exception, so bad tokens stay cheap.
+      Verification verification = verifier.verify(credentials);
+      if (verification.isVerified()) {
+        verifiedJwt = verification.getJwt();
+        if (cacheable)
+          verifiedTokenCache.put(credentials, verifiedJwt, generation);
+      } else {
         if (LOGGER.isDebugEnabled())
-          LOGGER.debug("Failed to process JWT claims", e);
-        signedJwt = null;
+          LOGGER.debug("Rejected JWT: {}", verification.getFailure());
       }
     }
 
+    // The claims have already been parsed and memoized on the JWT, so the authenticator can call
+    // SignedJWT#getJWTClaimsSet() without parsing the payload again.
+    SignedJWT signedJwt = verifiedJwt != null ? verifiedJwt.getJwt() : null;
+
     // See if the application accepts our claims, which may be null. If not, fail as unauthorized.
     if (!authenticate(requestContext, signedJwt, javax.ws.rs.core.SecurityContext.BASIC_AUTH)) {
       throw unauthorizedHandler.buildException(prefix, realm);
     }
   }
+
+  /**
+   * Clears the cache if the keys have changed since we last used it, since the cached tokens were
+   * verified against the old keys.
+   * 
+   * @return {@code false} if we cannot tell what the current keys are, and so should not use the
+   *         cache at all, or {@code true} otherwise
+   */
+  private boolean isCacheCurrent() {
+    if (jwks == null)
+      return true;
+
+    final JWKSet current;
+    try {
+      current = jwks.get();
+    } catch (UncheckedIOException e) {
+      // The verifier will report the problem, so there's no need to do it here
+      return false;
+    }
+    if (current == null)
+      return false;
+
+    if (current != cachedJwks) {
+      cachedJwks = current;
+      verifiedTokenCache.invalidateAll();
+    }
+
+    return true;
+  }
 }
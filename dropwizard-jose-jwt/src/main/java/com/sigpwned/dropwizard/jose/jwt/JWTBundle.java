@@ -19,17 +19,37 @@
  */
 package com.sigpwned.dropwizard.jose.jwt;
 
+import java.io.File;
 import java.io.IOException;
-import java.security.KeyStore;
-import java.security.KeyStoreException;
 import java.security.Principal;
 import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import javax.servlet.DispatcherType;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.SecretJWK;
 import com.nimbusds.jwt.SignedJWT;
-import com.sigpwned.dropwizard.jose.jwt.factory.DefaultJWTFactory;
-import com.sigpwned.dropwizard.jose.jwt.util.KeyStores;
+import com.sigpwned.dropwizard.jose.jwt.factory.AsyncJWTFactory;
+import com.sigpwned.dropwizard.jose.jwt.factory.SigningKeySchedule;
+import com.sigpwned.dropwizard.jose.jwt.keys.KeyRegistry;
+import com.sigpwned.dropwizard.jose.jwt.keys.KeyRing;
+import com.sigpwned.dropwizard.jose.jwt.keys.KeyStoreJWKSetLoader;
+import com.sigpwned.dropwizard.jose.jwt.keys.KeyStoreReloader;
+import com.sigpwned.dropwizard.jose.jwt.keys.ReloadKeysTask;
+import com.sigpwned.dropwizard.jose.jwt.verification.IndexedSignatureVerifier;
+import com.sigpwned.dropwizard.jose.jwt.verification.TokenPrevalidator;
+import com.sigpwned.dropwizard.jose.jwt.verification.VerifiedTokenCache;
 import io.dropwizard.auth.AuthDynamicFeature;
 import io.dropwizard.auth.Authenticator;
 import io.dropwizard.auth.Authorizer;
@@ -94,8 +114,18 @@ public class JWTBundle<P extends Principal> implements ConfiguredBundle<JWTBundl
     // Pull out our configuration
     final JWTConfiguration configuration = bundleConfiguration.getJWTConfiguration();
 
-    // Build our JWT factory
-    final JWTFactory jwtFactory = newJWTFactory(configuration);
+    // Load our keys into a key ring, which lets us swap in new keys without a restart, and publish
+    // how long each phase of loading them took, since it dominates our startup time. The registry
+    // belongs to the configuration, so user code that calls buildJWTFactory() shares these keys.
+    final KeyRegistry keyRegistry = configuration.buildKeyRegistry();
+    final KeyRing keyRing = keyRegistry.getKeyRing();
+    if (keyRegistry.getLoader() instanceof KeyStoreJWKSetLoader)
+      registerKeyLoadMetrics((KeyStoreJWKSetLoader) keyRegistry.getLoader(), environment.metrics());
+
+    // Build our JWT factory, and give it its own threads for signing tokens asynchronously
+    final JWTFactory jwtFactory =
+        newAsyncJWTFactory(newJWTFactory(configuration), configuration, environment);
+    checkKeyTypes(jwtFactory.getJwks());
 
     // Register our JWT factory for dependency injection
     environment.jersey().register(new AbstractBinder() {
@@ -105,44 +135,184 @@ public class JWTBundle<P extends Principal> implements ConfiguredBundle<JWTBundl
       }
     });
 
+    // Build our verified token cache, if we have one, and publish its statistics
+    final VerifiedTokenCache verifiedTokenCache = newVerifiedTokenCache(configuration);
+    if (verifiedTokenCache != null)
+      registerVerifiedTokenCacheMetrics(verifiedTokenCache, environment.metrics());
+
+    // Build the structural checks that reject garbage tokens early, and publish their counts
+    final TokenPrevalidator tokenPrevalidator = newTokenPrevalidator(configuration);
+    registerTokenPrevalidatorMetrics(tokenPrevalidator, environment.metrics());
+
     // Register the auth filter that checks JWTs on the way in. Note that the JWTAuthFilter does NOT
     // issue new JWTs. That is up to the user. For a good example, see the example webapp project in
     // this repository.
     environment.jersey()
         .register(new AuthDynamicFeature(JWTAuthFilter.<P>builder()
             .setIssuer(jwtFactory.getIssuer()).setRealm(jwtFactory.getIssuer())
-            .setJWKs(jwtFactory.getJwks()).setSigningAlgorithm(jwtFactory.getSigningAlgorithm())
+            .setJWKSupplier(jwtFactory::getJwks)
+            .setSigningAlgorithm(jwtFactory.getSigningAlgorithm())
+            .setVerifiedTokenCache(verifiedTokenCache).setTokenPrevalidator(tokenPrevalidator)
+            .setVerificationOrder(configuration.getVerificationOrder())
             .setAuthenticator(authenticator).setAuthorizer(authorizer).buildAuthFilter()));
 
     // Register the servlet filter that makes JWK public key available for third party users. This
     // allows them to verify JWTs on their own. Note that we have to use a public key cryptosystem
-    // (like RSA) as opposed to a symmetric key cryptosystem (like AES) for this to make sense.
-    environment.servlets()
-        .addFilter(WELL_KNOWN_JWKS_FILTER_NAME, new WellKnownJWKSetHttpFilter(jwtFactory.getJwks()))
-        .addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST), false, "/*");
+    // (like RSA) as opposed to a symmetric key cryptosystem (like HMAC) for this to make sense, so
+    // with HMAC there is nothing to publish, and we don't register the filter at all.
+    if (!JWSAlgorithm.Family.HMAC_SHA.contains(jwtFactory.getSigningAlgorithm())) {
+      environment.servlets()
+          .addFilter(WELL_KNOWN_JWKS_FILTER_NAME,
+              new WellKnownJWKSetHttpFilter((Supplier<JWKSet>) jwtFactory::getJwks))
+          .addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST), false, "/*");
+    }
+
+    // Reload the keys from the key store periodically, if configured, and on demand from the admin
+    // port. The factory, auth filter, and well-known filter all read from the same key ring, so
+    // they all switch to the new keys at the same time.
+    final KeyStoreReloader keyStoreReloader =
+        newKeyStoreReloader(configuration, keyRing, keyRegistry.getLoader());
+    environment.lifecycle().manage(keyStoreReloader);
+    environment.admin().addTask(new ReloadKeysTask(keyStoreReloader));
   }
 
   /**
-   * Creates the JWT Factory from JWKs
+   * Returns the configuration's shared JWT Factory
    */
   /* default */ JWTFactory newJWTFactory(JWTConfiguration configuration) throws IOException {
-    KeyStore store = loadKeyStore(configuration);
+    return configuration.buildJWTFactory();
+  }
 
-    JWKSet jwks;
-    try {
-      jwks = JWKSet.load(store, null);
-    } catch (KeyStoreException e) {
-      throw new IOException("Failed to load keys from store", e);
+  /**
+   * Creates the reloader that swaps new keys from the configured key store into the given key
+   * ring. New keys are only swapped in if a factory could sign with them and a verifier could be
+   * built from them.
+   */
+  /* default */ KeyStoreReloader newKeyStoreReloader(JWTConfiguration configuration,
+      KeyRing keyRing, KeyStoreReloader.Loader keyLoader) {
+    final File keyStoreFile = new File(configuration.getKeyStorePath());
+    return new KeyStoreReloader(keyRing, keyLoader, jwks -> {
+      checkKeyTypes(jwks);
+      new SigningKeySchedule(jwks, configuration.getSigningAlgorithm(),
+          configuration.getTokenLifetime(), configuration.getSigningKeyAlias());
+      new IndexedSignatureVerifier(configuration.getSigningAlgorithm(), jwks);
+    }, configuration.getKeyStoreReloadInterval(), keyStoreFile.isFile() ? keyStoreFile : null);
+  }
+
+  /**
+   * Refuses key sets that mix secret keys with public key pairs. Anyone who holds an HMAC secret
+   * can mint tokens, so a secret belongs in a key store that only the services sharing it can
+   * read. A key store that also holds key pairs is meant to be shared more widely than that, e.g.,
+   * by publishing its public keys, so we would rather fail than risk leaking the secret with them.
+   * 
+   * @throws IllegalArgumentException if the key set mixes secret keys and key pairs
+   */
+  /* default */ static void checkKeyTypes(JWKSet jwks) {
+    boolean secret = false;
+    boolean asymmetric = false;
+    for (JWK jwk : jwks.getKeys()) {
+      if (jwk instanceof SecretJWK)
+        secret = true;
+      else
+        asymmetric = true;
     }
+    if (secret && asymmetric)
+      throw new IllegalArgumentException(
+          "Key store must not mix secret keys with public key pairs");
+  }
+
+  /* default */ static final String KEY_LOAD_METRICS_NAME = "keyLoad";
 
-    return new DefaultJWTFactory(jwks, configuration.getIssuer(), configuration.getTokenLifetime());
+  /**
+   * Publishes how long each phase of the initial key load took, e.g., keyLoad.decrypt
+   */
+  private void registerKeyLoadMetrics(KeyStoreJWKSetLoader keyLoader, MetricRegistry metrics) {
+    for (Map.Entry<String, Long> timing : keyLoader.getLastTimings().entrySet()) {
+      metrics.timer(MetricRegistry.name(JWTBundle.class, KEY_LOAD_METRICS_NAME, timing.getKey()))
+          .update(timing.getValue(), TimeUnit.NANOSECONDS);
+    }
   }
 
+  /* default */ static final String SIGNING_EXECUTOR_NAME_FORMAT = "jwt-signing-%d";
+
+  /* default */ static final String SIGNING_METRICS_NAME = "signing";
+
   /**
-   * Loads the keys for our JWKs from the configured key store
+   * Wraps the given factory so that it signs tokens for {@link JWTFactory#createAsync} on a
+   * bounded, lifecycle-managed executor, and publishes the executor's queue depth and signing
+   * latency
    */
-  /* default */ KeyStore loadKeyStore(JWTConfiguration configuration) throws IOException {
-    return KeyStores.loadKeyStore(configuration.getKeyStoreType(), configuration.getKeyStorePath(),
-        configuration.getKeyStorePassword(), configuration.getKeyStoreProvider());
+  /* default */ JWTFactory newAsyncJWTFactory(JWTFactory jwtFactory,
+      JWTConfiguration configuration, Environment environment) {
+    final int threads = configuration.getSigningThreads() > 0 ? configuration.getSigningThreads()
+        : Runtime.getRuntime().availableProcessors();
+
+    final BlockingQueue<Runnable> queue =
+        new ArrayBlockingQueue<>(configuration.getSigningQueueCapacity());
+
+    final ExecutorService executor =
+        environment.lifecycle().executorService(SIGNING_EXECUTOR_NAME_FORMAT).minThreads(threads)
+            .maxThreads(threads).workQueue(queue)
+            .rejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy()).build();
+
+    final MetricRegistry metrics = environment.metrics();
+    metrics.register(MetricRegistry.name(JWTFactory.class, SIGNING_METRICS_NAME, "queueDepth"),
+        (Gauge<Integer>) queue::size);
+
+    return new AsyncJWTFactory(jwtFactory, executor,
+        metrics.timer(MetricRegistry.name(JWTFactory.class, SIGNING_METRICS_NAME, "latency")));
+  }
+
+  /**
+   * Creates the verified token cache, or returns {@code null} if caching is disabled
+   */
+  /* default */ VerifiedTokenCache newVerifiedTokenCache(JWTConfiguration configuration) {
+    if (configuration.getVerifiedTokenCacheMaximumSize() == 0L)
+      return null;
+    return new VerifiedTokenCache(configuration.getVerifiedTokenCacheMaximumSize(),
+        configuration.getVerifiedTokenCacheTtl());
   }
+
+  /* default */ static final String VERIFIED_TOKEN_CACHE_METRICS_NAME = "verifiedTokenCache";
+
+  /**
+   * Publishes the hit, miss, eviction, and size statistics of the given cache
+   */
+  private void registerVerifiedTokenCacheMetrics(VerifiedTokenCache cache,
+      MetricRegistry metrics) {
+    metrics.register(
+        MetricRegistry.name(JWTAuthFilter.class, VERIFIED_TOKEN_CACHE_METRICS_NAME, "hits"),
+        (Gauge<Long>) () -> cache.stats().hitCount());
+    metrics.register(
+        MetricRegistry.name(JWTAuthFilter.class, VERIFIED_TOKEN_CACHE_METRICS_NAME, "misses"),
+        (Gauge<Long>) () -> cache.stats().missCount());
+    metrics.register(
+        MetricRegistry.name(JWTAuthFilter.class, VERIFIED_TOKEN_CACHE_METRICS_NAME, "evictions"),
+        (Gauge<Long>) () -> cache.stats().evictionCount());
+    metrics.register(
+        MetricRegistry.name(JWTAuthFilter.class, VERIFIED_TOKEN_CACHE_METRICS_NAME, "size"),
+        (Gauge<Long>) cache::size);
+  }
+
+  /**
+   * Creates the structural checks for incoming tokens
+   */
+  /* default */ TokenPrevalidator newTokenPrevalidator(JWTConfiguration configuration) {
+    return new TokenPrevalidator(configuration.getMaxTokenLength(),
+        configuration.getMaxTokenHeaderLength());
+  }
+
+  /* default */ static final String TOKEN_PREVALIDATOR_METRICS_NAME = "rejectedTokens";
+
+  /**
+   * Publishes the number of tokens rejected for each reason, e.g., rejectedTokens.too_long
+   */
+  private void registerTokenPrevalidatorMetrics(TokenPrevalidator prevalidator,
+      MetricRegistry metrics) {
+    for (TokenPrevalidator.Rejection rejection : TokenPrevalidator.Rejection.values()) {
+      metrics.register(MetricRegistry.name(JWTAuthFilter.class, TOKEN_PREVALIDATOR_METRICS_NAME,
+          rejection.name().toLowerCase(Locale.ROOT)), prevalidator.getRejections(rejection));
+    }
+  }
+
 }
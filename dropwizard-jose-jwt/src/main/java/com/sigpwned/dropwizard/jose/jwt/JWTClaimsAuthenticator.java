@@ -0,0 +1,61 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt;
+
+import java.security.Principal;
+import java.text.ParseException;
+import java.util.Optional;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import io.dropwizard.auth.AuthenticationException;
+import io.dropwizard.auth.Authenticator;
+
+/**
+ * A convenience {@link Authenticator} for applications that build their {@link Principal} from JWT
+ * claims. By the time the {@link JWTAuthFilter} calls this authenticator, the JWT has already been
+ * parsed and verified, and the claims set built during verification has been memoized on the JWT.
+ * This class simply hands that claims set to the application, so no JSON is parsed here.
+ * 
+ * @param <P> The application {@link Principal} type
+ */
+public abstract class JWTClaimsAuthenticator<P extends Principal>
+    implements Authenticator<SignedJWT, P> {
+  @Override
+  public final Optional<P> authenticate(SignedJWT jwt) throws AuthenticationException {
+    JWTClaimsSet claims;
+    try {
+      claims = jwt.getJWTClaimsSet();
+    } catch (ParseException e) {
+      // This should never happen, since the claims were already parsed during verification.
+      throw new AuthenticationException("Failed to parse claims of verified JWT", e);
+    }
+    return authenticate(jwt, claims);
+  }
+
+  /**
+   * Maps the claims of a verified JWT to the application's principal.
+   *
+   * @param jwt the verified JWT
+   * @param claims the claims of the verified JWT, which can be trusted
+   * @return the principal, or empty if the claims do not identify a principal
+   */
+  protected abstract Optional<P> authenticate(SignedJWT jwt, JWTClaimsSet claims)
+      throws AuthenticationException;
+}
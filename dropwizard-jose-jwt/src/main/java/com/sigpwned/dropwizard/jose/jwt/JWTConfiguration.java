@@ -19,17 +19,31 @@
  */
 package com.sigpwned.dropwizard.jose.jwt;
 
+import java.io.File;
 import java.io.IOException;
-import java.security.KeyStore;
-import java.security.KeyStoreException;
 import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.validation.Valid;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
 import org.hibernate.validator.constraints.time.DurationMin;
 import com.nimbusds.jose.JWSAlgorithm;
-import com.nimbusds.jose.jwk.JWKSet;
+import com.sigpwned.dropwizard.jose.jwt.factory.AsyncJWTFactory;
 import com.sigpwned.dropwizard.jose.jwt.factory.DefaultJWTFactory;
+import com.sigpwned.dropwizard.jose.jwt.factory.JwtIdStrategy;
+import com.sigpwned.dropwizard.jose.jwt.factory.SigningKeySchedule;
+import com.sigpwned.dropwizard.jose.jwt.keys.JWKSetCache;
+import com.sigpwned.dropwizard.jose.jwt.keys.KeyRegistry;
+import com.sigpwned.dropwizard.jose.jwt.keys.KeyStoreJWKSetLoader;
+import com.sigpwned.dropwizard.jose.jwt.keys.KeyStoreReloader;
 import com.sigpwned.dropwizard.jose.jwt.util.KeyStores;
+import com.sigpwned.dropwizard.jose.jwt.util.PemKeys;
+import com.sigpwned.dropwizard.jose.jwt.util.RemoteByteSource;
+import com.sigpwned.dropwizard.jose.jwt.verification.JWTVerifier;
+import com.sigpwned.dropwizard.jose.jwt.verification.TokenPrevalidator;
+import com.sigpwned.dropwizard.jose.jwt.verification.VerificationOrder;
+import com.sigpwned.dropwizard.jose.jwt.verification.VerifiedTokenCache;
 
 public class JWTConfiguration {
   /**
@@ -48,6 +62,8 @@ public class JWTConfiguration {
    * 
    * Otherwise, an {@link IOException} is thrown.
    * 
+   * The data may also be PEM-encoded keys or a JSON JWK set, depending on {@link #keyStoreType}.
+   * 
    * @throws IOException if an I/O error occurs, or if the given path cannot be resolved to a key
    *         store
    */
@@ -56,15 +72,19 @@ public class JWTConfiguration {
   private String keyStorePath;
 
   /**
-   * The password to decrypt the keystore. Individual keys must not be encrypted.
+   * The password to decrypt the keystore. Individual keys must not be encrypted. Required unless
+   * {@link #keyStoreType} is PEM or JWKS.
    */
   @Valid
-  @NotEmpty
   private String keyStorePassword;
 
   /**
    * The optional type of keystore. The default value is PKCS12. If you used the KeygenTool in this
-   * repository, then you must use PKCS12.
+   * repository, then you must use PKCS12. The value PEM reads unencrypted PEM-encoded private keys,
+   * public keys, and certificates, and the value JWKS reads a JSON JWK set. Neither needs a
+   * password.
+   * 
+   * @see PemKeys
    */
   @Valid
   @NotEmpty
@@ -79,10 +99,26 @@ public class JWTConfiguration {
   private String keyStoreProvider;
 
   /**
-   * The algorithm used to sign new tokens. If you used the KeygenTool in this repository, then you
-   * must use an RSA-based algorithm.
+   * The optional alias of the key in the key store that signs new tokens. If no value is given,
+   * then the key store may hold several keys, and the newest key whose certificate is currently
+   * valid signs new tokens. Superseded keys still verify tokens for one token lifetime.
+   * 
+   * @see SigningKeySchedule
+   */
+  @Valid
+  private String signingKeyAlias;
+
+  /**
+   * The algorithm used to sign and verify tokens, which must suit the keys in the key store: RS256,
+   * RS384, RS512, PS256, PS384, or PS512 for RSA keys; ES256, ES384, or ES512 for EC keys on the
+   * matching curve; EdDSA for Ed25519 keys; or HS256, HS384, or HS512 for secret keys. EC and
+   * Ed25519 keys make much smaller tokens than RSA keys. HMAC is much faster than any of them, but
+   * anyone who can verify an HMAC token can also mint one, so it is only suitable between services
+   * that trust each other. With HMAC, the key store must hold only secret keys, it must not be
+   * fetched over plain HTTP, and the bundle does not publish any keys. The default value is RS256.
    */
   @Valid
+  @NotNull
   private JWSAlgorithm signingAlgorithm = JWTFactory.DEFAULT_SIGNING_ALGORITHM;
 
   /**
@@ -100,6 +136,141 @@ public class JWTConfiguration {
   @NotEmpty
   private String issuer;
 
+  /**
+   * How to generate the {@code jti} claim of new tokens. The default value is RANDOM_UUID, which
+   * matches earlier versions. THREAD_LOCAL_RANDOM_UUID produces the same kind of ID without
+   * contention when many threads create tokens at once.
+   * 
+   * @see JwtIdStrategy
+   */
+  @NotNull
+  private JwtIdStrategy jwtIdStrategy = JwtIdStrategy.RANDOM_UUID;
+
+  /**
+   * The number of threads that sign tokens for {@link JWTFactory#createAsync}. The default value is
+   * 0, which uses one thread per available processor.
+   * 
+   * @see AsyncJWTFactory
+   */
+  @Valid
+  @Min(0)
+  private int signingThreads = 0;
+
+  /**
+   * The maximum number of tokens waiting to be signed by {@link JWTFactory#createAsync}. When the
+   * queue is full, new requests fail immediately. Must be positive.
+   * 
+   * @see AsyncJWTFactory
+   */
+  @Valid
+  @Min(1)
+  private int signingQueueCapacity = AsyncJWTFactory.DEFAULT_QUEUE_CAPACITY;
+
+  /**
+   * The maximum number of verified tokens to remember so that repeat requests with the same token
+   * skip signature verification. The default value is 0, which disables the cache.
+   * 
+   * @see VerifiedTokenCache
+   */
+  @Valid
+  @Min(0)
+  private long verifiedTokenCacheMaximumSize = 0L;
+
+  /**
+   * The longest a verified token will be remembered, regardless of its expiration time. Must be
+   * positive. Only used if {@link #verifiedTokenCacheMaximumSize} is positive.
+   */
+  @Valid
+  @DurationMin(nanos = 0, inclusive = false)
+  private Duration verifiedTokenCacheTtl = VerifiedTokenCache.DEFAULT_TTL;
+
+  /**
+   * The longest compact token, in characters, that will be considered at all. Longer tokens are
+   * rejected without being parsed. Must be positive.
+   * 
+   * @see TokenPrevalidator
+   */
+  @Valid
+  @Min(1)
+  private int maxTokenLength = TokenPrevalidator.DEFAULT_MAX_TOKEN_LENGTH;
+
+  /**
+   * The longest encoded header segment, in characters, that will be considered at all. Tokens with
+   * longer headers are rejected without being parsed. Must be positive.
+   * 
+   * @see TokenPrevalidator
+   */
+  @Valid
+  @Min(1)
+  private int maxTokenHeaderLength = TokenPrevalidator.DEFAULT_MAX_HEADER_LENGTH;
+
+  /**
+   * Whether to check a token's claims before or after its signature. The default value is
+   * CLAIMS_FIRST, which rejects expired and foreign tokens without checking their signatures.
+   * Either way, a token is only accepted if both its claims and signature are valid.
+   */
+  @NotNull
+  private VerificationOrder verificationOrder = JWTVerifier.DEFAULT_VERIFICATION_ORDER;
+
+  /**
+   * How often to check the key store for new keys. If the key store is a local file, then it is
+   * only reloaded when it changes. The default value is null, which disables polling. Either way,
+   * the keys can be reloaded on demand with the reload-jwt-keys admin task.
+   * 
+   * @see KeyStoreReloader
+   */
+  @Valid
+  @DurationMin(nanos = 0, inclusive = false)
+  private Duration keyStoreReloadInterval = null;
+
+  /**
+   * The optional path of a local file that caches the keys from the key store, encrypted with
+   * {@link #keyCacheKey}, so that later starts can skip decrypting the key store. The cache is
+   * rebuilt whenever the key store changes. If no value is given, then the key store is decrypted
+   * on every start.
+   * 
+   * @see JWKSetCache
+   */
+  @Valid
+  private String keyCachePath;
+
+  /**
+   * The base64-encoded 128-, 192-, or 256-bit AES key that encrypts the key cache. Required if
+   * {@link #keyCachePath} is given.
+   */
+  @Valid
+  private String keyCacheKey;
+
+  /**
+   * How long to wait for a connection when {@link #keyStorePath} is a URL. If the server does not
+   * answer in time, then the mirrored copy is used, if there is one.
+   */
+  @Valid
+  @NotNull
+  @DurationMin(nanos = 0, inclusive = false)
+  private Duration keyStoreConnectTimeout = RemoteByteSource.DEFAULT_CONNECT_TIMEOUT;
+
+  /**
+   * How long to wait for data when {@link #keyStorePath} is a URL. If the server does not answer in
+   * time, then the mirrored copy is used, if there is one.
+   */
+  @Valid
+  @NotNull
+  @DurationMin(nanos = 0, inclusive = false)
+  private Duration keyStoreReadTimeout = RemoteByteSource.DEFAULT_READ_TIMEOUT;
+
+  /**
+   * The optional path of a local file that mirrors the key store when {@link #keyStorePath} is a
+   * URL. At startup, the mirror is used right away and revalidated in the background, so a slow
+   * server cannot stall startup. After that, it is revalidated with a conditional GET on every
+   * load, and used instead of the URL if the server is slow or down. If no value is given, then the
+   * key store must be downloaded on every start.
+   * 
+   * @see RemoteByteSource
+   */
+  @Valid
+  private String keyStoreMirrorPath;
+
   /**
    * @return the keyStorePath
    */
@@ -156,6 +327,20 @@ public class JWTConfiguration {
     this.keyStoreProvider = keyStoreProvider;
   }
 
+  /**
+   * @return the signingKeyAlias
+   */
+  public String getSigningKeyAlias() {
+    return signingKeyAlias;
+  }
+
+  /**
+   * @param signingKeyAlias the signingKeyAlias to set
+   */
+  public void setSigningKeyAlias(String signingKeyAlias) {
+    this.signingKeyAlias = signingKeyAlias;
+  }
+
   /**
    * @return the signingAlgorithm
    */
@@ -198,25 +383,266 @@ public class JWTConfiguration {
     this.issuer = issuer;
   }
 
-  private JWTFactory jwtFactoryInstance;
+  /**
+   * @return the jwtIdStrategy
+   */
+  public JwtIdStrategy getJwtIdStrategy() {
+    return jwtIdStrategy;
+  }
 
-  public synchronized JWTFactory buildJWTFactory() throws IOException {
-    if (jwtFactoryInstance == null)
-      jwtFactoryInstance = newJWTFactory();
-    return jwtFactoryInstance;
+  /**
+   * @param jwtIdStrategy the jwtIdStrategy to set
+   */
+  public void setJwtIdStrategy(JwtIdStrategy jwtIdStrategy) {
+    this.jwtIdStrategy = jwtIdStrategy;
   }
 
-  private JWTFactory newJWTFactory() throws IOException {
-    KeyStore store = KeyStores.loadKeyStore(getKeyStoreType(), getKeyStorePath(),
-        getKeyStorePassword(), getKeyStoreProvider());
-
-    JWKSet jwks;
-    try {
-      jwks = JWKSet.load(store, null);
-    } catch (KeyStoreException e) {
-      throw new IOException("Failed to load keys from store", e);
+  /**
+   * @return the signingThreads
+   */
+  public int getSigningThreads() {
+    return signingThreads;
+  }
+
+  /**
+   * @param signingThreads the signingThreads to set
+   */
+  public void setSigningThreads(int signingThreads) {
+    this.signingThreads = signingThreads;
+  }
+
+  /**
+   * @return the signingQueueCapacity
+   */
+  public int getSigningQueueCapacity() {
+    return signingQueueCapacity;
+  }
+
+  /**
+   * @param signingQueueCapacity the signingQueueCapacity to set
+   */
+  public void setSigningQueueCapacity(int signingQueueCapacity) {
+    this.signingQueueCapacity = signingQueueCapacity;
+  }
+
+  /**
+   * @return the verifiedTokenCacheMaximumSize
+   */
+  public long getVerifiedTokenCacheMaximumSize() {
+    return verifiedTokenCacheMaximumSize;
+  }
+
+  /**
+   * @param verifiedTokenCacheMaximumSize the verifiedTokenCacheMaximumSize to set
+   */
+  public void setVerifiedTokenCacheMaximumSize(long verifiedTokenCacheMaximumSize) {
+    this.verifiedTokenCacheMaximumSize = verifiedTokenCacheMaximumSize;
+  }
+
+  /**
+   * @return the verifiedTokenCacheTtl
+   */
+  public Duration getVerifiedTokenCacheTtl() {
+    return verifiedTokenCacheTtl;
+  }
+
+  /**
+   * @param verifiedTokenCacheTtl the verifiedTokenCacheTtl to set
+   */
+  public void setVerifiedTokenCacheTtl(Duration verifiedTokenCacheTtl) {
+    this.verifiedTokenCacheTtl = verifiedTokenCacheTtl;
+  }
+
+  /**
+   * @return the maxTokenLength
+   */
+  public int getMaxTokenLength() {
+    return maxTokenLength;
+  }
+
+  /**
+   * @param maxTokenLength the maxTokenLength to set
+   */
+  public void setMaxTokenLength(int maxTokenLength) {
+    this.maxTokenLength = maxTokenLength;
+  }
+
+  /**
+   * @return the maxTokenHeaderLength
+   */
+  public int getMaxTokenHeaderLength() {
+    return maxTokenHeaderLength;
+  }
+
+  /**
+   * @param maxTokenHeaderLength the maxTokenHeaderLength to set
+   */
+  public void setMaxTokenHeaderLength(int maxTokenHeaderLength) {
+    this.maxTokenHeaderLength = maxTokenHeaderLength;
+  }
+
+  /**
+   * @return the verificationOrder
+   */
+  public VerificationOrder getVerificationOrder() {
+    return verificationOrder;
+  }
+
+  /**
+   * @param verificationOrder the verificationOrder to set
+   */
+  public void setVerificationOrder(VerificationOrder verificationOrder) {
+    this.verificationOrder = verificationOrder;
+  }
+
+  /**
+   * @return the keyStoreReloadInterval
+   */
+  public Duration getKeyStoreReloadInterval() {
+    return keyStoreReloadInterval;
+  }
+
+  /**
+   * @param keyStoreReloadInterval the keyStoreReloadInterval to set
+   */
+  public void setKeyStoreReloadInterval(Duration keyStoreReloadInterval) {
+    this.keyStoreReloadInterval = keyStoreReloadInterval;
+  }
+
+  /**
+   * @return the keyCachePath
+   */
+  public String getKeyCachePath() {
+    return keyCachePath;
+  }
+
+  /**
+   * @param keyCachePath the keyCachePath to set
+   */
+  public void setKeyCachePath(String keyCachePath) {
+    this.keyCachePath = keyCachePath;
+  }
+
+  /**
+   * @return the keyCacheKey
+   */
+  public String getKeyCacheKey() {
+    return keyCacheKey;
+  }
+
+  /**
+   * @param keyCacheKey the keyCacheKey to set
+   */
+  public void setKeyCacheKey(String keyCacheKey) {
+    this.keyCacheKey = keyCacheKey;
+  }
+
+  /**
+   * @return the keyStoreConnectTimeout
+   */
+  public Duration getKeyStoreConnectTimeout() {
+    return keyStoreConnectTimeout;
+  }
+
+  /**
+   * @param keyStoreConnectTimeout the keyStoreConnectTimeout to set
+   */
+  public void setKeyStoreConnectTimeout(Duration keyStoreConnectTimeout) {
+    this.keyStoreConnectTimeout = keyStoreConnectTimeout;
+  }
+
+  /**
+   * @return the keyStoreReadTimeout
+   */
+  public Duration getKeyStoreReadTimeout() {
+    return keyStoreReadTimeout;
+  }
+
+  /**
+   * @param keyStoreReadTimeout the keyStoreReadTimeout to set
+   */
+  public void setKeyStoreReadTimeout(Duration keyStoreReadTimeout) {
+    this.keyStoreReadTimeout = keyStoreReadTimeout;
+  }
+
+  /**
+   * @return the keyStoreMirrorPath
+   */
+  public String getKeyStoreMirrorPath() {
+    return keyStoreMirrorPath;
+  }
+
+  /**
+   * @param keyStoreMirrorPath the keyStoreMirrorPath to set
+   */
+  public void setKeyStoreMirrorPath(String keyStoreMirrorPath) {
+    this.keyStoreMirrorPath = keyStoreMirrorPath;
+  }
+
+  private final AtomicReference<KeyRegistry> keyRegistryInstance = new AtomicReference<>();
+
+  /**
+   * Returns the one key registry for this configuration. The {@link JWTBundle}, its auth filter and
+   * JWKS endpoint, and {@link #buildJWTFactory()} all share it, so the key store is only loaded
+   * once, no matter who asks first.
+   */
+  public KeyRegistry buildKeyRegistry() {
+    KeyRegistry result = keyRegistryInstance.get();
+    if (result == null) {
+      // Creating a registry is cheap and does not load anything, so if we lose the race, then we
+      // just use the winner's
+      KeyRegistry created = new KeyRegistry(newKeyStoreJWKSetLoader());
+      result = keyRegistryInstance.compareAndSet(null, created) ? created
+          : keyRegistryInstance.get();
+    }
+    return result;
+  }
+
+  private final AtomicReference<JWTFactory> jwtFactoryInstance = new AtomicReference<>();
+
+  /**
+   * Returns the one JWT factory for this configuration, which signs with the keys from
+   * {@link #buildKeyRegistry()}. This does not lock once the factory exists.
+   */
+  public JWTFactory buildJWTFactory() throws IOException {
+    JWTFactory result = jwtFactoryInstance.get();
+    if (result == null) {
+      JWTFactory created = newJWTFactory();
+      result = jwtFactoryInstance.compareAndSet(null, created) ? created
+          : jwtFactoryInstance.get();
     }
+    return result;
+  }
 
-    return new DefaultJWTFactory(jwks, getIssuer(), getTokenLifetime());
+  private JWTFactory newJWTFactory() throws IOException {
+    return new DefaultJWTFactory(buildKeyRegistry().getKeyRing(), getIssuer(), getTokenLifetime(),
+        getSigningAlgorithm(), getSigningKeyAlias(),
+        getJwtIdStrategy().newJwtIdGenerator());
+  }
+
+  /**
+   * Creates the loader for the configured key store, which goes through the key cache and key store
+   * mirror if they are configured
+   * 
+   * @throws IllegalArgumentException if the key cache is configured incorrectly, or if an HMAC
+   *         secret would be fetched over plain HTTP
+   */
+  /* default */ KeyStoreJWKSetLoader newKeyStoreJWKSetLoader() {
+    // Anyone who sees an HMAC secret in transit can mint tokens with it
+    if (JWSAlgorithm.Family.HMAC_SHA.contains(getSigningAlgorithm())
+        && getKeyStorePath().regionMatches(true, 0, "http:", 0, 5))
+      throw new IllegalArgumentException("keyStorePath must not be a plain HTTP URL with "
+          + getSigningAlgorithm() + " because it holds a secret");
+    JWKSetCache cache = null;
+    if (getKeyCachePath() != null) {
+      if (getKeyCacheKey() == null)
+        throw new IllegalArgumentException("keyCacheKey is required if keyCachePath is given");
+      cache = new JWKSetCache(new File(getKeyCachePath()), JWKSetCache.parseKey(getKeyCacheKey()));
+    }
+    File mirror = getKeyStoreMirrorPath() != null ? new File(getKeyStoreMirrorPath()) : null;
+    return new KeyStoreJWKSetLoader(getKeyStoreType(),
+        KeyStores.keyStorePathSource(getKeyStorePath(), getKeyStoreConnectTimeout(),
+            getKeyStoreReadTimeout(), mirror),
+        getKeyStorePassword(), getKeyStoreProvider(), cache);
   }
 }
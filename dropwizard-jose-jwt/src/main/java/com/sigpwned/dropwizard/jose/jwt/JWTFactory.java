@@ -20,7 +20,15 @@
 package com.sigpwned.dropwizard.jose.jwt;
 
 import java.io.IOException;
+import java.text.ParseException;
 import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.jwk.JWKSet;
 import com.nimbusds.jwt.JWTClaimsSet;
@@ -32,6 +40,90 @@ public interface JWTFactory {
 
   SignedJWT create(JWTClaimsSet claims) throws IOException;
 
+  /**
+   * Creates a new token and returns it ready to send to the client. Implementations should override
+   * this method to serialize the token directly rather than building a {@link SignedJWT} first.
+   */
+  default IssuedJWT issue(JWTClaimsSet claims) throws IOException {
+    SignedJWT jwt = create(claims);
+    try {
+      return IssuedJWT.of(jwt.serialize(), jwt.getJWTClaimsSet());
+    } catch (ParseException e) {
+      throw new IOException("Failed to read claims from signed JWT", e);
+    }
+  }
+
+  /**
+   * Creates a new token without tying up the calling thread. By default, this signs the token on
+   * the calling thread and returns a completed stage. Implementations that sign on another thread,
+   * like {@link com.sigpwned.dropwizard.jose.jwt.factory.AsyncJWTFactory}, override this method.
+   */
+  default CompletionStage<SignedJWT> createAsync(JWTClaimsSet claims) {
+    CompletableFuture<SignedJWT> result = new CompletableFuture<>();
+    try {
+      result.complete(create(claims));
+    } catch (IOException | RuntimeException e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  /**
+   * Issues a new token without tying up the calling thread. This is the asynchronous counterpart of
+   * {@link #issue(JWTClaimsSet)}, just as {@link #createAsync(JWTClaimsSet)} is for
+   * {@link #create(JWTClaimsSet)}. By default, this issues the token on the calling thread and
+   * returns a completed stage.
+   */
+  default CompletionStage<IssuedJWT> issueAsync(JWTClaimsSet claims) {
+    CompletableFuture<IssuedJWT> result = new CompletableFuture<>();
+    try {
+      result.complete(issue(claims));
+    } catch (IOException | RuntimeException e) {
+      result.completeExceptionally(e);
+    }
+    return result;
+  }
+
+  /**
+   * Issues one token for each of the given claims on the common {@link ForkJoinPool}.
+   * 
+   * @see #createAll(Collection, ForkJoinPool)
+   */
+  default List<Issuance> createAll(Collection<JWTClaimsSet> claims) {
+    return createAll(claims, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Issues one token for each of the given claims, signing them in parallel on the given pool. The
+   * results are in the same order as the claims. If a token cannot be issued, then its result
+   * carries the error, and the rest of the batch continues.
+   */
+  default List<Issuance> createAll(Collection<JWTClaimsSet> claims, ForkJoinPool pool) {
+    try (Stream<Issuance> issuances = createAll(claims.stream(), pool)) {
+      return issuances.collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Issues one token for each of the given claims on the common {@link ForkJoinPool}.
+   * 
+   * @see #createAll(Stream, ForkJoinPool)
+   */
+  default Stream<Issuance> createAll(Stream<JWTClaimsSet> claims) {
+    return createAll(claims, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Lazily issues one token for each of the given claims, signing them in parallel on the given
+   * pool. Only a few tokens per pool thread are in flight at once, so this is suitable for very
+   * large batches. The results are in the same order as the claims. If a token cannot be issued,
+   * then its result carries the error, and the rest of the batch continues. Closing the returned
+   * stream closes the given stream.
+   */
+  default Stream<Issuance> createAll(Stream<JWTClaimsSet> claims, ForkJoinPool pool) {
+    return BatchIssuer.stream(this, claims, pool);
+  }
+
   /**
    * @return the jwks
    */
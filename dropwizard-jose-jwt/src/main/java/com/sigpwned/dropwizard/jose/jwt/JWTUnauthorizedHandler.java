@@ -0,0 +1,116 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt;
+
+import java.util.Objects;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import io.dropwizard.auth.DefaultUnauthorizedHandler;
+import io.dropwizard.auth.UnauthorizedHandler;
+
+/**
+ * Produces exactly the same 401 responses as {@link DefaultUnauthorizedHandler}, but cheaply. When
+ * the auth filter is under a flood of bad credentials, building the response for each rejection
+ * shows up in profiles, mostly from formatting the challenge and capturing the stack trace of an
+ * exception that nobody ever looks at.
+ * 
+ * The {@code WWW-Authenticate} challenge is computed once and reused, and the exception does not
+ * capture a stack trace. The {@link Response} itself is still built fresh for each rejection,
+ * since Jersey writes into the response's headers while it sends it.
+ */
+public class JWTUnauthorizedHandler implements UnauthorizedHandler {
+  /**
+   * The same entity that {@link DefaultUnauthorizedHandler} uses
+   */
+  public static final String ENTITY = "Credentials are required to access this resource.";
+
+  /**
+   * The same message that {@link WebApplicationException} would compute for our response
+   */
+  private static final String MESSAGE = "HTTP 401 Unauthorized";
+
+  /**
+   * In practice, a handler only ever sees one prefix and realm, so remembering the last challenge
+   * is as good as remembering all of them.
+   */
+  private volatile Challenge challenge;
+
+  @Override
+  public Response buildResponse(String prefix, String realm) {
+    return Response.status(Response.Status.UNAUTHORIZED)
+        .header(HttpHeaders.WWW_AUTHENTICATE, getChallenge(prefix, realm))
+        .type(MediaType.TEXT_PLAIN_TYPE).entity(ENTITY).build();
+  }
+
+  @Override
+  public RuntimeException buildException(String prefix, String realm) {
+    return new UnauthorizedException(buildResponse(prefix, realm));
+  }
+
+  private String getChallenge(String prefix, String realm) {
+    Challenge result = challenge;
+    if (result == null || !result.matches(prefix, realm))
+      challenge = result = new Challenge(prefix, realm);
+    return result.getValue();
+  }
+
+  private static final class Challenge {
+    private final String prefix;
+    private final String realm;
+    private final String value;
+
+    public Challenge(String prefix, String realm) {
+      this.prefix = prefix;
+      this.realm = realm;
+      this.value = String.format("%s realm=\"%s\"", prefix, realm);
+    }
+
+    public boolean matches(String prefix, String realm) {
+      return Objects.equals(this.prefix, prefix)
+          && Objects.equals(this.realm, realm);
+    }
+
+    /**
+     * @return the value
+     */
+    public String getValue() {
+      return value;
+    }
+  }
+
+  /**
+   * A {@link WebApplicationException} that does not capture a stack trace. These exceptions are
+   * only used to carry a response back to Jersey, so the stack trace is never useful.
+   */
+  private static final class UnauthorizedException extends WebApplicationException {
+    private static final long serialVersionUID = -6316346296591372346L;
+
+    public UnauthorizedException(Response response) {
+      super(MESSAGE, response);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+}
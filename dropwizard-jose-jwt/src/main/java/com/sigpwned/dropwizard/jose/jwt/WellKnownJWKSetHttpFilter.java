@@ -21,6 +21,7 @@ package com.sigpwned.dropwizard.jose.jwt;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
@@ -37,21 +38,50 @@ import com.nimbusds.jose.jwk.JWKSet;
  * standard requires the keys to be published at the domain root and web applications can have a
  * prefix (e.g., /v1) that prevents publishing resources at the domain root, it is necessary to use
  * a servlet filter as opposed to a JAX-RS filter.
+ * 
+ * The published keys can change over time. The filter asks its supplier for the current keys on
+ * each request, and only re-renders the document when the supplier returns a different instance.
  */
 public class WellKnownJWKSetHttpFilter extends HttpFilter {
   private static final long serialVersionUID = -765773712787780302L;
 
   public static final String WELL_KNOWN_JWKS_JSON_PATH = "/.well-known/jwks.json";
 
-  private final JWKSet jwks;
+  private final transient Supplier<JWKSet> jwks;
+  private transient volatile Document document;
 
   public WellKnownJWKSetHttpFilter(JWKSet jwks) {
-    // Make sure we only expose public data
-    this.jwks = jwks.toPublicJWKSet();
+    this(constant(jwks));
+  }
+
+  /**
+   * @param jwks supplies the current keys, which should be the same instance until the keys change
+   */
+  public WellKnownJWKSetHttpFilter(Supplier<JWKSet> jwks) {
+    if (jwks == null)
+      throw new NullPointerException();
+    this.jwks = jwks;
   }
 
+  /**
+   * @return the public half of the current keys
+   */
   public JWKSet getJwks() {
-    return jwks;
+    return getDocument().getPublicJwks();
+  }
+
+  private Document getDocument() {
+    final JWKSet current = jwks.get();
+    Document result = document;
+    if (result == null || result.getJwks() != current)
+      document = result = new Document(current);
+    return result;
+  }
+
+  private static Supplier<JWKSet> constant(JWKSet jwks) {
+    if (jwks == null)
+      throw new NullPointerException();
+    return () -> jwks;
   }
 
   @Override
@@ -63,10 +93,44 @@ public class WellKnownJWKSetHttpFilter extends HttpFilter {
       // TODO Content negotiation
       res.setContentType(MediaType.APPLICATION_JSON);
       try (ServletOutputStream out = res.getOutputStream()) {
-        out.write(getJwks().toString().getBytes(StandardCharsets.UTF_8));
+        out.write(getDocument().getBytes());
       }
     } else {
       chain.doFilter(req, res);
     }
   }
+
+  private static final class Document {
+    private final JWKSet jwks;
+    private final JWKSet publicJwks;
+    private final byte[] bytes;
+
+    public Document(JWKSet jwks) {
+      this.jwks = jwks;
+      // Make sure we only expose public data. This drops secret keys entirely.
+      this.publicJwks = jwks.toPublicJWKSet();
+      this.bytes = publicJwks.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the jwks, which may include private keys
+     */
+    public JWKSet getJwks() {
+      return jwks;
+    }
+
+    /**
+     * @return the public half of the jwks
+     */
+    public JWKSet getPublicJwks() {
+      return publicJwks;
+    }
+
+    /**
+     * @return the rendered public jwks
+     */
+    public byte[] getBytes() {
+      return bytes;
+    }
+  }
 }
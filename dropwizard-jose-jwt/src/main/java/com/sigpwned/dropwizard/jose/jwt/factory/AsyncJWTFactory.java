@@ -0,0 +1,148 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.factory;
+
+import static java.util.Objects.requireNonNull;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import com.codahale.metrics.Timer;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.IssuedJWT;
+import com.sigpwned.dropwizard.jose.jwt.JWTFactory;
+
+/**
+ * Wraps another {@link JWTFactory} so that {@link #createAsync(JWTClaimsSet)} and
+ * {@link #issueAsync(JWTClaimsSet)} sign tokens on a dedicated executor instead of the calling
+ * thread. Signing is pure CPU work, so this keeps bursts of logins from tying up request threads.
+ * The executor should have a bounded queue. If it rejects a token, then the returned stage fails
+ * immediately with a {@link SigningQueueFullException}.
+ * 
+ * The returned stages complete on a signing thread, so dependent actions registered with the
+ * non-async {@link CompletionStage} methods also run there. Keep them short.
+ */
+public class AsyncJWTFactory implements JWTFactory {
+  /**
+   * The default maximum number of tokens waiting to be signed
+   */
+  public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+  private final JWTFactory delegate;
+  private final Executor executor;
+  private final Timer signingTimer;
+
+  public AsyncJWTFactory(JWTFactory delegate, Executor executor) {
+    this(delegate, executor, new Timer());
+  }
+
+  /**
+   * @param signingTimer records how long each asynchronous signature takes, not including time
+   *        spent waiting in the queue
+   */
+  public AsyncJWTFactory(JWTFactory delegate, Executor executor, Timer signingTimer) {
+    this.delegate = requireNonNull(delegate);
+    this.executor = requireNonNull(executor);
+    this.signingTimer = requireNonNull(signingTimer);
+  }
+
+  @Override
+  public SignedJWT create(JWTClaimsSet claims) throws IOException {
+    return getDelegate().create(claims);
+  }
+
+  @Override
+  public IssuedJWT issue(JWTClaimsSet claims) throws IOException {
+    return getDelegate().issue(claims);
+  }
+
+  @Override
+  public CompletionStage<SignedJWT> createAsync(JWTClaimsSet claims) {
+    return signAsync(() -> getDelegate().create(claims));
+  }
+
+  @Override
+  public CompletionStage<IssuedJWT> issueAsync(JWTClaimsSet claims) {
+    return signAsync(() -> getDelegate().issue(claims));
+  }
+
+  private <T> CompletionStage<T> signAsync(Callable<T> signing) {
+    final CompletableFuture<T> result = new CompletableFuture<>();
+    try {
+      executor.execute(() -> {
+        T value;
+        final Timer.Context timer = signingTimer.time();
+        try {
+          value = signing.call();
+        } catch (Throwable e) {
+          // Whatever goes wrong, the stage must complete, or the caller would wait forever
+          result.completeExceptionally(e);
+          return;
+        } finally {
+          timer.stop();
+        }
+        result.complete(value);
+      });
+    } catch (RejectedExecutionException e) {
+      result.completeExceptionally(new SigningQueueFullException(e));
+    }
+    return result;
+  }
+
+  @Override
+  public JWKSet getJwks() {
+    return getDelegate().getJwks();
+  }
+
+  @Override
+  public String getIssuer() {
+    return getDelegate().getIssuer();
+  }
+
+  @Override
+  public Duration getTokenLifetime() {
+    return getDelegate().getTokenLifetime();
+  }
+
+  @Override
+  public JWSAlgorithm getSigningAlgorithm() {
+    return getDelegate().getSigningAlgorithm();
+  }
+
+  /**
+   * @return the delegate
+   */
+  public JWTFactory getDelegate() {
+    return delegate;
+  }
+
+  /**
+   * @return the signingTimer
+   */
+  public Timer getSigningTimer() {
+    return signingTimer;
+  }
+}
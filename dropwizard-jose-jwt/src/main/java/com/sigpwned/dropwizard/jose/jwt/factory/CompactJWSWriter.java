@@ -0,0 +1,341 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.factory;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.JWTClaimNames;
+import com.nimbusds.jwt.JWTClaimsSet;
+
+/**
+ * Writes and signs a compact JWS directly into reusable byte buffers. The claims are written as
+ * JSON into one buffer, then base64url-encoded after the precomputed header in a second buffer,
+ * which is then signed. This skips the intermediate JSON object, JSON string, and base64url strings
+ * that {@link com.nimbusds.jose.JWSObject} builds along the way.
+ * 
+ * The JSON matches what Nimbus would write for the same claims, except that claims appear in the
+ * order of the claims set rather than in hash order. Claims whose values this writer does not know
+ * how to write are reported by returning {@code null}, and the caller should fall back to Nimbus.
+ * 
+ * Each thread has its own instance, so instances are not thread safe.
+ */
+/* default */ final class CompactJWSWriter {
+  private static final ThreadLocal<CompactJWSWriter> WRITERS =
+      ThreadLocal.withInitial(CompactJWSWriter::new);
+
+  /**
+   * @return the calling thread's writer
+   */
+  public static CompactJWSWriter current() {
+    return WRITERS.get();
+  }
+
+  private static final int INITIAL_BUFFER_SIZE = 1024;
+
+  /**
+   * Buffers that grow past this size for an unusually large token are dropped afterwards, so one
+   * large token does not pin memory to a thread forever.
+   */
+  private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+  private static final byte[] BASE64URL =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_"
+          .getBytes(StandardCharsets.US_ASCII);
+
+  private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+  private byte[] json;
+  private int jsonLength;
+
+  private byte[] out;
+  private int outLength;
+
+  private CompactJWSWriter() {
+    this.json = new byte[INITIAL_BUFFER_SIZE];
+    this.out = new byte[INITIAL_BUFFER_SIZE];
+  }
+
+  /**
+   * @param encodedHeader the base64url-encoded header followed by a period, as ASCII
+   * @return the signed token in compact serialization, or {@code null} if the claims contain a
+   *         value this writer does not support
+   */
+  public String write(byte[] encodedHeader, JWSHeader header, JWSSigner signer,
+      JWTClaimsSet claims) throws JOSEException {
+    try {
+      jsonLength = 0;
+      if (!writeClaims(claims.getClaims()))
+        return null;
+
+      outLength = 0;
+      append(encodedHeader, 0, encodedHeader.length);
+      appendBase64URL(json, 0, jsonLength);
+
+      Base64URL signature = signer.sign(header, Arrays.copyOf(out, outLength));
+
+      appendByte('.');
+      appendASCII(signature.toString());
+
+      return new String(out, 0, outLength, StandardCharsets.US_ASCII);
+    } finally {
+      if (json.length > MAX_RETAINED_BUFFER_SIZE)
+        json = new byte[INITIAL_BUFFER_SIZE];
+      if (out.length > MAX_RETAINED_BUFFER_SIZE)
+        out = new byte[INITIAL_BUFFER_SIZE];
+    }
+  }
+
+  /**
+   * Writes the top-level claims the way {@link JWTClaimsSet#toJSONObject()} prepares them: null
+   * claims are dropped, dates become seconds since the epoch, and a single audience becomes a
+   * string.
+   */
+  private boolean writeClaims(Map<String, Object> claims) {
+    writeByte('{');
+    boolean first = true;
+    for (Map.Entry<String, Object> claim : claims.entrySet()) {
+      final String name = claim.getKey();
+
+      Object value = claim.getValue();
+      if (value == null)
+        continue;
+      if (value instanceof Date) {
+        value = ((Date) value).getTime() / 1000L;
+      } else if (name.equals(JWTClaimNames.AUDIENCE) && !(value instanceof String)) {
+        if (!(value instanceof List))
+          return false;
+        List<?> audience = (List<?>) value;
+        for (Object a : audience)
+          if (!(a instanceof String))
+            return false;
+        if (audience.isEmpty())
+          continue;
+        if (audience.size() == 1)
+          value = audience.get(0);
+      }
+
+      if (!first)
+        writeByte(',');
+      writeString(name);
+      writeByte(':');
+      if (!writeValue(value))
+        return false;
+      first = false;
+    }
+    writeByte('}');
+    return true;
+  }
+
+  private boolean writeValue(Object value) {
+    if (value == null) {
+      writeASCII("null");
+    } else if (value instanceof String) {
+      writeString((String) value);
+    } else if (value instanceof Boolean) {
+      writeASCII(value.toString());
+    } else if (value instanceof Integer || value instanceof Long || value instanceof Short
+        || value instanceof Byte || value instanceof BigInteger || value instanceof BigDecimal) {
+      writeASCII(value.toString());
+    } else if (value instanceof Double || value instanceof Float) {
+      double d = ((Number) value).doubleValue();
+      if (Double.isNaN(d) || Double.isInfinite(d))
+        return false;
+      writeASCII(value.toString());
+    } else if (value instanceof Map) {
+      writeByte('{');
+      boolean first = true;
+      for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+        if (!(entry.getKey() instanceof String) || entry.getValue() == null)
+          return false;
+        if (!first)
+          writeByte(',');
+        writeString((String) entry.getKey());
+        writeByte(':');
+        if (!writeValue(entry.getValue()))
+          return false;
+        first = false;
+      }
+      writeByte('}');
+    } else if (value instanceof Collection) {
+      writeByte('[');
+      boolean first = true;
+      for (Object element : (Collection<?>) value) {
+        if (!first)
+          writeByte(',');
+        if (!writeValue(element))
+          return false;
+        first = false;
+      }
+      writeByte(']');
+    } else if (value instanceof Object[]) {
+      return writeValue(Arrays.asList((Object[]) value));
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Writes a JSON string as UTF-8, escaping the same characters Gson does with HTML escaping
+   * disabled, which is how Nimbus configures it. Unpaired surrogates become '?', like
+   * {@link String#getBytes(java.nio.charset.Charset)}.
+   */
+  private void writeString(String s) {
+    writeByte('"');
+    final int length = s.length();
+    for (int i = 0; i < length; i++) {
+      final char c = s.charAt(i);
+      if (c < 0x20) {
+        switch (c) {
+          case '\b':
+            writeEscape('b');
+            break;
+          case '\t':
+            writeEscape('t');
+            break;
+          case '\n':
+            writeEscape('n');
+            break;
+          case '\f':
+            writeEscape('f');
+            break;
+          case '\r':
+            writeEscape('r');
+            break;
+          default:
+            writeUnicodeEscape(c);
+            break;
+        }
+      } else if (c == '"' || c == '\\') {
+        writeEscape(c);
+      } else if (c < 0x80) {
+        writeByte(c);
+      } else if (c < 0x800) {
+        writeByte(0xc0 | (c >> 6));
+        writeByte(0x80 | (c & 0x3f));
+      } else if (c == 0x2028 || c == 0x2029) {
+        // Gson escapes the line and paragraph separators because JavaScript does not allow them
+        writeUnicodeEscape(c);
+      } else if (Character.isHighSurrogate(c) && i + 1 < length
+          && Character.isLowSurrogate(s.charAt(i + 1))) {
+        final int cp = Character.toCodePoint(c, s.charAt(++i));
+        writeByte(0xf0 | (cp >> 18));
+        writeByte(0x80 | ((cp >> 12) & 0x3f));
+        writeByte(0x80 | ((cp >> 6) & 0x3f));
+        writeByte(0x80 | (cp & 0x3f));
+      } else if (Character.isSurrogate(c)) {
+        writeByte('?');
+      } else {
+        writeByte(0xe0 | (c >> 12));
+        writeByte(0x80 | ((c >> 6) & 0x3f));
+        writeByte(0x80 | (c & 0x3f));
+      }
+    }
+    writeByte('"');
+  }
+
+  private void writeEscape(char c) {
+    writeByte('\\');
+    writeByte(c);
+  }
+
+  private void writeUnicodeEscape(char c) {
+    writeByte('\\');
+    writeByte('u');
+    writeByte(HEX[(c >> 12) & 0xf]);
+    writeByte(HEX[(c >> 8) & 0xf]);
+    writeByte(HEX[(c >> 4) & 0xf]);
+    writeByte(HEX[c & 0xf]);
+  }
+
+  private void writeASCII(String s) {
+    final int length = s.length();
+    if (jsonLength + length > json.length)
+      json = Arrays.copyOf(json, Math.max(json.length * 2, jsonLength + length));
+    for (int i = 0; i < length; i++)
+      json[jsonLength++] = (byte) s.charAt(i);
+  }
+
+  private void writeByte(int b) {
+    if (jsonLength == json.length)
+      json = Arrays.copyOf(json, json.length * 2);
+    json[jsonLength++] = (byte) b;
+  }
+
+  private void append(byte[] bytes, int offset, int length) {
+    ensureOut(length);
+    System.arraycopy(bytes, offset, out, outLength, length);
+    outLength = outLength + length;
+  }
+
+  private void appendASCII(String s) {
+    final int length = s.length();
+    ensureOut(length);
+    for (int i = 0; i < length; i++)
+      out[outLength++] = (byte) s.charAt(i);
+  }
+
+  private void appendByte(int b) {
+    ensureOut(1);
+    out[outLength++] = (byte) b;
+  }
+
+  /**
+   * Appends the unpadded base64url encoding of the given bytes
+   */
+  private void appendBase64URL(byte[] bytes, int offset, int length) {
+    ensureOut((length + 2) / 3 * 4);
+
+    final int end = offset + length;
+    int i = offset;
+    for (; i + 2 < end; i = i + 3) {
+      int bits = (bytes[i] & 0xff) << 16 | (bytes[i + 1] & 0xff) << 8 | (bytes[i + 2] & 0xff);
+      out[outLength++] = BASE64URL[(bits >>> 18) & 0x3f];
+      out[outLength++] = BASE64URL[(bits >>> 12) & 0x3f];
+      out[outLength++] = BASE64URL[(bits >>> 6) & 0x3f];
+      out[outLength++] = BASE64URL[bits & 0x3f];
+    }
+    if (end - i == 1) {
+      int bits = (bytes[i] & 0xff) << 16;
+      out[outLength++] = BASE64URL[(bits >>> 18) & 0x3f];
+      out[outLength++] = BASE64URL[(bits >>> 12) & 0x3f];
+    } else if (end - i == 2) {
+      int bits = (bytes[i] & 0xff) << 16 | (bytes[i + 1] & 0xff) << 8;
+      out[outLength++] = BASE64URL[(bits >>> 18) & 0x3f];
+      out[outLength++] = BASE64URL[(bits >>> 12) & 0x3f];
+      out[outLength++] = BASE64URL[(bits >>> 6) & 0x3f];
+    }
+  }
+
+  private void ensureOut(int length) {
+    if (outLength + length > out.length)
+      out = Arrays.copyOf(out, Math.max(out.length * 2, outLength + length));
+  }
+}
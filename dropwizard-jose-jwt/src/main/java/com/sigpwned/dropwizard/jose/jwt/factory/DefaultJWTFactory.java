@@ -20,30 +20,55 @@
 package com.sigpwned.dropwizard.jose.jwt.factory;
 
 import java.io.IOException;
-import java.text.ParseException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Date;
 import java.util.Map;
-import java.util.UUID;
 import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSHeader;
 import com.nimbusds.jose.JWSObject;
+import com.nimbusds.jose.JWSSigner;
+import com.nimbusds.jose.crypto.factories.DefaultJWSSignerFactory;
+import com.nimbusds.jose.jwk.JWK;
 import com.nimbusds.jose.jwk.JWKSet;
-import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
-import com.nimbusds.jose.mint.ConfigurableJWSMinter;
-import com.nimbusds.jose.mint.DefaultJWSMinter;
-import com.nimbusds.jose.proc.SecurityContext;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.IssuedJWT;
 import com.sigpwned.dropwizard.jose.jwt.JWTFactory;
+import com.sigpwned.dropwizard.jose.jwt.keys.KeyRing;
+import com.sigpwned.dropwizard.jose.jwt.keys.KeySnapshot;
 
+/**
+ * Signs new tokens with the keys in a {@link KeyRing}. If the keys in the ring change, then the
+ * factory picks up the new keys on its next call, without a restart.
+ */
 public class DefaultJWTFactory implements JWTFactory {
-  private final JWKSet jwks;
+  private final KeyRing keys;
   private final String issuer;
   private final Duration tokenLifetime;
   private final JWSAlgorithm signingAlgorithm;
+  private final String signingKeyID;
+  private final JwtIdGenerator jwtIdGenerator;
+
+  /**
+   * The signing key schedule for the current key snapshot, which is only rebuilt when the snapshot
+   * changes
+   */
+  private volatile SigningKeys signingKeys;
+
+  /**
+   * The verification keys for the current key snapshot, which are only rebuilt when the snapshot
+   * changes or a retired key ages out, so callers see the same set from one call to the next
+   */
+  private volatile VerificationKeys verificationKeys;
+
+  /**
+   * The signer and header for the active signing key, which are shared by all threads and only
+   * rebuilt when the active key changes
+   */
+  private volatile Signer signer;
 
   public DefaultJWTFactory(JWKSet jwks, String issuer, Duration tokenLifetime) {
     this(jwks, issuer, tokenLifetime, JWTFactory.DEFAULT_SIGNING_ALGORITHM);
@@ -51,45 +76,171 @@ public class DefaultJWTFactory implements JWTFactory {
 
   public DefaultJWTFactory(JWKSet jwks, String issuer, Duration tokenLifetime,
       JWSAlgorithm signingAlgorithm) {
-    this.jwks = jwks;
+    this(jwks, issuer, tokenLifetime, signingAlgorithm, null);
+  }
+
+  /**
+   * @param signingKeyID the ID (i.e., key store alias) of the key that signs all new tokens, or
+   *        {@code null} to rotate signing keys by their not-before times
+   * @see SigningKeySchedule
+   */
+  public DefaultJWTFactory(JWKSet jwks, String issuer, Duration tokenLifetime,
+      JWSAlgorithm signingAlgorithm, String signingKeyID) {
+    this(jwks, issuer, tokenLifetime, signingAlgorithm, signingKeyID,
+        new RandomUUIDJwtIdGenerator());
+  }
+
+  /**
+   * @param signingKeyID the ID (i.e., key store alias) of the key that signs all new tokens, or
+   *        {@code null} to rotate signing keys by their not-before times
+   * @param jwtIdGenerator generates the {@code jti} claim of new tokens
+   * @see SigningKeySchedule
+   * @see JwtIdStrategy
+   */
+  public DefaultJWTFactory(JWKSet jwks, String issuer, Duration tokenLifetime,
+      JWSAlgorithm signingAlgorithm, String signingKeyID, JwtIdGenerator jwtIdGenerator) {
+    this(new KeyRing(jwks), issuer, tokenLifetime, signingAlgorithm, signingKeyID, jwtIdGenerator);
+  }
+
+  /**
+   * @param keys the keys to sign with, which may change over time
+   * @param signingKeyID the ID (i.e., key store alias) of the key that signs all new tokens, or
+   *        {@code null} to rotate signing keys by their not-before times
+   * @param jwtIdGenerator generates the {@code jti} claim of new tokens
+   * @throws IllegalArgumentException if the current keys cannot sign tokens
+   * @see SigningKeySchedule
+   * @see JwtIdStrategy
+   */
+  public DefaultJWTFactory(KeyRing keys, String issuer, Duration tokenLifetime,
+      JWSAlgorithm signingAlgorithm, String signingKeyID, JwtIdGenerator jwtIdGenerator) {
+    if (keys == null)
+      throw new NullPointerException();
+    if (jwtIdGenerator == null)
+      throw new NullPointerException();
+    this.keys = keys;
     this.issuer = issuer;
     this.tokenLifetime = tokenLifetime;
     this.signingAlgorithm = signingAlgorithm;
+    this.signingKeyID = signingKeyID;
+    this.jwtIdGenerator = jwtIdGenerator;
+
+    // Build the schedule now, so bad keys fail fast
+    this.signingKeys = new SigningKeys(keys.current(),
+        new SigningKeySchedule(keys.current().getJwks(), signingAlgorithm, tokenLifetime,
+            signingKeyID));
   }
 
   @Override
   public SignedJWT create(JWTClaimsSet claims) throws IOException {
     final Instant now = now();
+    final Signer signer = getActiveSigner(now);
+
+    // The header and claims are already in hand, so sign them directly instead of serializing and
+    // parsing them back.
+    SignedJWT result = new SignedJWT(signer.getHeader(), newClaimsSet(claims, now));
+    try {
+      result.sign(signer.getSigner());
+    } catch (JOSEException e) {
+      throw new IOException("Failed to generate signed JWT", e);
+    }
+
+    return result;
+  }
+
+  @Override
+  public IssuedJWT issue(JWTClaimsSet claims) throws IOException {
+    final Instant now = now();
+    final Signer signer = getActiveSigner(now);
 
-    ConfigurableJWSMinter<SecurityContext> minter = new DefaultJWSMinter<>();
+    final JWTClaimsSet claimsSet = newClaimsSet(claims, now);
 
-    minter.setJWKSource(new ImmutableJWKSet<>(getJwks()));
+    String token;
+    try {
+      // Write the claims and signature straight into the compact serialization. The writer only
+      // gives up on unusual claim values, in which case Nimbus does the work.
+      token = CompactJWSWriter.current().write(signer.getEncodedHeader(), signer.getHeader(),
+          signer.getSigner(), claimsSet);
+      if (token == null) {
+        JWSObject jws = new JWSObject(signer.getHeader(), claimsSet.toPayload());
+        jws.sign(signer.getSigner());
+        token = jws.serialize();
+      }
+    } catch (JOSEException e) {
+      throw new IOException("Failed to generate signed JWT", e);
+    }
 
-    JWSHeader header = new JWSHeader.Builder(getSigningAlgorithm()).build();
+    return IssuedJWT.of(token, claimsSet);
+  }
 
+  private JWTClaimsSet newClaimsSet(JWTClaimsSet claims, Instant now) {
     JWTClaimsSet.Builder csb = new JWTClaimsSet.Builder().issuer(getIssuer()).jwtID(generateJwtID())
         .issueTime(Date.from(now)).expirationTime(Date.from(now.plus(getTokenLifetime())));
     for (Map.Entry<String, Object> claim : claims.getClaims().entrySet()) {
       csb.claim(claim.getKey(), claim.getValue());
     }
+    return csb.build();
+  }
 
-    SignedJWT result;
+  /**
+   * Returns the signer for the key that is active at the given time. Sign with the currently active
+   * key only, and say so in the header, so verifiers can go straight to the right key.
+   */
+  private Signer getActiveSigner(Instant now) throws IOException {
     try {
-      JWSObject jws = minter.mint(header, csb.build().toPayload(), null);
-      result = SignedJWT.parse(jws.serialize());
-    } catch (ParseException | JOSEException e) {
-      throw new IOException("Failed to generate signed JWT", e);
+      return getSigner(getSigningKeySchedule().getActiveKey(now));
+    } catch (JOSEException e) {
+      throw new IOException("Failed to create signer", e);
     }
+  }
 
+  private Signer getSigner(JWK signingKey) throws JOSEException {
+    Signer result = signer;
+    if (result == null || result.getJwk() != signingKey)
+      signer = result = new Signer(signingKey, getSigningAlgorithm());
     return result;
   }
 
   /**
-   * @return the jwks
+   * @return the signing key schedule for the current keys
+   */
+  private SigningKeySchedule getSigningKeySchedule() {
+    final KeySnapshot snapshot = keys.current();
+    SigningKeys result = signingKeys;
+    if (result.getSnapshot() != snapshot) {
+      signingKeys = result = new SigningKeys(snapshot, new SigningKeySchedule(snapshot.getJwks(),
+          getSigningAlgorithm(), getTokenLifetime(), signingKeyID));
+    }
+    return result.getSchedule();
+  }
+
+  /**
+   * @return the keys that verify tokens from this factory right now, which includes recently
+   *         retired signing keys. The same instance is returned until the keys change.
    */
   @Override
   public JWKSet getJwks() {
-    return jwks;
+    final Instant now = now();
+    final SigningKeySchedule schedule = getSigningKeySchedule();
+    VerificationKeys result = verificationKeys;
+    if (result == null || result.getSchedule() != schedule || !result.isValidAt(now)) {
+      verificationKeys = result = new VerificationKeys(schedule, schedule.getVerificationKeys(now),
+          now, schedule.getVerificationKeysExpiration(now));
+    }
+    return result.getJwks();
+  }
+
+  /**
+   * @return the ID of the key that signs new tokens right now
+   */
+  public String getSigningKeyID() {
+    return getSigningKeySchedule().getActiveKey(now()).getKeyID();
+  }
+
+  /**
+   * @return the keys
+   */
+  public KeyRing getKeys() {
+    return keys;
   }
 
   /**
@@ -116,6 +267,122 @@ public class DefaultJWTFactory implements JWTFactory {
     return signingAlgorithm;
   }
 
+  /**
+   * @return the jwtIdGenerator
+   */
+  public JwtIdGenerator getJwtIdGenerator() {
+    return jwtIdGenerator;
+  }
+
+  private static final class SigningKeys {
+    private final KeySnapshot snapshot;
+    private final SigningKeySchedule schedule;
+
+    public SigningKeys(KeySnapshot snapshot, SigningKeySchedule schedule) {
+      this.snapshot = snapshot;
+      this.schedule = schedule;
+    }
+
+    /**
+     * @return the snapshot
+     */
+    public KeySnapshot getSnapshot() {
+      return snapshot;
+    }
+
+    /**
+     * @return the schedule
+     */
+    public SigningKeySchedule getSchedule() {
+      return schedule;
+    }
+  }
+
+  private static final class VerificationKeys {
+    private final SigningKeySchedule schedule;
+    private final JWKSet jwks;
+    private final Instant computed;
+    private final Instant expiration;
+
+    public VerificationKeys(SigningKeySchedule schedule, JWKSet jwks, Instant computed,
+        Instant expiration) {
+      this.schedule = schedule;
+      this.jwks = jwks;
+      this.computed = computed;
+      this.expiration = expiration;
+    }
+
+    public boolean isValidAt(Instant now) {
+      return !now.isBefore(computed) && (expiration == null || !now.isAfter(expiration));
+    }
+
+    /**
+     * @return the schedule
+     */
+    public SigningKeySchedule getSchedule() {
+      return schedule;
+    }
+
+    /**
+     * @return the jwks
+     */
+    public JWKSet getJwks() {
+      return jwks;
+    }
+  }
+
+  /**
+   * A ready-to-use signer and header for one signing key. The header carries the same key
+   * references that {@link com.nimbusds.jose.mint.DefaultJWSMinter} would copy from the key.
+   */
+  private static final class Signer {
+    private final JWK jwk;
+    private final JWSHeader header;
+    private final byte[] encodedHeader;
+    private final JWSSigner signer;
+
+    // The SHA-1 x5t thumbprint is deprecated, but DefaultJWSMinter still copies it, and so do we
+    @SuppressWarnings("deprecation")
+    public Signer(JWK jwk, JWSAlgorithm signingAlgorithm) throws JOSEException {
+      this.jwk = jwk;
+      this.header = new JWSHeader.Builder(signingAlgorithm).keyID(jwk.getKeyID())
+          .x509CertURL(jwk.getX509CertURL()).x509CertChain(jwk.getX509CertChain())
+          .x509CertSHA256Thumbprint(jwk.getX509CertSHA256Thumbprint())
+          .x509CertThumbprint(jwk.getX509CertThumbprint()).build();
+      this.encodedHeader =
+          (header.toBase64URL().toString() + ".").getBytes(StandardCharsets.US_ASCII);
+      this.signer = new DefaultJWSSignerFactory().createJWSSigner(jwk, signingAlgorithm);
+    }
+
+    /**
+     * @return the jwk
+     */
+    public JWK getJwk() {
+      return jwk;
+    }
+
+    /**
+     * @return the header
+     */
+    public JWSHeader getHeader() {
+      return header;
+    }
+
+    /**
+     * @return the base64url-encoded header followed by a period, as ASCII
+     */
+    public byte[] getEncodedHeader() {
+      return encodedHeader;
+    }
+
+    /**
+     * @return the signer
+     */
+    public JWSSigner getSigner() {
+      return signer;
+    }
+  }
+
   /**
    * test hook
    */
@@ -127,6 +394,6 @@ public class DefaultJWTFactory implements JWTFactory {
    * test hook
    */
   protected String generateJwtID() {
-    return UUID.randomUUID().toString();
+    return getJwtIdGenerator().generateJwtID();
   }
 }
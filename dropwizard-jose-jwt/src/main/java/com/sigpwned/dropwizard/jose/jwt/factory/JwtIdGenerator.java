@@ -0,0 +1,35 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.factory;
+
+/**
+ * Generates the {@code jti} claim for new tokens. Implementations are shared by all threads that
+ * create tokens, so they must be thread safe, and they should not serialize those threads on a
+ * single lock.
+ * 
+ * @see JwtIdStrategy
+ */
+@FunctionalInterface
+public interface JwtIdGenerator {
+  /**
+   * @return a new ID that is unique across all tokens from this issuer
+   */
+  public String generateJwtID();
+}
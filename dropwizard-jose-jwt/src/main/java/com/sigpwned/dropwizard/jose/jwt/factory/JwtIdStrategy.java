@@ -0,0 +1,72 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.factory;
+
+/**
+ * The built-in ways to generate the {@code jti} claim for new tokens.
+ */
+public enum JwtIdStrategy {
+  /**
+   * Random UUIDs from {@link java.util.UUID#randomUUID()}. All threads share one
+   * {@link java.security.SecureRandom}, which can become a point of contention when many threads
+   * create tokens at once.
+   */
+  RANDOM_UUID {
+    @Override
+    public JwtIdGenerator newJwtIdGenerator() {
+      return new RandomUUIDJwtIdGenerator();
+    }
+  },
+
+  /**
+   * Random UUIDs from a separate, self-seeded {@link java.security.SecureRandom} for each thread.
+   * The IDs look exactly like {@link #RANDOM_UUID} IDs, but threads do not contend.
+   */
+  THREAD_LOCAL_RANDOM_UUID {
+    @Override
+    public JwtIdGenerator newJwtIdGenerator() {
+      return new ThreadLocalRandomUUIDJwtIdGenerator();
+    }
+  },
+
+  /**
+   * ULIDs, which are a millisecond timestamp followed by 80 random bits, so IDs sort roughly by
+   * creation time.
+   */
+  ULID {
+    @Override
+    public JwtIdGenerator newJwtIdGenerator() {
+      return new UlidJwtIdGenerator();
+    }
+  },
+
+  /**
+   * A random prefix for this process followed by a striped counter. This is the cheapest strategy,
+   * but the IDs are predictable, so only use it if nothing treats the {@code jti} as a secret.
+   */
+  STRIPED_COUNTER {
+    @Override
+    public JwtIdGenerator newJwtIdGenerator() {
+      return new StripedCounterJwtIdGenerator();
+    }
+  };
+
+  public abstract JwtIdGenerator newJwtIdGenerator();
+}
@@ -0,0 +1,33 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.factory;
+
+import java.util.UUID;
+
+/**
+ * Generates random UUIDs using {@link UUID#randomUUID()}. This is the original behavior of
+ * {@link DefaultJWTFactory}.
+ */
+public class RandomUUIDJwtIdGenerator implements JwtIdGenerator {
+  @Override
+  public String generateJwtID() {
+    return UUID.randomUUID().toString();
+  }
+}
@@ -0,0 +1,219 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.factory;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Objects.requireNonNull;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyType;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+
+/**
+ * Decides which key in a multi-key set signs new tokens at any given time, and which keys are
+ * still trusted to verify tokens.
+ * 
+ * The signing candidates are the private keys that suit the signing algorithm. If a key ID (i.e.,
+ * key store alias) is given, then that key always signs. Otherwise, each candidate becomes active
+ * at its not-before time, which for keys loaded from a key store is the start of the certificate's
+ * validity period, and stays active until the next candidate becomes active. Keys without a
+ * not-before time are treated as active from the beginning of time, and ties are broken by key ID.
+ * Since the KeygenTool names keys by creation date, this means the newest key wins. To schedule a
+ * rotation, add a key whose certificate becomes valid at the desired time.
+ * 
+ * A candidate that has been superseded is retired. Retired keys no longer sign tokens, but they
+ * remain in the verification set for one token lifetime, so that tokens they signed stay valid
+ * until they expire. After that, they are dropped.
+ */
+public class SigningKeySchedule {
+  private final JWKSet jwks;
+  private final Duration tokenLifetime;
+  private final List<Entry> entries;
+  private final JWK pinned;
+
+  public SigningKeySchedule(JWKSet jwks, JWSAlgorithm signingAlgorithm, Duration tokenLifetime) {
+    this(jwks, signingAlgorithm, tokenLifetime, null);
+  }
+
+  /**
+   * @param signingKeyID the ID of the key that always signs, or {@code null} to follow the schedule
+   * @throws IllegalArgumentException if there are no signing keys, or if the given key is not one
+   *         of them
+   */
+  public SigningKeySchedule(JWKSet jwks, JWSAlgorithm signingAlgorithm, Duration tokenLifetime,
+      String signingKeyID) {
+    this.jwks = requireNonNull(jwks);
+    this.tokenLifetime = requireNonNull(tokenLifetime);
+    requireNonNull(signingAlgorithm);
+
+    final KeyType keyType = KeyType.forAlgorithm(signingAlgorithm);
+
+    List<JWK> candidates = new ArrayList<>();
+    for (JWK jwk : jwks.getKeys()) {
+      if (!jwk.isPrivate())
+        continue;
+      if (!jwk.getKeyType().equals(keyType))
+        continue;
+      if (!hasSigningCurve(jwk, signingAlgorithm))
+        continue;
+      if (jwk.getKeyUse() != null && !jwk.getKeyUse().equals(KeyUse.SIGNATURE))
+        continue;
+      if (jwk.getAlgorithm() != null && !jwk.getAlgorithm().equals(signingAlgorithm))
+        continue;
+      candidates.add(jwk);
+    }
+    if (candidates.isEmpty())
+      throw new IllegalArgumentException("No keys can sign with " + signingAlgorithm);
+
+    candidates.sort(Comparator.comparing(SigningKeySchedule::startOf)
+        .thenComparing(JWK::getKeyID, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+    List<Entry> entries = new ArrayList<>(candidates.size());
+    for (int i = 0; i < candidates.size(); i++) {
+      Instant retired = i + 1 < candidates.size() ? startOf(candidates.get(i + 1)) : null;
+      entries.add(new Entry(candidates.get(i), startOf(candidates.get(i)), retired));
+    }
+    this.entries = unmodifiableList(entries);
+
+    if (signingKeyID != null) {
+      this.pinned = candidates.stream().filter(k -> Objects.equals(k.getKeyID(), signingKeyID))
+          .findFirst().orElseThrow(() -> new IllegalArgumentException(
+              "No key " + signingKeyID + " can sign with " + signingAlgorithm));
+    } else {
+      this.pinned = null;
+    }
+  }
+
+  /**
+   * @return the key that signs new tokens at the given time
+   */
+  public JWK getActiveKey(Instant now) {
+    if (pinned != null)
+      return pinned;
+
+    for (int i = entries.size() - 1; i >= 0; i--) {
+      Entry entry = entries.get(i);
+      if (!entry.getStart().isAfter(now))
+        return entry.getJwk();
+    }
+
+    // No key is valid yet, so the earliest one will have to do
+    return entries.get(0).getJwk();
+  }
+
+  /**
+   * @return the keys that may verify tokens at the given time, i.e., every key except the ones
+   *         retired more than one token lifetime ago
+   */
+  public JWKSet getVerificationKeys(Instant now) {
+    if (pinned != null)
+      return jwks;
+
+    final Instant cutoff = now.minus(tokenLifetime);
+
+    List<JWK> result = new ArrayList<>(jwks.getKeys());
+    for (Entry entry : entries) {
+      if (entry.getRetired() != null && entry.getRetired().isBefore(cutoff))
+        result.remove(entry.getJwk());
+    }
+
+    return new JWKSet(result);
+  }
+
+  /**
+   * @return the last time at which {@link #getVerificationKeys(Instant)} returns the same keys as
+   *         it does at the given time, or {@code null} if the keys will never change
+   */
+  public Instant getVerificationKeysExpiration(Instant now) {
+    if (pinned != null)
+      return null;
+
+    final Instant cutoff = now.minus(tokenLifetime);
+
+    Instant result = null;
+    for (Entry entry : entries) {
+      if (entry.getRetired() == null || entry.getRetired().isBefore(cutoff))
+        continue;
+      Instant dropped = entry.getRetired().plus(tokenLifetime);
+      if (result == null || dropped.isBefore(result))
+        result = dropped;
+    }
+
+    return result;
+  }
+
+  /**
+   * EC keys must be on the curve the algorithm names, and we can only sign EdDSA with Ed25519.
+   */
+  private static boolean hasSigningCurve(JWK jwk, JWSAlgorithm signingAlgorithm) {
+    if (jwk instanceof ECKey)
+      return Curve.forJWSAlgorithm(signingAlgorithm).contains(((ECKey) jwk).getCurve());
+    if (jwk instanceof OctetKeyPair)
+      return ((OctetKeyPair) jwk).getCurve().equals(Curve.Ed25519);
+    return true;
+  }
+
+  private static Instant startOf(JWK jwk) {
+    return jwk.getNotBeforeTime() != null ? jwk.getNotBeforeTime().toInstant() : Instant.EPOCH;
+  }
+
+  private static final class Entry {
+    private final JWK jwk;
+    private final Instant start;
+    private final Instant retired;
+
+    public Entry(JWK jwk, Instant start, Instant retired) {
+      this.jwk = jwk;
+      this.start = start;
+      this.retired = retired;
+    }
+
+    /**
+     * @return the jwk
+     */
+    public JWK getJwk() {
+      return jwk;
+    }
+
+    /**
+     * @return the start
+     */
+    public Instant getStart() {
+      return start;
+    }
+
+    /**
+     * @return when this key was superseded, or {@code null} if it never is
+     */
+    public Instant getRetired() {
+      return retired;
+    }
+  }
+}
@@ -0,0 +1,37 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.factory;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Thrown when a token cannot be signed asynchronously because too many tokens are already waiting
+ * to be signed. Callers should shed load, e.g., respond with 503 Service Unavailable, rather than
+ * retry immediately.
+ * 
+ * @see AsyncJWTFactory
+ */
+public class SigningQueueFullException extends RejectedExecutionException {
+  private static final long serialVersionUID = 7915218712416325961L;
+
+  public SigningQueueFullException(Throwable cause) {
+    super("JWT signing queue is full", cause);
+  }
+}
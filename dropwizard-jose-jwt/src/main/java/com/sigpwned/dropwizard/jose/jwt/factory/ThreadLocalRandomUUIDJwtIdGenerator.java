@@ -0,0 +1,48 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.factory;
+
+import java.util.UUID;
+
+/**
+ * Generates random (version 4) UUIDs like {@link UUID#randomUUID()}, but draws the random bits from
+ * a separate {@link java.security.SecureRandom} for each thread, so threads creating tokens at the
+ * same time do not contend.
+ */
+public class ThreadLocalRandomUUIDJwtIdGenerator implements JwtIdGenerator {
+  @Override
+  public String generateJwtID() {
+    byte[] bytes = new byte[16];
+    ThreadLocalSecureRandom.current().nextBytes(bytes);
+
+    // Set the version to 4 and the variant to IETF, exactly as UUID.randomUUID does
+    bytes[6] = (byte) ((bytes[6] & 0x0f) | 0x40);
+    bytes[8] = (byte) ((bytes[8] & 0x3f) | 0x80);
+
+    long msb = 0L;
+    long lsb = 0L;
+    for (int i = 0; i < 8; i++)
+      msb = (msb << 8) | (bytes[i] & 0xff);
+    for (int i = 8; i < 16; i++)
+      lsb = (lsb << 8) | (bytes[i] & 0xff);
+
+    return new UUID(msb, lsb).toString();
+  }
+}
@@ -0,0 +1,59 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.factory;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Gives each thread its own {@link SecureRandom}. The default {@link SecureRandom} on many
+ * platforms reads from one shared, synchronized source, so we prefer algorithms that keep their own
+ * state per instance and seed themselves from the system on first use.
+ */
+/* default */ final class ThreadLocalSecureRandom {
+  private ThreadLocalSecureRandom() {}
+
+  /**
+   * The preferred algorithms, in order. Both keep their own state, and SHA1PRNG is several times
+   * faster per call than DRBG. Either one seeds itself from the system entropy source.
+   */
+  private static final String[] ALGORITHMS = {"SHA1PRNG", "DRBG"};
+
+  private static final ThreadLocal<SecureRandom> RANDOMS =
+      ThreadLocal.withInitial(ThreadLocalSecureRandom::newSecureRandom);
+
+  /**
+   * @return the calling thread's random
+   */
+  public static SecureRandom current() {
+    return RANDOMS.get();
+  }
+
+  private static SecureRandom newSecureRandom() {
+    for (String algorithm : ALGORITHMS) {
+      try {
+        return SecureRandom.getInstance(algorithm);
+      } catch (NoSuchAlgorithmException e) {
+        // Try the next one
+      }
+    }
+    return new SecureRandom();
+  }
+}
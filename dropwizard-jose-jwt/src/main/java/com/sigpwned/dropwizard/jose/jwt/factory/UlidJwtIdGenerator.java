@@ -0,0 +1,65 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.factory;
+
+import java.time.Instant;
+
+/**
+ * Generates <a href="https://github.com/ulid/spec">ULIDs</a>: 26 characters of Crockford base32
+ * encoding a 48-bit millisecond timestamp followed by 80 random bits. The random bits come from a
+ * separate {@link java.security.SecureRandom} for each thread. IDs from the same millisecond are
+ * not ordered relative to each other.
+ */
+public class UlidJwtIdGenerator implements JwtIdGenerator {
+  /* default */ static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+  /* default */ static final int LENGTH = 26;
+
+  @Override
+  public String generateJwtID() {
+    byte[] random = new byte[10];
+    ThreadLocalSecureRandom.current().nextBytes(random);
+
+    long hi = now().toEpochMilli() & 0xFFFFFFFFFFFFL;
+    long lo = 0L;
+    for (int i = 0; i < 2; i++)
+      hi = (hi << 8) | (random[i] & 0xff);
+    for (int i = 2; i < 10; i++)
+      lo = (lo << 8) | (random[i] & 0xff);
+
+    // hi holds the top 64 of the 128 bits and lo the bottom 64. The 26 characters encode 130 bits,
+    // so the first character only carries the top 3 bits.
+    char[] result = new char[LENGTH];
+    for (int i = LENGTH - 1; i >= 0; i--) {
+      result[i] = ALPHABET[(int) (lo & 0x1f)];
+      lo = (lo >>> 5) | (hi << 59);
+      hi = hi >>> 5;
+    }
+
+    return new String(result);
+  }
+
+  /**
+   * test hook
+   */
+  protected Instant now() {
+    return Instant.now();
+  }
+}
@@ -0,0 +1,191 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.keys;
+
+import static java.util.Objects.requireNonNull;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.Base64;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.sigpwned.dropwizard.jose.jwt.util.AtomicFiles;
+
+/**
+ * An encrypted file that holds the JWKs converted from a key store, so that the next start can skip
+ * decrypting the key store and converting its entries. Decrypting a PKCS12 key store runs a
+ * deliberately slow password-based key derivation, while decrypting this file is a single AES-GCM
+ * pass.
+ * 
+ * The file records the SHA-256 checksum of the key store it was made from, and is only used if
+ * that checksum matches the current key store. The checksum is also authenticated along with the
+ * keys, so a file that has been tampered with or encrypted with a different key is ignored.
+ * 
+ * The file holds private keys, so it must be protected like the key store itself. It is written
+ * with owner-only permissions where the file system supports them.
+ */
+public class JWKSetCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(JWKSetCache.class);
+
+  /**
+   * The file format marker and version, which is also authenticated
+   */
+  private static final byte[] MAGIC = "DWJWKC\u0000\u0001".getBytes(StandardCharsets.US_ASCII);
+
+  /* default */ static final int CHECKSUM_LENGTH = 32;
+
+  private static final int IV_LENGTH = 12;
+
+  private static final int TAG_BITS = 128;
+
+  private static final String KEY_ALGORITHM = "AES";
+
+  private static final String CIPHER_TRANSFORMATION = "AES/GCM/NoPadding";
+
+  private static final int HEADER_LENGTH = MAGIC.length + CHECKSUM_LENGTH + IV_LENGTH;
+
+  /**
+   * @param key a base64-encoded AES key, which must be 16, 24, or 32 bytes long
+   * @throws IllegalArgumentException if the key is not valid
+   */
+  public static SecretKey parseKey(String key) {
+    byte[] bytes;
+    try {
+      bytes = Base64.getDecoder().decode(key);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("key cache key must be base64-encoded", e);
+    }
+    if (bytes.length != 16 && bytes.length != 24 && bytes.length != 32)
+      throw new IllegalArgumentException("key cache key must be 16, 24, or 32 bytes long");
+    return new SecretKeySpec(bytes, KEY_ALGORITHM);
+  }
+
+  private final File file;
+  private final SecretKey key;
+  private final SecureRandom random;
+
+  public JWKSetCache(File file, SecretKey key) {
+    this.file = requireNonNull(file);
+    this.key = requireNonNull(key);
+    this.random = new SecureRandom();
+  }
+
+  /**
+   * @param checksum the SHA-256 checksum of the current key store
+   * @return the cached keys, or {@code null} if there is no usable cache for the given key store
+   */
+  public JWKSet read(byte[] checksum) {
+    byte[] data;
+    try {
+      data = Files.readAllBytes(file.toPath());
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      LOGGER.warn("Failed to read key cache {}, ignoring", file, e);
+      return null;
+    }
+
+    if (data.length < HEADER_LENGTH
+        || !Arrays.equals(Arrays.copyOfRange(data, 0, MAGIC.length), MAGIC)) {
+      LOGGER.warn("Key cache {} is not in a recognized format, ignoring", file);
+      return null;
+    }
+
+    if (!Arrays.equals(Arrays.copyOfRange(data, MAGIC.length, MAGIC.length + CHECKSUM_LENGTH),
+        checksum)) {
+      LOGGER.info("Key cache {} was made from a different key store, ignoring", file);
+      return null;
+    }
+
+    byte[] plaintext;
+    try {
+      Cipher cipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+      cipher.init(Cipher.DECRYPT_MODE, key,
+          new GCMParameterSpec(TAG_BITS, data, MAGIC.length + CHECKSUM_LENGTH, IV_LENGTH));
+      cipher.updateAAD(data, 0, HEADER_LENGTH);
+      plaintext = cipher.doFinal(data, HEADER_LENGTH, data.length - HEADER_LENGTH);
+    } catch (GeneralSecurityException e) {
+      LOGGER.warn("Failed to decrypt key cache {}, ignoring", file, e);
+      return null;
+    }
+
+    try {
+      return JWKSet.parse(new String(plaintext, StandardCharsets.UTF_8));
+    } catch (ParseException e) {
+      LOGGER.warn("Failed to parse key cache {}, ignoring", file, e);
+      return null;
+    } finally {
+      Arrays.fill(plaintext, (byte) 0);
+    }
+  }
+
+  /**
+   * Replaces the cache with the given keys. The file is replaced atomically where the file system
+   * supports it, so readers never see a partial file.
+   * 
+   * @param checksum the SHA-256 checksum of the key store the keys came from
+   */
+  public void write(byte[] checksum, JWKSet jwks) throws IOException {
+    if (checksum.length != CHECKSUM_LENGTH)
+      throw new IllegalArgumentException("checksum must be " + CHECKSUM_LENGTH + " bytes");
+
+    final byte[] plaintext = jwks.toString(false).getBytes(StandardCharsets.UTF_8);
+
+    final byte[] iv = new byte[IV_LENGTH];
+    random.nextBytes(iv);
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+    header.put(MAGIC).put(checksum).put(iv);
+
+    byte[] ciphertext;
+    try {
+      Cipher cipher = Cipher.getInstance(CIPHER_TRANSFORMATION);
+      cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+      cipher.updateAAD(header.array());
+      ciphertext = cipher.doFinal(plaintext);
+    } catch (GeneralSecurityException e) {
+      throw new IOException("Failed to encrypt key cache", e);
+    } finally {
+      Arrays.fill(plaintext, (byte) 0);
+    }
+
+    AtomicFiles.write(file, ByteBuffer.allocate(HEADER_LENGTH + ciphertext.length)
+        .put(header.array()).put(ciphertext).array());
+  }
+
+  /**
+   * @return the file
+   */
+  public File getFile() {
+    return file;
+  }
+}
@@ -0,0 +1,106 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.keys;
+
+import static java.util.Objects.requireNonNull;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+import com.nimbusds.jose.jwk.JWKSet;
+
+/**
+ * Loads our keys at most once, on first use, and then hands out the same {@link KeyRing} to
+ * everyone who asks. Once the keys are loaded, {@link #getKeyRing()} is a single volatile read with
+ * no locking. While the keys are loading, other callers wait for that load instead of starting
+ * their own. If the load fails, then the next caller tries again.
+ */
+public class KeyRegistry {
+  private final KeyStoreReloader.Loader loader;
+  private final AtomicReference<CompletableFuture<KeyRing>> loading;
+  private volatile KeyRing keyRing;
+
+  public KeyRegistry(KeyStoreReloader.Loader loader) {
+    this.loader = requireNonNull(loader);
+    this.loading = new AtomicReference<>();
+  }
+
+  /**
+   * @return the key ring, loading the keys first if necessary
+   * @throws IOException if the keys could not be loaded
+   */
+  public KeyRing getKeyRing() throws IOException {
+    KeyRing result = keyRing;
+    if (result != null)
+      return result;
+
+    for (;;) {
+      CompletableFuture<KeyRing> current = loading.get();
+      if (current != null)
+        return await(current);
+
+      CompletableFuture<KeyRing> mine = new CompletableFuture<>();
+      if (!loading.compareAndSet(null, mine))
+        continue;
+
+      try {
+        JWKSet jwks = loader.load();
+        result = new KeyRing(jwks);
+      } catch (IOException | RuntimeException e) {
+        // Let the next caller try again
+        loading.set(null);
+        mine.completeExceptionally(e);
+        throw e;
+      }
+
+      keyRing = result;
+      mine.complete(result);
+
+      return result;
+    }
+  }
+
+  /**
+   * @return the key ring if the keys have been loaded, or {@code null} otherwise
+   */
+  public KeyRing getKeyRingIfLoaded() {
+    return keyRing;
+  }
+
+  /**
+   * @return the loader
+   */
+  public KeyStoreReloader.Loader getLoader() {
+    return loader;
+  }
+
+  private static KeyRing await(CompletableFuture<KeyRing> loading) throws IOException {
+    try {
+      return loading.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw new IOException("Failed to load keys", cause);
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      throw e;
+    }
+  }
+}
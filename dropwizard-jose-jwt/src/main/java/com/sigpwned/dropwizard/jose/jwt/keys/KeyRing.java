@@ -0,0 +1,87 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.keys;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.nimbusds.jose.jwk.JWKSet;
+
+/**
+ * Holds the current {@link KeySnapshot}. Reading the current snapshot is a single volatile read, so
+ * it is cheap enough to do on every request. Updating the keys swaps in a whole new snapshot at
+ * once, so readers never see a mix of old and new keys.
+ */
+public class KeyRing {
+  private static final Logger LOGGER = LoggerFactory.getLogger(KeyRing.class);
+
+  private final AtomicReference<KeySnapshot> current;
+  private final List<Consumer<KeySnapshot>> listeners;
+
+  public KeyRing(JWKSet jwks) {
+    this.current = new AtomicReference<>(KeySnapshot.of(1L, jwks, Instant.now()));
+    this.listeners = new CopyOnWriteArrayList<>();
+  }
+
+  /**
+   * @return the current snapshot
+   */
+  public KeySnapshot current() {
+    return current.get();
+  }
+
+  /**
+   * Replaces the current snapshot with a new snapshot of the given keys, and then notifies all
+   * listeners on the calling thread.
+   * 
+   * @return the new snapshot
+   */
+  public KeySnapshot update(JWKSet jwks) {
+    KeySnapshot previous, next;
+    do {
+      previous = current.get();
+      next = KeySnapshot.of(previous.getVersion() + 1L, jwks, Instant.now());
+    } while (!current.compareAndSet(previous, next));
+
+    for (Consumer<KeySnapshot> listener : listeners) {
+      try {
+        listener.accept(next);
+      } catch (RuntimeException e) {
+        LOGGER.error("Key ring listener failed for {}", next, e);
+      }
+    }
+
+    return next;
+  }
+
+  /**
+   * Registers a listener to be called after every update, e.g., to drop state derived from the
+   * old keys.
+   */
+  public void addListener(Consumer<KeySnapshot> listener) {
+    if (listener == null)
+      throw new NullPointerException();
+    listeners.add(listener);
+  }
+}
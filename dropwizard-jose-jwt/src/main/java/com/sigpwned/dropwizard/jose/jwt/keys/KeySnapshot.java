@@ -0,0 +1,72 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.keys;
+
+import static java.util.Objects.requireNonNull;
+import java.time.Instant;
+import com.nimbusds.jose.jwk.JWKSet;
+
+/**
+ * One immutable version of our keys. Components that derive expensive state from the keys, like
+ * signers and verifiers, should remember the snapshot they derived it from and rebuild it when
+ * {@link KeyRing#current()} returns a different snapshot.
+ */
+public final class KeySnapshot {
+  public static KeySnapshot of(long version, JWKSet jwks, Instant loadedAt) {
+    return new KeySnapshot(version, jwks, loadedAt);
+  }
+
+  private final long version;
+  private final JWKSet jwks;
+  private final Instant loadedAt;
+
+  public KeySnapshot(long version, JWKSet jwks, Instant loadedAt) {
+    this.version = version;
+    this.jwks = requireNonNull(jwks);
+    this.loadedAt = requireNonNull(loadedAt);
+  }
+
+  /**
+   * @return the version, which starts at 1 and increases by 1 with every change
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * @return the jwks, including private keys
+   */
+  public JWKSet getJwks() {
+    return jwks;
+  }
+
+  /**
+   * @return when these keys were loaded
+   */
+  public Instant getLoadedAt() {
+    return loadedAt;
+  }
+
+  @Override
+  public String toString() {
+    return "KeySnapshot [version=" + version + ", keys=" + jwks.size() + ", loadedAt=" + loadedAt
+        + "]";
+  }
+}
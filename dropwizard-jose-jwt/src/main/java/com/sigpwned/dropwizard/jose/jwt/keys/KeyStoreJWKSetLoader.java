@@ -0,0 +1,210 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.keys;
+
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Objects.requireNonNull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.sigpwned.dropwizard.jose.jwt.util.ByteSource;
+import com.sigpwned.dropwizard.jose.jwt.util.KeyStores;
+import com.sigpwned.dropwizard.jose.jwt.util.RemoteByteSource;
+
+/**
+ * Loads JWKs from a key store, optionally through a {@link JWKSetCache}, and records how long each
+ * phase of the load took. The phases are:
+ * 
+ * <ul>
+ * <li>{@value #READ_PHASE}: reading the raw key store and computing its checksum</li>
+ * <li>{@value #CACHE_READ_PHASE}: reading and decrypting the key cache, if any</li>
+ * <li>{@value #DECRYPT_PHASE}: decrypting the key store, if the cache missed</li>
+ * <li>{@value #CONVERT_PHASE}: converting the key store entries to JWKs, if the cache missed</li>
+ * <li>{@value #CACHE_WRITE_PHASE}: writing the key cache, if the cache missed</li>
+ * </ul>
+ * 
+ * PEM keys and JSON JWK sets (see {@link KeyStores#PEM_TYPE} and {@link KeyStores#JWKS_TYPE}) are
+ * cheap to parse, so they skip the cache and have a single {@value #PARSE_PHASE} phase instead.
+ */
+public class KeyStoreJWKSetLoader implements KeyStoreReloader.Loader {
+  private static final Logger LOGGER = LoggerFactory.getLogger(KeyStoreJWKSetLoader.class);
+
+  public static final String READ_PHASE = "read";
+
+  public static final String CACHE_READ_PHASE = "cacheRead";
+
+  public static final String DECRYPT_PHASE = "decrypt";
+
+  public static final String CONVERT_PHASE = "convert";
+
+  public static final String CACHE_WRITE_PHASE = "cacheWrite";
+
+  public static final String PARSE_PHASE = "parse";
+
+  private static final String CHECKSUM_ALGORITHM = "SHA-256";
+
+  private final String keyStoreType;
+  private final ByteSource keyStoreSource;
+  private final String keyStorePassword;
+  private final String keyStoreProvider;
+  private final JWKSetCache cache;
+  private volatile Map<String, Long> lastTimings;
+
+  /**
+   * @param keyStorePassword the key store password, which is only required for real key stores
+   * @param cache the key cache, or {@code null} to always load from the key store
+   * @see KeyStores#loadJWKSet(String, ByteSource, String, String)
+   */
+  public KeyStoreJWKSetLoader(String keyStoreType, String keyStorePath, String keyStorePassword,
+      String keyStoreProvider, JWKSetCache cache) {
+    this(keyStoreType,
+        KeyStores.keyStorePathSource(requireNonNull(keyStorePath),
+            RemoteByteSource.DEFAULT_CONNECT_TIMEOUT, RemoteByteSource.DEFAULT_READ_TIMEOUT, null),
+        keyStorePassword, keyStoreProvider, cache);
+  }
+
+  /**
+   * @param keyStoreSource the key store data, which is read again on every load
+   * @param keyStorePassword the key store password, which is only required for real key stores
+   * @param cache the key cache, or {@code null} to always load from the key store
+   * @see KeyStores#keyStorePathSource(String, java.time.Duration, java.time.Duration,
+   *      java.io.File)
+   */
+  public KeyStoreJWKSetLoader(String keyStoreType, ByteSource keyStoreSource,
+      String keyStorePassword, String keyStoreProvider, JWKSetCache cache) {
+    this.keyStoreType = requireNonNull(keyStoreType);
+    this.keyStoreSource = requireNonNull(keyStoreSource);
+    this.keyStorePassword = keyStorePassword;
+    this.keyStoreProvider = keyStoreProvider;
+    this.cache = cache;
+    this.lastTimings = unmodifiableMap(new LinkedHashMap<>());
+  }
+
+  @Override
+  public JWKSet load() throws IOException {
+    final Map<String, Long> timings = new LinkedHashMap<>();
+
+    long start = System.nanoTime();
+    final byte[] keyStoreBytes = readAll(keyStoreSource);
+    final byte[] checksum = checksum(keyStoreBytes);
+    start = phase(timings, READ_PHASE, start);
+
+    JWKSet result = null;
+    if (!KeyStores.isKeyStoreType(keyStoreType)) {
+      result = KeyStores.loadJWKSet(keyStoreType, ByteSource.fromBytes(keyStoreBytes),
+          keyStorePassword, keyStoreProvider);
+      start = phase(timings, PARSE_PHASE, start);
+    } else if (cache != null) {
+      result = cache.read(checksum);
+      start = phase(timings, CACHE_READ_PHASE, start);
+    }
+
+    if (result == null) {
+      if (keyStorePassword == null)
+        throw new IOException("keyStorePassword is required for " + keyStoreType + " key stores");
+
+      KeyStore store = KeyStores.loadKeyStore(keyStoreType, ByteSource.fromBytes(keyStoreBytes),
+          keyStorePassword, keyStoreProvider);
+      start = phase(timings, DECRYPT_PHASE, start);
+
+      try {
+        result = KeyStores.toJWKSet(store, keyStorePassword);
+      } catch (KeyStoreException e) {
+        throw new IOException("Failed to load keys from store", e);
+      }
+      start = phase(timings, CONVERT_PHASE, start);
+
+      if (cache != null) {
+        try {
+          cache.write(checksum, result);
+        } catch (IOException e) {
+          // The cache is an optimization, so failing to write it is not fatal
+          LOGGER.warn("Failed to write key cache {}", cache.getFile(), e);
+        }
+        start = phase(timings, CACHE_WRITE_PHASE, start);
+      }
+    }
+
+    lastTimings = unmodifiableMap(timings);
+
+    if (LOGGER.isInfoEnabled()) {
+      StringBuilder message = new StringBuilder();
+      long total = 0L;
+      for (Map.Entry<String, Long> timing : timings.entrySet()) {
+        message.append(message.length() == 0 ? "" : ", ").append(timing.getKey()).append('=')
+            .append(TimeUnit.NANOSECONDS.toMillis(timing.getValue())).append("ms");
+        total = total + timing.getValue();
+      }
+      LOGGER.info("Loaded {} keys in {}ms ({})", result.size(),
+          TimeUnit.NANOSECONDS.toMillis(total), message);
+    }
+
+    return result;
+  }
+
+  /**
+   * @return how long each phase of the last load took, in nanoseconds, in the order they ran
+   */
+  public Map<String, Long> getLastTimings() {
+    return lastTimings;
+  }
+
+  /**
+   * @return the cache, or {@code null} if there is none
+   */
+  public JWKSetCache getCache() {
+    return cache;
+  }
+
+  private static long phase(Map<String, Long> timings, String phase, long start) {
+    final long now = System.nanoTime();
+    timings.put(phase, now - start);
+    return now;
+  }
+
+  private static byte[] readAll(ByteSource source) throws IOException {
+    try (InputStream in = source.getBytes()) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buf = new byte[8192];
+      for (int n = in.read(buf); n != -1; n = in.read(buf))
+        out.write(buf, 0, n);
+      return out.toByteArray();
+    }
+  }
+
+  private static byte[] checksum(byte[] bytes) {
+    try {
+      return MessageDigest.getInstance(CHECKSUM_ALGORITHM).digest(bytes);
+    } catch (NoSuchAlgorithmException e) {
+      // Every JVM is required to support SHA-256
+      throw new AssertionError(CHECKSUM_ALGORITHM, e);
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.keys;
+
+import static java.util.Objects.requireNonNull;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.nimbusds.jose.jwk.JWKSet;
+import io.dropwizard.lifecycle.Managed;
+
+/**
+ * Reloads keys into a {@link KeyRing}, either on demand or by polling at a fixed interval. If the
+ * keys come from a local file, then polling only reloads the file when its modification time or
+ * size changes. Otherwise, polling reloads the keys every time, and only swaps them in if they
+ * differ from the current keys.
+ * 
+ * New keys are validated before they are swapped in. If loading or validation fails, then the
+ * current keys stay in place.
+ */
+public class KeyStoreReloader implements Managed {
+  private static final Logger LOGGER = LoggerFactory.getLogger(KeyStoreReloader.class);
+
+  @FunctionalInterface
+  public static interface Loader {
+    public JWKSet load() throws IOException;
+  }
+
+  /* default */ static final String THREAD_NAME = "jwt-key-reloader";
+
+  private final KeyRing keys;
+  private final Loader loader;
+  private final Consumer<JWKSet> validator;
+  private final Duration pollInterval;
+  private final File file;
+  private ScheduledExecutorService executor;
+  private long lastModified;
+  private long lastLength;
+
+  /**
+   * @param validator throws an {@link IllegalArgumentException} if the given keys are not usable
+   * @param pollInterval how often to check for new keys, or {@code null} to only reload on demand
+   * @param file the local file the keys come from, if any, or {@code null}
+   */
+  public KeyStoreReloader(KeyRing keys, Loader loader, Consumer<JWKSet> validator,
+      Duration pollInterval, File file) {
+    if (pollInterval != null && (pollInterval.isNegative() || pollInterval.isZero()))
+      throw new IllegalArgumentException("pollInterval must be positive");
+    this.keys = requireNonNull(keys);
+    this.loader = requireNonNull(loader);
+    this.validator = requireNonNull(validator);
+    this.pollInterval = pollInterval;
+    this.file = file;
+    if (file != null) {
+      this.lastModified = file.lastModified();
+      this.lastLength = file.length();
+    }
+  }
+
+  @Override
+  public synchronized void start() {
+    if (pollInterval == null || executor != null)
+      return;
+    executor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, THREAD_NAME);
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(this::poll, pollInterval.toMillis(), pollInterval.toMillis(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public synchronized void stop() {
+    if (executor != null) {
+      executor.shutdownNow();
+      executor = null;
+    }
+  }
+
+  private void poll() {
+    try {
+      reload(false);
+    } catch (Exception e) {
+      LOGGER.warn("Failed to reload keys, keeping {}", keys.current(), e);
+    }
+  }
+
+  /**
+   * Loads the keys and swaps them in if they have changed.
+   * 
+   * @param force if {@code true}, then load the keys even if the file appears unchanged
+   * @return {@code true} if new keys were swapped in, or {@code false} if the keys are unchanged
+   * @throws IOException if the keys could not be loaded
+   * @throws IllegalArgumentException if the new keys are not usable
+   */
+  public synchronized boolean reload(boolean force) throws IOException {
+    long modified = 0L, length = 0L;
+    if (file != null) {
+      modified = file.lastModified();
+      length = file.length();
+      if (!force && modified == lastModified && length == lastLength)
+        return false;
+    }
+
+    JWKSet jwks = loader.load();
+
+    // Remember that we have seen this version of the file, even if we reject it, so we don't keep
+    // trying to load the same bad file over and over.
+    if (file != null) {
+      lastModified = modified;
+      lastLength = length;
+    }
+
+    if (jwks.toJSONObject(false).equals(keys.current().getJwks().toJSONObject(false)))
+      return false;
+
+    validator.accept(jwks);
+
+    KeySnapshot snapshot = keys.update(jwks);
+
+    LOGGER.info("Reloaded keys as {}", snapshot);
+
+    return true;
+  }
+
+  /**
+   * @return the keys
+   */
+  public KeyRing getKeys() {
+    return keys;
+  }
+}
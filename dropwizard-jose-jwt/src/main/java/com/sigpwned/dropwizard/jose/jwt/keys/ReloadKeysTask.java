@@ -0,0 +1,49 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.keys;
+
+import static java.util.Objects.requireNonNull;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+import io.dropwizard.servlets.tasks.Task;
+
+/**
+ * An admin task that reloads the keys immediately, e.g., after a new key store has been deployed.
+ * Run it with {@code POST /tasks/reload-jwt-keys} on the admin port.
+ */
+public class ReloadKeysTask extends Task {
+  public static final String NAME = "reload-jwt-keys";
+
+  private final KeyStoreReloader reloader;
+
+  public ReloadKeysTask(KeyStoreReloader reloader) {
+    super(NAME);
+    this.reloader = requireNonNull(reloader);
+  }
+
+  @Override
+  public void execute(Map<String, List<String>> parameters, PrintWriter output) throws Exception {
+    boolean reloaded = reloader.reload(true);
+    KeySnapshot snapshot = reloader.getKeys().current();
+    output.println((reloaded ? "Reloaded keys: " : "Keys unchanged: ") + snapshot);
+    output.flush();
+  }
+}
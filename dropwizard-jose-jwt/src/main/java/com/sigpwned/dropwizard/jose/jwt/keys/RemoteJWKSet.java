@@ -0,0 +1,322 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.keys;
+
+import static java.util.Objects.requireNonNull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.sigpwned.dropwizard.jose.jwt.util.RemoteByteSource;
+import io.dropwizard.lifecycle.Managed;
+
+/**
+ * The public keys another service publishes at a URL, typically its {@code /.well-known/jwks.json},
+ * for verifying the tokens that service issues.
+ * 
+ * <ul>
+ * <li>The keys are fetched on first use, and then refreshed in the background every refresh
+ * interval while the service is {@link #start() started}.</li>
+ * <li>The keys are served stale while they are revalidated: once they are older than the refresh
+ * interval, {@link #get()} returns them right away and starts a refresh in the background.</li>
+ * <li>A token signed with a key we have not seen yet may mean the issuer has rotated its keys, so
+ * {@link #refetch()} fetches the keys right away, but no more often than the minimum refetch
+ * interval, so bogus key IDs cannot be used to hammer the issuer.</li>
+ * <li>Only one fetch runs at a time. Everyone who needs the keys while a fetch is running waits for
+ * that fetch instead of starting another one, so a key rotation does not cause a thundering herd
+ * against the issuer.</li>
+ * </ul>
+ * 
+ * Fetches are conditional GETs with timeouts, as described in {@link RemoteByteSource}. If a fetch
+ * fails, then the last keys we fetched stay in place. {@link #get()} returns the same instance
+ * until the keys actually change, so it can be given to
+ * {@link com.sigpwned.dropwizard.jose.jwt.verification.ReloadableSignatureVerifier}.
+ */
+public class RemoteJWKSet implements Supplier<JWKSet>, Managed {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RemoteJWKSet.class);
+
+  /**
+   * The default amount of time after which the keys are refreshed
+   */
+  public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofMinutes(5L);
+
+  /**
+   * The default minimum amount of time between fetches caused by unknown keys
+   */
+  public static final Duration DEFAULT_MIN_REFETCH_INTERVAL = Duration.ofSeconds(30L);
+
+  /* default */ static final String THREAD_NAME = "jwt-jwks-refresher";
+
+  private final RemoteByteSource source;
+  private final Duration refreshInterval;
+  private final Duration minRefetchInterval;
+  private final ScheduledExecutorService executor;
+  private final AtomicReference<CompletableFuture<JWKSet>> fetching;
+  private volatile Fetched current;
+  private volatile Instant lastAttempt;
+  private boolean started;
+
+  public RemoteJWKSet(URL url) {
+    this(url, DEFAULT_REFRESH_INTERVAL, DEFAULT_MIN_REFETCH_INTERVAL,
+        RemoteByteSource.DEFAULT_CONNECT_TIMEOUT, RemoteByteSource.DEFAULT_READ_TIMEOUT);
+  }
+
+  public RemoteJWKSet(URL url, Duration refreshInterval, Duration minRefetchInterval,
+      Duration connectTimeout, Duration readTimeout) {
+    this.source = new RemoteByteSource(url, connectTimeout, readTimeout, null);
+    this.refreshInterval = requireNonNull(refreshInterval);
+    this.minRefetchInterval = requireNonNull(minRefetchInterval);
+    if (refreshInterval.isNegative() || refreshInterval.isZero())
+      throw new IllegalArgumentException("refreshInterval must be positive");
+    if (minRefetchInterval.isNegative())
+      throw new IllegalArgumentException("minRefetchInterval must not be negative");
+    this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, THREAD_NAME);
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.fetching = new AtomicReference<>();
+  }
+
+  @Override
+  public synchronized void start() {
+    if (started)
+      return;
+    started = true;
+    executor.scheduleWithFixedDelay(() -> fetch(false), refreshInterval.toMillis(),
+        refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public synchronized void stop() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Returns the current keys, fetching them first if they have never been fetched. If the keys are
+   * older than the refresh interval, then they are returned anyway, and refreshed in the
+   * background.
+   * 
+   * @throws UncheckedIOException if the keys have never been fetched, and cannot be fetched now
+   */
+  @Override
+  public JWKSet get() {
+    final Fetched fetched = current;
+    if (fetched == null)
+      return await(fetch(false));
+
+    if (!now().isBefore(fetched.getFetchedAt().plus(refreshInterval)))
+      fetch(true);
+
+    return fetched.getJwks();
+  }
+
+  /**
+   * Fetches the keys now, e.g., because a token names a key we do not have, unless the keys were
+   * fetched less than the minimum refetch interval ago. If a fetch is already running, then waits
+   * for it instead of starting another one.
+   * 
+   * @return the current keys after the fetch, if any
+   * @throws UncheckedIOException if the keys have never been fetched, and cannot be fetched now
+   */
+  public JWKSet refetch() {
+    final CompletableFuture<JWKSet> running = fetching.get();
+    if (running != null)
+      return await(running);
+
+    final Fetched fetched = current;
+    final Instant attempted = lastAttempt;
+    if (fetched != null && attempted != null
+        && now().isBefore(attempted.plus(minRefetchInterval)))
+      return fetched.getJwks();
+
+    return await(fetch(false));
+  }
+
+  /**
+   * Starts a fetch, unless one is already running, in which case that one is returned instead.
+   * 
+   * @param async if {@code true}, then fetch in the background, or else fetch on this thread
+   */
+  private CompletableFuture<JWKSet> fetch(boolean async) {
+    for (;;) {
+      CompletableFuture<JWKSet> running = fetching.get();
+      if (running != null)
+        return running;
+
+      CompletableFuture<JWKSet> mine = new CompletableFuture<>();
+      if (!fetching.compareAndSet(null, mine))
+        continue;
+
+      if (async) {
+        try {
+          executor.execute(() -> run(mine));
+        } catch (RejectedExecutionException e) {
+          // We have been stopped, so there is no background anymore.
+          run(mine);
+        }
+      } else {
+        run(mine);
+      }
+
+      return mine;
+    }
+  }
+
+  private void run(CompletableFuture<JWKSet> fetch) {
+    lastAttempt = now();
+    try {
+      fetch.complete(load());
+    } catch (IOException | RuntimeException e) {
+      if (LOGGER.isWarnEnabled())
+        LOGGER.warn("Failed to fetch keys from {}", source.getUrl().getHost(), e);
+      fetch.completeExceptionally(e);
+    } finally {
+      fetching.compareAndSet(fetch, null);
+    }
+  }
+
+  private JWKSet load() throws IOException {
+    final byte[] data;
+    try (InputStream in = source.getBytes()) {
+      data = readAll(in);
+    }
+
+    // Keep the same instance if nothing changed, so verifiers built for it stay valid
+    final Fetched previous = current;
+    if (previous != null && Arrays.equals(previous.getData(), data)) {
+      current = new Fetched(previous.getJwks(), data, now());
+      return previous.getJwks();
+    }
+
+    final JWKSet jwks;
+    try {
+      jwks = JWKSet.parse(new String(data, StandardCharsets.UTF_8)).toPublicJWKSet();
+    } catch (ParseException e) {
+      throw new IOException("Failed to parse JWK set", e);
+    }
+
+    current = new Fetched(jwks, data, now());
+
+    if (LOGGER.isInfoEnabled())
+      LOGGER.info("Fetched {} keys from {}", jwks.getKeys().size(), source.getUrl().getHost());
+
+    return jwks;
+  }
+
+  /**
+   * @return the url
+   */
+  public URL getUrl() {
+    return source.getUrl();
+  }
+
+  /**
+   * @return the refreshInterval
+   */
+  public Duration getRefreshInterval() {
+    return refreshInterval;
+  }
+
+  /**
+   * @return the minRefetchInterval
+   */
+  public Duration getMinRefetchInterval() {
+    return minRefetchInterval;
+  }
+
+  /**
+   * test hook
+   */
+  protected Instant now() {
+    return Instant.now();
+  }
+
+  private static JWKSet await(CompletableFuture<JWKSet> fetch) {
+    try {
+      return fetch.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw new UncheckedIOException("Failed to fetch keys", (IOException) cause);
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      throw e;
+    }
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buf = new byte[8192];
+    for (int n = in.read(buf); n != -1; n = in.read(buf))
+      out.write(buf, 0, n);
+    return out.toByteArray();
+  }
+
+  private static final class Fetched {
+    private final JWKSet jwks;
+    private final byte[] data;
+    private final Instant fetchedAt;
+
+    public Fetched(JWKSet jwks, byte[] data, Instant fetchedAt) {
+      this.jwks = jwks;
+      this.data = data;
+      this.fetchedAt = fetchedAt;
+    }
+
+    /**
+     * @return the jwks
+     */
+    public JWKSet getJwks() {
+      return jwks;
+    }
+
+    /**
+     * @return the data
+     */
+    public byte[] getData() {
+      return data;
+    }
+
+    /**
+     * @return the fetchedAt
+     */
+    public Instant getFetchedAt() {
+      return fetchedAt;
+    }
+  }
+}
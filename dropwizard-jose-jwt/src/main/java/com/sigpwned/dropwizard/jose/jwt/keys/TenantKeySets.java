@@ -0,0 +1,380 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.keys;
+
+import static java.util.Objects.requireNonNull;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.sigpwned.dropwizard.jose.jwt.JWTFactory;
+import com.sigpwned.dropwizard.jose.jwt.factory.DefaultJWTFactory;
+import com.sigpwned.dropwizard.jose.jwt.util.ByteSource;
+import com.sigpwned.dropwizard.jose.jwt.util.KeyStores;
+import com.sigpwned.dropwizard.jose.jwt.verification.IndexedSignatureVerifier;
+import com.sigpwned.dropwizard.jose.jwt.verification.SignatureVerifier;
+
+/**
+ * The signing keys of many tenants, e.g., one key store per tenant in a directory. A tenant's keys
+ * are loaded the first time they are needed, and then kept, along with the verifier and factory
+ * built from them, in a bounded cache that evicts the tenants that have been used least recently
+ * and least often. If several threads need the same tenant at once, then the tenant is loaded only
+ * once, and the other threads wait for it. Tenants are loaded independently of each other.
+ * 
+ * Tenant IDs usually come from tokens that have not been verified yet, which anyone can send, so
+ * tenants that do not exist or cannot be loaded are remembered too, for a short time, in a separate
+ * bounded cache. Otherwise, a flood of tokens naming such a tenant would look for its keys, or
+ * decrypt its broken key store, again and again.
+ * 
+ * @see com.sigpwned.dropwizard.jose.jwt.verification.TenantSignatureVerifier
+ */
+public class TenantKeySets {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TenantKeySets.class);
+
+  /**
+   * Loads the keys of one tenant
+   */
+  @FunctionalInterface
+  public static interface Loader {
+    /**
+     * @return the tenant's keys, or {@code null} if there is no such tenant
+     * @throws IOException if the tenant's keys could not be loaded
+     */
+    public JWKSet load(String tenant) throws IOException;
+  }
+
+  /**
+   * The default maximum number of tenants to keep
+   */
+  public static final long DEFAULT_MAXIMUM_SIZE = 1000L;
+
+  /**
+   * The default maximum number of missing or broken tenants to remember
+   */
+  public static final long DEFAULT_NEGATIVE_MAXIMUM_SIZE = 10000L;
+
+  /**
+   * The default amount of time to remember that a tenant is missing or broken. This is short, so a
+   * tenant that is added or fixed is picked up soon.
+   */
+  public static final Duration DEFAULT_NEGATIVE_TTL = Duration.ofSeconds(30L);
+
+  /**
+   * Tenant IDs usually come from the payload of tokens that have not been verified yet, so only
+   * plain names are allowed. In particular, they cannot name files outside the directory.
+   */
+  private static final Pattern TENANT_PATTERN = Pattern.compile("[A-Za-z0-9_][A-Za-z0-9_.-]*");
+
+  /**
+   * Loads each tenant's keys from the file named after the tenant, plus the given suffix, in the
+   * given directory. The files may be key stores of the given type, or PEM keys or JSON JWK sets.
+   * 
+   * @param password the password of every key store, which is only required for real key stores
+   * @see KeyStores#loadJWKSet(String, ByteSource, String, String)
+   */
+  public static Loader directoryLoader(File directory, String suffix, String type,
+      String password, String provider) {
+    requireNonNull(directory);
+    requireNonNull(suffix);
+    requireNonNull(type);
+    return tenant -> {
+      if (!isValidTenant(tenant))
+        return null;
+      File file = new File(directory, tenant + suffix);
+      if (!file.isFile())
+        return null;
+      return KeyStores.loadJWKSet(type, ByteSource.fromFile(file), password, provider);
+    };
+  }
+
+  /**
+   * @return {@code true} if the given value is an acceptable tenant ID, or {@code false} otherwise
+   */
+  public static boolean isValidTenant(String tenant) {
+    return tenant != null && TENANT_PATTERN.matcher(tenant).matches();
+  }
+
+  private final Loader loader;
+  private final String issuer;
+  private final Duration tokenLifetime;
+  private final JWSAlgorithm signingAlgorithm;
+  private final LoadingCache<String, TenantKeys> cache;
+  private final Cache<String, Miss> negativeCache;
+  private final Timer loadTimer;
+
+  public TenantKeySets(Loader loader, String issuer, Duration tokenLifetime) {
+    this(loader, issuer, tokenLifetime, JWTFactory.DEFAULT_SIGNING_ALGORITHM,
+        DEFAULT_MAXIMUM_SIZE);
+  }
+
+  /**
+   * @param issuer the issuer of the tokens created for every tenant
+   * @param maximumSize the maximum number of tenants to keep
+   */
+  public TenantKeySets(Loader loader, String issuer, Duration tokenLifetime,
+      JWSAlgorithm signingAlgorithm, long maximumSize) {
+    this(loader, issuer, tokenLifetime, signingAlgorithm, maximumSize,
+        DEFAULT_NEGATIVE_MAXIMUM_SIZE, DEFAULT_NEGATIVE_TTL);
+  }
+
+  /**
+   * @param issuer the issuer of the tokens created for every tenant
+   * @param maximumSize the maximum number of tenants to keep
+   * @param negativeMaximumSize the maximum number of missing or broken tenants to remember
+   * @param negativeTtl how long to remember that a tenant is missing or broken
+   */
+  public TenantKeySets(Loader loader, String issuer, Duration tokenLifetime,
+      JWSAlgorithm signingAlgorithm, long maximumSize, long negativeMaximumSize,
+      Duration negativeTtl) {
+    if (maximumSize < 1L)
+      throw new IllegalArgumentException("maximumSize must be positive");
+    if (negativeMaximumSize < 1L)
+      throw new IllegalArgumentException("negativeMaximumSize must be positive");
+    if (negativeTtl == null)
+      throw new NullPointerException();
+    if (negativeTtl.isNegative() || negativeTtl.isZero())
+      throw new IllegalArgumentException("negativeTtl must be positive");
+    this.loader = requireNonNull(loader);
+    this.issuer = requireNonNull(issuer);
+    this.tokenLifetime = requireNonNull(tokenLifetime);
+    this.signingAlgorithm = requireNonNull(signingAlgorithm);
+    this.loadTimer = new Timer();
+    this.cache = Caffeine.newBuilder().maximumSize(maximumSize).recordStats().build(this::load);
+    this.negativeCache = Caffeine.newBuilder().maximumSize(negativeMaximumSize)
+        .expireAfterWrite(negativeTtl).recordStats().build();
+  }
+
+  /**
+   * Returns the given tenant's keys, loading them first if necessary.
+   * 
+   * @return the tenant's keys, or {@code null} if there is no such tenant
+   * @throws IOException if the tenant's keys could not be loaded
+   * @throws IllegalArgumentException if the tenant's keys are not usable
+   */
+  public TenantKeys get(String tenant) throws IOException {
+    requireNonNull(tenant);
+
+    // If we already know the tenant is missing or broken, then there's no need to look again
+    Miss miss = negativeCache.getIfPresent(tenant);
+    if (miss == null) {
+      // The cache does not keep a null result or a failure, so we remember those ourselves
+      try {
+        TenantKeys result = cache.get(tenant);
+        if (result != null)
+          return result;
+        miss = Miss.MISSING;
+      } catch (CompletionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof IOException || cause instanceof RuntimeException)
+          miss = new Miss((Exception) cause);
+        else
+          miss = new Miss(e);
+      } catch (RuntimeException e) {
+        miss = new Miss(e);
+      }
+      negativeCache.put(tenant, miss);
+    }
+
+    Exception failure = miss.getFailure();
+    if (failure == null)
+      return null;
+    if (failure instanceof IOException)
+      throw new IOException("Failed to load keys for tenant " + tenant, failure);
+    throw (RuntimeException) failure;
+  }
+
+  /**
+   * @return the given tenant's keys if they are loaded, or {@code null} otherwise
+   */
+  public TenantKeys getIfLoaded(String tenant) {
+    return cache.getIfPresent(tenant);
+  }
+
+  /**
+   * Forgets the given tenant's keys, e.g., because they have changed. They are loaded again the
+   * next time they are needed.
+   */
+  public void invalidate(String tenant) {
+    cache.invalidate(tenant);
+    negativeCache.invalidate(tenant);
+  }
+
+  private TenantKeys load(String tenant) throws IOException {
+    final Timer.Context timing = loadTimer.time();
+    final JWKSet jwks;
+    try {
+      jwks = loader.load(tenant);
+    } finally {
+      timing.stop();
+    }
+
+    if (jwks == null) {
+      if (LOGGER.isDebugEnabled())
+        LOGGER.debug("No keys for tenant {}", tenant);
+      return null;
+    }
+
+    // A tenant whose tokens we only verify has no private keys, and so no factory
+    JWTFactory jwtFactory = null;
+    if (jwks.getKeys().stream().anyMatch(JWK::isPrivate))
+      jwtFactory = new DefaultJWTFactory(jwks, issuer, tokenLifetime, signingAlgorithm);
+
+    TenantKeys result = new TenantKeys(tenant, jwks,
+        new IndexedSignatureVerifier(signingAlgorithm, jwks), jwtFactory);
+
+    if (LOGGER.isDebugEnabled())
+      LOGGER.debug("Loaded {} keys for tenant {}", jwks.getKeys().size(), tenant);
+
+    return result;
+  }
+
+  /**
+   * @return the approximate number of loaded tenants
+   */
+  public long size() {
+    return cache.estimatedSize();
+  }
+
+  /**
+   * @return the hit, miss, load, and eviction counts of the cache
+   */
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  /**
+   * @return the hit and eviction counts of the cache of missing and broken tenants
+   */
+  public CacheStats negativeStats() {
+    return negativeCache.stats();
+  }
+
+  /**
+   * @return the time it took to load each tenant
+   */
+  public Timer getLoadTimer() {
+    return loadTimer;
+  }
+
+  /**
+   * Publishes the load latency as a timer, and the size and churn of both caches as gauges, under
+   * the given name.
+   */
+  public void registerMetrics(MetricRegistry metrics, String name) {
+    metrics.register(MetricRegistry.name(name, "load"), loadTimer);
+    metrics.register(MetricRegistry.name(name, "hits"),
+        (Gauge<Long>) () -> cache.stats().hitCount());
+    metrics.register(MetricRegistry.name(name, "misses"),
+        (Gauge<Long>) () -> cache.stats().missCount());
+    metrics.register(MetricRegistry.name(name, "loadFailures"),
+        (Gauge<Long>) () -> cache.stats().loadFailureCount());
+    metrics.register(MetricRegistry.name(name, "evictions"),
+        (Gauge<Long>) () -> cache.stats().evictionCount());
+    metrics.register(MetricRegistry.name(name, "size"), (Gauge<Long>) cache::estimatedSize);
+    metrics.register(MetricRegistry.name(name, "negativeHits"),
+        (Gauge<Long>) () -> negativeCache.stats().hitCount());
+    metrics.register(MetricRegistry.name(name, "negativeEvictions"),
+        (Gauge<Long>) () -> negativeCache.stats().evictionCount());
+    metrics.register(MetricRegistry.name(name, "negativeSize"),
+        (Gauge<Long>) negativeCache::estimatedSize);
+  }
+
+  /**
+   * Why a tenant has no keys: either there is no such tenant, or its keys could not be loaded
+   */
+  private static final class Miss {
+    public static final Miss MISSING = new Miss(null);
+
+    private final Exception failure;
+
+    public Miss(Exception failure) {
+      this.failure = failure;
+    }
+
+    /**
+     * @return the reason the tenant's keys could not be loaded, which is either an
+     *         {@link IOException} or a {@link RuntimeException}, or {@code null} if there is no
+     *         such tenant
+     */
+    public Exception getFailure() {
+      return failure;
+    }
+  }
+
+  /**
+   * The keys of one tenant, and the verifier and factory built from them
+   */
+  public static final class TenantKeys {
+    private final String tenant;
+    private final JWKSet jwks;
+    private final SignatureVerifier verifier;
+    private final JWTFactory jwtFactory;
+
+    public TenantKeys(String tenant, JWKSet jwks, SignatureVerifier verifier,
+        JWTFactory jwtFactory) {
+      this.tenant = requireNonNull(tenant);
+      this.jwks = requireNonNull(jwks);
+      this.verifier = requireNonNull(verifier);
+      this.jwtFactory = jwtFactory;
+    }
+
+    /**
+     * @return the tenant
+     */
+    public String getTenant() {
+      return tenant;
+    }
+
+    /**
+     * @return the jwks
+     */
+    public JWKSet getJwks() {
+      return jwks;
+    }
+
+    /**
+     * @return the verifier for the tenant's tokens
+     */
+    public SignatureVerifier getVerifier() {
+      return verifier;
+    }
+
+    /**
+     * @return the factory for the tenant's tokens, which are signed with the tenant's keys, or
+     *         {@code null} if the tenant has no private keys
+     */
+    public JWTFactory getJWTFactory() {
+      return jwtFactory;
+    }
+  }
+}
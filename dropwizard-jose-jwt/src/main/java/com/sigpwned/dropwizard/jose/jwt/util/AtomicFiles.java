@@ -0,0 +1,59 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+public final class AtomicFiles {
+  private AtomicFiles() {}
+
+  /**
+   * Replaces the given file with the given data. The data is written to a temporary file in the
+   * same directory, which is then moved over the target atomically where the file system supports
+   * it, so readers never see a partial file. Since these files often hold keys, only the owner may
+   * read or write them, if the file system allows us to say so.
+   */
+  public static void write(File file, byte[] data) throws IOException {
+    final Path target = file.toPath().toAbsolutePath();
+    final Path temp = Files.createTempFile(target.getParent(), file.getName() + ".", ".tmp");
+    try {
+      File tempFile = temp.toFile();
+      tempFile.setReadable(false, false);
+      tempFile.setReadable(true, true);
+      tempFile.setWritable(false, false);
+      tempFile.setWritable(true, true);
+
+      Files.write(temp, data);
+      try {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+}
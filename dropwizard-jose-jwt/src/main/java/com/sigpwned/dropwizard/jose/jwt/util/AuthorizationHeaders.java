@@ -0,0 +1,67 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.util;
+
+/**
+ * Helpers for reading the HTTP {@code Authorization} header. These run on every authenticated
+ * request, so they scan the header in place, never throw on malformed input, and allocate nothing
+ * but the returned credentials.
+ */
+public final class AuthorizationHeaders {
+  private AuthorizationHeaders() {}
+
+  /**
+   * Extracts the credentials from an {@code Authorization} header of the form
+   * {@code <scheme> <credentials>}, e.g., {@code Bearer eyJhbGciOi...}. The scheme is matched
+   * case-insensitively, and must be followed by at least one space. Whitespace around the
+   * credentials is ignored.
+   * 
+   * @param header the value of the header, which may be {@code null}
+   * @param scheme the expected authentication scheme, e.g., {@code Bearer}
+   * @return the credentials, or {@code null} if the header is missing, uses a different scheme, or
+   *         has no credentials
+   */
+  public static String extractCredentials(String header, String scheme) {
+    if (header == null || scheme == null)
+      return null;
+
+    final int length = header.length();
+    final int schemeLength = scheme.length();
+
+    // The scheme must come first, and must be followed by a space
+    if (length <= schemeLength || header.charAt(schemeLength) != ' ')
+      return null;
+    if (!header.regionMatches(true, 0, scheme, 0, schemeLength))
+      return null;
+
+    int start = schemeLength + 1;
+    while (start < length && Character.isWhitespace(header.charAt(start)))
+      start = start + 1;
+
+    int end = length;
+    while (end > start && Character.isWhitespace(header.charAt(end - 1)))
+      end = end - 1;
+
+    if (start == end)
+      return null;
+
+    return header.substring(start, end);
+  }
+}
@@ -19,19 +19,42 @@
  */
 package com.sigpwned.dropwizard.jose.jwt.util;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
 import java.security.KeyStore;
 import java.security.KeyStoreException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
+import java.security.UnrecoverableKeyException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.crypto.SecretKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.util.Base64URL;
 
 public final class KeyStores {
   private KeyStores() {}
@@ -44,6 +67,203 @@ public final class KeyStores {
    */
   public static final String DEFAULT_TYPE = "PKCS12";
 
+  /**
+   * The pseudo key store type for PEM-encoded keys and certificates, which need no password
+   * 
+   * @see PemKeys
+   */
+  public static final String PEM_TYPE = "PEM";
+
+  /**
+   * The pseudo key store type for a JSON JWK set, which needs no password
+   */
+  public static final String JWKS_TYPE = "JWKS";
+
+  /**
+   * @return {@code true} if the given type is a real {@link KeyStore} type, or {@code false} if it
+   *         is one of the pseudo types {@link #PEM_TYPE} or {@link #JWKS_TYPE}
+   */
+  public static boolean isKeyStoreType(String type) {
+    return !type.equalsIgnoreCase(PEM_TYPE) && !type.equalsIgnoreCase(JWKS_TYPE);
+  }
+
+  /**
+   * Loads JWKs from the given data, which may be a key store of the given type, PEM-encoded keys
+   * (type {@link #PEM_TYPE}), or a JSON JWK set (type {@link #JWKS_TYPE}). The password and
+   * provider are only used for key stores.
+   * 
+   * @throws IOException if an I/O error occurs, or if the data cannot be parsed
+   */
+  public static JWKSet loadJWKSet(String type, ByteSource bytes, String password,
+      String provider) throws IOException {
+    if (type.equalsIgnoreCase(PEM_TYPE))
+      return PemKeys.parse(readString(bytes));
+
+    if (type.equalsIgnoreCase(JWKS_TYPE)) {
+      try {
+        return JWKSet.parse(readString(bytes));
+      } catch (ParseException e) {
+        throw new IOException("Failed to parse JWK set", e);
+      }
+    }
+
+    if (password == null)
+      throw new IOException("A password is required for " + type + " key stores");
+
+    try {
+      return toJWKSet(loadKeyStore(type, bytes, password, provider), password);
+    } catch (KeyStoreException e) {
+      throw new IOException("Failed to load keys from store", e);
+    }
+  }
+
+  /**
+   * The DER encoding of an X.509 SubjectPublicKeyInfo for an Ed25519 key, up to the raw key
+   */
+  private static final byte[] ED25519_PUBLIC_KEY_PREFIX =
+      {0x30, 0x2a, 0x30, 0x05, 0x06, 0x03, 0x2b, 0x65, 0x70, 0x03, 0x21, 0x00};
+
+  /**
+   * The DER encoding of the Ed25519 algorithm OID
+   */
+  private static final byte[] ED25519_OID = {0x06, 0x03, 0x2b, 0x65, 0x70};
+
+  /**
+   * The DER encoding of the PKCS#8 privateKey field of an Ed25519 key, up to the raw key
+   */
+  private static final byte[] ED25519_PRIVATE_KEY_PREFIX = {0x04, 0x22, 0x04, 0x20};
+
+  private static final int ED25519_KEY_LENGTH = 32;
+
+  /**
+   * Converts the keys in the given key store to JWKs, the same way as
+   * {@link JWKSet#load(KeyStore, com.nimbusds.jose.jwk.PasswordLookup)} with no password lookup.
+   * Nimbus only reads RSA and EC keys from key stores, so we read Ed25519 keys ourselves. Like
+   * Nimbus, we use the alias as the key ID, and take the other attributes from the certificate.
+   * 
+   * Secret key entries, e.g., from {@code keytool -genseckey -keyalg HmacSHA256}, are protected by
+   * the key store password, so we read them with the given password as HMAC keys.
+   */
+  public static JWKSet toJWKSet(KeyStore keyStore, String password) throws KeyStoreException {
+    final JWKSet result = JWKSet.load(keyStore, null);
+
+    final List<JWK> extra = new ArrayList<>();
+    for (String alias : Collections.list(keyStore.aliases())) {
+      if (password != null && result.getKeyByKeyId(alias) == null) {
+        OctetSequenceKey secret = toSecretJWK(keyStore, alias, password);
+        if (secret != null) {
+          extra.add(secret);
+          continue;
+        }
+      }
+
+      Certificate certificate = keyStore.getCertificate(alias);
+      if (!(certificate instanceof X509Certificate))
+        continue;
+
+      byte[] x = rawKey(certificate.getPublicKey().getEncoded(), ED25519_PUBLIC_KEY_PREFIX);
+      if (x == null)
+        continue;
+
+      X509Certificate cert = (X509Certificate) certificate;
+      OctetKeyPair.Builder builder = new OctetKeyPair.Builder(Curve.Ed25519, Base64URL.encode(x))
+          .keyID(alias).keyUse(KeyUse.from(cert)).notBeforeTime(cert.getNotBefore())
+          .expirationTime(cert.getNotAfter()).keyStore(keyStore);
+      try {
+        builder.x509CertChain(Collections.singletonList(
+            com.nimbusds.jose.util.Base64.encode(cert.getEncoded())))
+            .x509CertSHA256Thumbprint(
+                Base64URL.encode(MessageDigest.getInstance("SHA-256").digest(cert.getEncoded())));
+      } catch (CertificateEncodingException | NoSuchAlgorithmException e) {
+        throw new KeyStoreException("Failed to encode certificate " + alias, e);
+      }
+
+      if (keyStore.isKeyEntry(alias)) {
+        Key key;
+        try {
+          key = keyStore.getKey(alias, "".toCharArray());
+        } catch (NoSuchAlgorithmException | UnrecoverableKeyException e) {
+          // Nimbus skips keys it cannot recover, too
+          continue;
+        }
+        byte[] encoded = key != null ? key.getEncoded() : null;
+        if (encoded != null && contains(encoded, ED25519_OID)) {
+          byte[] d = rawKey(encoded, ED25519_PRIVATE_KEY_PREFIX);
+          if (d != null)
+            builder.d(Base64URL.encode(d));
+        }
+      }
+
+      extra.add(builder.build());
+    }
+
+    if (extra.isEmpty())
+      return result;
+
+    List<JWK> keys = new ArrayList<>(result.getKeys());
+    keys.addAll(extra);
+    return new JWKSet(keys);
+  }
+
+  /**
+   * @return the secret key with the given alias as a JWK, or {@code null} if the entry is not a
+   *         secret key entry or cannot be recovered with the given password
+   */
+  private static OctetSequenceKey toSecretJWK(KeyStore keyStore, String alias, String password)
+      throws KeyStoreException {
+    if (!keyStore.entryInstanceOf(alias, KeyStore.SecretKeyEntry.class))
+      return null;
+
+    Key key;
+    try {
+      key = keyStore.getKey(alias, password.toCharArray());
+    } catch (NoSuchAlgorithmException | UnrecoverableKeyException e) {
+      return null;
+    }
+    if (!(key instanceof SecretKey))
+      return null;
+
+    return new OctetSequenceKey.Builder((SecretKey) key).keyID(alias).keyStore(keyStore).build();
+  }
+
+  /**
+   * @return the raw key that follows the given prefix in the given encoding, or {@code null} if
+   *         there is no such key
+   */
+  private static byte[] rawKey(byte[] encoded, byte[] prefix) {
+    if (encoded == null)
+      return null;
+    int index = indexOf(encoded, prefix);
+    if (index == -1 || index + prefix.length + ED25519_KEY_LENGTH > encoded.length)
+      return null;
+    return Arrays.copyOfRange(encoded, index + prefix.length,
+        index + prefix.length + ED25519_KEY_LENGTH);
+  }
+
+  private static boolean contains(byte[] haystack, byte[] needle) {
+    return indexOf(haystack, needle) != -1;
+  }
+
+  private static int indexOf(byte[] haystack, byte[] needle) {
+    outer: for (int i = 0; i + needle.length <= haystack.length; i++) {
+      for (int j = 0; j < needle.length; j++)
+        if (haystack[i + j] != needle[j])
+          continue outer;
+      return i;
+    }
+    return -1;
+  }
+
+  private static String readString(ByteSource bytes) throws IOException {
+    try (InputStream in = bytes.getBytes()) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buf = new byte[8192];
+      for (int n = in.read(buf); n != -1; n = in.read(buf))
+        out.write(buf, 0, n);
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
   /**
    * Same as {@code loadKeyStore(type, path, password)}.
    * 
@@ -100,9 +320,34 @@ public final class KeyStores {
    */
   public static KeyStore loadKeyStore(String type, String keyStorePath, String password,
       String provider) throws IOException {
+    return loadKeyStore(type, resolveKeyStorePath(keyStorePath), password, provider);
+  }
+
+  /**
+   * Resolves the given key store path to the key store data, as described in
+   * {@link #loadKeyStore(String, String, String, String)}.
+   * 
+   * @throws IOException if the given path cannot be resolved to a key store
+   */
+  public static ByteSource resolveKeyStorePath(String keyStorePath) throws IOException {
+    return resolveKeyStorePath(keyStorePath, RemoteByteSource.DEFAULT_CONNECT_TIMEOUT,
+        RemoteByteSource.DEFAULT_READ_TIMEOUT, null);
+  }
+
+  /**
+   * Resolves the given key store path to the key store data, as described in
+   * {@link #loadKeyStore(String, String, String, String)}. URLs are fetched using a
+   * {@link RemoteByteSource} with the given timeouts and mirror file.
+   * 
+   * @param mirrorFile the local copy of the remote key store, or {@code null} for none
+   * @throws IOException if the given path cannot be resolved to a key store
+   */
+  public static ByteSource resolveKeyStorePath(String keyStorePath, Duration connectTimeout,
+      Duration readTimeout, File mirrorFile) throws IOException {
     ByteSource keyStoreBytes;
     if (keyStorePath.contains("://")) {
-      keyStoreBytes = ByteSource.fromUrl(new URL(keyStorePath));
+      keyStoreBytes =
+          new RemoteByteSource(new URL(keyStorePath), connectTimeout, readTimeout, mirrorFile);
     } else if (new File(keyStorePath).isFile()) {
       keyStoreBytes = ByteSource.fromFile(new File(keyStorePath));
     } else if (Thread.currentThread().getContextClassLoader().getResource(keyStorePath) != null) {
@@ -116,7 +361,27 @@ public final class KeyStores {
         throw new IOException("Failed to load data from given keyStorePath");
       }
     }
-    return loadKeyStore(type, keyStoreBytes, password, provider);
+    return keyStoreBytes;
+  }
+
+  /**
+   * Returns a {@link ByteSource} that resolves the given key store path the first time it is read,
+   * as described in {@link #resolveKeyStorePath(String, Duration, Duration, File)}, and reads from
+   * the same resolved source from then on. This allows a {@link RemoteByteSource} to revalidate
+   * the copy it fetched last time instead of downloading the key store again.
+   */
+  public static ByteSource keyStorePathSource(String keyStorePath, Duration connectTimeout,
+      Duration readTimeout, File mirrorFile) {
+    final AtomicReference<ByteSource> resolved = new AtomicReference<>();
+    return () -> {
+      ByteSource result = resolved.get();
+      if (result == null) {
+        result = resolveKeyStorePath(keyStorePath, connectTimeout, readTimeout, mirrorFile);
+        if (!resolved.compareAndSet(null, result))
+          result = resolved.get();
+      }
+      return result.getBytes();
+    };
   }
 
   /**
@@ -0,0 +1,372 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.util.Base64URL;
+
+/**
+ * Reads JWKs from PEM-encoded keys and certificates using only the JDK. The following blocks are
+ * supported:
+ * 
+ * <ul>
+ * <li>{@code PRIVATE KEY}: an unencrypted PKCS#8 RSA or EC private key</li>
+ * <li>{@code RSA PRIVATE KEY}: an unencrypted PKCS#1 RSA private key</li>
+ * <li>{@code PUBLIC KEY}: an X.509 RSA or EC public key</li>
+ * <li>{@code CERTIFICATE}: an X.509 certificate</li>
+ * </ul>
+ * 
+ * The public half of an RSA private key is computed from the private key. The public half of an EC
+ * private key cannot be computed without EC arithmetic, so every EC private key must be accompanied
+ * by its public key or certificate. If a certificate matches a private key, then the certificate is
+ * attached to the key, and its validity period becomes the key's not-before and expiration times.
+ * Public keys and certificates that do not match a private key become verification-only keys.
+ * 
+ * PEM has no notion of a key ID, so each key is identified by its RFC 7638 thumbprint.
+ */
+public final class PemKeys {
+  private PemKeys() {}
+
+  private static final Pattern BLOCK =
+      Pattern.compile("-----BEGIN ([A-Z0-9 ]+)-----(.*?)-----END \\1-----", Pattern.DOTALL);
+
+  private static final String PRIVATE_KEY = "PRIVATE KEY";
+
+  private static final String RSA_PRIVATE_KEY = "RSA PRIVATE KEY";
+
+  private static final String PUBLIC_KEY = "PUBLIC KEY";
+
+  private static final String CERTIFICATE = "CERTIFICATE";
+
+  /**
+   * The DER-encoded AlgorithmIdentifier for rsaEncryption with NULL parameters
+   */
+  private static final byte[] RSA_ALGORITHM_IDENTIFIER = {0x30, 0x0d, 0x06, 0x09, 0x2a,
+      (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xf7, 0x0d, 0x01, 0x01, 0x01, 0x05, 0x00};
+
+  /**
+   * @throws IOException if the text contains no keys, or any block is not a supported key or
+   *         certificate
+   */
+  public static JWKSet parse(String pem) throws IOException {
+    List<PrivateKey> privateKeys = new ArrayList<>();
+    List<Public> publicKeys = new ArrayList<>();
+
+    Matcher m = BLOCK.matcher(pem);
+    while (m.find()) {
+      final String type = m.group(1);
+
+      byte[] der;
+      try {
+        der = Base64.getMimeDecoder().decode(m.group(2).trim());
+      } catch (IllegalArgumentException e) {
+        throw new IOException("Invalid base64 in PEM " + type + " block", e);
+      }
+
+      try {
+        switch (type) {
+          case PRIVATE_KEY:
+            privateKeys.add(parsePrivateKey(der));
+            break;
+          case RSA_PRIVATE_KEY:
+            privateKeys.add(parsePrivateKey(wrapPkcs1(der)));
+            break;
+          case PUBLIC_KEY:
+            publicKeys.add(new Public(parsePublicKey(der), null));
+            break;
+          case CERTIFICATE:
+            X509Certificate certificate = (X509Certificate) CertificateFactory.getInstance("X.509")
+                .generateCertificate(new ByteArrayInputStream(der));
+            publicKeys.add(new Public(certificate.getPublicKey(), certificate));
+            break;
+          default:
+            throw new IOException("Unsupported PEM block " + type
+                + ", convert private keys to unencrypted PKCS#8 PRIVATE KEY blocks");
+        }
+      } catch (GeneralSecurityException e) {
+        throw new IOException("Failed to parse PEM " + type + " block", e);
+      }
+    }
+
+    List<JWK> result = new ArrayList<>();
+    try {
+      for (PrivateKey privateKey : privateKeys) {
+        Public match = null;
+        for (Public candidate : publicKeys) {
+          if (!candidate.isMatched() && matches(privateKey, candidate.getKey())) {
+            // Prefer certificates, since they carry more information
+            if (match == null || (match.getCertificate() == null
+                && candidate.getCertificate() != null))
+              match = candidate;
+          }
+        }
+        if (match != null)
+          match.setMatched(true);
+        result.add(toJWK(privateKey, match));
+      }
+      for (Public candidate : publicKeys) {
+        if (candidate.isMatched())
+          continue;
+        // A certificate and a public key for the same key are the same verification key
+        boolean duplicate = false;
+        for (JWK jwk : result)
+          duplicate = duplicate || samePublicKey(jwk, candidate.getKey());
+        if (!duplicate)
+          result.add(toJWK(null, candidate));
+      }
+    } catch (GeneralSecurityException | JOSEException e) {
+      throw new IOException("Failed to convert PEM keys to JWKs", e);
+    }
+
+    if (result.isEmpty())
+      throw new IOException("No keys found in PEM");
+
+    return new JWKSet(result);
+  }
+
+  private static PrivateKey parsePrivateKey(byte[] pkcs8) throws GeneralSecurityException {
+    try {
+      return KeyFactory.getInstance("RSA").generatePrivate(new PKCS8EncodedKeySpec(pkcs8));
+    } catch (InvalidKeySpecException e) {
+      return KeyFactory.getInstance("EC").generatePrivate(new PKCS8EncodedKeySpec(pkcs8));
+    }
+  }
+
+  private static PublicKey parsePublicKey(byte[] x509) throws GeneralSecurityException {
+    try {
+      return KeyFactory.getInstance("RSA").generatePublic(new X509EncodedKeySpec(x509));
+    } catch (InvalidKeySpecException e) {
+      return KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(x509));
+    }
+  }
+
+  private static boolean matches(PrivateKey privateKey, PublicKey publicKey)
+      throws GeneralSecurityException {
+    if (privateKey instanceof RSAPrivateCrtKey && publicKey instanceof RSAPublicKey) {
+      RSAPrivateCrtKey rsa = (RSAPrivateCrtKey) privateKey;
+      return rsa.getModulus().equals(((RSAPublicKey) publicKey).getModulus())
+          && rsa.getPublicExponent().equals(((RSAPublicKey) publicKey).getPublicExponent());
+    }
+    if (privateKey instanceof ECPrivateKey && publicKey instanceof ECPublicKey) {
+      // We can't compute the public point without EC arithmetic, so prove the pair instead
+      final byte[] challenge = "dropwizard-jose-jwt".getBytes(StandardCharsets.US_ASCII);
+      Signature signer = Signature.getInstance("SHA256withECDSA");
+      signer.initSign(privateKey);
+      signer.update(challenge);
+      byte[] signature = signer.sign();
+      Signature verifier = Signature.getInstance("SHA256withECDSA");
+      verifier.initVerify(publicKey);
+      verifier.update(challenge);
+      return verifier.verify(signature);
+    }
+    return false;
+  }
+
+  private static boolean samePublicKey(JWK jwk, PublicKey publicKey) throws JOSEException {
+    if (jwk instanceof RSAKey && publicKey instanceof RSAPublicKey)
+      return ((RSAKey) jwk).toRSAPublicKey().equals(publicKey);
+    if (jwk instanceof ECKey && publicKey instanceof ECPublicKey)
+      return ((ECKey) jwk).toECPublicKey().getW().equals(((ECPublicKey) publicKey).getW());
+    return false;
+  }
+
+  private static JWK toJWK(PrivateKey privateKey, Public match)
+      throws GeneralSecurityException, JOSEException {
+    final X509Certificate certificate = match != null ? match.getCertificate() : null;
+
+    JWK result;
+    if (privateKey instanceof RSAPrivateCrtKey) {
+      RSAPrivateCrtKey rsa = (RSAPrivateCrtKey) privateKey;
+      RSAPublicKey publicKey = (RSAPublicKey) KeyFactory.getInstance("RSA")
+          .generatePublic(new RSAPublicKeySpec(rsa.getModulus(), rsa.getPublicExponent()));
+      result = certify(new RSAKey.Builder(publicKey).privateKey(rsa), certificate).build();
+    } else if (privateKey instanceof ECPrivateKey) {
+      if (match == null)
+        throw new InvalidKeySpecException(
+            "EC private keys require a matching PUBLIC KEY or CERTIFICATE block");
+      ECPublicKey publicKey = (ECPublicKey) match.getKey();
+      result = certify(new ECKey.Builder(Curve.forECParameterSpec(publicKey.getParams()), publicKey)
+          .privateKey((ECPrivateKey) privateKey), certificate).build();
+    } else if (privateKey != null) {
+      throw new InvalidKeySpecException("Unsupported private key " + privateKey.getAlgorithm());
+    } else if (match.getKey() instanceof RSAPublicKey) {
+      result = certify(new RSAKey.Builder((RSAPublicKey) match.getKey()), certificate).build();
+    } else if (match.getKey() instanceof ECPublicKey) {
+      ECPublicKey publicKey = (ECPublicKey) match.getKey();
+      result =
+          certify(new ECKey.Builder(Curve.forECParameterSpec(publicKey.getParams()), publicKey),
+              certificate).build();
+    } else {
+      throw new InvalidKeySpecException("Unsupported public key " + match.getKey().getAlgorithm());
+    }
+
+    // Identify each key by its thumbprint, which is stable across reloads
+    String keyID = result.computeThumbprint().toString();
+    if (result instanceof RSAKey)
+      return new RSAKey.Builder((RSAKey) result).keyID(keyID).build();
+    return new ECKey.Builder((ECKey) result).keyID(keyID).build();
+  }
+
+  private static RSAKey.Builder certify(RSAKey.Builder builder, X509Certificate certificate)
+      throws GeneralSecurityException {
+    builder.keyUse(KeyUse.SIGNATURE);
+    if (certificate != null) {
+      builder.x509CertChain(Collections.singletonList(encode(certificate)))
+          .x509CertSHA256Thumbprint(thumbprint(certificate))
+          .notBeforeTime(certificate.getNotBefore()).expirationTime(certificate.getNotAfter());
+    }
+    return builder;
+  }
+
+  private static ECKey.Builder certify(ECKey.Builder builder, X509Certificate certificate)
+      throws GeneralSecurityException {
+    builder.keyUse(KeyUse.SIGNATURE);
+    if (certificate != null) {
+      builder.x509CertChain(Collections.singletonList(encode(certificate)))
+          .x509CertSHA256Thumbprint(thumbprint(certificate))
+          .notBeforeTime(certificate.getNotBefore()).expirationTime(certificate.getNotAfter());
+    }
+    return builder;
+  }
+
+  private static com.nimbusds.jose.util.Base64 encode(X509Certificate certificate)
+      throws GeneralSecurityException {
+    return com.nimbusds.jose.util.Base64.encode(certificate.getEncoded());
+  }
+
+  private static Base64URL thumbprint(X509Certificate certificate)
+      throws GeneralSecurityException {
+    try {
+      return Base64URL
+          .encode(MessageDigest.getInstance("SHA-256").digest(certificate.getEncoded()));
+    } catch (NoSuchAlgorithmException e) {
+      // Every JVM is required to support SHA-256
+      throw new AssertionError("SHA-256", e);
+    }
+  }
+
+  /**
+   * Wraps a PKCS#1 RSAPrivateKey in a PKCS#8 PrivateKeyInfo, which the JDK can read
+   */
+  private static byte[] wrapPkcs1(byte[] pkcs1) {
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    body.write(0x02);
+    body.write(0x01);
+    body.write(0x00);
+    body.write(RSA_ALGORITHM_IDENTIFIER, 0, RSA_ALGORITHM_IDENTIFIER.length);
+    body.write(0x04);
+    writeLength(body, pkcs1.length);
+    body.write(pkcs1, 0, pkcs1.length);
+
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    result.write(0x30);
+    writeLength(result, body.size());
+    result.write(body.toByteArray(), 0, body.size());
+
+    return result.toByteArray();
+  }
+
+  private static void writeLength(ByteArrayOutputStream out, int length) {
+    if (length < 0x80) {
+      out.write(length);
+    } else if (length < 0x100) {
+      out.write(0x81);
+      out.write(length);
+    } else if (length < 0x10000) {
+      out.write(0x82);
+      out.write(length >> 8);
+      out.write(length);
+    } else {
+      out.write(0x83);
+      out.write(length >> 16);
+      out.write(length >> 8);
+      out.write(length);
+    }
+  }
+
+  private static final class Public {
+    private final PublicKey key;
+    private final X509Certificate certificate;
+    private boolean matched;
+
+    public Public(PublicKey key, X509Certificate certificate) {
+      this.key = key;
+      this.certificate = certificate;
+    }
+
+    /**
+     * @return the key
+     */
+    public PublicKey getKey() {
+      return key;
+    }
+
+    /**
+     * @return the certificate, or {@code null} if this is a bare public key
+     */
+    public X509Certificate getCertificate() {
+      return certificate;
+    }
+
+    /**
+     * @return whether this key has been matched to a private key
+     */
+    public boolean isMatched() {
+      return matched;
+    }
+
+    public void setMatched(boolean matched) {
+      this.matched = matched;
+    }
+  }
+}
@@ -0,0 +1,394 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.util;
+
+import static java.util.Objects.requireNonNull;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ByteSource} that fetches its data from a URL, typically a key store on an artifact
+ * server. Unlike {@link ByteSource#fromUrl(URL)}, it:
+ * 
+ * <ul>
+ * <li>Gives up on slow servers after the configured connect and read timeouts, and on the whole
+ * fetch after the two timeouts combined, so a server that trickles data cannot stall the
+ * caller</li>
+ * <li>Remembers the last copy it fetched, optionally in a local mirror file so the copy survives
+ * restarts</li>
+ * <li>Returns the mirrored copy right away the first time it is asked, and revalidates it in the
+ * background, so a slow server cannot stall startup</li>
+ * <li>Revalidates its copy with a conditional GET using the server's {@code ETag} and
+ * {@code Last-Modified} headers, so an unchanged key store is not downloaded again</li>
+ * <li>Falls back to its copy if the server is slow, down, or returns an error</li>
+ * </ul>
+ * 
+ * The mirror file holds the fetched data as-is, next to a {@code .meta} file holding the
+ * validators. If the data is a key store, then it is still protected by its password, but PEM keys
+ * and JWK sets are not, so the mirror must be protected like the origin. It is written with
+ * owner-only permissions where the file system supports them.
+ */
+public class RemoteByteSource implements ByteSource {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RemoteByteSource.class);
+
+  /**
+   * The default maximum amount of time to wait for a connection to the server
+   */
+  public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(5L);
+
+  /**
+   * The default maximum amount of time to wait for data from the server
+   */
+  public static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(10L);
+
+  private static final String ETAG_PROPERTY = "etag";
+
+  private static final String LAST_MODIFIED_PROPERTY = "lastModified";
+
+  /* default */ static final String THREAD_NAME = "jwt-remote-fetcher";
+
+  /**
+   * Fetches are rare, so the threads come and go as needed, and never keep the JVM alive
+   */
+  private static final ExecutorService FETCHERS = Executors.newCachedThreadPool(r -> {
+    Thread thread = new Thread(r, THREAD_NAME);
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final URL url;
+  private final Duration connectTimeout;
+  private final Duration readTimeout;
+  private final File mirrorFile;
+  private Copy copy;
+  private CompletableFuture<Void> revalidating;
+
+  public RemoteByteSource(URL url) {
+    this(url, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, null);
+  }
+
+  /**
+   * @param mirrorFile the file to keep the last fetched copy in, or {@code null} to keep it in
+   *        memory only
+   */
+  public RemoteByteSource(URL url, Duration connectTimeout, Duration readTimeout,
+      File mirrorFile) {
+    this.url = requireNonNull(url);
+    this.connectTimeout = requireNonNull(connectTimeout);
+    this.readTimeout = requireNonNull(readTimeout);
+    this.mirrorFile = mirrorFile;
+    if (connectTimeout.isNegative() || connectTimeout.isZero())
+      throw new IllegalArgumentException("connectTimeout must be positive");
+    if (readTimeout.isNegative() || readTimeout.isZero())
+      throw new IllegalArgumentException("readTimeout must be positive");
+  }
+
+  @Override
+  public InputStream getBytes() throws IOException {
+    return new ByteArrayInputStream(fetch());
+  }
+
+  /**
+   * Fetches the data from the server, or returns the last copy if the server says it has not
+   * changed or cannot be reached in time. The first time, if there is a mirrored copy, then it is
+   * returned right away, and revalidated in the background, so the next call sees any changes.
+   * 
+   * @throws IOException if the server cannot be reached and there is no copy to fall back on
+   */
+  /* default */ synchronized byte[] fetch() throws IOException {
+    if (copy == null && mirrorFile != null) {
+      copy = readMirror();
+      if (copy != null) {
+        revalidating = revalidate(copy);
+        return copy.getData();
+      }
+    }
+
+    // If we are still revalidating the mirrored copy, then there's no point asking again
+    if (revalidating != null && !revalidating.isDone())
+      return copy.getData();
+
+    final Copy previous = copy;
+    try {
+      copy = fetchWithin(previous, getDeadline());
+    } catch (IOException e) {
+      if (previous == null)
+        throw e;
+      if (LOGGER.isWarnEnabled())
+        LOGGER.warn("Failed to fetch {}, using last fetched copy", describe(), e);
+    }
+
+    return copy.getData();
+  }
+
+  /**
+   * Revalidates the given copy in the background, and replaces it if the server has a new one
+   */
+  private CompletableFuture<Void> revalidate(Copy previous) {
+    return CompletableFuture.runAsync(() -> {
+      final Copy current;
+      try {
+        current = fetchWithin(previous, getDeadline());
+      } catch (IOException e) {
+        if (LOGGER.isWarnEnabled())
+          LOGGER.warn("Failed to revalidate {}, using mirrored copy", describe(), e);
+        return;
+      }
+      synchronized (this) {
+        if (copy == previous)
+          copy = current;
+      }
+    }, FETCHERS);
+  }
+
+  /**
+   * The connect and read timeouts only bound each step, and a server that sends a few bytes at a
+   * time can keep a read going forever, so we also bound the fetch as a whole. If the deadline
+   * passes, then we drop the connection, which makes the abandoned fetch fail soon after.
+   */
+  private Copy fetchWithin(Copy previous, Duration deadline) throws IOException {
+    final AtomicReference<URLConnection> connection = new AtomicReference<>();
+    final Future<Copy> result = FETCHERS.submit(() -> fetch(previous, connection));
+    try {
+      return result.get(deadline.toNanos(), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      abort(result, connection);
+      throw new IOException("Timed out fetching " + describe() + " after " + deadline);
+    } catch (InterruptedException e) {
+      abort(result, connection);
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted fetching " + describe());
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException)
+        throw (IOException) cause;
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+      throw new IOException("Failed to fetch " + describe(), cause);
+    }
+  }
+
+  private static void abort(Future<?> fetch, AtomicReference<URLConnection> connection) {
+    fetch.cancel(true);
+    // Disconnecting waits for the current read to return, so don't make the caller wait for it
+    URLConnection c = connection.get();
+    if (c instanceof HttpURLConnection)
+      FETCHERS.execute(((HttpURLConnection) c)::disconnect);
+  }
+
+  private Copy fetch(Copy previous, AtomicReference<URLConnection> connectionHolder)
+      throws IOException {
+    final URLConnection connection = url.openConnection();
+    connectionHolder.set(connection);
+    connection.setConnectTimeout(toMillis(connectTimeout));
+    connection.setReadTimeout(toMillis(readTimeout));
+    connection.setUseCaches(false);
+
+    if (connection instanceof HttpURLConnection) {
+      HttpURLConnection http = (HttpURLConnection) connection;
+      if (previous != null && previous.getEtag() != null)
+        http.setRequestProperty("If-None-Match", previous.getEtag());
+      if (previous != null && previous.getLastModified() != null)
+        http.setRequestProperty("If-Modified-Since", previous.getLastModified());
+
+      int status = http.getResponseCode();
+      if (status == HttpURLConnection.HTTP_NOT_MODIFIED && previous != null) {
+        http.disconnect();
+        if (LOGGER.isDebugEnabled())
+          LOGGER.debug("{} not modified", describe());
+        return previous;
+      }
+      if (status != HttpURLConnection.HTTP_OK) {
+        http.disconnect();
+        throw new IOException("Unexpected HTTP status " + status + " from " + describe());
+      }
+    }
+
+    final byte[] data;
+    try (InputStream in = connection.getInputStream()) {
+      data = readAll(in);
+    }
+
+    final Copy result = new Copy(data, connection.getHeaderField("ETag"),
+        connection.getHeaderField("Last-Modified"));
+
+    if (mirrorFile != null) {
+      try {
+        writeMirror(result);
+      } catch (IOException e) {
+        if (LOGGER.isWarnEnabled())
+          LOGGER.warn("Failed to write mirror {}", mirrorFile, e);
+      }
+    }
+
+    return result;
+  }
+
+  private Copy readMirror() {
+    final byte[] data;
+    try {
+      data = Files.readAllBytes(mirrorFile.toPath());
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      if (LOGGER.isWarnEnabled())
+        LOGGER.warn("Failed to read mirror {}, ignoring", mirrorFile, e);
+      return null;
+    }
+
+    // Without validators, the copy is still good as a fallback, but cannot be revalidated
+    Properties meta = new Properties();
+    try (InputStream in = Files.newInputStream(getMetaFile().toPath())) {
+      meta.load(in);
+    } catch (NoSuchFileException e) {
+      // That's fine.
+    } catch (IOException e) {
+      if (LOGGER.isWarnEnabled())
+        LOGGER.warn("Failed to read mirror metadata {}, ignoring", getMetaFile(), e);
+      meta.clear();
+    }
+
+    return new Copy(data, meta.getProperty(ETAG_PROPERTY),
+        meta.getProperty(LAST_MODIFIED_PROPERTY));
+  }
+
+  private void writeMirror(Copy copy) throws IOException {
+    // Drop the old validators first, so a crash can never pair them with the new data
+    Files.deleteIfExists(getMetaFile().toPath());
+
+    AtomicFiles.write(mirrorFile, copy.getData());
+
+    Properties meta = new Properties();
+    if (copy.getEtag() != null)
+      meta.setProperty(ETAG_PROPERTY, copy.getEtag());
+    if (copy.getLastModified() != null)
+      meta.setProperty(LAST_MODIFIED_PROPERTY, copy.getLastModified());
+    ByteArrayOutputStream buf = new ByteArrayOutputStream();
+    try (OutputStream out = buf) {
+      meta.store(out, null);
+    }
+    AtomicFiles.write(getMetaFile(), buf.toByteArray());
+  }
+
+  /**
+   * @return how long a whole fetch may take, which is the connect and read timeouts combined
+   */
+  /* default */ Duration getDeadline() {
+    return connectTimeout.plus(readTimeout);
+  }
+
+  /**
+   * @return the url
+   */
+  public URL getUrl() {
+    return url;
+  }
+
+  /**
+   * @return the mirror file, or {@code null} if there is none
+   */
+  public File getMirrorFile() {
+    return mirrorFile;
+  }
+
+  /**
+   * @return the file holding the validators of the mirrored copy
+   */
+  /* default */ File getMetaFile() {
+    return new File(mirrorFile.getPath() + ".meta");
+  }
+
+  /**
+   * The URL may carry credentials in its user info or query, so we leave those out of the logs.
+   */
+  private String describe() {
+    String host = url.getAuthority() != null ? url.getAuthority().replaceFirst("^.*@", "") : "";
+    return url.getProtocol() + "://" + host + url.getPath();
+  }
+
+  private static int toMillis(Duration d) {
+    return (int) Math.min(Integer.MAX_VALUE, Math.max(1L, d.toMillis()));
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buf = new byte[8192];
+    for (int n = in.read(buf); n != -1; n = in.read(buf))
+      out.write(buf, 0, n);
+    return out.toByteArray();
+  }
+
+  private static final class Copy {
+    private final byte[] data;
+    private final String etag;
+    private final String lastModified;
+
+    public Copy(byte[] data, String etag, String lastModified) {
+      this.data = requireNonNull(data);
+      this.etag = etag;
+      this.lastModified = lastModified;
+    }
+
+    /**
+     * @return the data
+     */
+    public byte[] getData() {
+      return data;
+    }
+
+    /**
+     * @return the etag
+     */
+    public String getEtag() {
+      return etag;
+    }
+
+    /**
+     * @return the lastModified
+     */
+    public String getLastModified() {
+      return lastModified;
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+import static java.util.Collections.singleton;
+import static java.util.Objects.requireNonNull;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Set;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.KeyLengthException;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.jca.JCAContext;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.util.Base64URL;
+
+/**
+ * Verifies HMAC signatures for one key and one algorithm. Nimbus's
+ * {@link com.nimbusds.jose.crypto.MACVerifier} looks up and initializes a new {@link Mac} for every
+ * signature, which costs more than computing the HMAC of a small token. This verifier keeps one
+ * initialized {@link Mac} per thread instead, so verifying a token is just hashing its bytes.
+ * 
+ * Like {@link com.nimbusds.jose.crypto.MACVerifier}, this verifier rejects keys shorter than the
+ * hash and tokens with critical header parameters, and compares signatures in constant time.
+ */
+public class HmacJWSVerifier implements JWSVerifier {
+  private final JWSAlgorithm algorithm;
+  private final ThreadLocal<Mac> macs;
+  private final JCAContext jcaContext;
+
+  public HmacJWSVerifier(OctetSequenceKey jwk, JWSAlgorithm algorithm) throws JOSEException {
+    this(jwk.toSecretKey(), algorithm);
+  }
+
+  public HmacJWSVerifier(SecretKey key, JWSAlgorithm algorithm) throws JOSEException {
+    requireNonNull(key);
+    this.algorithm = requireNonNull(algorithm);
+    if (!JWSAlgorithm.Family.HMAC_SHA.contains(algorithm))
+      throw new JOSEException("Not an HMAC algorithm: " + algorithm);
+
+    final byte[] secret = key.getEncoded();
+    if (secret == null || secret.length * 8 < MACSigner.getMinRequiredSecretLength(algorithm))
+      throw new KeyLengthException(algorithm);
+
+    final String jcaAlgorithm = "HmacSHA" + algorithm.getName().substring(2);
+
+    // Fail now, rather than on the first token, if the JCA cannot do this algorithm
+    final Mac mac = newMac(jcaAlgorithm, key);
+    this.macs = ThreadLocal.withInitial(() -> {
+      try {
+        return newMac(jcaAlgorithm, key);
+      } catch (JOSEException e) {
+        // We just created one of these successfully, so this should never happen
+        throw new IllegalStateException(e);
+      }
+    });
+    this.macs.set(mac);
+    this.jcaContext = new JCAContext();
+  }
+
+  @Override
+  public boolean verify(JWSHeader header, byte[] signingInput, Base64URL signature)
+      throws JOSEException {
+    if (!header.getAlgorithm().equals(algorithm))
+      return false;
+    if (header.getCriticalParams() != null && !header.getCriticalParams().isEmpty())
+      return false;
+
+    // doFinal resets the mac, so it's ready for the next token on this thread
+    final byte[] expected = macs.get().doFinal(signingInput);
+
+    return MessageDigest.isEqual(expected, signature.decode());
+  }
+
+  @Override
+  public Set<JWSAlgorithm> supportedJWSAlgorithms() {
+    return singleton(algorithm);
+  }
+
+  @Override
+  public JCAContext getJCAContext() {
+    return jcaContext;
+  }
+
+  private static Mac newMac(String jcaAlgorithm, SecretKey key) throws JOSEException {
+    try {
+      Mac result = Mac.getInstance(jcaAlgorithm);
+      result.init(key);
+      return result;
+    } catch (GeneralSecurityException e) {
+      throw new JOSEException("Failed to initialize " + jcaAlgorithm, e);
+    }
+  }
+}
@@ -0,0 +1,201 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Objects.requireNonNull;
+import java.security.Key;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.crypto.Ed25519Verifier;
+import com.nimbusds.jose.crypto.factories.DefaultJWSVerifierFactory;
+import com.nimbusds.jose.jwk.AsymmetricJWK;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyType;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.proc.JWSVerifierFactory;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.verification.Verification.Failure;
+
+/**
+ * Verifies signatures against a fixed set of keys using verifiers that are built once, up front.
+ * The verifiers are indexed by key ID and by X.509 certificate SHA-256 thumbprint, so a token that
+ * names its key in its header is checked against exactly that key without scanning the key set. A
+ * token that names no key is checked against the key that most recently verified a token first,
+ * and then against the rest.
+ * 
+ * The keys are matched the same way {@link SelectingSignatureVerifier} matches them: the key type
+ * must suit the signing algorithm, the key use must be absent or signature, the key algorithm must
+ * be absent or the signing algorithm, and any key ID and thumbprint in the header must both match.
+ */
+public class IndexedSignatureVerifier implements SignatureVerifier {
+  private final JWSAlgorithm signingAlgorithm;
+  private final List<Candidate> candidates;
+  private final Map<String, Candidate> candidatesByKeyID;
+  private final Map<Base64URL, Candidate> candidatesByThumbprint;
+  private final AtomicReference<Candidate> lastSuccessful;
+
+  public IndexedSignatureVerifier(JWSAlgorithm signingAlgorithm, JWKSet jwks) {
+    this.signingAlgorithm = requireNonNull(signingAlgorithm);
+    requireNonNull(jwks);
+
+    final KeyType keyType = KeyType.forAlgorithm(signingAlgorithm);
+    final JWSVerifierFactory verifierFactory = new DefaultJWSVerifierFactory();
+    final JWSHeader header = new JWSHeader(signingAlgorithm);
+
+    List<Candidate> candidates = new ArrayList<>();
+    Map<String, Candidate> candidatesByKeyID = new HashMap<>();
+    Map<Base64URL, Candidate> candidatesByThumbprint = new HashMap<>();
+    for (JWK jwk : jwks.getKeys()) {
+      if (!jwk.getKeyType().equals(keyType))
+        continue;
+      if (jwk.getKeyUse() != null && !jwk.getKeyUse().equals(KeyUse.SIGNATURE))
+        continue;
+      if (jwk.getAlgorithm() != null && !jwk.getAlgorithm().equals(signingAlgorithm))
+        continue;
+      if (jwk instanceof OctetKeyPair && !((OctetKeyPair) jwk).getCurve().equals(Curve.Ed25519))
+        continue;
+
+      JWSVerifier verifier;
+      try {
+        verifier = newJWSVerifier(verifierFactory, header, jwk);
+      } catch (JOSEException e) {
+        throw new IllegalArgumentException("Failed to create verifier for key " + jwk.getKeyID(),
+            e);
+      }
+
+      Candidate candidate = new Candidate(jwk, verifier);
+      candidates.add(candidate);
+      if (jwk.getKeyID() != null)
+        candidatesByKeyID.putIfAbsent(jwk.getKeyID(), candidate);
+      if (jwk.getX509CertSHA256Thumbprint() != null)
+        candidatesByThumbprint.putIfAbsent(jwk.getX509CertSHA256Thumbprint(), candidate);
+    }
+
+    this.candidates = unmodifiableList(candidates);
+    this.candidatesByKeyID = unmodifiableMap(candidatesByKeyID);
+    this.candidatesByThumbprint = unmodifiableMap(candidatesByThumbprint);
+    this.lastSuccessful = new AtomicReference<>(candidates.isEmpty() ? null : candidates.get(0));
+  }
+
+  @Override
+  public Failure verify(SignedJWT jwt) throws JOSEException {
+    final JWSHeader header = jwt.getHeader();
+    if (!header.getAlgorithm().equals(signingAlgorithm))
+      return Failure.NO_MATCHING_KEY;
+
+    final String keyID = header.getKeyID();
+    final Base64URL thumbprint = header.getX509CertSHA256Thumbprint();
+
+    // If the header names a key, then that is the only key that can possibly match
+    if (keyID != null || thumbprint != null) {
+      Candidate candidate = keyID != null ? candidatesByKeyID.get(keyID)
+          : candidatesByThumbprint.get(thumbprint);
+      if (candidate == null || !candidate.matches(keyID, thumbprint))
+        return Failure.NO_MATCHING_KEY;
+      return jwt.verify(candidate.getVerifier()) ? null : Failure.BAD_SIGNATURE;
+    }
+
+    if (candidates.isEmpty())
+      return Failure.NO_MATCHING_KEY;
+
+    // Otherwise, the key that worked last time is the best bet
+    final Candidate last = lastSuccessful.get();
+    if (jwt.verify(last.getVerifier()))
+      return null;
+
+    for (Candidate candidate : candidates) {
+      if (candidate != last && jwt.verify(candidate.getVerifier())) {
+        lastSuccessful.set(candidate);
+        return null;
+      }
+    }
+
+    return Failure.BAD_SIGNATURE;
+  }
+
+  /**
+   * @return the number of keys that can verify tokens
+   */
+  public int size() {
+    return candidates.size();
+  }
+
+  /**
+   * The default verifier factory only takes {@link Key}s, but Nimbus cannot convert Ed25519 keys to
+   * {@link Key}s, so we build their verifiers from the JWK instead. HMAC keys get a verifier that
+   * reuses its {@link javax.crypto.Mac}, since verifying is otherwise dominated by setting one up.
+   */
+  /* default */ static JWSVerifier newJWSVerifier(JWSVerifierFactory verifierFactory,
+      JWSHeader header, JWK jwk) throws JOSEException {
+    if (jwk instanceof OctetKeyPair)
+      return new Ed25519Verifier(((OctetKeyPair) jwk).toPublicJWK());
+    if (jwk instanceof OctetSequenceKey)
+      return new HmacJWSVerifier((OctetSequenceKey) jwk, header.getAlgorithm());
+    return verifierFactory.createJWSVerifier(header, toVerificationKey(jwk));
+  }
+
+  private static Key toVerificationKey(JWK jwk) throws JOSEException {
+    if (jwk instanceof AsymmetricJWK)
+      return ((AsymmetricJWK) jwk).toPublicKey();
+    throw new JOSEException("Unsupported key type " + jwk.getKeyType());
+  }
+
+  private static final class Candidate {
+    private final JWK jwk;
+    private final JWSVerifier verifier;
+
+    public Candidate(JWK jwk, JWSVerifier verifier) {
+      this.jwk = jwk;
+      this.verifier = verifier;
+    }
+
+    /**
+     * A key matches a header if every key reference in the header refers to this key
+     */
+    public boolean matches(String keyID, Base64URL thumbprint) {
+      if (keyID != null && !keyID.equals(jwk.getKeyID()))
+        return false;
+      if (thumbprint != null && !thumbprint.equals(jwk.getX509CertSHA256Thumbprint()))
+        return false;
+      return true;
+    }
+
+    /**
+     * @return the verifier
+     */
+    public JWSVerifier getVerifier() {
+      return verifier;
+    }
+  }
+}
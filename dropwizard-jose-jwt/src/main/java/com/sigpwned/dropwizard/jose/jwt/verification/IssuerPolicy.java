@@ -0,0 +1,120 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+import static java.util.Collections.unmodifiableSet;
+import static java.util.Objects.requireNonNull;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimNames;
+import com.sigpwned.dropwizard.jose.jwt.verification.Verification.Failure;
+
+/**
+ * What we accept from one issuer: which keys may sign its tokens, using which algorithms, and which
+ * claims its tokens must carry. A {@link JWTVerifier} with several issuers reads the {@code iss}
+ * claim of each token and then checks the token against that issuer's policy only.
+ * 
+ * The {@code iss} and {@code exp} claims are always required, whether or not they are given.
+ */
+public final class IssuerPolicy {
+  /**
+   * The claims that this library always sets on the tokens it issues
+   */
+  public static final Set<String> DEFAULT_REQUIRED_CLAIMS =
+      unmodifiableSet(new LinkedHashSet<>(Arrays.asList(JWTClaimNames.ISSUER,
+          JWTClaimNames.EXPIRATION_TIME, JWTClaimNames.ISSUED_AT, JWTClaimNames.JWT_ID)));
+
+  /**
+   * Accepts tokens signed with the given algorithm by any key from the given source that carry the
+   * {@link #DEFAULT_REQUIRED_CLAIMS default required claims}.
+   */
+  public static IssuerPolicy of(JWSAlgorithm signingAlgorithm,
+      JWKSource<SecurityContext> jwkSource) {
+    return of(JWTVerifier.newSignatureVerifier(signingAlgorithm, jwkSource),
+        DEFAULT_REQUIRED_CLAIMS);
+  }
+
+  /**
+   * Accepts tokens signed with any of the given algorithms by any key from the given source that
+   * carry the given claims.
+   */
+  public static IssuerPolicy of(Set<JWSAlgorithm> signingAlgorithms,
+      JWKSource<SecurityContext> jwkSource, Set<String> requiredClaims) {
+    if (signingAlgorithms.isEmpty())
+      throw new IllegalArgumentException("no signingAlgorithms");
+    requireNonNull(jwkSource);
+
+    if (signingAlgorithms.size() == 1)
+      return of(JWTVerifier.newSignatureVerifier(signingAlgorithms.iterator().next(), jwkSource),
+          requiredClaims);
+
+    // Build one verifier per algorithm up front, and pick one by the token's alg header
+    final Map<JWSAlgorithm, SignatureVerifier> verifiers = new HashMap<>();
+    for (JWSAlgorithm signingAlgorithm : signingAlgorithms)
+      verifiers.put(signingAlgorithm,
+          JWTVerifier.newSignatureVerifier(signingAlgorithm, jwkSource));
+
+    return of(jwt -> {
+      SignatureVerifier verifier = verifiers.get(jwt.getHeader().getAlgorithm());
+      return verifier != null ? verifier.verify(jwt) : Failure.NO_MATCHING_KEY;
+    }, requiredClaims);
+  }
+
+  /**
+   * Accepts tokens that the given verifier accepts that carry the given claims, e.g., with a
+   * {@link RefetchingSignatureVerifier} for an issuer that publishes its keys.
+   */
+  public static IssuerPolicy of(SignatureVerifier signatureVerifier, Set<String> requiredClaims) {
+    return new IssuerPolicy(signatureVerifier, requiredClaims);
+  }
+
+  private final SignatureVerifier signatureVerifier;
+  private final Set<String> requiredClaims;
+
+  private IssuerPolicy(SignatureVerifier signatureVerifier, Set<String> requiredClaims) {
+    this.signatureVerifier = requireNonNull(signatureVerifier);
+
+    Set<String> required = new LinkedHashSet<>();
+    required.add(JWTClaimNames.ISSUER);
+    required.add(JWTClaimNames.EXPIRATION_TIME);
+    required.addAll(requiredClaims);
+    this.requiredClaims = unmodifiableSet(required);
+  }
+
+  /**
+   * @return the signatureVerifier
+   */
+  public SignatureVerifier getSignatureVerifier() {
+    return signatureVerifier;
+  }
+
+  /**
+   * @return the requiredClaims, which always include {@code iss} and {@code exp}
+   */
+  public Set<String> getRequiredClaims() {
+    return requiredClaims;
+  }
+}
@@ -0,0 +1,255 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+import static java.util.Collections.singletonMap;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Objects.requireNonNull;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JOSEObjectType;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.nimbusds.jwt.proc.DefaultJWTClaimsVerifier;
+import com.sigpwned.dropwizard.jose.jwt.verification.Verification.Failure;
+
+/**
+ * Parses, verifies, and extracts the claims of a compact JWT in a single pass. The header is parsed
+ * exactly once, and the payload is parsed into a {@link JWTClaimsSet} exactly once. That claims set
+ * is memoized on the returned {@link SignedJWT}, so downstream callers of
+ * {@link SignedJWT#getJWTClaimsSet()} (e.g., the application's authenticator) get the same instance
+ * for free.
+ * 
+ * The checks are the same ones that {@link com.nimbusds.jwt.proc.DefaultJWTProcessor} and
+ * {@link DefaultJWTClaimsVerifier} would make, but a rejected token is reported as a
+ * {@link Failure} instead of an exception. Only a token that cannot be parsed at all costs an
+ * exception, and {@link TokenPrevalidator} weeds out most of those before they get here.
+ * 
+ * By default, the claims are checked before the signature. See {@link VerificationOrder}.
+ * 
+ * A verifier may accept tokens from several issuers, each with its own {@link IssuerPolicy}. The
+ * {@code iss} claim is read from the (not yet verified) payload, and the token is then checked
+ * against that issuer's policy only, so a token never costs a signature check against another
+ * issuer's keys.
+ */
+public class JWTVerifier {
+  /**
+   * How far apart our clock and the issuer's clock may be when checking {@code exp} and
+   * {@code nbf}. This matches {@link DefaultJWTClaimsVerifier#DEFAULT_MAX_CLOCK_SKEW_SECONDS}.
+   */
+  public static final Duration DEFAULT_MAX_CLOCK_SKEW =
+      Duration.ofSeconds(DefaultJWTClaimsVerifier.DEFAULT_MAX_CLOCK_SKEW_SECONDS);
+
+  /**
+   * Expired tokens from stale browser tabs are a large share of rejected traffic, and checking
+   * claims first lets us reject them without a public key operation.
+   */
+  public static final VerificationOrder DEFAULT_VERIFICATION_ORDER =
+      VerificationOrder.CLAIMS_FIRST;
+
+  private final Map<String, IssuerPolicy> issuers;
+  private final String singleIssuer;
+  private final IssuerPolicy singlePolicy;
+  private final VerificationOrder verificationOrder;
+
+  public JWTVerifier(String issuer, JWSAlgorithm signingAlgorithm,
+      JWKSource<SecurityContext> jwkSource) {
+    this(issuer, signingAlgorithm, jwkSource, DEFAULT_VERIFICATION_ORDER);
+  }
+
+  public JWTVerifier(String issuer, JWSAlgorithm signingAlgorithm,
+      JWKSource<SecurityContext> jwkSource, VerificationOrder verificationOrder) {
+    this(issuer, newSignatureVerifier(signingAlgorithm, jwkSource), verificationOrder);
+  }
+
+  public JWTVerifier(String issuer, SignatureVerifier signatureVerifier,
+      VerificationOrder verificationOrder) {
+    this(singletonMap(requireNonNull(issuer),
+        IssuerPolicy.of(signatureVerifier, IssuerPolicy.DEFAULT_REQUIRED_CLAIMS)),
+        verificationOrder);
+  }
+
+  /**
+   * @param issuers the policy for each issuer whose tokens we accept
+   */
+  public JWTVerifier(Map<String, IssuerPolicy> issuers, VerificationOrder verificationOrder) {
+    if (issuers.isEmpty())
+      throw new IllegalArgumentException("no issuers");
+    for (Map.Entry<String, IssuerPolicy> e : issuers.entrySet()) {
+      requireNonNull(e.getKey());
+      requireNonNull(e.getValue());
+    }
+    this.issuers = unmodifiableMap(new HashMap<>(issuers));
+    if (issuers.size() == 1) {
+      Map.Entry<String, IssuerPolicy> only = issuers.entrySet().iterator().next();
+      this.singleIssuer = only.getKey();
+      this.singlePolicy = only.getValue();
+    } else {
+      this.singleIssuer = null;
+      this.singlePolicy = null;
+    }
+    this.verificationOrder = requireNonNull(verificationOrder);
+  }
+
+  /**
+   * If the keys are fixed, then we can build all our verifiers up front and index them by key.
+   * Otherwise, we have to ask the source for keys every time.
+   */
+  /* default */ static SignatureVerifier newSignatureVerifier(JWSAlgorithm signingAlgorithm,
+      JWKSource<SecurityContext> jwkSource) {
+    requireNonNull(signingAlgorithm);
+    requireNonNull(jwkSource);
+    if (jwkSource instanceof ImmutableJWKSet)
+      return new IndexedSignatureVerifier(signingAlgorithm,
+          ((ImmutableJWKSet<?>) jwkSource).getJWKSet());
+    return new SelectingSignatureVerifier(signingAlgorithm, jwkSource);
+  }
+
+  /**
+   * Parses and verifies the given compact JWT.
+   */
+  public Verification verify(String token) {
+    // We only accept signed JWTs, so we parse directly as one. JWTParser would parse the header
+    // once to discover the JOSE type, and then again inside SignedJWT.parse.
+    SignedJWT jwt;
+    try {
+      jwt = SignedJWT.parse(token);
+    } catch (ParseException e) {
+      return Verification.failed(Failure.MALFORMED);
+    }
+
+    JWSHeader header = jwt.getHeader();
+
+    // We don't need to distinguish between JOSE types, but if the token claims a type, then it
+    // had better be a JWT.
+    JOSEObjectType type = header.getType();
+    if (type != null && !type.equals(JOSEObjectType.JWT))
+      return Verification.failed(Failure.UNACCEPTABLE_TYPE);
+
+    // The SignedJWT memoizes the claims set, so the payload is parsed only once, no matter which
+    // order we check things in.
+    JWTClaimsSet claims;
+    Failure failure;
+    try {
+      // With several issuers, we need the (unverified) iss claim to know which keys to use.
+      String issuer = singleIssuer;
+      IssuerPolicy policy = singlePolicy;
+      if (policy == null) {
+        issuer = jwt.getJWTClaimsSet().getIssuer();
+        if (issuer == null)
+          return Verification.failed(Failure.MISSING_CLAIMS);
+        policy = issuers.get(issuer);
+        if (policy == null)
+          return Verification.failed(Failure.WRONG_ISSUER);
+      }
+
+      if (verificationOrder == VerificationOrder.CLAIMS_FIRST) {
+        claims = jwt.getJWTClaimsSet();
+        failure = verifyClaims(claims, issuer, policy);
+        if (failure == null)
+          failure = policy.getSignatureVerifier().verify(jwt);
+      } else {
+        failure = policy.getSignatureVerifier().verify(jwt);
+        if (failure != null)
+          return Verification.failed(failure);
+        claims = jwt.getJWTClaimsSet();
+        failure = verifyClaims(claims, issuer, policy);
+      }
+    } catch (ParseException e) {
+      return Verification.failed(Failure.MALFORMED);
+    } catch (JOSEException e) {
+      return Verification.failed(Failure.ERROR);
+    }
+    if (failure != null)
+      return Verification.failed(failure);
+
+    return Verification.verified(VerifiedJWT.of(jwt, claims));
+  }
+
+  /**
+   * We need to validate some claim values:
+   * 
+   * <ul>
+   * <li>iss: We always set to realm</li>
+   * <li>exp: Expires at, which we always set</li>
+   * <li>nbf: Not before, if present</li>
+   * </ul>
+   * 
+   * We also need to validate the presence of the issuer's required claims, which by default are
+   * iat (issued at) and jti (JWT ID), which we always set.
+   * 
+   * @return {@code null} if the claims are acceptable, or the reason they are not otherwise
+   */
+  private Failure verifyClaims(JWTClaimsSet claims, String issuer, IssuerPolicy policy) {
+    final String iss = claims.getIssuer();
+    final Date exp = claims.getExpirationTime();
+    if (iss == null || exp == null)
+      return Failure.MISSING_CLAIMS;
+    for (String requiredClaim : policy.getRequiredClaims())
+      if (claims.getClaim(requiredClaim) == null)
+        return Failure.MISSING_CLAIMS;
+
+    if (!iss.equals(issuer))
+      return Failure.WRONG_ISSUER;
+
+    final long now = now().toEpochMilli();
+    final long skew = DEFAULT_MAX_CLOCK_SKEW.toMillis();
+
+    if (exp.getTime() + skew <= now)
+      return Failure.EXPIRED;
+
+    final Date nbf = claims.getNotBeforeTime();
+    if (nbf != null && nbf.getTime() - skew >= now)
+      return Failure.NOT_YET_VALID;
+
+    return null;
+  }
+
+  /**
+   * @return the policy for each issuer whose tokens we accept
+   */
+  public Map<String, IssuerPolicy> getIssuers() {
+    return issuers;
+  }
+
+  /**
+   * @return the verificationOrder
+   */
+  public VerificationOrder getVerificationOrder() {
+    return verificationOrder;
+  }
+
+  /**
+   * test hook
+   */
+  protected Instant now() {
+    return Instant.now();
+  }
+}
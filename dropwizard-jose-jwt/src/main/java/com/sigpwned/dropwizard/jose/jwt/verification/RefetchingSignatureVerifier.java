@@ -0,0 +1,64 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+import static java.util.Objects.requireNonNull;
+import java.io.UncheckedIOException;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.keys.RemoteJWKSet;
+import com.sigpwned.dropwizard.jose.jwt.verification.Verification.Failure;
+
+/**
+ * Verifies signatures against the keys another service publishes. If no key matches a token, then
+ * the issuer may have rotated in a key we have not seen yet, so the keys are refetched, subject to
+ * the rate limit of {@link RemoteJWKSet#refetch()}, and the token is checked again.
+ */
+public class RefetchingSignatureVerifier implements SignatureVerifier {
+  private final JWSAlgorithm signingAlgorithm;
+  private final RemoteJWKSet jwks;
+  private final ReloadableSignatureVerifier delegate;
+
+  public RefetchingSignatureVerifier(JWSAlgorithm signingAlgorithm, RemoteJWKSet jwks) {
+    this.signingAlgorithm = requireNonNull(signingAlgorithm);
+    this.jwks = requireNonNull(jwks);
+    this.delegate = new ReloadableSignatureVerifier(signingAlgorithm, jwks);
+  }
+
+  @Override
+  public Failure verify(SignedJWT jwt) throws JOSEException {
+    try {
+      final JWKSet before = jwks.get();
+
+      Failure result = delegate.verify(jwt);
+
+      // A token with the wrong algorithm will not match any key, no matter how often we refetch
+      if (result == Failure.NO_MATCHING_KEY
+          && jwt.getHeader().getAlgorithm().equals(signingAlgorithm) && jwks.refetch() != before)
+        result = delegate.verify(jwt);
+
+      return result;
+    } catch (UncheckedIOException e) {
+      throw new JOSEException("Failed to retrieve keys", e);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+import static java.util.Objects.requireNonNull;
+import java.util.function.Supplier;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.verification.Verification.Failure;
+
+/**
+ * Verifies signatures against whatever keys the given supplier returns right now. Each time the
+ * supplier returns a different {@link JWKSet} instance, an {@link IndexedSignatureVerifier} is
+ * built for it, and then reused for as long as the supplier keeps returning that same instance. The
+ * supplier should therefore return the same instance until the keys actually change, e.g.,
+ * {@link com.sigpwned.dropwizard.jose.jwt.factory.DefaultJWTFactory#getJwks()}.
+ */
+public class ReloadableSignatureVerifier implements SignatureVerifier {
+  private final JWSAlgorithm signingAlgorithm;
+  private final Supplier<JWKSet> jwks;
+  private volatile Delegate delegate;
+
+  public ReloadableSignatureVerifier(JWSAlgorithm signingAlgorithm, Supplier<JWKSet> jwks) {
+    this.signingAlgorithm = requireNonNull(signingAlgorithm);
+    this.jwks = requireNonNull(jwks);
+  }
+
+  @Override
+  public Failure verify(SignedJWT jwt) throws JOSEException {
+    return getVerifier().verify(jwt);
+  }
+
+  /**
+   * @return the verifier for the current keys
+   */
+  /* default */ IndexedSignatureVerifier getVerifier() {
+    final JWKSet current = requireNonNull(jwks.get(), "jwks");
+    Delegate result = delegate;
+    if (result == null || result.getJwks() != current)
+      delegate =
+          result = new Delegate(current, new IndexedSignatureVerifier(signingAlgorithm, current));
+    return result.getVerifier();
+  }
+
+  private static final class Delegate {
+    private final JWKSet jwks;
+    private final IndexedSignatureVerifier verifier;
+
+    public Delegate(JWKSet jwks, IndexedSignatureVerifier verifier) {
+      this.jwks = jwks;
+      this.verifier = verifier;
+    }
+
+    /**
+     * @return the jwks
+     */
+    public JWKSet getJwks() {
+      return jwks;
+    }
+
+    /**
+     * @return the verifier
+     */
+    public IndexedSignatureVerifier getVerifier() {
+      return verifier;
+    }
+  }
+}
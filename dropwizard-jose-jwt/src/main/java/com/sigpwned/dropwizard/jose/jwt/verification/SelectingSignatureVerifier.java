@@ -0,0 +1,111 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+import static java.util.Objects.requireNonNull;
+import java.security.Key;
+import java.util.List;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSVerifier;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.crypto.factories.DefaultJWSVerifierFactory;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.JWSKeySelector;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.JWSVerifierFactory;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.verification.Verification.Failure;
+
+/**
+ * Asks a {@link JWKSource} for matching keys and builds a fresh verifier for each one on every
+ * call. This works with any key source, including ones whose keys change over time, but it pays
+ * for a scan of the key set and a new verifier on each token. When the keys are fixed, prefer
+ * {@link IndexedSignatureVerifier}.
+ */
+public class SelectingSignatureVerifier implements SignatureVerifier {
+  private final JWSAlgorithm signingAlgorithm;
+  private final JWKSource<SecurityContext> jwkSource;
+  private final JWSKeySelector<SecurityContext> keySelector;
+  private final JWSVerifierFactory verifierFactory;
+
+  public SelectingSignatureVerifier(JWSAlgorithm signingAlgorithm,
+      JWKSource<SecurityContext> jwkSource) {
+    this.signingAlgorithm = requireNonNull(signingAlgorithm);
+    this.jwkSource = requireNonNull(jwkSource);
+
+    // Only look for keys for our algorithm, and only in the given source. If the token uses any
+    // other algorithm, then the selector simply finds no keys.
+    this.keySelector = new JWSVerificationKeySelector<>(signingAlgorithm, jwkSource);
+    this.verifierFactory = new DefaultJWSVerifierFactory();
+  }
+
+  @Override
+  public Failure verify(SignedJWT jwt) throws JOSEException {
+    if (JWSAlgorithm.Family.ED.contains(signingAlgorithm))
+      return verifyEdDSA(jwt);
+
+    List<? extends Key> keys = keySelector.selectJWSKeys(jwt.getHeader(), null);
+    if (keys.isEmpty())
+      return Failure.NO_MATCHING_KEY;
+
+    for (Key key : keys) {
+      if (jwt.verify(verifierFactory.createJWSVerifier(jwt.getHeader(), key)))
+        return null;
+    }
+
+    return Failure.BAD_SIGNATURE;
+  }
+
+  /**
+   * The key selector only returns {@link Key}s, but Nimbus cannot convert Ed25519 keys to
+   * {@link Key}s, so we select the JWKs ourselves, using the same matcher the selector would.
+   */
+  private Failure verifyEdDSA(SignedJWT jwt) throws JOSEException {
+    if (!jwt.getHeader().getAlgorithm().equals(signingAlgorithm))
+      return Failure.NO_MATCHING_KEY;
+
+    List<JWK> jwks;
+    try {
+      jwks = jwkSource.get(new JWKSelector(JWKMatcher.forJWSHeader(jwt.getHeader())), null);
+    } catch (KeySourceException e) {
+      throw new JOSEException("Failed to retrieve keys", e);
+    }
+
+    boolean matched = false;
+    for (JWK jwk : jwks) {
+      if (!(jwk instanceof OctetKeyPair) || !((OctetKeyPair) jwk).getCurve().equals(Curve.Ed25519))
+        continue;
+      matched = true;
+      JWSVerifier verifier =
+          IndexedSignatureVerifier.newJWSVerifier(verifierFactory, jwt.getHeader(), jwk);
+      if (jwt.verify(verifier))
+        return null;
+    }
+
+    return matched ? Failure.BAD_SIGNATURE : Failure.NO_MATCHING_KEY;
+  }
+}
@@ -0,0 +1,84 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+import static java.util.Objects.requireNonNull;
+import java.io.IOException;
+import java.text.ParseException;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.keys.TenantKeySets;
+import com.sigpwned.dropwizard.jose.jwt.keys.TenantKeySets.TenantKeys;
+import com.sigpwned.dropwizard.jose.jwt.verification.Verification.Failure;
+
+/**
+ * Verifies each token against the keys of the tenant named in the given claim of its (not yet
+ * verified) payload. A token that names a tenant it does not belong to simply fails verification,
+ * since it cannot be signed with that tenant's keys. Use with
+ * {@link IssuerPolicy#of(SignatureVerifier, java.util.Set)}.
+ */
+public class TenantSignatureVerifier implements SignatureVerifier {
+  /**
+   * The default name of the claim holding the tenant ID
+   */
+  public static final String DEFAULT_TENANT_CLAIM = "tid";
+
+  private final TenantKeySets tenants;
+  private final String tenantClaim;
+
+  public TenantSignatureVerifier(TenantKeySets tenants) {
+    this(tenants, DEFAULT_TENANT_CLAIM);
+  }
+
+  public TenantSignatureVerifier(TenantKeySets tenants, String tenantClaim) {
+    this.tenants = requireNonNull(tenants);
+    this.tenantClaim = requireNonNull(tenantClaim);
+  }
+
+  @Override
+  public Failure verify(SignedJWT jwt) throws JOSEException {
+    final String tenant;
+    try {
+      tenant = jwt.getJWTClaimsSet().getStringClaim(tenantClaim);
+    } catch (ParseException e) {
+      return Failure.MALFORMED;
+    }
+    if (!TenantKeySets.isValidTenant(tenant))
+      return Failure.NO_MATCHING_KEY;
+
+    final TenantKeys keys;
+    try {
+      keys = tenants.get(tenant);
+    } catch (IOException | IllegalArgumentException e) {
+      throw new JOSEException("Failed to retrieve keys", e);
+    }
+    if (keys == null)
+      return Failure.NO_MATCHING_KEY;
+
+    return keys.getVerifier().verify(jwt);
+  }
+
+  /**
+   * @return the tenantClaim
+   */
+  public String getTenantClaim() {
+    return tenantClaim;
+  }
+}
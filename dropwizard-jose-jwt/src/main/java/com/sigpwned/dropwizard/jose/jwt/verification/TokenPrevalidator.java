@@ -0,0 +1,169 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import com.codahale.metrics.Counter;
+
+/**
+ * Cheap structural checks that run before a token is decoded. Bots send random strings, truncated
+ * tokens, and enormous "tokens" all day long, and every one of them that reaches the JOSE parser
+ * costs a base64 decode, a JSON parse, and an exception. These checks reject such garbage by
+ * looking only at the characters of the token.
+ *
+ * A token passes if it is no longer than the maximum token length, has exactly three non-empty
+ * segments separated by dots, contains only base64url characters (without padding), and has a
+ * header segment no longer than the maximum header length.
+ */
+public class TokenPrevalidator {
+  /**
+   * Why a token was rejected
+   */
+  public static enum Rejection {
+    /**
+     * The token is longer than the maximum token length
+     */
+    TOO_LONG,
+
+    /**
+     * The token does not have exactly three segments
+     */
+    WRONG_SEGMENT_COUNT,
+
+    /**
+     * The token has an empty header, payload, or signature segment
+     */
+    EMPTY_SEGMENT,
+
+    /**
+     * The token contains a character that is not in the base64url alphabet
+     */
+    ILLEGAL_CHARACTER,
+
+    /**
+     * The token's header segment is longer than the maximum header length
+     */
+    HEADER_TOO_LONG;
+  }
+
+  /**
+   * Browsers limit cookies to about 4KB, and servers limit request headers to about 8KB, so no
+   * legitimate token will be longer than this.
+   */
+  public static final int DEFAULT_MAX_TOKEN_LENGTH = 8192;
+
+  /**
+   * Our headers carry the signing key's certificate chain, which accounts for most of their size.
+   */
+  public static final int DEFAULT_MAX_HEADER_LENGTH = 4096;
+
+  private final int maxTokenLength;
+  private final int maxHeaderLength;
+  private final Map<Rejection, Counter> rejections;
+
+  public TokenPrevalidator() {
+    this(DEFAULT_MAX_TOKEN_LENGTH, DEFAULT_MAX_HEADER_LENGTH);
+  }
+
+  public TokenPrevalidator(int maxTokenLength, int maxHeaderLength) {
+    if (maxTokenLength < 1)
+      throw new IllegalArgumentException("maxTokenLength must be positive");
+    if (maxHeaderLength < 1)
+      throw new IllegalArgumentException("maxHeaderLength must be positive");
+    this.maxTokenLength = maxTokenLength;
+    this.maxHeaderLength = maxHeaderLength;
+
+    Map<Rejection, Counter> rejections = new EnumMap<>(Rejection.class);
+    for (Rejection rejection : Rejection.values())
+      rejections.put(rejection, new Counter());
+    this.rejections = Collections.unmodifiableMap(rejections);
+  }
+
+  /**
+   * Checks the structure of the given compact token and counts any rejection.
+   * 
+   * @return {@code null} if the token passes, or the reason it was rejected otherwise
+   */
+  public Rejection prevalidate(String token) {
+    Rejection result = check(token);
+    if (result != null)
+      rejections.get(result).inc();
+    return result;
+  }
+
+  private Rejection check(String token) {
+    final int length = token.length();
+    if (length > maxTokenLength)
+      return Rejection.TOO_LONG;
+
+    int firstDot = -1;
+    int secondDot = -1;
+    for (int i = 0; i < length; i++) {
+      char ch = token.charAt(i);
+      if (ch == '.') {
+        if (firstDot == -1)
+          firstDot = i;
+        else if (secondDot == -1)
+          secondDot = i;
+        else
+          return Rejection.WRONG_SEGMENT_COUNT;
+      } else if (!isBase64UrlCharacter(ch)) {
+        return Rejection.ILLEGAL_CHARACTER;
+      }
+    }
+
+    if (secondDot == -1)
+      return Rejection.WRONG_SEGMENT_COUNT;
+    if (firstDot == 0 || secondDot == firstDot + 1 || secondDot == length - 1)
+      return Rejection.EMPTY_SEGMENT;
+    if (firstDot > maxHeaderLength)
+      return Rejection.HEADER_TOO_LONG;
+
+    return null;
+  }
+
+  private static boolean isBase64UrlCharacter(char ch) {
+    return (ch >= 'A' && ch <= 'Z') || (ch >= 'a' && ch <= 'z') || (ch >= '0' && ch <= '9')
+        || ch == '-' || ch == '_';
+  }
+
+  /**
+   * @return the number of tokens rejected for the given reason
+   */
+  public Counter getRejections(Rejection rejection) {
+    return rejections.get(rejection);
+  }
+
+  /**
+   * @return the maxTokenLength
+   */
+  public int getMaxTokenLength() {
+    return maxTokenLength;
+  }
+
+  /**
+   * @return the maxHeaderLength
+   */
+  public int getMaxHeaderLength() {
+    return maxHeaderLength;
+  }
+}
@@ -0,0 +1,132 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+import static java.util.Objects.requireNonNull;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The outcome of verifying a token. Rejecting a token is routine, not exceptional, so a failed
+ * verification is reported as a {@link Failure} reason instead of an exception. Failed outcomes are
+ * shared singletons, so rejecting a token allocates nothing here.
+ */
+public final class Verification {
+  /**
+   * Why a token failed verification
+   */
+  public static enum Failure {
+    /**
+     * The token is not a well-formed signed JWT
+     */
+    MALFORMED,
+
+    /**
+     * The token's {@code typ} header is present and is not {@code JWT}
+     */
+    UNACCEPTABLE_TYPE,
+
+    /**
+     * The token uses an unexpected algorithm, or no key matches its header
+     */
+    NO_MATCHING_KEY,
+
+    /**
+     * The token's signature does not match any candidate key
+     */
+    BAD_SIGNATURE,
+
+    /**
+     * The token is missing one or more required claims
+     */
+    MISSING_CLAIMS,
+
+    /**
+     * The token was issued by someone else
+     */
+    WRONG_ISSUER,
+
+    /**
+     * The token has expired
+     */
+    EXPIRED,
+
+    /**
+     * The token is not valid yet
+     */
+    NOT_YET_VALID,
+
+    /**
+     * An internal error occurred while verifying the token, e.g., the keys could not be retrieved
+     */
+    ERROR;
+  }
+
+  private static final Map<Failure, Verification> FAILURES;
+  static {
+    Map<Failure, Verification> failures = new EnumMap<>(Failure.class);
+    for (Failure failure : Failure.values())
+      failures.put(failure, new Verification(null, failure));
+    FAILURES = Collections.unmodifiableMap(failures);
+  }
+
+  public static Verification verified(VerifiedJWT jwt) {
+    return new Verification(requireNonNull(jwt), null);
+  }
+
+  public static Verification failed(Failure failure) {
+    return FAILURES.get(requireNonNull(failure));
+  }
+
+  private final VerifiedJWT jwt;
+  private final Failure failure;
+
+  private Verification(VerifiedJWT jwt, Failure failure) {
+    this.jwt = jwt;
+    this.failure = failure;
+  }
+
+  /**
+   * @return {@code true} if the token was verified, or {@code false} otherwise
+   */
+  public boolean isVerified() {
+    return jwt != null;
+  }
+
+  /**
+   * @return the verified token, or {@code null} if verification failed
+   */
+  public VerifiedJWT getJwt() {
+    return jwt;
+  }
+
+  /**
+   * @return the reason verification failed, or {@code null} if the token was verified
+   */
+  public Failure getFailure() {
+    return failure;
+  }
+
+  @Override
+  public String toString() {
+    return isVerified() ? "Verification [verified]" : "Verification [failure=" + failure + "]";
+  }
+}
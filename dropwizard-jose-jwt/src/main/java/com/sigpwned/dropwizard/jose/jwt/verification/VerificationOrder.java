@@ -0,0 +1,40 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+/**
+ * The order in which {@link JWTVerifier} checks a token's signature and claims. Either way, a
+ * token is only accepted if both checks pass. The order only changes how much work it takes to
+ * reject a bad token.
+ */
+public enum VerificationOrder {
+  /**
+   * Check the signature first, and only then look at the claims. This is the order that
+   * {@link com.nimbusds.jwt.proc.DefaultJWTProcessor} uses.
+   */
+  SIGNATURE_FIRST,
+
+  /**
+   * Check the claims from the decoded payload first, and only then check the signature. Expired
+   * tokens and tokens from other issuers are rejected without a public key operation. The claims
+   * are not trusted until the signature also checks out.
+   */
+  CLAIMS_FIRST;
+}
@@ -0,0 +1,56 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+import static java.util.Objects.requireNonNull;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+/**
+ * The result of successfully verifying a JWT. The claims are the claims set that was built during
+ * verification, and are the same instance memoized on the JWT itself.
+ */
+public final class VerifiedJWT {
+  public static VerifiedJWT of(SignedJWT jwt, JWTClaimsSet claims) {
+    return new VerifiedJWT(jwt, claims);
+  }
+
+  private final SignedJWT jwt;
+  private final JWTClaimsSet claims;
+
+  public VerifiedJWT(SignedJWT jwt, JWTClaimsSet claims) {
+    this.jwt = requireNonNull(jwt);
+    this.claims = requireNonNull(claims);
+  }
+
+  /**
+   * @return the jwt
+   */
+  public SignedJWT getJwt() {
+    return jwt;
+  }
+
+  /**
+   * @return the claims
+   */
+  public JWTClaimsSet getClaims() {
+    return claims;
+  }
+}
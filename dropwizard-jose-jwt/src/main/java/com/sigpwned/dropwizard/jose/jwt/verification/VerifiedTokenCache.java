@@ -0,0 +1,275 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+import static java.util.Objects.requireNonNull;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * A bounded, concurrent cache of tokens that have already passed signature and claims verification.
+ * Verifying an RS256 signature is by far the most expensive step of authenticating a request, and
+ * browsers tend to send the same token over and over, so remembering which tokens we have already
+ * verified saves a lot of CPU.
+ * 
+ * Entries are keyed by a SHA-256 digest of the compact token, so the cache never holds on to the
+ * raw credentials as keys. Each entry lives until the earlier of the token's {@code exp} claim and
+ * the configured TTL. Tokens without an {@code exp} claim are never cached.
+ * 
+ * Entries are only valid for the keys they were verified against, so the cache must be cleared
+ * using {@link #invalidateAll()} whenever the JWK set changes. Each call starts a new generation,
+ * and entries from an earlier generation are never returned, so a token that was verified against
+ * the old keys but put after the cache was cleared is ignored, as long as the caller captured
+ * {@link #getGeneration()} before it started verifying.
+ */
+public class VerifiedTokenCache {
+  /**
+   * The default maximum number of entries
+   */
+  public static final long DEFAULT_MAXIMUM_SIZE = 10000L;
+
+  /**
+   * The default maximum amount of time a verified token will be cached
+   */
+  public static final Duration DEFAULT_TTL = Duration.ofMinutes(5L);
+
+  /**
+   * We use SHA-256 because it is fast, universally available, and collisions are not a practical
+   * concern.
+   */
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+
+  /**
+   * Looking up a digest is much slower than using one, and this is the hot path, so each thread
+   * keeps its own. {@link MessageDigest#digest(byte[])} resets the digest after each use.
+   */
+  private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      // Every JVM is required to support SHA-256
+      throw new AssertionError(DIGEST_ALGORITHM, e);
+    }
+  });
+
+  private final Cache<Key, Entry> cache;
+  private final Duration ttl;
+  private final AtomicLong generation;
+
+  public VerifiedTokenCache() {
+    this(DEFAULT_MAXIMUM_SIZE, DEFAULT_TTL);
+  }
+
+  public VerifiedTokenCache(long maximumSize, Duration ttl) {
+    if (maximumSize < 1L)
+      throw new IllegalArgumentException("maximumSize must be positive");
+    if (ttl == null)
+      throw new NullPointerException();
+    if (ttl.isNegative() || ttl.isZero())
+      throw new IllegalArgumentException("ttl must be positive");
+    this.ttl = ttl;
+    this.generation = new AtomicLong();
+    this.cache = Caffeine.newBuilder().maximumSize(maximumSize).expireAfter(new EntryExpiry())
+        .recordStats().build();
+  }
+
+  /**
+   * Returns the previously-verified token for the given compact serialization, or {@code null} if
+   * there is no live entry for it.
+   */
+  public VerifiedJWT getIfPresent(String token) {
+    Entry entry = cache.getIfPresent(Key.of(token));
+    return entry != null && entry.getGeneration() == generation.get() ? entry.getJwt() : null;
+  }
+
+  /**
+   * Remembers that the given compact serialization has been verified against the current keys.
+   * Callers that verify concurrently with key changes should use
+   * {@link #put(String, VerifiedJWT, long)} instead.
+   */
+  public void put(String token, VerifiedJWT jwt) {
+    put(token, jwt, getGeneration());
+  }
+
+  /**
+   * Remembers that the given compact serialization has been verified, unless the cache has been
+   * cleared since the given generation, in which case the token may have been verified against
+   * keys we no longer trust.
+   * 
+   * @param generation the value of {@link #getGeneration()} from before the token was verified
+   */
+  public void put(String token, VerifiedJWT jwt, long generation) {
+    requireNonNull(token);
+    requireNonNull(jwt);
+
+    if (generation != this.generation.get())
+      return;
+
+    Date expirationTime = jwt.getClaims().getExpirationTime();
+    if (expirationTime == null)
+      return;
+
+    long lifetimeNanos = Math.min(ttl.toNanos(),
+        Duration.between(now(), expirationTime.toInstant()).toNanos());
+    if (lifetimeNanos <= 0L)
+      return;
+
+    cache.put(Key.of(token), new Entry(jwt, generation, lifetimeNanos));
+  }
+
+  /**
+   * Drops all cached tokens. This must be called whenever the keys used to verify tokens change.
+   */
+  public void invalidateAll() {
+    // Move to the next generation first, so anything put from here on with the old generation is
+    // never returned, even if it lands in the cache after we clear it
+    generation.incrementAndGet();
+    cache.invalidateAll();
+  }
+
+  /**
+   * @return the current generation, which changes every time the cache is cleared
+   */
+  public long getGeneration() {
+    return generation.get();
+  }
+
+  /**
+   * @return the approximate number of cached tokens
+   */
+  public long size() {
+    return cache.estimatedSize();
+  }
+
+  /**
+   * @return the hit, miss, and eviction counts of this cache
+   */
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  /**
+   * @return the ttl
+   */
+  public Duration getTtl() {
+    return ttl;
+  }
+
+  /**
+   * test hook
+   */
+  protected Instant now() {
+    return Instant.now();
+  }
+
+  private static final class Key {
+    public static Key of(String token) {
+      return new Key(DIGESTS.get().digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private final byte[] digest;
+    private final int hashCode;
+
+    private Key(byte[] digest) {
+      this.digest = digest;
+      this.hashCode = Arrays.hashCode(digest);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (obj == null)
+        return false;
+      if (getClass() != obj.getClass())
+        return false;
+      Key other = (Key) obj;
+      return Arrays.equals(digest, other.digest);
+    }
+  }
+
+  private static final class Entry {
+    private final VerifiedJWT jwt;
+    private final long generation;
+    private final long lifetimeNanos;
+
+    public Entry(VerifiedJWT jwt, long generation, long lifetimeNanos) {
+      this.jwt = jwt;
+      this.generation = generation;
+      this.lifetimeNanos = lifetimeNanos;
+    }
+
+    /**
+     * @return the jwt
+     */
+    public VerifiedJWT getJwt() {
+      return jwt;
+    }
+
+    /**
+     * @return the generation
+     */
+    public long getGeneration() {
+      return generation;
+    }
+
+    /**
+     * @return the lifetimeNanos
+     */
+    public long getLifetimeNanos() {
+      return lifetimeNanos;
+    }
+  }
+
+  /**
+   * Each entry carries its own lifetime, which is computed when the entry is created.
+   */
+  private static final class EntryExpiry implements Expiry<Key, Entry> {
+    @Override
+    public long expireAfterCreate(Key key, Entry value, long currentTime) {
+      return value.getLifetimeNanos();
+    }
+
+    @Override
+    public long expireAfterUpdate(Key key, Entry value, long currentTime, long currentDuration) {
+      return value.getLifetimeNanos();
+    }
+
+    @Override
+    public long expireAfterRead(Key key, Entry value, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
@@ -19,6 +19,9 @@
  */
 package com.sigpwned.dropwizard.jose.jwt;
 
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -33,6 +36,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.ws.rs.NotAuthorizedException;
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.core.Cookie;
@@ -50,6 +54,8 @@ import com.sigpwned.dropwizard.jose.jwt.factory.DefaultJWTFactory;
 import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenTool;
 import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenToolConfiguration;
 import com.sigpwned.dropwizard.jose.jwt.util.KeyStores;
+import com.sigpwned.dropwizard.jose.jwt.verification.TokenPrevalidator;
+import com.sigpwned.dropwizard.jose.jwt.verification.VerifiedTokenCache;
 import io.dropwizard.auth.Authenticator;
 import io.dropwizard.auth.Authorizer;
 import io.dropwizard.auth.UnauthorizedHandler;
@@ -341,6 +347,158 @@ public class JWTAuthFilterTest {
     unit.filter(request);
   }
 
+  @Test
+  public void shouldUseVerifiedTokenCache() throws Exception {
+    final SignedJWT jwt = new DefaultJWTFactory(jwks, ISSUER, Duration.ofHours(1L)).create(NONE);
+
+    final ExamplePrincipal principal = new ExamplePrincipal();
+
+    @SuppressWarnings("unchecked")
+    Authenticator<SignedJWT, ExamplePrincipal> authenticator = mock(Authenticator.class);
+    when(authenticator.authenticate(argThat(SignedJWTMatcher.is(jwt))))
+        .thenReturn(Optional.of(principal));
+
+    @SuppressWarnings("unchecked")
+    Authorizer<ExamplePrincipal> authorizer = mock(Authorizer.class);
+
+    VerifiedTokenCache cache = new VerifiedTokenCache();
+
+    JWTAuthFilter<ExamplePrincipal> unit = JWTAuthFilter.<ExamplePrincipal>builder()
+        .setAuthenticator(authenticator).setAuthorizer(authorizer).setIssuer(ISSUER)
+        .setQueryParameterName(QUERY_PARAMETER_NAME).setCookieParameterName(COOKIE_PARAMETER_NAME)
+        .setSigningAlgorithm(JWTFactory.DEFAULT_SIGNING_ALGORITHM).setJWKs(jwks)
+        .setVerifiedTokenCache(cache).setUnauthorizedHandler(new UnauthorizedHandler() {
+          @Override
+          public RuntimeException buildException(String prefix, String realm) {
+            return new NotAuthorizedException("token");
+          }
+        }).buildAuthFilter();
+
+    MultivaluedHashMap<String, String> queryParameters = new MultivaluedHashMap<>();
+    queryParameters.putSingle(QUERY_PARAMETER_NAME, jwt.serialize());
+
+    Map<String, Cookie> cookieParameters = new HashMap<>();
+
+    UriInfo uriInfo = mock(UriInfo.class);
+    when(uriInfo.getQueryParameters()).thenReturn(queryParameters);
+
+    ContainerRequestContext request = mock(ContainerRequestContext.class);
+    when(request.getCookies()).thenReturn(cookieParameters);
+    when(request.getUriInfo()).thenReturn(uriInfo);
+
+    unit.filter(request);
+    unit.filter(request);
+
+    assertThat(cache.stats().missCount(), is(1L));
+    assertThat(cache.stats().hitCount(), is(1L));
+  }
+
+  @Test
+  public void shouldClearVerifiedTokenCacheWhenKeysChange() throws Exception {
+    final SignedJWT jwt = new DefaultJWTFactory(jwks, ISSUER, Duration.ofHours(1L)).create(NONE);
+
+    final ExamplePrincipal principal = new ExamplePrincipal();
+
+    @SuppressWarnings("unchecked")
+    Authenticator<SignedJWT, ExamplePrincipal> authenticator = mock(Authenticator.class);
+    when(authenticator.authenticate(argThat(SignedJWTMatcher.is(jwt))))
+        .thenReturn(Optional.of(principal));
+
+    @SuppressWarnings("unchecked")
+    Authorizer<ExamplePrincipal> authorizer = mock(Authorizer.class);
+
+    VerifiedTokenCache cache = new VerifiedTokenCache();
+
+    AtomicReference<JWKSet> keys = new AtomicReference<>(jwks);
+
+    JWTAuthFilter<ExamplePrincipal> unit = JWTAuthFilter.<ExamplePrincipal>builder()
+        .setAuthenticator(authenticator).setAuthorizer(authorizer).setIssuer(ISSUER)
+        .setQueryParameterName(QUERY_PARAMETER_NAME).setCookieParameterName(COOKIE_PARAMETER_NAME)
+        .setSigningAlgorithm(JWTFactory.DEFAULT_SIGNING_ALGORITHM).setJWKSupplier(keys::get)
+        .setVerifiedTokenCache(cache).setUnauthorizedHandler(new UnauthorizedHandler() {
+          @Override
+          public RuntimeException buildException(String prefix, String realm) {
+            return new NotAuthorizedException("token");
+          }
+        }).buildAuthFilter();
+
+    MultivaluedHashMap<String, String> queryParameters = new MultivaluedHashMap<>();
+    queryParameters.putSingle(QUERY_PARAMETER_NAME, jwt.serialize());
+
+    Map<String, Cookie> cookieParameters = new HashMap<>();
+
+    UriInfo uriInfo = mock(UriInfo.class);
+    when(uriInfo.getQueryParameters()).thenReturn(queryParameters);
+
+    ContainerRequestContext request = mock(ContainerRequestContext.class);
+    when(request.getCookies()).thenReturn(cookieParameters);
+    when(request.getUriInfo()).thenReturn(uriInfo);
+
+    unit.filter(request);
+
+    assertThat(cache.size(), is(1L));
+
+    // Rotate to keys that did not sign our token, so it must not be accepted from the cache
+    keys.set(new JWKSet());
+
+    try {
+      unit.filter(request);
+      fail("expected the token to be rejected");
+    } catch (NotAuthorizedException e) {
+      // This is expected
+    }
+
+    assertThat(cache.stats().hitCount(), is(0L));
+  }
+
+  @Test
+  public void shouldRejectMalformedTokenBeforeParsing() throws Exception {
+    @SuppressWarnings("unchecked")
+    Authenticator<SignedJWT, ExamplePrincipal> authenticator = mock(Authenticator.class);
+
+    @SuppressWarnings("unchecked")
+    Authorizer<ExamplePrincipal> authorizer = mock(Authorizer.class);
+
+    VerifiedTokenCache cache = new VerifiedTokenCache();
+
+    TokenPrevalidator prevalidator = new TokenPrevalidator();
+
+    JWTAuthFilter<ExamplePrincipal> unit = JWTAuthFilter.<ExamplePrincipal>builder()
+        .setAuthenticator(authenticator).setAuthorizer(authorizer).setIssuer(ISSUER)
+        .setQueryParameterName(QUERY_PARAMETER_NAME).setCookieParameterName(COOKIE_PARAMETER_NAME)
+        .setSigningAlgorithm(JWTFactory.DEFAULT_SIGNING_ALGORITHM).setJWKs(jwks)
+        .setVerifiedTokenCache(cache).setTokenPrevalidator(prevalidator)
+        .setUnauthorizedHandler(new UnauthorizedHandler() {
+          @Override
+          public RuntimeException buildException(String prefix, String realm) {
+            return new NotAuthorizedException("token");
+          }
+        }).buildAuthFilter();
+
+    MultivaluedHashMap<String, String> queryParameters = new MultivaluedHashMap<>();
+    queryParameters.putSingle(QUERY_PARAMETER_NAME, "<script>alert(1)</script>");
+
+    Map<String, Cookie> cookieParameters = new HashMap<>();
+
+    UriInfo uriInfo = mock(UriInfo.class);
+    when(uriInfo.getQueryParameters()).thenReturn(queryParameters);
+
+    ContainerRequestContext request = mock(ContainerRequestContext.class);
+    when(request.getCookies()).thenReturn(cookieParameters);
+    when(request.getUriInfo()).thenReturn(uriInfo);
+
+    try {
+      unit.filter(request);
+      fail();
+    } catch (NotAuthorizedException e) {
+      // expected
+    }
+
+    assertThat(prevalidator.getRejections(TokenPrevalidator.Rejection.ILLEGAL_CHARACTER).getCount(),
+        is(1L));
+    assertThat(cache.stats().requestCount(), is(0L));
+  }
+
   private static class SignedJWTMatcher implements ArgumentMatcher<SignedJWT> {
     public static SignedJWTMatcher is(SignedJWT target) {
       return new SignedJWTMatcher(target);
@@ -20,9 +20,11 @@
 package com.sigpwned.dropwizard.jose.jwt;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.ignoreStubs;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -31,7 +33,9 @@ import java.io.FileOutputStream;
 import java.io.PrintStream;
 import java.security.KeyStore;
 import java.security.Principal;
+import java.security.SecureRandom;
 import java.util.EnumSet;
+import javax.crypto.spec.SecretKeySpec;
 import javax.servlet.DispatcherType;
 import javax.servlet.Filter;
 import javax.servlet.FilterRegistration;
@@ -39,17 +43,21 @@ import org.glassfish.hk2.utilities.binding.AbstractBinder;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import com.codahale.metrics.MetricRegistry;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.keys.ReloadKeysTask;
 import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenTool;
 import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenToolConfiguration;
 import com.sigpwned.dropwizard.jose.jwt.util.KeyStores;
 import io.dropwizard.auth.AuthDynamicFeature;
 import io.dropwizard.auth.Authenticator;
 import io.dropwizard.auth.Authorizer;
+import io.dropwizard.core.setup.AdminEnvironment;
 import io.dropwizard.core.setup.Environment;
 import io.dropwizard.jersey.setup.JerseyEnvironment;
 import io.dropwizard.jetty.setup.ServletEnvironment;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
 
 public class JWTBundleTest {
   public class ExamplePrincipal implements Principal {
@@ -114,9 +122,14 @@ public class JWTBundleTest {
     when(servletEnvironment.addFilter(eq(JWTBundle.WELL_KNOWN_JWKS_FILTER_NAME), any(Filter.class)))
         .thenReturn(filterRegistrationDynamic);
 
+    AdminEnvironment adminEnvironment = mock(AdminEnvironment.class);
+
     Environment environment = mock(Environment.class);
     when(environment.jersey()).thenReturn(jerseyEnvironment);
     when(environment.servlets()).thenReturn(servletEnvironment);
+    when(environment.metrics()).thenReturn(new MetricRegistry());
+    when(environment.lifecycle()).thenReturn(new LifecycleEnvironment(new MetricRegistry()));
+    when(environment.admin()).thenReturn(adminEnvironment);
 
     unit.run(bundleConfiguration, environment);
 
@@ -126,6 +139,76 @@ public class JWTBundleTest {
     verify(filterRegistrationDynamic).addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST),
         false, "/*");
 
-    verifyNoMoreInteractions(ignoreStubs(environment, jerseyEnvironment, servletEnvironment));
+    verify(adminEnvironment).addTask(any(ReloadKeysTask.class));
+
+    verifyNoMoreInteractions(
+        ignoreStubs(environment, jerseyEnvironment, servletEnvironment, adminEnvironment));
+  }
+
+  @Test
+  public void shouldNotPublishKeysWithHmac() throws Exception {
+    KeyStore secrets = KeyStore.getInstance(KeygenTool.KEY_STORE_TYPE);
+    secrets.load(null, PASSWORD.toCharArray());
+    addSecretKey(secrets, "hmac");
+    storeKeyStore(secrets);
+
+    ServletEnvironment servletEnvironment = mock(ServletEnvironment.class);
+
+    run(newConfiguration(JWSAlgorithm.HS256), servletEnvironment);
+
+    verify(servletEnvironment, never()).addFilter(anyString(), any(Filter.class));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRefuseToMixSecretKeysWithKeyPairs() throws Exception {
+    addSecretKey(keyStore, "hmac");
+    storeKeyStore(keyStore);
+
+    run(newConfiguration(JWSAlgorithm.RS256), mock(ServletEnvironment.class));
+  }
+
+  private JWTConfiguration newConfiguration(JWSAlgorithm signingAlgorithm) {
+    JWTConfiguration result = new JWTConfiguration();
+    result.setIssuer(ISSUER);
+    result.setKeyStorePassword(PASSWORD);
+    result.setKeyStorePath(keyStoreFile.getAbsolutePath());
+    result.setKeyStoreType(KeygenTool.KEY_STORE_TYPE);
+    result.setSigningAlgorithm(signingAlgorithm);
+    return result;
+  }
+
+  private static void addSecretKey(KeyStore store, String alias) throws Exception {
+    byte[] secret = new byte[32];
+    new SecureRandom().nextBytes(secret);
+    store.setEntry(alias, new KeyStore.SecretKeyEntry(new SecretKeySpec(secret, "HmacSHA256")),
+        new KeyStore.PasswordProtection(PASSWORD.toCharArray()));
+  }
+
+  private void storeKeyStore(KeyStore store) throws Exception {
+    try (FileOutputStream out = new FileOutputStream(keyStoreFile)) {
+      store.store(out, PASSWORD.toCharArray());
+    }
+  }
+
+  private static void run(JWTConfiguration configuration, ServletEnvironment servletEnvironment)
+      throws Exception {
+    @SuppressWarnings("unchecked")
+    final Authenticator<SignedJWT, ExamplePrincipal> authenticator = mock(Authenticator.class);
+
+    @SuppressWarnings("unchecked")
+    final Authorizer<ExamplePrincipal> authorizer = mock(Authorizer.class);
+
+    JWTBundleConfiguration bundleConfiguration = mock(JWTBundleConfiguration.class);
+    when(bundleConfiguration.getJWTConfiguration()).thenReturn(configuration);
+
+    Environment environment = mock(Environment.class);
+    when(environment.jersey()).thenReturn(mock(JerseyEnvironment.class));
+    when(environment.servlets()).thenReturn(servletEnvironment);
+    when(environment.metrics()).thenReturn(new MetricRegistry());
+    when(environment.lifecycle()).thenReturn(new LifecycleEnvironment(new MetricRegistry()));
+    when(environment.admin()).thenReturn(mock(AdminEnvironment.class));
+
+    new JWTBundle<ExamplePrincipal>(authenticator, authorizer).run(bundleConfiguration,
+        environment);
   }
 }
@@ -0,0 +1,116 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.sigpwned.dropwizard.jose.jwt.factory.DefaultJWTFactory;
+import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenTool;
+import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenToolConfiguration;
+import com.sigpwned.dropwizard.jose.jwt.util.KeyStores;
+
+public class JWTConfigurationTest {
+  public File keyStoreFile;
+
+  public static final String ISSUER = "issuer";
+
+  public static final String PASSWORD = "password";
+
+  @Before
+  public void setupJWTConfigurationTest() throws Exception {
+    keyStoreFile = File.createTempFile("keystore.", ".p12");
+
+    KeygenToolConfiguration ktc = new KeygenToolConfiguration();
+    ktc.realm = "realm";
+    ktc.password = PASSWORD;
+    ktc.out = new PrintStream(new FileOutputStream(keyStoreFile));
+
+    KeygenTool.main(ktc);
+  }
+
+  @After
+  public void cleanupJWTConfigurationTest() {
+    keyStoreFile.delete();
+  }
+
+  @Test
+  public void shouldShareKeysBetweenRegistryAndFactory() throws Exception {
+    JWTConfiguration unit = new JWTConfiguration();
+    unit.setIssuer(ISSUER);
+    unit.setKeyStorePassword(PASSWORD);
+    unit.setKeyStorePath(keyStoreFile.getAbsolutePath());
+    unit.setKeyStoreType(KeygenTool.KEY_STORE_TYPE);
+
+    DefaultJWTFactory factory = (DefaultJWTFactory) unit.buildJWTFactory();
+
+    assertThat(unit.buildJWTFactory(), is(sameInstance(factory)));
+    assertThat(unit.buildKeyRegistry(), is(sameInstance(unit.buildKeyRegistry())));
+    assertThat(factory.getKeys(), is(sameInstance(unit.buildKeyRegistry().getKeyRing())));
+  }
+
+  @Test
+  public void shouldSignWithConfiguredAlgorithm() throws Exception {
+    File jwksFile = File.createTempFile("jwks.", ".json");
+    try {
+      Files.write(jwksFile.toPath(), new JWKSet(new ECKeyGenerator(Curve.P_256).generate())
+          .toString(false).getBytes(StandardCharsets.UTF_8));
+
+      JWTConfiguration unit = new JWTConfiguration();
+      unit.setIssuer(ISSUER);
+      unit.setKeyStorePath(jwksFile.getAbsolutePath());
+      unit.setKeyStoreType(KeyStores.JWKS_TYPE);
+      unit.setSigningAlgorithm(JWSAlgorithm.ES256);
+
+      JWTFactory factory = unit.buildJWTFactory();
+
+      assertThat(factory.getSigningAlgorithm(), is(JWSAlgorithm.ES256));
+      assertThat(factory.create(new JWTClaimsSet.Builder().build()).getHeader().getAlgorithm(),
+          is(JWSAlgorithm.ES256));
+    } finally {
+      jwksFile.delete();
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRefuseToFetchSecretKeysOverPlainHttp() throws Exception {
+    JWTConfiguration unit = new JWTConfiguration();
+    unit.setIssuer(ISSUER);
+    unit.setKeyStorePassword(PASSWORD);
+    unit.setKeyStorePath("http://example.com/keystore.p12");
+    unit.setKeyStoreType(KeygenTool.KEY_STORE_TYPE);
+    unit.setSigningAlgorithm(JWSAlgorithm.HS256);
+
+    unit.buildJWTFactory();
+  }
+}
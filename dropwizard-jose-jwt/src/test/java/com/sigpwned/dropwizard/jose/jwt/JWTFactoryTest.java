@@ -20,6 +20,8 @@
 package com.sigpwned.dropwizard.jose.jwt;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -29,8 +31,17 @@ import java.security.KeyStore;
 import java.text.ParseException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -38,17 +49,27 @@ import com.nimbusds.jose.JOSEException;
 import com.nimbusds.jose.JWSAlgorithm;
 import com.nimbusds.jose.JWSHeader;
 import com.nimbusds.jose.JWSObject;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.Curve;
 import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.OctetKeyPairGenerator;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
 import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
 import com.nimbusds.jose.mint.ConfigurableJWSMinter;
 import com.nimbusds.jose.mint.DefaultJWSMinter;
 import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.JSONObjectUtils;
 import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 import com.sigpwned.dropwizard.jose.jwt.factory.DefaultJWTFactory;
 import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenTool;
 import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenToolConfiguration;
 import com.sigpwned.dropwizard.jose.jwt.util.KeyStores;
+import com.sigpwned.dropwizard.jose.jwt.verification.IndexedSignatureVerifier;
+import com.sigpwned.dropwizard.jose.jwt.verification.SelectingSignatureVerifier;
 
 public class JWTFactoryTest {
   public File keyStoreFile;
@@ -122,4 +143,180 @@ public class JWTFactoryTest {
 
     assertThat(expected.serialize(), is(observed.serialize()));
   }
+
+  @Test
+  public void shouldSignWithEllipticCurveAndEdwardsCurveKeys() throws Exception {
+    // The P-384 and X25519 keys are on the wrong curves, so they must never be chosen
+    JWKSet ec = new JWKSet(Arrays.asList(new ECKeyGenerator(Curve.P_384).keyID("p384").generate(),
+        new ECKeyGenerator(Curve.P_256).keyID("p256").generate()));
+    JWKSet okp = new JWKSet(
+        Arrays.asList(new OctetKeyPairGenerator(Curve.X25519).keyID("x25519").generate(),
+            new OctetKeyPairGenerator(Curve.Ed25519).keyID("ed25519").generate()));
+
+    assertSignsAndVerifies(ec, JWSAlgorithm.ES256, "p256");
+    assertSignsAndVerifies(okp, JWSAlgorithm.EdDSA, "ed25519");
+  }
+
+  @Test
+  public void shouldSignWithSecretKeys() throws Exception {
+    JWKSet oct = new JWKSet(new OctetSequenceKeyGenerator(256).keyID("hmac").generate());
+
+    JWTFactory unit =
+        new DefaultJWTFactory(oct, "example", Duration.ofHours(1L), JWSAlgorithm.HS256);
+
+    SignedJWT jwt = SignedJWT.parse(unit.create(new JWTClaimsSet.Builder().build()).serialize());
+
+    assertThat(jwt.getHeader().getAlgorithm(), is(JWSAlgorithm.HS256));
+    assertThat(new IndexedSignatureVerifier(JWSAlgorithm.HS256, oct).verify(jwt), is(nullValue()));
+    assertThat(new SelectingSignatureVerifier(JWSAlgorithm.HS256, new ImmutableJWKSet<>(oct))
+        .verify(jwt), is(nullValue()));
+  }
+
+  private static void assertSignsAndVerifies(JWKSet jwks, JWSAlgorithm signingAlgorithm,
+      String keyID) throws Exception {
+    JWTFactory unit =
+        new DefaultJWTFactory(jwks, "example", Duration.ofHours(1L), signingAlgorithm);
+
+    SignedJWT jwt = SignedJWT.parse(unit.create(new JWTClaimsSet.Builder().build()).serialize());
+
+    assertThat(jwt.getHeader().getAlgorithm(), is(signingAlgorithm));
+    assertThat(jwt.getHeader().getKeyID(), is(keyID));
+
+    // Verifiers only ever see the public keys
+    JWKSet published = jwks.toPublicJWKSet();
+    assertThat(new IndexedSignatureVerifier(signingAlgorithm, published).verify(jwt),
+        is(nullValue()));
+    assertThat(new SelectingSignatureVerifier(signingAlgorithm, new ImmutableJWKSet<>(published))
+        .verify(jwt), is(nullValue()));
+  }
+
+  @Test
+  public void shouldSignWithActiveKeyAndStampKeyID() throws Exception {
+    final Instant now = Instant.now();
+
+    RSAKey retired = new RSAKeyGenerator(2048).keyID("retired")
+        .notBeforeTime(Date.from(now.minus(Duration.ofDays(60L)))).generate();
+    RSAKey active = new RSAKeyGenerator(2048).keyID("active")
+        .notBeforeTime(Date.from(now.minus(Duration.ofDays(30L)))).generate();
+    RSAKey scheduled = new RSAKeyGenerator(2048).keyID("scheduled")
+        .notBeforeTime(Date.from(now.plus(Duration.ofDays(30L)))).generate();
+
+    DefaultJWTFactory unit =
+        new DefaultJWTFactory(new JWKSet(Arrays.asList(retired, active, scheduled)), "example",
+            Duration.ofHours(1L), JWTFactory.DEFAULT_SIGNING_ALGORITHM);
+
+    SignedJWT observed = unit.create(new JWTClaimsSet.Builder().build());
+
+    assertThat(observed.getHeader().getKeyID(), is("active"));
+    assertThat(observed.verify(new RSASSAVerifier(active)), is(true));
+    assertThat(unit.getJwks().getKeyByKeyId("retired"), is(nullValue()));
+    assertThat(unit.getJwks().getKeyByKeyId("scheduled").getKeyID(), is("scheduled"));
+  }
+
+  @Test
+  public void shouldIssueSameTokenAsCreate() throws Exception {
+    final Instant now = Instant.now();
+    final String jwtID = "hello";
+    final JWTClaimsSet claims = new JWTClaimsSet.Builder().claim("alpha", "bravo").build();
+
+    JWTFactory unit = new DefaultJWTFactory(jwks, "example", Duration.ofHours(1L)) {
+      @Override
+      protected Instant now() {
+        return now;
+      }
+
+      @Override
+      protected String generateJwtID() {
+        return jwtID;
+      }
+    };
+
+    SignedJWT expected = unit.create(claims);
+
+    IssuedJWT observed = unit.issue(claims);
+
+    // The claims may be written in a different order, so compare them as JSON
+    SignedJWT observedJwt = SignedJWT.parse(observed.getToken());
+    assertThat(observedJwt.getHeader().toBase64URL(), is(expected.getHeader().toBase64URL()));
+    assertThat(JSONObjectUtils.parse(observedJwt.getPayload().toString()),
+        is(JSONObjectUtils.parse(expected.getPayload().toString())));
+    assertThat(observedJwt.verify(new RSASSAVerifier(jwks.getKeys().get(0).toRSAKey())),
+        is(true));
+    assertThat(observed.getClaims().toJSONObject(), is(expected.getJWTClaimsSet().toJSONObject()));
+  }
+
+  @Test
+  public void shouldCreateAllInOrderAndReportFailures() throws Exception {
+    final int count = 20;
+    final int bad = 7;
+
+    JWTFactory unit = new DefaultJWTFactory(jwks, "example", Duration.ofHours(1L)) {
+      @Override
+      public IssuedJWT issue(JWTClaimsSet claims) throws IOException {
+        if (claims.getClaim("fail") != null)
+          throw new IOException("fail");
+        return super.issue(claims);
+      }
+    };
+
+    List<JWTClaimsSet> claims = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      JWTClaimsSet.Builder csb = new JWTClaimsSet.Builder().claim("n", i);
+      if (i == bad)
+        csb.claim("fail", true);
+      claims.add(csb.build());
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      List<Issuance> observed = unit.createAll(claims, pool);
+
+      assertThat(observed.size(), is(count));
+      for (int i = 0; i < count; i++) {
+        Issuance issuance = observed.get(i);
+        assertThat(issuance.getIndex(), is(i));
+        assertThat(issuance.getClaims(), is(sameInstance(claims.get(i))));
+        if (i == bad) {
+          assertThat(issuance.isIssued(), is(false));
+          assertThat(issuance.getError().getMessage(), is("fail"));
+        } else {
+          assertThat(issuance.isIssued(), is(true));
+          assertThat(SignedJWT.parse(issuance.getJwt().getToken()).getJWTClaimsSet()
+              .getIntegerClaim("n"), is(i));
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void shouldCreateAllLazilyFromStream() throws Exception {
+    final AtomicInteger issued = new AtomicInteger();
+
+    JWTFactory unit = new DefaultJWTFactory(jwks, "example", Duration.ofHours(1L)) {
+      @Override
+      public IssuedJWT issue(JWTClaimsSet claims) throws IOException {
+        issued.incrementAndGet();
+        return super.issue(claims);
+      }
+    };
+
+    ForkJoinPool pool = new ForkJoinPool(1);
+    try (Stream<Issuance> issuances =
+        unit.createAll(IntStream.iterate(0, i -> i + 1)
+            .mapToObj(i -> new JWTClaimsSet.Builder().claim("n", i).build()), pool)) {
+      List<Issuance> observed = issuances.limit(3).collect(Collectors.toList());
+
+      assertThat(observed.size(), is(3));
+      assertThat(observed.get(2).getJwt().getClaims().getIntegerClaim("n"), is(2));
+
+      // The input is infinite, so only a bounded window can have been issued
+      pool.shutdown();
+      pool.awaitTermination(1L, TimeUnit.MINUTES);
+      assertThat(issued.get() <= 3 + 4, is(true));
+    } finally {
+      pool.shutdown();
+    }
+  }
 }
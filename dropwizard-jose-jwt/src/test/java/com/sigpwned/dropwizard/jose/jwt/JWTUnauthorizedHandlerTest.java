@@ -0,0 +1,62 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import org.junit.Test;
+import io.dropwizard.auth.DefaultUnauthorizedHandler;
+
+public class JWTUnauthorizedHandlerTest {
+  public static final String PREFIX = "Bearer";
+
+  public static final String REALM = "realm";
+
+  @Test
+  public void shouldBuildSameResponseAsDefaultHandler() {
+    Response expected = new DefaultUnauthorizedHandler().buildResponse(PREFIX, REALM);
+
+    Response observed = new JWTUnauthorizedHandler().buildResponse(PREFIX, REALM);
+
+    assertThat(observed.getStatus(), is(expected.getStatus()));
+    assertThat(observed.getMediaType(), is(expected.getMediaType()));
+    assertThat(observed.getEntity(), is(expected.getEntity()));
+    assertThat(observed.getHeaderString(HttpHeaders.WWW_AUTHENTICATE),
+        is(expected.getHeaderString(HttpHeaders.WWW_AUTHENTICATE)));
+  }
+
+  @Test
+  public void shouldBuildStacklessException() {
+    JWTUnauthorizedHandler unit = new JWTUnauthorizedHandler();
+
+    RuntimeException e1 = unit.buildException(PREFIX, REALM);
+    RuntimeException e2 = unit.buildException(PREFIX, "other");
+
+    assertThat(e1, is(instanceOf(WebApplicationException.class)));
+    assertThat(e1.getStackTrace().length, is(0));
+    assertThat(((WebApplicationException) e1).getResponse().getStatus(), is(401));
+    assertThat(((WebApplicationException) e2).getResponse()
+        .getHeaderString(HttpHeaders.WWW_AUTHENTICATE), is("Bearer realm=\"other\""));
+  }
+}
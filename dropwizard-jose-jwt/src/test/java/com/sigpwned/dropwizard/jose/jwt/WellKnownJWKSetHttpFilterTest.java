@@ -27,6 +27,8 @@ import static org.mockito.Mockito.when;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.servlet.FilterChain;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.WriteListener;
@@ -34,7 +36,12 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.ws.rs.core.MediaType;
 import org.junit.Test;
+import com.nimbusds.jose.jwk.Curve;
 import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.ECKeyGenerator;
+import com.nimbusds.jose.jwk.gen.OctetKeyPairGenerator;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
 
 public class WellKnownJWKSetHttpFilterTest {
   @Test
@@ -61,6 +68,52 @@ public class WellKnownJWKSetHttpFilterTest {
 
     WellKnownJWKSetHttpFilter unit = new WellKnownJWKSetHttpFilter(jwks);
 
+    assertThat(get(unit), is(jwks.toString()));
+  }
+
+  @Test
+  public void shouldReturnCurrentJwksIfKeysChange() throws Exception {
+    JWKSet before = new JWKSet();
+    JWKSet after = new JWKSet(new RSAKeyGenerator(2048).keyID("after").generate());
+
+    AtomicReference<JWKSet> jwks = new AtomicReference<>(before);
+
+    WellKnownJWKSetHttpFilter unit = new WellKnownJWKSetHttpFilter(jwks::get);
+
+    assertThat(get(unit), is(before.toString()));
+
+    jwks.set(after);
+
+    // Only the public key is published
+    assertThat(get(unit), is(after.toPublicJWKSet().toString()));
+    assertThat(unit.getJwks().getKeys().get(0).isPrivate(), is(false));
+  }
+
+  @Test
+  public void shouldPublishOnlyPublicEllipticCurveAndEdwardsCurveKeys() throws Exception {
+    JWKSet jwks = new JWKSet(Arrays.asList(new ECKeyGenerator(Curve.P_256).keyID("ec").generate(),
+        new OctetKeyPairGenerator(Curve.Ed25519).keyID("okp").generate()));
+
+    WellKnownJWKSetHttpFilter unit = new WellKnownJWKSetHttpFilter(jwks);
+
+    JWKSet published = JWKSet.parse(get(unit));
+
+    assertThat(published.getKeys().size(), is(2));
+    assertThat(published.getKeyByKeyId("ec").isPrivate(), is(false));
+    assertThat(published.getKeyByKeyId("okp").isPrivate(), is(false));
+    assertThat(published.getKeyByKeyId("okp").toOctetKeyPair().getCurve(), is(Curve.Ed25519));
+  }
+
+  @Test
+  public void shouldNeverPublishSecretKeys() throws Exception {
+    JWKSet jwks = new JWKSet(new OctetSequenceKeyGenerator(256).keyID("hmac").generate());
+
+    WellKnownJWKSetHttpFilter unit = new WellKnownJWKSetHttpFilter(jwks);
+
+    assertThat(JWKSet.parse(get(unit)).getKeys().isEmpty(), is(true));
+  }
+
+  private static String get(WellKnownJWKSetHttpFilter unit) throws Exception {
     HttpServletRequest request = mock(HttpServletRequest.class);
     when(request.getMethod()).thenReturn("GET");
     when(request.getRequestURI()).thenReturn(WellKnownJWKSetHttpFilter.WELL_KNOWN_JWKS_JSON_PATH);
@@ -92,6 +145,6 @@ public class WellKnownJWKSetHttpFilterTest {
 
     verify(response).setContentType(MediaType.APPLICATION_JSON);
 
-    assertThat(new String(buf.toByteArray(), StandardCharsets.UTF_8), is(jwks.toString()));
+    return new String(buf.toByteArray(), StandardCharsets.UTF_8);
   }
 }
@@ -0,0 +1,130 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.factory;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import com.codahale.metrics.Timer;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.IssuedJWT;
+import com.sigpwned.dropwizard.jose.jwt.JWTFactory;
+
+public class AsyncJWTFactoryTest {
+  public RSAKey key;
+
+  public DefaultJWTFactory factory;
+
+  @Before
+  public void setupAsyncJWTFactoryTest() throws Exception {
+    key = new RSAKeyGenerator(2048).keyID("key").generate();
+    factory = new DefaultJWTFactory(new JWKSet(key), "example", Duration.ofHours(1L));
+  }
+
+  @Test
+  public void shouldSignOnExecutor() throws Exception {
+    final Thread caller = Thread.currentThread();
+    final Thread[] signer = new Thread[1];
+
+    Timer timer = new Timer();
+
+    AsyncJWTFactory unit = new AsyncJWTFactory(factory, r -> {
+      Thread thread = new Thread(r);
+      signer[0] = thread;
+      thread.start();
+    }, timer);
+
+    JWTClaimsSet claims = new JWTClaimsSet.Builder().claim("alpha", "bravo").build();
+
+    SignedJWT observed =
+        unit.createAsync(claims).toCompletableFuture().get(1L, TimeUnit.MINUTES);
+
+    assertThat(observed.verify(new RSASSAVerifier(key)), is(true));
+    assertThat(observed.getJWTClaimsSet().getStringClaim("alpha"), is("bravo"));
+    assertThat(signer[0] != caller, is(true));
+    assertThat(timer.getCount(), is(1L));
+  }
+
+  @Test
+  public void shouldFailFastWhenQueueIsFull() throws Exception {
+    AsyncJWTFactory unit = new AsyncJWTFactory(factory, r -> {
+      throw new RejectedExecutionException();
+    });
+
+    try {
+      unit.createAsync(new JWTClaimsSet.Builder().build()).toCompletableFuture().get();
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), is(instanceOf(SigningQueueFullException.class)));
+    }
+  }
+
+  @Test
+  public void shouldIssueOnExecutor() throws Exception {
+    final Thread caller = Thread.currentThread();
+    final Thread[] signer = new Thread[1];
+
+    AsyncJWTFactory unit = new AsyncJWTFactory(factory, r -> {
+      Thread thread = new Thread(r);
+      signer[0] = thread;
+      thread.start();
+    });
+
+    JWTClaimsSet claims = new JWTClaimsSet.Builder().claim("alpha", "bravo").build();
+
+    IssuedJWT observed = unit.issueAsync(claims).toCompletableFuture().get(1L, TimeUnit.MINUTES);
+
+    assertThat(SignedJWT.parse(observed.getToken()).verify(new RSASSAVerifier(key)), is(true));
+    assertThat(observed.getClaims().getStringClaim("alpha"), is("bravo"));
+    assertThat(signer[0] != caller, is(true));
+  }
+
+  @Test
+  public void shouldCompleteExceptionallyWhenSigningThrowsError() throws Exception {
+    JWTFactory failing = new DefaultJWTFactory(new JWKSet(key), "example", Duration.ofHours(1L)) {
+      @Override
+      public SignedJWT create(JWTClaimsSet claims) {
+        throw new AssertionError("boom");
+      }
+    };
+
+    AsyncJWTFactory unit = new AsyncJWTFactory(failing, r -> new Thread(r).start());
+
+    try {
+      unit.createAsync(new JWTClaimsSet.Builder().build()).toCompletableFuture().get(1L,
+          TimeUnit.MINUTES);
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), is(instanceOf(AssertionError.class)));
+    }
+  }
+}
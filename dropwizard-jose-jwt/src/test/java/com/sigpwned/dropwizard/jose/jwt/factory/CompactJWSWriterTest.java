@@ -0,0 +1,120 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.factory;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.crypto.MACVerifier;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+import com.nimbusds.jose.util.Base64URL;
+import com.nimbusds.jose.util.JSONObjectUtils;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+public class CompactJWSWriterTest {
+  public OctetSequenceKey key;
+
+  public JWSHeader header;
+
+  public byte[] encodedHeader;
+
+  @Before
+  public void setupCompactJWSWriterTest() throws Exception {
+    key = new OctetSequenceKeyGenerator(256).generate();
+    header = new JWSHeader.Builder(JWSAlgorithm.HS256).keyID("key").build();
+    encodedHeader = (header.toBase64URL() + ".").getBytes(StandardCharsets.US_ASCII);
+  }
+
+  @Test
+  public void shouldWriteSameJSONAsNimbusForOneClaim() throws Exception {
+    Map<String, Object> nested = new LinkedHashMap<>();
+    nested.put("x", 1);
+    nested.put("y", Arrays.asList("a", null, 2.5F));
+
+    StringBuilder special = new StringBuilder();
+    for (char c = 0; c < 0x80; c++)
+      special.append(c);
+    special.append("\u00e9\u2028\u2029\u20ac\ud83d\ude00\ud800");
+
+    JWTClaimsSet[] examples = new JWTClaimsSet[] {
+        new JWTClaimsSet.Builder().claim("s", special.toString()).build(),
+        new JWTClaimsSet.Builder().claim("m", nested).build(),
+        new JWTClaimsSet.Builder().claim("a", new String[] {"p", "q"}).build(),
+        new JWTClaimsSet.Builder().claim("l", Long.MAX_VALUE).build(),
+        new JWTClaimsSet.Builder().claim("d", 1.0E20).build(),
+        new JWTClaimsSet.Builder().claim("b", true).build(),
+        new JWTClaimsSet.Builder().expirationTime(new Date(1500000L)).build(),
+        new JWTClaimsSet.Builder().audience("one").build(),
+        new JWTClaimsSet.Builder().audience(Arrays.asList("one")).build(),
+        new JWTClaimsSet.Builder().audience(Arrays.asList("one", "two")).build(),
+        new JWTClaimsSet.Builder().claim("n", null).build()};
+
+    for (JWTClaimsSet claims : examples) {
+      String observed = CompactJWSWriter.current().write(encodedHeader, header,
+          new MACSigner(key), claims);
+
+      assertThat(observed.split("\\.")[1],
+          is(Base64URL.encode(claims.toPayload().toBytes()).toString()));
+    }
+  }
+
+  @Test
+  public void shouldWriteValidSignedToken() throws Exception {
+    JWTClaimsSet claims = new JWTClaimsSet.Builder().issuer("example").jwtID("id")
+        .issueTime(new Date()).expirationTime(new Date()).claim("alpha", "bravo")
+        .claim("charlie", 3).build();
+
+    String observed =
+        CompactJWSWriter.current().write(encodedHeader, header, new MACSigner(key), claims);
+
+    SignedJWT jwt = SignedJWT.parse(observed);
+    assertThat(jwt.verify(new MACVerifier(key)), is(true));
+    assertThat(jwt.getHeader().toBase64URL().toString(), is(header.toBase64URL().toString()));
+    assertThat(JSONObjectUtils.parse(jwt.getPayload().toString()),
+        is(JSONObjectUtils.parse(claims.toPayload().toString())));
+  }
+
+  @Test
+  public void shouldGiveUpOnUnsupportedValues() throws Exception {
+    JWTClaimsSet[] examples =
+        new JWTClaimsSet[] {new JWTClaimsSet.Builder().claim("nan", Double.NaN).build(),
+            new JWTClaimsSet.Builder().claim("object", new Object()).build(),
+            new JWTClaimsSet.Builder().claim("ints", new int[] {1, 2}).build()};
+
+    for (JWTClaimsSet claims : examples) {
+      String observed = CompactJWSWriter.current().write(encodedHeader, header,
+          new MACSigner(key), claims);
+
+      assertThat(observed, is(nullValue()));
+    }
+  }
+}
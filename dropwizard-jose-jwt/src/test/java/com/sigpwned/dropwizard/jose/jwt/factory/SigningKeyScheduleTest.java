@@ -0,0 +1,104 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.factory;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.Before;
+import org.junit.Test;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+
+public class SigningKeyScheduleTest {
+  public static final Instant JANUARY = Instant.parse("2022-01-01T00:00:00Z");
+
+  public static final Instant FEBRUARY = Instant.parse("2022-02-01T00:00:00Z");
+
+  public static final Duration TOKEN_LIFETIME = Duration.ofHours(1L);
+
+  public RSAKey january;
+  public RSAKey february;
+  public JWKSet jwks;
+
+  @Before
+  public void setupSigningKeyScheduleTest() throws Exception {
+    january = new RSAKeyGenerator(2048).keyID("2022-01-01").notBeforeTime(Date.from(JANUARY))
+        .generate();
+    february = new RSAKeyGenerator(2048).keyID("2022-02-01").notBeforeTime(Date.from(FEBRUARY))
+        .generate();
+    jwks = new JWKSet(Arrays.asList(february, january));
+  }
+
+  @Test
+  public void shouldRotateByNotBeforeTime() {
+    SigningKeySchedule unit = new SigningKeySchedule(jwks, JWSAlgorithm.RS256, TOKEN_LIFETIME);
+
+    assertThat(unit.getActiveKey(JANUARY.minusSeconds(1L)).getKeyID(), is("2022-01-01"));
+    assertThat(unit.getActiveKey(JANUARY).getKeyID(), is("2022-01-01"));
+    assertThat(unit.getActiveKey(FEBRUARY.minusSeconds(1L)).getKeyID(), is("2022-01-01"));
+    assertThat(unit.getActiveKey(FEBRUARY).getKeyID(), is("2022-02-01"));
+  }
+
+  @Test
+  public void shouldKeepRetiredKeysForOneTokenLifetime() {
+    SigningKeySchedule unit = new SigningKeySchedule(jwks, JWSAlgorithm.RS256, TOKEN_LIFETIME);
+
+    assertThat(keyIDs(unit.getVerificationKeys(FEBRUARY)),
+        is(Arrays.asList("2022-02-01", "2022-01-01")));
+    assertThat(keyIDs(unit.getVerificationKeys(FEBRUARY.plus(TOKEN_LIFETIME))),
+        is(Arrays.asList("2022-02-01", "2022-01-01")));
+    assertThat(keyIDs(unit.getVerificationKeys(FEBRUARY.plus(TOKEN_LIFETIME).plusSeconds(1L))),
+        is(Arrays.asList("2022-02-01")));
+  }
+
+  @Test
+  public void shouldPinSigningKey() {
+    SigningKeySchedule unit =
+        new SigningKeySchedule(jwks, JWSAlgorithm.RS256, TOKEN_LIFETIME, "2022-01-01");
+
+    assertThat(unit.getActiveKey(FEBRUARY.plus(Duration.ofDays(30L))).getKeyID(),
+        is("2022-01-01"));
+    assertThat(keyIDs(unit.getVerificationKeys(FEBRUARY.plus(Duration.ofDays(30L)))),
+        is(Arrays.asList("2022-02-01", "2022-01-01")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectUnknownSigningKey() {
+    new SigningKeySchedule(jwks, JWSAlgorithm.RS256, TOKEN_LIFETIME, "2022-03-01");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectPublicKeysOnly() {
+    new SigningKeySchedule(jwks.toPublicJWKSet(), JWSAlgorithm.RS256, TOKEN_LIFETIME);
+  }
+
+  private static List<String> keyIDs(JWKSet jwks) {
+    return jwks.getKeys().stream().map(JWK::getKeyID).collect(Collectors.toList());
+  }
+}
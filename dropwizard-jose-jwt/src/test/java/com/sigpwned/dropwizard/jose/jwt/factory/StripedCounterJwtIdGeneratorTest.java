@@ -0,0 +1,70 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.factory;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.Test;
+
+public class StripedCounterJwtIdGeneratorTest {
+  @Test
+  public void shouldGenerateUniqueIdsAcrossThreads() throws Exception {
+    final int threads = 8;
+    final int idsPerThread = 1000;
+
+    StripedCounterJwtIdGenerator unit = new StripedCounterJwtIdGenerator("node", 4);
+
+    Set<String> ids = ConcurrentHashMap.newKeySet();
+    List<Thread> workers = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      workers.add(new Thread(() -> {
+        for (int j = 0; j < idsPerThread; j++)
+          ids.add(unit.generateJwtID());
+      }));
+    }
+    for (Thread worker : workers)
+      worker.start();
+    for (Thread worker : workers)
+      worker.join();
+
+    assertThat(ids.size(), is(threads * idsPerThread));
+    assertThat(ids.stream().allMatch(id -> id.startsWith("node-")), is(true));
+  }
+
+  @Test
+  public void shouldRoundStripesUpToPowerOfTwo() {
+    assertThat(new StripedCounterJwtIdGenerator("node", 1).getStripes(), is(1));
+    assertThat(new StripedCounterJwtIdGenerator("node", 5).getStripes(), is(8));
+    assertThat(new StripedCounterJwtIdGenerator("node", 8).getStripes(), is(8));
+  }
+
+  @Test
+  public void shouldUseDifferentRandomNodes() {
+    String a = new StripedCounterJwtIdGenerator().getNode();
+    String b = new StripedCounterJwtIdGenerator().getNode();
+
+    assertThat(a.length(), is(13));
+    assertThat(a.equals(b), is(false));
+  }
+}
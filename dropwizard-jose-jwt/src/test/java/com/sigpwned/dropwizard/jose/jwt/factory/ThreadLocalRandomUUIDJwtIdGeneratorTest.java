@@ -0,0 +1,42 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.factory;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.util.UUID;
+import org.junit.Test;
+
+public class ThreadLocalRandomUUIDJwtIdGeneratorTest {
+  @Test
+  public void shouldGenerateRandomUUIDs() {
+    ThreadLocalRandomUUIDJwtIdGenerator unit = new ThreadLocalRandomUUIDJwtIdGenerator();
+
+    String a = unit.generateJwtID();
+    String b = unit.generateJwtID();
+
+    UUID uuid = UUID.fromString(a);
+    assertThat(uuid.toString(), is(a));
+    assertThat(uuid.version(), is(4));
+    assertThat(uuid.variant(), is(2));
+    assertThat(a, is(not(b)));
+  }
+}
@@ -0,0 +1,70 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.factory;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.time.Instant;
+import org.junit.Test;
+
+public class UlidJwtIdGeneratorTest {
+  /**
+   * The example timestamp from the ULID spec
+   */
+  public static final Instant NOW = Instant.ofEpochMilli(1469918176385L);
+
+  @Test
+  public void shouldEncodeTimestampPrefix() {
+    UlidJwtIdGenerator unit = new UlidJwtIdGenerator() {
+      @Override
+      protected Instant now() {
+        return NOW;
+      }
+    };
+
+    String a = unit.generateJwtID();
+    String b = unit.generateJwtID();
+
+    assertThat(a.length(), is(UlidJwtIdGenerator.LENGTH));
+    assertThat(a.substring(0, 10), is("01ARYZ6S41"));
+    assertThat(a.matches("[0-9A-HJKMNP-TV-Z]{26}"), is(true));
+    assertThat(b.substring(0, 10), is("01ARYZ6S41"));
+    assertThat(a, is(not(b)));
+  }
+
+  @Test
+  public void shouldSortByTime() {
+    final Instant[] now = new Instant[] {NOW};
+
+    UlidJwtIdGenerator unit = new UlidJwtIdGenerator() {
+      @Override
+      protected Instant now() {
+        return now[0];
+      }
+    };
+
+    String earlier = unit.generateJwtID();
+    now[0] = NOW.plusMillis(1L);
+    String later = unit.generateJwtID();
+
+    assertThat(earlier.compareTo(later) < 0, is(true));
+  }
+}
@@ -0,0 +1,95 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.keys;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Base64;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+
+public class JWKSetCacheTest {
+  public static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+
+  public static final String OTHER_KEY = Base64.getEncoder().encodeToString(new byte[16]);
+
+  public File cacheFile;
+  public JWKSet jwks;
+  public byte[] checksum;
+
+  @Before
+  public void setupJWKSetCacheTest() throws Exception {
+    cacheFile = File.createTempFile("keys.", ".cache");
+    cacheFile.delete();
+    jwks = new JWKSet(new RSAKeyGenerator(2048).keyID("alpha").generate());
+    checksum = new byte[JWKSetCache.CHECKSUM_LENGTH];
+    Arrays.fill(checksum, (byte) 1);
+  }
+
+  @After
+  public void cleanupJWKSetCacheTest() {
+    cacheFile.delete();
+  }
+
+  @Test
+  public void shouldReadWhatItWrote() throws Exception {
+    JWKSetCache unit = new JWKSetCache(cacheFile, JWKSetCache.parseKey(KEY));
+
+    assertThat(unit.read(checksum), is(nullValue()));
+
+    unit.write(checksum, jwks);
+
+    JWKSet cached = unit.read(checksum);
+    assertThat(cached.toJSONObject(false), is(jwks.toJSONObject(false)));
+    assertThat(cached.getKeys().get(0).isPrivate(), is(true));
+  }
+
+  @Test
+  public void shouldIgnoreCacheForDifferentKeyStore() throws Exception {
+    JWKSetCache unit = new JWKSetCache(cacheFile, JWKSetCache.parseKey(KEY));
+
+    unit.write(checksum, jwks);
+
+    byte[] otherChecksum = checksum.clone();
+    otherChecksum[0] = (byte) 2;
+
+    assertThat(unit.read(otherChecksum), is(nullValue()));
+  }
+
+  @Test
+  public void shouldIgnoreCacheForDifferentKey() throws Exception {
+    new JWKSetCache(cacheFile, JWKSetCache.parseKey(KEY)).write(checksum, jwks);
+
+    JWKSetCache unit = new JWKSetCache(cacheFile, JWKSetCache.parseKey(OTHER_KEY));
+
+    assertThat(unit.read(checksum), is(nullValue()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectShortKey() {
+    JWKSetCache.parseKey(Base64.getEncoder().encodeToString(new byte[8]));
+  }
+}
@@ -0,0 +1,97 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.keys;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import com.nimbusds.jose.jwk.JWKSet;
+
+public class KeyRegistryTest {
+  @Test
+  public void shouldLoadOnceForConcurrentCallers() throws Exception {
+    final int threads = 8;
+    final AtomicInteger loads = new AtomicInteger();
+    final CountDownLatch go = new CountDownLatch(1);
+
+    KeyRegistry unit = new KeyRegistry(() -> {
+      loads.incrementAndGet();
+      return new JWKSet();
+    });
+
+    assertThat(unit.getKeyRingIfLoaded(), is(nullValue()));
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<KeyRing>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          go.await();
+          return unit.getKeyRing();
+        }));
+      }
+
+      go.countDown();
+
+      KeyRing first = futures.get(0).get(10L, TimeUnit.SECONDS);
+      for (Future<KeyRing> future : futures)
+        assertThat(future.get(10L, TimeUnit.SECONDS), is(sameInstance(first)));
+      assertThat(unit.getKeyRingIfLoaded(), is(sameInstance(first)));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertThat(loads.get(), is(1));
+  }
+
+  @Test
+  public void shouldRetryAfterFailedLoad() throws Exception {
+    final AtomicInteger loads = new AtomicInteger();
+
+    KeyRegistry unit = new KeyRegistry(() -> {
+      if (loads.incrementAndGet() == 1)
+        throw new IOException("simulated failure");
+      return new JWKSet();
+    });
+
+    try {
+      unit.getKeyRing();
+      throw new AssertionError("expected load to fail");
+    } catch (IOException e) {
+      // expected
+    }
+
+    KeyRing keyRing = unit.getKeyRing();
+
+    assertThat(unit.getKeyRing(), is(sameInstance(keyRing)));
+    assertThat(loads.get(), is(2));
+  }
+}
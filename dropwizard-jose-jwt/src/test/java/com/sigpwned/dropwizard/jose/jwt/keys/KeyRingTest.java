@@ -0,0 +1,57 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.keys;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import com.nimbusds.jose.jwk.JWKSet;
+
+public class KeyRingTest {
+  @Test
+  public void shouldSwapSnapshotAndNotifyListeners() {
+    final JWKSet before = new JWKSet();
+    final JWKSet after = new JWKSet();
+
+    KeyRing unit = new KeyRing(before);
+
+    assertThat(unit.current().getVersion(), is(1L));
+    assertThat(unit.current().getJwks(), is(sameInstance(before)));
+
+    List<KeySnapshot> notified = new ArrayList<>();
+    unit.addListener(s -> {
+      throw new IllegalStateException("simulated failure");
+    });
+    unit.addListener(notified::add);
+
+    KeySnapshot snapshot = unit.update(after);
+
+    assertThat(snapshot.getVersion(), is(2L));
+    assertThat(snapshot.getJwks(), is(sameInstance(after)));
+    assertThat(unit.current(), is(sameInstance(snapshot)));
+
+    // A failing listener must not stop the others from hearing about the change
+    assertThat(notified.size(), is(1));
+    assertThat(notified.get(0), is(sameInstance(snapshot)));
+  }
+}
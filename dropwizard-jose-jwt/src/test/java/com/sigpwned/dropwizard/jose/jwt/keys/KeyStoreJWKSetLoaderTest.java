@@ -0,0 +1,115 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.keys;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenTool;
+import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenToolConfiguration;
+import com.sigpwned.dropwizard.jose.jwt.util.KeyStores;
+
+public class KeyStoreJWKSetLoaderTest {
+  public static final String PASSWORD = "password";
+
+  public static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+
+  public File keyStoreFile;
+  public File cacheFile;
+
+  @Before
+  public void setupKeyStoreJWKSetLoaderTest() throws Exception {
+    keyStoreFile = File.createTempFile("keystore.", ".p12");
+
+    KeygenToolConfiguration ktc = new KeygenToolConfiguration();
+    ktc.realm = "realm";
+    ktc.password = PASSWORD;
+    ktc.out = new PrintStream(new FileOutputStream(keyStoreFile));
+
+    KeygenTool.main(ktc);
+
+    cacheFile = File.createTempFile("keys.", ".cache");
+    cacheFile.delete();
+  }
+
+  @After
+  public void cleanupKeyStoreJWKSetLoaderTest() {
+    keyStoreFile.delete();
+    cacheFile.delete();
+  }
+
+  @Test
+  public void shouldSkipKeyStoreDecryptionOnceCached() throws Exception {
+    KeyStoreJWKSetLoader unit = newLoader(PASSWORD);
+
+    JWKSet first = unit.load();
+    assertThat(unit.getLastTimings().containsKey(KeyStoreJWKSetLoader.DECRYPT_PHASE), is(true));
+    assertThat(unit.getLastTimings().containsKey(KeyStoreJWKSetLoader.CACHE_WRITE_PHASE),
+        is(true));
+    assertThat(cacheFile.isFile(), is(true));
+
+    // A wrong password proves that the key store is never decrypted
+    KeyStoreJWKSetLoader cached = newLoader("wrong");
+
+    JWKSet second = cached.load();
+    assertThat(cached.getLastTimings().containsKey(KeyStoreJWKSetLoader.DECRYPT_PHASE),
+        is(false));
+    assertThat(second.toJSONObject(false), is(first.toJSONObject(false)));
+  }
+
+  @Test
+  public void shouldLoadWithoutCache() throws Exception {
+    KeyStoreJWKSetLoader unit = new KeyStoreJWKSetLoader(KeygenTool.KEY_STORE_TYPE,
+        keyStoreFile.getAbsolutePath(), PASSWORD, null, null);
+
+    assertThat(unit.load().size(), is(1));
+    assertThat(unit.getLastTimings().keySet().toString(), is("[read, decrypt, convert]"));
+  }
+
+  @Test
+  public void shouldParseJwksWithoutPasswordOrCache() throws Exception {
+    JWKSet jwks = newLoader(PASSWORD).load();
+
+    // Keys from a secret manager often arrive inline, so go through the base64 path
+    String json = Base64.getEncoder()
+        .encodeToString(jwks.toString(false).getBytes(StandardCharsets.UTF_8));
+    cacheFile.delete();
+
+    KeyStoreJWKSetLoader unit = new KeyStoreJWKSetLoader(KeyStores.JWKS_TYPE, json, null, null,
+        new JWKSetCache(cacheFile, JWKSetCache.parseKey(KEY)));
+
+    assertThat(unit.load().toJSONObject(false), is(jwks.toJSONObject(false)));
+    assertThat(unit.getLastTimings().keySet().toString(), is("[read, parse]"));
+    assertThat(cacheFile.exists(), is(false));
+  }
+
+  private KeyStoreJWKSetLoader newLoader(String password) {
+    return new KeyStoreJWKSetLoader(KeygenTool.KEY_STORE_TYPE, keyStoreFile.getAbsolutePath(),
+        password, null, new JWKSetCache(cacheFile, JWKSetCache.parseKey(KEY)));
+  }
+}
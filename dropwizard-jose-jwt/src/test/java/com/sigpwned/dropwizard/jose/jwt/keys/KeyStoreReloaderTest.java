@@ -0,0 +1,183 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.keys;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.KeyStoreException;
+import java.time.Duration;
+import java.util.Collections;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.JWTFactory;
+import com.sigpwned.dropwizard.jose.jwt.factory.DefaultJWTFactory;
+import com.sigpwned.dropwizard.jose.jwt.factory.RandomUUIDJwtIdGenerator;
+import com.sigpwned.dropwizard.jose.jwt.factory.SigningKeySchedule;
+import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenTool;
+import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenToolConfiguration;
+import com.sigpwned.dropwizard.jose.jwt.util.KeyStores;
+import com.sigpwned.dropwizard.jose.jwt.verification.JWTVerifier;
+import com.sigpwned.dropwizard.jose.jwt.verification.ReloadableSignatureVerifier;
+import com.sigpwned.dropwizard.jose.jwt.verification.Verification.Failure;
+
+public class KeyStoreReloaderTest {
+  public File keyStoreFile;
+  public File oldKeyStoreFile;
+  public File newKeyStoreFile;
+
+  public static final String PASSWORD = "password";
+
+  public static final String ISSUER = "issuer";
+
+  public static final Duration TOKEN_LIFETIME = Duration.ofHours(1L);
+
+  public static final JWTClaimsSet NONE = new JWTClaimsSet.Builder().build();
+
+  @Before
+  public void setupKeyStoreReloaderTest() throws Exception {
+    oldKeyStoreFile = newKeyStore("old");
+    newKeyStoreFile = newKeyStore("new");
+    keyStoreFile = File.createTempFile("keystore.", ".p12");
+    Files.copy(oldKeyStoreFile.toPath(), keyStoreFile.toPath(),
+        StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  @After
+  public void cleanupKeyStoreReloaderTest() {
+    keyStoreFile.delete();
+    oldKeyStoreFile.delete();
+    newKeyStoreFile.delete();
+  }
+
+  @Test
+  public void shouldSwapKeysWhenFileChanges() throws Exception {
+    KeyRing keys = new KeyRing(load(keyStoreFile));
+    DefaultJWTFactory factory = newJWTFactory(keys);
+    JWTVerifier verifier = new JWTVerifier(ISSUER,
+        new ReloadableSignatureVerifier(JWSAlgorithm.RS256, factory::getJwks),
+        JWTVerifier.DEFAULT_VERIFICATION_ORDER);
+    KeyStoreReloader unit = newKeyStoreReloader(keys);
+
+    final String oldToken = factory.create(NONE).serialize();
+    assertThat(verifier.verify(oldToken).isVerified(), is(true));
+
+    // Nothing has changed yet
+    assertThat(unit.reload(false), is(false));
+
+    replaceKeyStore(newKeyStoreFile);
+
+    assertThat(unit.reload(false), is(true));
+    assertThat(keys.current().getVersion(), is(2L));
+
+    final SignedJWT newToken = factory.create(NONE);
+    assertThat(newToken.getHeader().getKeyID(), is("new"));
+    assertThat(verifier.verify(newToken.serialize()).isVerified(), is(true));
+    assertThat(verifier.verify(oldToken).getFailure(), is(Failure.NO_MATCHING_KEY));
+  }
+
+  @Test
+  public void shouldKeepKeysIfNewKeysAreInvalid() throws Exception {
+    KeyRing keys = new KeyRing(load(keyStoreFile));
+    KeyStoreReloader unit =
+        new KeyStoreReloader(keys, () -> new JWKSet(), KeyStoreReloaderTest::validate, null, null);
+
+    try {
+      unit.reload(true);
+      throw new AssertionError("expected reload to fail");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+
+    assertThat(keys.current().getVersion(), is(1L));
+    assertThat(keys.current().getJwks().getKeys().get(0).getKeyID(), is("old"));
+  }
+
+  @Test
+  public void shouldReloadFromTask() throws Exception {
+    KeyRing keys = new KeyRing(load(keyStoreFile));
+    KeyStoreReloader unit = newKeyStoreReloader(keys);
+
+    // The task reloads even if the file looks unchanged
+    Files.copy(newKeyStoreFile.toPath(), keyStoreFile.toPath(),
+        StandardCopyOption.REPLACE_EXISTING);
+
+    StringWriter output = new StringWriter();
+    new ReloadKeysTask(unit).execute(Collections.emptyMap(), new PrintWriter(output));
+
+    assertThat(output.toString().startsWith("Reloaded keys"), is(true));
+    assertThat(keys.current().getJwks().getKeys().get(0).getKeyID(), is("new"));
+  }
+
+  private KeyStoreReloader newKeyStoreReloader(KeyRing keys) {
+    return new KeyStoreReloader(keys, () -> load(keyStoreFile), KeyStoreReloaderTest::validate,
+        null, keyStoreFile);
+  }
+
+  private DefaultJWTFactory newJWTFactory(KeyRing keys) {
+    return new DefaultJWTFactory(keys, ISSUER, TOKEN_LIFETIME, JWTFactory.DEFAULT_SIGNING_ALGORITHM,
+        null, new RandomUUIDJwtIdGenerator());
+  }
+
+  private void replaceKeyStore(File replacement) throws Exception {
+    final long lastModified = keyStoreFile.lastModified();
+    Files.copy(replacement.toPath(), keyStoreFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    // File systems with coarse timestamps might not notice the change otherwise
+    keyStoreFile.setLastModified(lastModified + 2000L);
+  }
+
+  private static void validate(JWKSet jwks) {
+    new SigningKeySchedule(jwks, JWTFactory.DEFAULT_SIGNING_ALGORITHM, TOKEN_LIFETIME);
+  }
+
+  private static JWKSet load(File file) throws IOException {
+    try {
+      return JWKSet.load(KeyStores.loadKeyStore(file, PASSWORD), null);
+    } catch (KeyStoreException e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static File newKeyStore(String alias) throws Exception {
+    File result = File.createTempFile("keystore.", ".p12");
+
+    KeygenToolConfiguration ktc = new KeygenToolConfiguration();
+    ktc.realm = "realm";
+    ktc.password = PASSWORD;
+    ktc.keyAlias = alias;
+    ktc.out = new PrintStream(new FileOutputStream(result));
+
+    KeygenTool.main(ktc);
+
+    return result;
+  }
+}
@@ -0,0 +1,211 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.keys;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class RemoteJWKSetTest {
+  public static final Duration TIMEOUT = Duration.ofSeconds(5L);
+
+  public final AtomicReference<JWKSet> published = new AtomicReference<>();
+
+  public final AtomicInteger requests = new AtomicInteger();
+
+  public final AtomicReference<CountDownLatch> gate = new AtomicReference<>();
+
+  public final AtomicReference<Instant> now = new AtomicReference<>(Instant.now());
+
+  public HttpServer server;
+  public ExecutorService executor;
+  public URL url;
+  public RSAKey key1;
+  public RSAKey key2;
+
+  @Before
+  public void setupRemoteJWKSetTest() throws Exception {
+    key1 = new RSAKeyGenerator(2048).keyID("one").generate();
+    key2 = new RSAKeyGenerator(2048).keyID("two").generate();
+    published.set(new JWKSet(key1));
+
+    executor = Executors.newCachedThreadPool();
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/.well-known/jwks.json", this::handle);
+    server.setExecutor(executor);
+    server.start();
+
+    url = new URL("http://localhost:" + server.getAddress().getPort() + "/.well-known/jwks.json");
+  }
+
+  @After
+  public void cleanupRemoteJWKSetTest() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    requests.incrementAndGet();
+    try {
+      CountDownLatch latch = gate.get();
+      if (latch != null)
+        latch.await();
+      byte[] body = published.get().toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private RemoteJWKSet newUnit() {
+    return new RemoteJWKSet(url, Duration.ofMinutes(5L), Duration.ofSeconds(30L), TIMEOUT,
+        TIMEOUT) {
+      @Override
+      protected Instant now() {
+        return now.get();
+      }
+    };
+  }
+
+  @Test
+  public void shouldFetchOnceWhileFresh() throws Exception {
+    RemoteJWKSet unit = newUnit();
+
+    JWKSet first = unit.get();
+    JWKSet second = unit.get();
+
+    assertThat(first.getKeyByKeyId("one") != null, is(true));
+    assertThat(first.getKeyByKeyId("one").isPrivate(), is(false));
+    assertThat(second, is(sameInstance(first)));
+    assertThat(requests.get(), is(1));
+  }
+
+  @Test
+  public void shouldServeStaleKeysWhileRefreshing() throws Exception {
+    RemoteJWKSet unit = newUnit();
+
+    JWKSet first = unit.get();
+
+    published.set(new JWKSet(key2));
+    now.set(now.get().plus(Duration.ofMinutes(6L)));
+
+    assertThat(unit.get(), is(sameInstance(first)));
+
+    JWKSet refreshed = first;
+    for (int i = 0; i < 100 && refreshed == first; i++) {
+      Thread.sleep(50L);
+      refreshed = unit.get();
+    }
+
+    assertThat(refreshed, is(not(sameInstance(first))));
+    assertThat(refreshed.getKeyByKeyId("two") != null, is(true));
+    unit.stop();
+  }
+
+  @Test
+  public void shouldRateLimitRefetches() throws Exception {
+    RemoteJWKSet unit = newUnit();
+
+    unit.get();
+    unit.refetch();
+    unit.refetch();
+
+    assertThat(requests.get(), is(1));
+
+    now.set(now.get().plus(Duration.ofSeconds(31L)));
+    published.set(new JWKSet(key2));
+
+    assertThat(unit.refetch().getKeyByKeyId("two") != null, is(true));
+    assertThat(requests.get(), is(2));
+  }
+
+  @Test
+  public void shouldCoalesceConcurrentRefetches() throws Exception {
+    RemoteJWKSet unit = newUnit();
+
+    unit.get();
+
+    now.set(now.get().plus(Duration.ofSeconds(31L)));
+    published.set(new JWKSet(key2));
+    CountDownLatch latch = new CountDownLatch(1);
+    gate.set(latch);
+
+    ExecutorService callers = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<JWKSet>> results = new ArrayList<>();
+      for (int i = 0; i < 8; i++)
+        results.add(callers.submit(unit::refetch));
+
+      // Give everyone a chance to pile up behind the first fetch
+      for (int i = 0; i < 100 && requests.get() < 2; i++)
+        Thread.sleep(10L);
+      Thread.sleep(100L);
+      latch.countDown();
+
+      JWKSet first = results.get(0).get(10L, TimeUnit.SECONDS);
+      for (Future<JWKSet> result : results)
+        assertThat(result.get(10L, TimeUnit.SECONDS), is(sameInstance(first)));
+      assertThat(first.getKeyByKeyId("two") != null, is(true));
+    } finally {
+      callers.shutdownNow();
+    }
+
+    assertThat(requests.get(), is(2));
+  }
+
+  @Test(expected = UncheckedIOException.class)
+  public void shouldFailWhenNeverFetched() throws Exception {
+    server.stop(0);
+    newUnit().get();
+  }
+}
@@ -0,0 +1,252 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.keys;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.codahale.metrics.MetricRegistry;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.sigpwned.dropwizard.jose.jwt.JWTFactory;
+import com.sigpwned.dropwizard.jose.jwt.keys.TenantKeySets.TenantKeys;
+import com.sigpwned.dropwizard.jose.jwt.util.KeyStores;
+
+public class TenantKeySetsTest {
+  public static final String ISSUER = "issuer";
+
+  public static final Duration LIFETIME = Duration.ofHours(1L);
+
+  public File directory;
+
+  @Before
+  public void setupTenantKeySetsTest() throws Exception {
+    directory = Files.createTempDirectory("tenants.").toFile();
+    for (String tenant : new String[] {"alpha", "bravo", "charlie"})
+      writeTenant(tenant, false);
+  }
+
+  @After
+  public void cleanupTenantKeySetsTest() {
+    for (File file : directory.listFiles())
+      file.delete();
+    directory.delete();
+  }
+
+  private void writeTenant(String tenant, boolean publicOnly) throws Exception {
+    JWKSet jwks = new JWKSet(
+        new RSAKeyGenerator(2048).keyID(tenant).keyUse(KeyUse.SIGNATURE).generate());
+    Files.write(new File(directory, tenant + ".json").toPath(),
+        jwks.toString(publicOnly).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private TenantKeySets.Loader newLoader() {
+    return TenantKeySets.directoryLoader(directory, ".json", KeyStores.JWKS_TYPE, null, null);
+  }
+
+  @Test
+  public void shouldLoadTenantOnce() throws Exception {
+    TenantKeySets unit = new TenantKeySets(newLoader(), ISSUER, LIFETIME);
+
+    TenantKeys alpha = unit.get("alpha");
+
+    assertThat(alpha.getJwks().getKeyByKeyId("alpha") != null, is(true));
+    assertThat(alpha.getJWTFactory().create(new JWTClaimsSet.Builder().build()).getHeader()
+        .getKeyID(), is("alpha"));
+    assertThat(unit.get("alpha"), is(sameInstance(alpha)));
+    assertThat(unit.stats().loadCount(), is(1L));
+    assertThat(unit.getLoadTimer().getCount(), is(1L));
+  }
+
+  @Test
+  public void shouldReturnNullForUnknownTenant() throws Exception {
+    TenantKeySets unit = new TenantKeySets(newLoader(), ISSUER, LIFETIME);
+
+    assertThat(unit.get("delta"), is(nullValue()));
+    assertThat(unit.get("../" + directory.getName() + "/alpha"), is(nullValue()));
+    assertThat(unit.size(), is(0L));
+  }
+
+  @Test
+  public void shouldLoadUnknownTenantOnce() throws Exception {
+    final AtomicInteger loads = new AtomicInteger();
+    final TenantKeySets.Loader loader = newLoader();
+
+    TenantKeySets unit = new TenantKeySets(tenant -> {
+      loads.incrementAndGet();
+      return loader.load(tenant);
+    }, ISSUER, LIFETIME);
+
+    for (int i = 0; i < 3; i++)
+      assertThat(unit.get("delta"), is(nullValue()));
+
+    assertThat(loads.get(), is(1));
+    assertThat(unit.negativeStats().hitCount(), is(2L));
+
+    // Once we are told the tenant has changed, we look for it again
+    writeTenant("delta", false);
+    unit.invalidate("delta");
+
+    assertThat(unit.get("delta").getJwks().getKeyByKeyId("delta") != null, is(true));
+    assertThat(loads.get(), is(2));
+  }
+
+  @Test
+  public void shouldLoadBrokenTenantOnce() throws Exception {
+    final AtomicInteger loads = new AtomicInteger();
+
+    TenantKeySets unit = new TenantKeySets(tenant -> {
+      loads.incrementAndGet();
+      throw new IOException("broken");
+    }, ISSUER, LIFETIME);
+
+    for (int i = 0; i < 3; i++) {
+      try {
+        unit.get("alpha");
+        fail("expected the tenant to fail to load");
+      } catch (IOException e) {
+        assertThat(e.getCause().getMessage(), is("broken"));
+      }
+    }
+
+    assertThat(loads.get(), is(1));
+  }
+
+  @Test
+  public void shouldForgetUnknownTenantAfterNegativeTtl() throws Exception {
+    final AtomicInteger loads = new AtomicInteger();
+
+    TenantKeySets unit = new TenantKeySets(tenant -> {
+      loads.incrementAndGet();
+      return null;
+    }, ISSUER, LIFETIME, JWTFactory.DEFAULT_SIGNING_ALGORITHM, TenantKeySets.DEFAULT_MAXIMUM_SIZE,
+        TenantKeySets.DEFAULT_NEGATIVE_MAXIMUM_SIZE, Duration.ofMillis(50L));
+
+    unit.get("delta");
+    Thread.sleep(100L);
+    unit.get("delta");
+
+    assertThat(loads.get(), is(2));
+  }
+
+  @Test
+  public void shouldNotBuildFactoryForPublicKeys() throws Exception {
+    writeTenant("delta", true);
+
+    TenantKeySets unit = new TenantKeySets(newLoader(), ISSUER, LIFETIME);
+
+    assertThat(unit.get("delta").getJWTFactory(), is(nullValue()));
+  }
+
+  @Test
+  public void shouldLoadConcurrentRequestsOnce() throws Exception {
+    final AtomicInteger loads = new AtomicInteger();
+    final CountDownLatch gate = new CountDownLatch(1);
+    final TenantKeySets.Loader loader = newLoader();
+
+    TenantKeySets unit = new TenantKeySets(tenant -> {
+      loads.incrementAndGet();
+      try {
+        gate.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+      return loader.load(tenant);
+    }, ISSUER, LIFETIME);
+
+    ExecutorService callers = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<TenantKeys>> results = new ArrayList<>();
+      for (int i = 0; i < 8; i++)
+        results.add(callers.submit(() -> unit.get("alpha")));
+
+      Thread.sleep(100L);
+      gate.countDown();
+
+      TenantKeys first = results.get(0).get(10L, TimeUnit.SECONDS);
+      for (Future<TenantKeys> result : results)
+        assertThat(result.get(10L, TimeUnit.SECONDS), is(sameInstance(first)));
+    } finally {
+      callers.shutdownNow();
+    }
+
+    assertThat(loads.get(), is(1));
+  }
+
+  @Test
+  public void shouldEvictTenantsBeyondMaximumSize() throws Exception {
+    TenantKeySets unit = new TenantKeySets(newLoader(), ISSUER, LIFETIME,
+        JWTFactory.DEFAULT_SIGNING_ALGORITHM, 1L);
+
+    unit.get("alpha");
+    unit.get("bravo");
+    unit.get("charlie");
+
+    for (int i = 0; i < 100 && unit.stats().evictionCount() < 2L; i++)
+      Thread.sleep(10L);
+
+    assertThat(unit.stats().evictionCount(), is(2L));
+    assertThat(unit.size(), is(1L));
+  }
+
+  @Test
+  public void shouldRegisterMetrics() throws Exception {
+    MetricRegistry metrics = new MetricRegistry();
+
+    TenantKeySets unit = new TenantKeySets(newLoader(), ISSUER, LIFETIME);
+    unit.registerMetrics(metrics, "tenants");
+
+    unit.get("alpha");
+    unit.get("alpha");
+
+    assertThat(metrics.timer("tenants.load").getCount(), is(1L));
+    assertThat(metrics.getGauges().get("tenants.hits").getValue(), is(1L));
+    assertThat(metrics.getGauges().get("tenants.misses").getValue(), is(1L));
+    assertThat(metrics.getGauges().get("tenants.size").getValue(), is(1L));
+
+    unit.get("delta");
+    unit.get("delta");
+
+    assertThat(metrics.getGauges().get("tenants.negativeHits").getValue(), is(1L));
+    assertThat(metrics.getGauges().get("tenants.negativeSize").getValue(), is(1L));
+  }
+}
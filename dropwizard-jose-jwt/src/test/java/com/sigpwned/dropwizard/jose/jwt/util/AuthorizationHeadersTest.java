@@ -0,0 +1,65 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import org.junit.Test;
+
+public class AuthorizationHeadersTest {
+  public static final String SCHEME = "Bearer";
+
+  @Test
+  public void shouldExtractCredentials() {
+    assertThat(AuthorizationHeaders.extractCredentials("Bearer abc.def.ghi", SCHEME),
+        is("abc.def.ghi"));
+  }
+
+  @Test
+  public void shouldMatchSchemeCaseInsensitively() {
+    assertThat(AuthorizationHeaders.extractCredentials("bEARER abc.def.ghi", SCHEME),
+        is("abc.def.ghi"));
+  }
+
+  @Test
+  public void shouldIgnoreWhitespaceAroundCredentials() {
+    assertThat(AuthorizationHeaders.extractCredentials("Bearer   abc.def.ghi \t", SCHEME),
+        is("abc.def.ghi"));
+  }
+
+  @Test
+  public void shouldRejectMalformedHeaders() {
+    assertThat(AuthorizationHeaders.extractCredentials(null, SCHEME), is(nullValue()));
+    assertThat(AuthorizationHeaders.extractCredentials("", SCHEME), is(nullValue()));
+    assertThat(AuthorizationHeaders.extractCredentials("Bearer", SCHEME), is(nullValue()));
+    assertThat(AuthorizationHeaders.extractCredentials("Bearer ", SCHEME), is(nullValue()));
+    assertThat(AuthorizationHeaders.extractCredentials("Bearerabc", SCHEME), is(nullValue()));
+    assertThat(AuthorizationHeaders.extractCredentials("abc.def.ghi", SCHEME), is(nullValue()));
+  }
+
+  @Test
+  public void shouldRejectOtherSchemes() {
+    assertThat(AuthorizationHeaders.extractCredentials("Basic YWxhZGRpbjpvcGVuc2VzYW1l", SCHEME),
+        is(nullValue()));
+    assertThat(AuthorizationHeaders.extractCredentials("Bear abc.def.ghi", SCHEME),
+        is(nullValue()));
+  }
+}
@@ -21,14 +21,41 @@ package com.sigpwned.dropwizard.jose.jwt.util;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
 import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import javax.crypto.spec.SecretKeySpec;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.JWSObject;
+import com.nimbusds.jose.Payload;
+import com.nimbusds.jose.crypto.Ed25519Signer;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeyType;
 import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenTool;
 import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenToolConfiguration;
 
@@ -68,4 +95,98 @@ public class KeyStoresTest {
 
     assertThat(key.getAlgorithm(), is(KeygenTool.KEY_ALGORITHM));
   }
+
+  @Test
+  public void shouldLoadSameKeysFromKeyStoreAndJwks() throws Exception {
+    JWKSet fromKeyStore = KeyStores.loadJWKSet(KeyStores.DEFAULT_TYPE,
+        ByteSource.fromFile(keyStoreFile), PASSWORD, null);
+
+    byte[] json = fromKeyStore.toString(false).getBytes(StandardCharsets.UTF_8);
+
+    JWKSet fromJwks =
+        KeyStores.loadJWKSet(KeyStores.JWKS_TYPE, ByteSource.fromBytes(json), null, null);
+
+    assertThat(fromJwks.toJSONObject(false), is(fromKeyStore.toJSONObject(false)));
+    assertThat(fromJwks.getKeyByKeyId(KEY_ALIAS).isPrivate(), is(true));
+  }
+
+  @Test
+  public void shouldLoadEd25519KeysFromKeyStore() throws Exception {
+    KeyPair kp = KeyPairGenerator.getInstance("Ed25519").generateKeyPair();
+
+    Instant now = Instant.now();
+    X500Name dn = new X500Name("CN=realm");
+    X509Certificate cert = new JcaX509CertificateConverter().getCertificate(
+        new JcaX509v3CertificateBuilder(dn, BigInteger.ONE, Date.from(now),
+            Date.from(now.plus(Duration.ofDays(30L))), dn, kp.getPublic())
+                .build(new JcaContentSignerBuilder("Ed25519").build(kp.getPrivate())));
+
+    KeyStore store = KeyStore.getInstance(KeyStores.DEFAULT_TYPE);
+    store.load(null, PASSWORD.toCharArray());
+    store.setKeyEntry(KEY_ALIAS, kp.getPrivate(), null, new Certificate[] {cert});
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    store.store(bytes, PASSWORD.toCharArray());
+
+    JWKSet jwks = KeyStores.loadJWKSet(KeyStores.DEFAULT_TYPE,
+        ByteSource.fromBytes(bytes.toByteArray()), PASSWORD, null);
+
+    OctetKeyPair jwk = jwks.getKeyByKeyId(KEY_ALIAS).toOctetKeyPair();
+    assertThat(jwk.getCurve(), is(Curve.Ed25519));
+    assertThat(jwk.isPrivate(), is(true));
+    assertThat(jwk.getNotBeforeTime(), is(cert.getNotBefore()));
+
+    // The recovered key signs, and the certificate's public key verifies
+    JWSObject jws = new JWSObject(new JWSHeader(JWSAlgorithm.EdDSA), new Payload("hello"));
+    jws.sign(new Ed25519Signer(jwk));
+    Signature verifier = Signature.getInstance("Ed25519");
+    verifier.initVerify(cert.getPublicKey());
+    verifier.update(jws.getSigningInput());
+    assertThat(verifier.verify(jws.getSignature().decode()), is(true));
+  }
+
+  @Test
+  public void shouldLoadEveryKeyTypeFromKeygenTool() throws Exception {
+    for (KeyType keyType : KeyType.values()) {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+      KeygenToolConfiguration ktc = new KeygenToolConfiguration();
+      ktc.realm = "realm";
+      ktc.password = PASSWORD;
+      ktc.out = new PrintStream(bytes);
+      ktc.err = null;
+      ktc.keyAlias = KEY_ALIAS;
+      ktc.keyType = keyType;
+
+      KeygenTool.main(ktc);
+
+      JWKSet jwks = KeyStores.loadJWKSet(KeyStores.DEFAULT_TYPE,
+          ByteSource.fromBytes(bytes.toByteArray()), PASSWORD, null);
+
+      assertThat(keyType.toString(), jwks.getKeyByKeyId(KEY_ALIAS).isPrivate(), is(true));
+    }
+  }
+
+  @Test
+  public void shouldLoadSecretKeysFromKeyStore() throws Exception {
+    byte[] secret = new byte[32];
+    new SecureRandom().nextBytes(secret);
+
+    KeyStore store = KeyStore.getInstance(KeyStores.DEFAULT_TYPE);
+    store.load(null, PASSWORD.toCharArray());
+    store.setEntry(KEY_ALIAS, new KeyStore.SecretKeyEntry(new SecretKeySpec(secret, "HmacSHA256")),
+        new KeyStore.PasswordProtection(PASSWORD.toCharArray()));
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    store.store(bytes, PASSWORD.toCharArray());
+
+    JWKSet jwks = KeyStores.loadJWKSet(KeyStores.DEFAULT_TYPE,
+        ByteSource.fromBytes(bytes.toByteArray()), PASSWORD, null);
+
+    assertThat(jwks.getKeys().size(), is(1));
+    assertThat(jwks.getKeyByKeyId(KEY_ALIAS).toOctetSequenceKey().toByteArray(), is(secret));
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldRequirePasswordForKeyStore() throws Exception {
+    KeyStores.loadJWKSet(KeyStores.DEFAULT_TYPE, ByteSource.fromFile(keyStoreFile), null, null);
+  }
 }
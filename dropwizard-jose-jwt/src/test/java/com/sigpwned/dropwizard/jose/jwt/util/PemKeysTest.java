@@ -0,0 +1,170 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import org.junit.Test;
+import com.nimbusds.jose.crypto.RSASSAVerifier;
+import com.nimbusds.jose.jwk.ECKey;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.factory.DefaultJWTFactory;
+import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenTool;
+import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenToolConfiguration;
+
+public class PemKeysTest {
+  public static final String PASSWORD = "password";
+
+  @Test
+  public void shouldReadPkcs8RsaPrivateKey() throws Exception {
+    KeyPair keyPair = rsa();
+
+    JWKSet jwks = PemKeys.parse(pem("PRIVATE KEY", keyPair.getPrivate().getEncoded()));
+
+    RSAKey jwk = (RSAKey) jwks.getKeys().get(0);
+    assertThat(jwks.size(), is(1));
+    assertThat(jwk.isPrivate(), is(true));
+    assertThat(jwk.toRSAPublicKey(), is(keyPair.getPublic()));
+    assertThat(jwk.getKeyID(), is(jwk.computeThumbprint().toString()));
+
+    // The keys are good enough to sign and verify tokens
+    SignedJWT jwt = new DefaultJWTFactory(jwks, "issuer", Duration.ofHours(1L))
+        .create(new JWTClaimsSet.Builder().build());
+    assertThat(jwt.getHeader().getKeyID(), is(jwk.getKeyID()));
+    assertThat(jwt.verify(new RSASSAVerifier(jwk)), is(true));
+  }
+
+  @Test
+  public void shouldReadPkcs1RsaPrivateKey() throws Exception {
+    KeyPair keyPair = rsa();
+
+    JWKSet jwks =
+        PemKeys.parse(pem("RSA PRIVATE KEY", unwrapPkcs8(keyPair.getPrivate().getEncoded())));
+
+    assertThat(((RSAKey) jwks.getKeys().get(0)).toRSAPublicKey(), is(keyPair.getPublic()));
+  }
+
+  @Test
+  public void shouldReadEcPrivateKeyWithPublicKey() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+    generator.initialize(new ECGenParameterSpec("secp256r1"));
+    KeyPair keyPair = generator.generateKeyPair();
+    KeyPair other = generator.generateKeyPair();
+
+    // The unrelated public key comes first, so the pair has to be found, not assumed
+    JWKSet jwks = PemKeys.parse(pem("PUBLIC KEY", other.getPublic().getEncoded())
+        + pem("PRIVATE KEY", keyPair.getPrivate().getEncoded())
+        + pem("PUBLIC KEY", keyPair.getPublic().getEncoded()));
+
+    assertThat(jwks.size(), is(2));
+    ECKey signing = (ECKey) jwks.getKeys().get(0);
+    assertThat(signing.isPrivate(), is(true));
+    assertThat(signing.toECPublicKey().getW(), is(((ECPublicKey) keyPair.getPublic()).getW()));
+    assertThat(jwks.getKeys().get(1).isPrivate(), is(false));
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldRejectEcPrivateKeyWithoutPublicKey() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+    generator.initialize(new ECGenParameterSpec("secp256r1"));
+
+    PemKeys.parse(pem("PRIVATE KEY", generator.generateKeyPair().getPrivate().getEncoded()));
+  }
+
+  @Test
+  public void shouldAttachMatchingCertificate() throws Exception {
+    File keyStoreFile = File.createTempFile("keystore.", ".p12");
+    try {
+      KeygenToolConfiguration ktc = new KeygenToolConfiguration();
+      ktc.realm = "realm";
+      ktc.password = PASSWORD;
+      ktc.keyAlias = "alias";
+      ktc.out = new PrintStream(new FileOutputStream(keyStoreFile));
+
+      KeygenTool.main(ktc);
+
+      KeyStore keyStore = KeyStores.loadKeyStore(keyStoreFile, PASSWORD);
+      PrivateKey privateKey = (PrivateKey) keyStore.getKey("alias", null);
+      Certificate certificate = keyStore.getCertificate("alias");
+
+      JWKSet jwks = PemKeys.parse(pem("CERTIFICATE", certificate.getEncoded())
+          + pem("PRIVATE KEY", privateKey.getEncoded()));
+
+      JWK jwk = jwks.getKeys().get(0);
+      assertThat(jwks.size(), is(1));
+      assertThat(jwk.isPrivate(), is(true));
+      assertThat(jwk.getX509CertChain().size(), is(1));
+      assertThat(jwk.getX509CertSHA256Thumbprint(), is(notNullValue()));
+      assertThat(jwk.getNotBeforeTime(), is(notNullValue()));
+    } finally {
+      keyStoreFile.delete();
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldRejectEncryptedPrivateKey() throws Exception {
+    PemKeys.parse(pem("ENCRYPTED PRIVATE KEY", new byte[16]));
+  }
+
+  private static KeyPair rsa() throws Exception {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    return generator.generateKeyPair();
+  }
+
+  private static String pem(String type, byte[] der) {
+    return "-----BEGIN " + type + "-----\n" + Base64.getMimeEncoder().encodeToString(der)
+        + "\n-----END " + type + "-----\n";
+  }
+
+  /**
+   * Pulls the PKCS#1 key out of the OCTET STRING at the end of a PKCS#8 PrivateKeyInfo
+   */
+  private static byte[] unwrapPkcs8(byte[] pkcs8) {
+    int offset = 1 + lengthOfLength(pkcs8, 1); // SEQUENCE
+    offset = offset + 3; // INTEGER 0
+    offset = offset + 2 + pkcs8[offset + 1]; // AlgorithmIdentifier
+    offset = offset + 1 + lengthOfLength(pkcs8, offset + 1); // OCTET STRING
+    return Arrays.copyOfRange(pkcs8, offset, pkcs8.length);
+  }
+
+  private static int lengthOfLength(byte[] der, int offset) {
+    return (der[offset] & 0x80) == 0 ? 1 : 1 + (der[offset] & 0x7f);
+  }
+}
@@ -0,0 +1,274 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.fail;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class RemoteByteSourceTest {
+  public static final String ETAG = "\"v1\"";
+
+  public static final byte[] DATA = "hello, keys".getBytes(StandardCharsets.UTF_8);
+
+  public static final Duration TIMEOUT = Duration.ofMillis(500L);
+
+  /**
+   * The data the origin serves when it has changed since the mirror was written
+   */
+  public static final byte[] NEW_DATA = "hello, new keys".getBytes(StandardCharsets.UTF_8);
+
+  /**
+   * What the origin does with the next request: "ok", "slow", "trickle", "changed", or "error"
+   */
+  public final AtomicReference<String> mode = new AtomicReference<>("ok");
+
+  public final AtomicInteger requests = new AtomicInteger();
+
+  public final AtomicInteger notModified = new AtomicInteger();
+
+  public HttpServer server;
+  public ExecutorService executor;
+  public URL url;
+  public File mirrorFile;
+
+  @Before
+  public void setupRemoteByteSourceTest() throws Exception {
+    executor = Executors.newCachedThreadPool();
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/keystore.p12", this::handle);
+    server.setExecutor(executor);
+    server.start();
+
+    url = new URL("http://localhost:" + server.getAddress().getPort() + "/keystore.p12");
+
+    mirrorFile = File.createTempFile("keystore.", ".p12");
+    mirrorFile.delete();
+  }
+
+  @After
+  public void cleanupRemoteByteSourceTest() {
+    server.stop(0);
+    executor.shutdownNow();
+    mirrorFile.delete();
+    new File(mirrorFile.getPath() + ".meta").delete();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    requests.incrementAndGet();
+    try {
+      switch (mode.get()) {
+        case "slow":
+          Thread.sleep(TIMEOUT.toMillis() * 4L);
+          break;
+        case "error":
+          exchange.sendResponseHeaders(503, -1L);
+          return;
+        case "trickle":
+          // Each byte arrives well within the read timeout, but the whole body takes far too long
+          exchange.sendResponseHeaders(200, DATA.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            for (byte b : DATA) {
+              out.write(b);
+              out.flush();
+              Thread.sleep(TIMEOUT.toMillis() / 2L);
+            }
+          }
+          return;
+        case "changed":
+          exchange.getResponseHeaders().set("ETag", "\"v2\"");
+          exchange.sendResponseHeaders(200, NEW_DATA.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(NEW_DATA);
+          }
+          return;
+        default:
+          break;
+      }
+      if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+        notModified.incrementAndGet();
+        exchange.sendResponseHeaders(304, -1L);
+        return;
+      }
+      exchange.getResponseHeaders().set("ETag", ETAG);
+      exchange.sendResponseHeaders(200, DATA.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(DATA);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      exchange.close();
+    }
+  }
+
+  @Test
+  public void shouldFetchAndWriteMirror() throws Exception {
+    RemoteByteSource unit = new RemoteByteSource(url, TIMEOUT, TIMEOUT, mirrorFile);
+
+    assertThat(unit.fetch(), is(DATA));
+    assertThat(Files.readAllBytes(mirrorFile.toPath()), is(DATA));
+    assertThat(unit.getMetaFile().isFile(), is(true));
+    assertThat(notModified.get(), is(0));
+  }
+
+  @Test
+  public void shouldRevalidateWithConditionalGet() throws Exception {
+    RemoteByteSource unit = new RemoteByteSource(url, TIMEOUT, TIMEOUT, null);
+
+    assertThat(unit.fetch(), is(DATA));
+    assertThat(unit.fetch(), is(DATA));
+
+    assertThat(requests.get(), is(2));
+    assertThat(notModified.get(), is(1));
+  }
+
+  @Test
+  public void shouldRevalidateMirrorAfterRestart() throws Exception {
+    new RemoteByteSource(url, TIMEOUT, TIMEOUT, mirrorFile).fetch();
+
+    RemoteByteSource unit = new RemoteByteSource(url, TIMEOUT, TIMEOUT, mirrorFile);
+
+    assertThat(unit.fetch(), is(DATA));
+
+    // The mirror is revalidated in the background
+    for (int i = 0; i < 100 && notModified.get() < 1; i++)
+      Thread.sleep(10L);
+
+    assertThat(notModified.get(), is(1));
+  }
+
+  @Test
+  public void shouldBootFromMirrorAndPickUpChangesInBackground() throws Exception {
+    new RemoteByteSource(url, TIMEOUT, TIMEOUT, mirrorFile).fetch();
+
+    mode.set("changed");
+
+    RemoteByteSource unit = new RemoteByteSource(url, TIMEOUT, TIMEOUT, mirrorFile);
+
+    assertThat(unit.fetch(), is(DATA));
+
+    for (int i = 0; i < 100 && !Arrays.equals(unit.fetch(), NEW_DATA); i++)
+      Thread.sleep(10L);
+
+    assertThat(unit.fetch(), is(NEW_DATA));
+    assertThat(Files.readAllBytes(mirrorFile.toPath()), is(NEW_DATA));
+  }
+
+  @Test
+  public void shouldGiveUpOnTricklingOriginAfterDeadline() throws Exception {
+    mode.set("trickle");
+
+    RemoteByteSource unit = new RemoteByteSource(url, TIMEOUT, TIMEOUT, null);
+
+    long start = System.nanoTime();
+    try {
+      unit.fetch();
+      fail("expected the fetch to time out");
+    } catch (IOException e) {
+      // This is expected
+    }
+
+    // The trickle would take several seconds, but the deadline is the two timeouts combined
+    Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+    assertThat(elapsed.compareTo(unit.getDeadline().plus(TIMEOUT)) < 0, is(true));
+  }
+
+  @Test
+  public void shouldUseLastCopyWhenOriginTrickles() throws Exception {
+    RemoteByteSource unit = new RemoteByteSource(url, TIMEOUT, TIMEOUT, null);
+
+    assertThat(unit.fetch(), is(DATA));
+
+    mode.set("trickle");
+
+    long start = System.nanoTime();
+    assertThat(unit.fetch(), is(DATA));
+    Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+    assertThat(elapsed.compareTo(unit.getDeadline().plus(TIMEOUT)) < 0, is(true));
+  }
+
+  @Test
+  public void shouldUseMirrorWhenOriginIsSlow() throws Exception {
+    new RemoteByteSource(url, TIMEOUT, TIMEOUT, mirrorFile).fetch();
+
+    mode.set("slow");
+
+    RemoteByteSource unit = new RemoteByteSource(url, TIMEOUT, TIMEOUT, mirrorFile);
+
+    long start = System.nanoTime();
+    assertThat(unit.fetch(), is(DATA));
+    assertThat(Duration.ofNanos(System.nanoTime() - start).compareTo(TIMEOUT.multipliedBy(3L)) < 0,
+        is(true));
+  }
+
+  @Test
+  public void shouldUseMirrorWhenOriginFails() throws Exception {
+    new RemoteByteSource(url, TIMEOUT, TIMEOUT, mirrorFile).fetch();
+
+    mode.set("error");
+
+    assertThat(new RemoteByteSource(url, TIMEOUT, TIMEOUT, mirrorFile).fetch(), is(DATA));
+  }
+
+  @Test(expected = IOException.class)
+  public void shouldFailWhenOriginFailsWithoutMirror() throws Exception {
+    mode.set("error");
+    new RemoteByteSource(url, TIMEOUT, TIMEOUT, mirrorFile).fetch();
+  }
+
+  @Test
+  public void shouldResolveUrlKeyStorePathToRemoteByteSource() throws Exception {
+    ByteSource source =
+        KeyStores.resolveKeyStorePath(url.toString(), TIMEOUT, TIMEOUT, mirrorFile);
+
+    assertThat(source instanceof RemoteByteSource, is(true));
+    assertThat(((RemoteByteSource) source).getMirrorFile(), is(mirrorFile));
+  }
+
+  @Test
+  public void shouldReuseResolvedSource() throws Exception {
+    ByteSource source = KeyStores.keyStorePathSource(url.toString(), TIMEOUT, TIMEOUT, null);
+
+    source.getBytes().close();
+    source.getBytes().close();
+
+    assertThat(notModified.get(), is(1));
+  }
+}
@@ -0,0 +1,94 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import org.junit.Before;
+import org.junit.Test;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.KeyLengthException;
+import com.nimbusds.jose.crypto.MACSigner;
+import com.nimbusds.jose.jwk.OctetSequenceKey;
+import com.nimbusds.jose.jwk.gen.OctetSequenceKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+
+public class HmacJWSVerifierTest {
+  public OctetSequenceKey alpha;
+  public OctetSequenceKey bravo;
+
+  @Before
+  public void setupHmacJWSVerifierTest() throws Exception {
+    alpha = new OctetSequenceKeyGenerator(256).keyID("alpha").generate();
+    bravo = new OctetSequenceKeyGenerator(256).keyID("bravo").generate();
+  }
+
+  @Test
+  public void shouldVerifyOnlyTokensSignedWithSameKey() throws Exception {
+    HmacJWSVerifier unit = new HmacJWSVerifier(alpha, JWSAlgorithm.HS256);
+
+    assertThat(sign(alpha, new JWSHeader(JWSAlgorithm.HS256)).verify(unit), is(true));
+    assertThat(sign(bravo, new JWSHeader(JWSAlgorithm.HS256)).verify(unit), is(false));
+
+    // The mac is reused, so make sure a failure does not leave any state behind
+    assertThat(sign(alpha, new JWSHeader(JWSAlgorithm.HS256)).verify(unit), is(true));
+  }
+
+  @Test
+  public void shouldVerifyOnAnyThread() throws Exception {
+    HmacJWSVerifier unit = new HmacJWSVerifier(alpha, JWSAlgorithm.HS256);
+
+    SignedJWT jwt = sign(alpha, new JWSHeader(JWSAlgorithm.HS256));
+
+    assertThat(CompletableFuture.supplyAsync(() -> {
+      try {
+        return jwt.verify(unit);
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    }).get(), is(true));
+  }
+
+  @Test
+  public void shouldRejectOtherAlgorithmsAndCriticalHeaders() throws Exception {
+    OctetSequenceKey charlie = new OctetSequenceKeyGenerator(512).keyID("charlie").generate();
+
+    HmacJWSVerifier unit = new HmacJWSVerifier(charlie, JWSAlgorithm.HS256);
+
+    assertThat(sign(charlie, new JWSHeader(JWSAlgorithm.HS512)).verify(unit), is(false));
+    assertThat(sign(charlie, new JWSHeader.Builder(JWSAlgorithm.HS256)
+        .criticalParams(Collections.singleton("exp")).build()).verify(unit), is(false));
+  }
+
+  @Test(expected = KeyLengthException.class)
+  public void shouldRejectShortKeys() throws Exception {
+    new HmacJWSVerifier(new OctetSequenceKeyGenerator(128).generate(), JWSAlgorithm.HS256);
+  }
+
+  private static SignedJWT sign(OctetSequenceKey key, JWSHeader header) throws Exception {
+    SignedJWT jwt = new SignedJWT(header, new JWTClaimsSet.Builder().subject("subject").build());
+    jwt.sign(new MACSigner(key));
+    return SignedJWT.parse(jwt.serialize());
+  }
+}
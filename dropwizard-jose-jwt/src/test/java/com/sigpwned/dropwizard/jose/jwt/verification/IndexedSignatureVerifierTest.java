@@ -0,0 +1,116 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.Ed25519Signer;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.Curve;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.OctetKeyPair;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.OctetKeyPairGenerator;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.verification.Verification.Failure;
+
+public class IndexedSignatureVerifierTest {
+  public RSAKey alpha;
+  public RSAKey bravo;
+  public RSAKey charlie;
+  public JWKSet jwks;
+
+  @Before
+  public void setupIndexedSignatureVerifierTest() throws Exception {
+    alpha = new RSAKeyGenerator(2048).keyID("alpha").generate();
+    bravo = new RSAKeyGenerator(2048).keyID("bravo").generate();
+    charlie = new RSAKeyGenerator(2048).keyID("charlie").keyUse(KeyUse.ENCRYPTION).generate();
+    jwks = new JWKSet(Arrays.asList(alpha, bravo, charlie));
+  }
+
+  @Test
+  public void shouldIndexOnlySigningKeys() {
+    IndexedSignatureVerifier unit = new IndexedSignatureVerifier(JWSAlgorithm.RS256, jwks);
+
+    assertThat(unit.size(), is(2));
+  }
+
+  @Test
+  public void shouldDispatchByKeyID() throws Exception {
+    IndexedSignatureVerifier unit = new IndexedSignatureVerifier(JWSAlgorithm.RS256, jwks);
+
+    assertThat(unit.verify(sign(bravo, "bravo")), is(nullValue()));
+    assertThat(unit.verify(sign(bravo, "alpha")), is(Failure.BAD_SIGNATURE));
+    assertThat(unit.verify(sign(bravo, "delta")), is(Failure.NO_MATCHING_KEY));
+    assertThat(unit.verify(sign(charlie, "charlie")), is(Failure.NO_MATCHING_KEY));
+  }
+
+  @Test
+  public void shouldFallBackToAllKeysWithoutKeyID() throws Exception {
+    IndexedSignatureVerifier unit = new IndexedSignatureVerifier(JWSAlgorithm.RS256, jwks);
+
+    assertThat(unit.verify(sign(alpha, null)), is(nullValue()));
+    assertThat(unit.verify(sign(bravo, null)), is(nullValue()));
+    assertThat(unit.verify(sign(bravo, null)), is(nullValue()));
+    assertThat(unit.verify(sign(alpha, null)), is(nullValue()));
+    assertThat(unit.verify(sign(charlie, null)), is(Failure.BAD_SIGNATURE));
+  }
+
+  @Test
+  public void shouldRejectOtherAlgorithms() throws Exception {
+    IndexedSignatureVerifier unit = new IndexedSignatureVerifier(JWSAlgorithm.RS512, jwks);
+
+    assertThat(unit.verify(sign(alpha, "alpha")), is(Failure.NO_MATCHING_KEY));
+  }
+
+  @Test
+  public void shouldVerifyEdDSAWithEd25519KeysOnly() throws Exception {
+    OctetKeyPair ed25519 = new OctetKeyPairGenerator(Curve.Ed25519).keyID("ed25519").generate();
+    OctetKeyPair x25519 = new OctetKeyPairGenerator(Curve.X25519).keyID("x25519").generate();
+
+    IndexedSignatureVerifier unit = new IndexedSignatureVerifier(JWSAlgorithm.EdDSA,
+        new JWKSet(Arrays.asList(ed25519.toPublicJWK(), x25519.toPublicJWK())));
+
+    assertThat(unit.size(), is(1));
+
+    SignedJWT jwt = new SignedJWT(
+        new JWSHeader.Builder(JWSAlgorithm.EdDSA).keyID("ed25519").build(),
+        new JWTClaimsSet.Builder().subject("subject").build());
+    jwt.sign(new Ed25519Signer(ed25519));
+
+    assertThat(unit.verify(SignedJWT.parse(jwt.serialize())), is(nullValue()));
+  }
+
+  private static SignedJWT sign(RSAKey key, String keyID) throws Exception {
+    SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(keyID).build(),
+        new JWTClaimsSet.Builder().subject("subject").build());
+    jwt.sign(new RSASSASigner(key));
+    return SignedJWT.parse(jwt.serialize());
+  }
+}
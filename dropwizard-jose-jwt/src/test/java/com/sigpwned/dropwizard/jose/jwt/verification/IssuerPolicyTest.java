@@ -0,0 +1,71 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+import static java.util.Collections.emptySet;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.util.Arrays;
+import java.util.HashSet;
+import org.junit.Test;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.verification.Verification.Failure;
+
+public class IssuerPolicyTest {
+  private static SignedJWT sign(RSAKey key, JWSAlgorithm algorithm) throws Exception {
+    SignedJWT result =
+        new SignedJWT(new JWSHeader.Builder(algorithm).keyID(key.getKeyID()).build(),
+            new JWTClaimsSet.Builder().build());
+    result.sign(new RSASSASigner(key));
+    return result;
+  }
+
+  @Test
+  public void shouldAlwaysRequireIssuerAndExpiration() {
+    IssuerPolicy unit = IssuerPolicy.of(jwt -> null, emptySet());
+
+    assertThat(unit.getRequiredClaims(), is(new HashSet<>(Arrays.asList("iss", "exp"))));
+  }
+
+  @Test
+  public void shouldAcceptEachGivenAlgorithm() throws Exception {
+    RSAKey key = new RSAKeyGenerator(2048).keyID("key").generate();
+
+    IssuerPolicy unit = IssuerPolicy.of(
+        new HashSet<>(Arrays.asList(JWSAlgorithm.RS256, JWSAlgorithm.RS512)),
+        new ImmutableJWKSet<>(new JWKSet(key)), IssuerPolicy.DEFAULT_REQUIRED_CLAIMS);
+
+    assertThat(unit.getSignatureVerifier().verify(sign(key, JWSAlgorithm.RS256)),
+        is(nullValue()));
+    assertThat(unit.getSignatureVerifier().verify(sign(key, JWSAlgorithm.RS512)),
+        is(nullValue()));
+    assertThat(unit.getSignatureVerifier().verify(sign(key, JWSAlgorithm.RS384)),
+        is(Failure.NO_MATCHING_KEY));
+  }
+}
@@ -0,0 +1,257 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jose.jwk.source.ImmutableJWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.JWTFactory;
+import com.sigpwned.dropwizard.jose.jwt.factory.DefaultJWTFactory;
+import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenTool;
+import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenToolConfiguration;
+import com.sigpwned.dropwizard.jose.jwt.util.KeyStores;
+import com.sigpwned.dropwizard.jose.jwt.verification.Verification.Failure;
+
+public class JWTVerifierTest {
+  public File keyStoreFile;
+  public KeyStore keyStore;
+  public JWKSet jwks;
+
+  public static final String PASSWORD = "password";
+
+  public static final String ISSUER = "issuer";
+
+  @Before
+  public void setupJWTVerifierTest() throws Exception {
+    keyStoreFile = File.createTempFile("keystore.", ".p12");
+
+    KeygenToolConfiguration ktc = new KeygenToolConfiguration();
+    ktc.realm = "realm";
+    ktc.password = PASSWORD;
+    ktc.out = new PrintStream(new FileOutputStream(keyStoreFile));
+
+    KeygenTool.main(ktc);
+
+    keyStore = KeyStores.loadKeyStore(keyStoreFile, PASSWORD);
+
+    jwks = JWKSet.load(keyStore, null);
+  }
+
+  @After
+  public void cleanupJWTVerifierTest() {
+    keyStoreFile.delete();
+  }
+
+  @Test
+  public void shouldParseClaimsExactlyOnce() throws Exception {
+    final String token = new DefaultJWTFactory(jwks, ISSUER, Duration.ofHours(1L))
+        .create(new JWTClaimsSet.Builder().claim("alpha", "bravo").build()).serialize();
+
+    JWTVerifier unit = new JWTVerifier(ISSUER, JWTFactory.DEFAULT_SIGNING_ALGORITHM,
+        new ImmutableJWKSet<>(jwks));
+
+    VerifiedJWT verified = unit.verify(token).getJwt();
+
+    assertThat(verified.getClaims().getStringClaim("alpha"), is("bravo"));
+    assertThat(verified.getJwt().getState(), is(SignedJWT.State.VERIFIED));
+    assertThat(verified.getJwt().getJWTClaimsSet(), is(sameInstance(verified.getClaims())));
+  }
+
+  @Test
+  public void shouldRejectWrongIssuer() throws Exception {
+    final String token = new DefaultJWTFactory(jwks, "other", Duration.ofHours(1L))
+        .create(new JWTClaimsSet.Builder().build()).serialize();
+
+    JWTVerifier unit = new JWTVerifier(ISSUER, JWTFactory.DEFAULT_SIGNING_ALGORITHM,
+        new ImmutableJWKSet<>(jwks));
+
+    assertThat(unit.verify(token).getFailure(), is(Failure.WRONG_ISSUER));
+  }
+
+  @Test
+  public void shouldRejectExpiredToken() throws Exception {
+    final String token = new DefaultJWTFactory(jwks, ISSUER, Duration.ofHours(1L)) {
+      @Override
+      protected Instant now() {
+        return Instant.now().minus(Duration.ofHours(2L));
+      }
+    }.create(new JWTClaimsSet.Builder().build()).serialize();
+
+    JWTVerifier unit = new JWTVerifier(ISSUER, JWTFactory.DEFAULT_SIGNING_ALGORITHM,
+        new ImmutableJWKSet<>(jwks));
+
+    assertThat(unit.verify(token).getFailure(), is(Failure.EXPIRED));
+  }
+
+  @Test
+  public void shouldCheckClaimsBeforeSignature() throws Exception {
+    final String token = new DefaultJWTFactory(jwks, ISSUER, Duration.ofHours(1L)) {
+      @Override
+      protected Instant now() {
+        return Instant.now().minus(Duration.ofHours(2L));
+      }
+    }.create(new JWTClaimsSet.Builder().build()).serialize();
+
+    final AtomicInteger lookups = new AtomicInteger(0);
+    final JWKSource<SecurityContext> jwkSource = (selector, context) -> {
+      lookups.incrementAndGet();
+      return selector.select(jwks);
+    };
+
+    JWTVerifier claimsFirst = new JWTVerifier(ISSUER, JWTFactory.DEFAULT_SIGNING_ALGORITHM,
+        jwkSource, VerificationOrder.CLAIMS_FIRST);
+
+    assertThat(claimsFirst.verify(token).getFailure(), is(Failure.EXPIRED));
+    assertThat(lookups.get(), is(0));
+
+    JWTVerifier signatureFirst = new JWTVerifier(ISSUER, JWTFactory.DEFAULT_SIGNING_ALGORITHM,
+        jwkSource, VerificationOrder.SIGNATURE_FIRST);
+
+    assertThat(signatureFirst.verify(token).getFailure(), is(Failure.EXPIRED));
+    assertThat(lookups.get(), is(1));
+  }
+
+  @Test
+  public void shouldRejectBadSignature() throws Exception {
+    final String token = new DefaultJWTFactory(jwks, ISSUER, Duration.ofHours(1L))
+        .create(new JWTClaimsSet.Builder().build()).serialize();
+
+    // Swap in the signature of a different token signed with the same key
+    final String other = new DefaultJWTFactory(jwks, ISSUER, Duration.ofHours(1L))
+        .create(new JWTClaimsSet.Builder().build()).serialize();
+    final String forged =
+        token.substring(0, token.lastIndexOf('.')) + other.substring(other.lastIndexOf('.'));
+
+    JWTVerifier unit = new JWTVerifier(ISSUER, JWTFactory.DEFAULT_SIGNING_ALGORITHM,
+        new ImmutableJWKSet<>(jwks));
+
+    Verification verification = unit.verify(forged);
+
+    assertThat(verification.isVerified(), is(false));
+    assertThat(verification.getFailure(), is(Failure.BAD_SIGNATURE));
+  }
+
+  @Test
+  public void shouldRejectWrongAlgorithm() throws Exception {
+    final String token = new DefaultJWTFactory(jwks, ISSUER, Duration.ofHours(1L))
+        .create(new JWTClaimsSet.Builder().build()).serialize();
+
+    JWTVerifier unit = new JWTVerifier(ISSUER, JWSAlgorithm.RS512, new ImmutableJWKSet<>(jwks));
+
+    assertThat(unit.verify(token).getFailure(), is(Failure.NO_MATCHING_KEY));
+  }
+
+  @Test
+  public void shouldRejectMalformedToken() {
+    JWTVerifier unit = new JWTVerifier(ISSUER, JWTFactory.DEFAULT_SIGNING_ALGORITHM,
+        new ImmutableJWKSet<>(jwks));
+
+    assertThat(unit.verify("e30.e30.e30").getFailure(), is(Failure.MALFORMED));
+  }
+
+  @Test
+  public void shouldRouteByIssuer() throws Exception {
+    final JWKSet otherJwks = new JWKSet(new RSAKeyGenerator(2048).keyID("other").generate());
+
+    final String token = new DefaultJWTFactory(otherJwks, "other", Duration.ofHours(1L))
+        .create(new JWTClaimsSet.Builder().build()).serialize();
+
+    final AtomicInteger issuerChecks = new AtomicInteger(0);
+    final AtomicInteger otherChecks = new AtomicInteger(0);
+    final IndexedSignatureVerifier issuerVerifier =
+        new IndexedSignatureVerifier(JWTFactory.DEFAULT_SIGNING_ALGORITHM, jwks);
+    final IndexedSignatureVerifier otherVerifier =
+        new IndexedSignatureVerifier(JWTFactory.DEFAULT_SIGNING_ALGORITHM, otherJwks);
+
+    Map<String, IssuerPolicy> issuers = new HashMap<>();
+    issuers.put(ISSUER, IssuerPolicy.of(jwt -> {
+      issuerChecks.incrementAndGet();
+      return issuerVerifier.verify(jwt);
+    }, IssuerPolicy.DEFAULT_REQUIRED_CLAIMS));
+    issuers.put("other", IssuerPolicy.of(jwt -> {
+      otherChecks.incrementAndGet();
+      return otherVerifier.verify(jwt);
+    }, IssuerPolicy.DEFAULT_REQUIRED_CLAIMS));
+
+    for (VerificationOrder order : VerificationOrder.values()) {
+      JWTVerifier unit = new JWTVerifier(issuers, order);
+      assertThat(unit.verify(token).isVerified(), is(true));
+    }
+
+    assertThat(issuerChecks.get(), is(0));
+    assertThat(otherChecks.get(), is(VerificationOrder.values().length));
+  }
+
+  @Test
+  public void shouldRejectUnknownIssuerWithoutCheckingSignature() throws Exception {
+    final String token = new DefaultJWTFactory(jwks, "stranger", Duration.ofHours(1L))
+        .create(new JWTClaimsSet.Builder().build()).serialize();
+
+    final AtomicInteger checks = new AtomicInteger(0);
+    final SignatureVerifier verifier = jwt -> {
+      checks.incrementAndGet();
+      return null;
+    };
+
+    Map<String, IssuerPolicy> issuers = new HashMap<>();
+    issuers.put(ISSUER, IssuerPolicy.of(verifier, IssuerPolicy.DEFAULT_REQUIRED_CLAIMS));
+    issuers.put("other", IssuerPolicy.of(verifier, IssuerPolicy.DEFAULT_REQUIRED_CLAIMS));
+
+    JWTVerifier unit = new JWTVerifier(issuers, VerificationOrder.SIGNATURE_FIRST);
+
+    assertThat(unit.verify(token).getFailure(), is(Failure.WRONG_ISSUER));
+    assertThat(checks.get(), is(0));
+  }
+
+  @Test
+  public void shouldRequireIssuerClaims() throws Exception {
+    final String token = new DefaultJWTFactory(jwks, ISSUER, Duration.ofHours(1L))
+        .create(new JWTClaimsSet.Builder().build()).serialize();
+
+    JWTVerifier unit = new JWTVerifier(
+        singletonMap(ISSUER, IssuerPolicy.of(singleton(JWTFactory.DEFAULT_SIGNING_ALGORITHM),
+            new ImmutableJWKSet<>(jwks), singleton("aud"))),
+        VerificationOrder.CLAIMS_FIRST);
+
+    assertThat(unit.verify(token).getFailure(), is(Failure.MISSING_CLAIMS));
+  }
+}
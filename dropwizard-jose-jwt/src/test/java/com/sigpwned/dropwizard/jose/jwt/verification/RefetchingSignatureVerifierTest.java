@@ -0,0 +1,133 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.keys.RemoteJWKSet;
+import com.sigpwned.dropwizard.jose.jwt.verification.Verification.Failure;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+public class RefetchingSignatureVerifierTest {
+  public final AtomicReference<JWKSet> published = new AtomicReference<>();
+
+  public final AtomicInteger requests = new AtomicInteger();
+
+  public HttpServer server;
+  public URL url;
+  public RSAKey oldKey;
+  public RSAKey newKey;
+
+  @Before
+  public void setupRefetchingSignatureVerifierTest() throws Exception {
+    oldKey = new RSAKeyGenerator(2048).keyID("old").generate();
+    newKey = new RSAKeyGenerator(2048).keyID("new").generate();
+    published.set(new JWKSet(oldKey));
+
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/.well-known/jwks.json", this::handle);
+    server.start();
+
+    url = new URL("http://localhost:" + server.getAddress().getPort() + "/.well-known/jwks.json");
+  }
+
+  @After
+  public void cleanupRefetchingSignatureVerifierTest() {
+    server.stop(0);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    requests.incrementAndGet();
+    try {
+      byte[] body = published.get().toString().getBytes(StandardCharsets.UTF_8);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private static SignedJWT sign(RSAKey key) throws Exception {
+    SignedJWT result = new SignedJWT(
+        new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(),
+        new JWTClaimsSet.Builder().subject("subject").build());
+    result.sign(new RSASSASigner(key));
+    return result;
+  }
+
+  @Test
+  public void shouldRefetchForRotatedKey() throws Exception {
+    RemoteJWKSet jwks = new RemoteJWKSet(url, Duration.ofMinutes(5L), Duration.ZERO,
+        Duration.ofSeconds(5L), Duration.ofSeconds(5L));
+    RefetchingSignatureVerifier unit = new RefetchingSignatureVerifier(JWSAlgorithm.RS256, jwks);
+
+    assertThat(unit.verify(sign(oldKey)), is(nullValue()));
+    assertThat(requests.get(), is(1));
+
+    published.set(new JWKSet(newKey));
+
+    assertThat(unit.verify(sign(newKey)), is(nullValue()));
+    assertThat(requests.get(), is(2));
+  }
+
+  @Test
+  public void shouldNotRefetchForWrongAlgorithm() throws Exception {
+    RemoteJWKSet jwks = new RemoteJWKSet(url, Duration.ofMinutes(5L), Duration.ZERO,
+        Duration.ofSeconds(5L), Duration.ofSeconds(5L));
+    RefetchingSignatureVerifier unit = new RefetchingSignatureVerifier(JWSAlgorithm.RS512, jwks);
+
+    assertThat(unit.verify(sign(oldKey)), is(Failure.NO_MATCHING_KEY));
+    assertThat(requests.get(), is(1));
+  }
+
+  @Test
+  public void shouldRejectUnknownKeyAfterRefetch() throws Exception {
+    RemoteJWKSet jwks = new RemoteJWKSet(url, Duration.ofMinutes(5L), Duration.ZERO,
+        Duration.ofSeconds(5L), Duration.ofSeconds(5L));
+    RefetchingSignatureVerifier unit = new RefetchingSignatureVerifier(JWSAlgorithm.RS256, jwks);
+
+    assertThat(unit.verify(sign(newKey)), is(Failure.NO_MATCHING_KEY));
+    assertThat(requests.get(), is(2));
+  }
+}
@@ -0,0 +1,81 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.KeyUse;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.keys.TenantKeySets;
+import com.sigpwned.dropwizard.jose.jwt.verification.Verification.Failure;
+
+public class TenantSignatureVerifierTest {
+  public static final String ISSUER = "issuer";
+
+  public TenantKeySets tenants;
+
+  @Before
+  public void setupTenantSignatureVerifierTest() throws Exception {
+    final Map<String, JWKSet> jwks = new HashMap<>();
+    for (String tenant : new String[] {"alpha", "bravo"})
+      jwks.put(tenant, new JWKSet(
+          new RSAKeyGenerator(2048).keyID("key").keyUse(KeyUse.SIGNATURE).generate()));
+    tenants = new TenantKeySets(jwks::get, ISSUER, Duration.ofHours(1L));
+  }
+
+  private SignedJWT create(String tenant, String claimedTenant) throws Exception {
+    JWTClaimsSet.Builder claims = new JWTClaimsSet.Builder();
+    if (claimedTenant != null)
+      claims.claim(TenantSignatureVerifier.DEFAULT_TENANT_CLAIM, claimedTenant);
+    return tenants.get(tenant).getJWTFactory().create(claims.build());
+  }
+
+  @Test
+  public void shouldVerifyWithTenantKeys() throws Exception {
+    TenantSignatureVerifier unit = new TenantSignatureVerifier(tenants);
+
+    assertThat(unit.verify(create("alpha", "alpha")), is(nullValue()));
+    assertThat(unit.verify(create("bravo", "bravo")), is(nullValue()));
+  }
+
+  @Test
+  public void shouldRejectTokenClaimingOtherTenant() throws Exception {
+    TenantSignatureVerifier unit = new TenantSignatureVerifier(tenants);
+
+    assertThat(unit.verify(create("alpha", "bravo")), is(Failure.BAD_SIGNATURE));
+  }
+
+  @Test
+  public void shouldRejectTokenWithoutTenant() throws Exception {
+    TenantSignatureVerifier unit = new TenantSignatureVerifier(tenants);
+
+    assertThat(unit.verify(create("alpha", null)), is(Failure.NO_MATCHING_KEY));
+    assertThat(unit.verify(create("alpha", "charlie")), is(Failure.NO_MATCHING_KEY));
+  }
+}
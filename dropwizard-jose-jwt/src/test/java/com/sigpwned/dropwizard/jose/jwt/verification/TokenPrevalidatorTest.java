@@ -0,0 +1,98 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.util.Collections;
+import org.junit.Test;
+import com.sigpwned.dropwizard.jose.jwt.verification.TokenPrevalidator.Rejection;
+
+public class TokenPrevalidatorTest {
+  public static final String HEADER = "eyJhbGciOiJSUzI1NiJ9";
+
+  public static final String PAYLOAD = "eyJpc3MiOiJpc3N1ZXIifQ";
+
+  public static final String SIGNATURE = "c2lnbmF0dXJl-_";
+
+  public static final String TOKEN = HEADER + "." + PAYLOAD + "." + SIGNATURE;
+
+  @Test
+  public void shouldAcceptWellFormedToken() {
+    TokenPrevalidator unit = new TokenPrevalidator();
+
+    assertThat(unit.prevalidate(TOKEN), is(nullValue()));
+    for (Rejection rejection : Rejection.values())
+      assertThat(unit.getRejections(rejection).getCount(), is(0L));
+  }
+
+  @Test
+  public void shouldRejectLongToken() {
+    TokenPrevalidator unit = new TokenPrevalidator(TOKEN.length() - 1, 1024);
+
+    assertThat(unit.prevalidate(TOKEN), is(Rejection.TOO_LONG));
+    assertThat(unit.getRejections(Rejection.TOO_LONG).getCount(), is(1L));
+  }
+
+  @Test
+  public void shouldRejectWrongSegmentCount() {
+    TokenPrevalidator unit = new TokenPrevalidator();
+
+    assertThat(unit.prevalidate(HEADER + "." + PAYLOAD), is(Rejection.WRONG_SEGMENT_COUNT));
+    assertThat(unit.prevalidate(TOKEN + "." + SIGNATURE), is(Rejection.WRONG_SEGMENT_COUNT));
+    assertThat(unit.prevalidate("garbage"), is(Rejection.WRONG_SEGMENT_COUNT));
+    assertThat(unit.getRejections(Rejection.WRONG_SEGMENT_COUNT).getCount(), is(3L));
+  }
+
+  @Test
+  public void shouldRejectEmptySegment() {
+    TokenPrevalidator unit = new TokenPrevalidator();
+
+    assertThat(unit.prevalidate("." + PAYLOAD + "." + SIGNATURE), is(Rejection.EMPTY_SEGMENT));
+    assertThat(unit.prevalidate(HEADER + ".." + SIGNATURE), is(Rejection.EMPTY_SEGMENT));
+    assertThat(unit.prevalidate(HEADER + "." + PAYLOAD + "."), is(Rejection.EMPTY_SEGMENT));
+    assertThat(unit.getRejections(Rejection.EMPTY_SEGMENT).getCount(), is(3L));
+  }
+
+  @Test
+  public void shouldRejectIllegalCharacter() {
+    TokenPrevalidator unit = new TokenPrevalidator();
+
+    assertThat(unit.prevalidate(HEADER + "=." + PAYLOAD + "." + SIGNATURE),
+        is(Rejection.ILLEGAL_CHARACTER));
+    assertThat(unit.prevalidate(HEADER + "." + PAYLOAD + "+/." + SIGNATURE),
+        is(Rejection.ILLEGAL_CHARACTER));
+    assertThat(unit.prevalidate(TOKEN + " "), is(Rejection.ILLEGAL_CHARACTER));
+    assertThat(unit.getRejections(Rejection.ILLEGAL_CHARACTER).getCount(), is(3L));
+  }
+
+  @Test
+  public void shouldRejectLongHeader() {
+    TokenPrevalidator unit = new TokenPrevalidator();
+
+    String header =
+        String.join("", Collections.nCopies(TokenPrevalidator.DEFAULT_MAX_HEADER_LENGTH + 1, "A"));
+
+    assertThat(unit.prevalidate(header + "." + PAYLOAD + "." + SIGNATURE),
+        is(Rejection.HEADER_TOO_LONG));
+    assertThat(unit.getRejections(Rejection.HEADER_TOO_LONG).getCount(), is(1L));
+  }
+}
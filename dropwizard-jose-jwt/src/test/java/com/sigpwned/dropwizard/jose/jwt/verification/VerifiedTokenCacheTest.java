@@ -0,0 +1,132 @@
+/*-
+ * =================================LICENSE_START==================================
+ * dropwizard-jose-jwt
+ * ====================================SECTION=====================================
+ * Copyright (C) 2022 Andy Boothe
+ * ====================================SECTION=====================================
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * ==================================LICENSE_END===================================
+ */
+package com.sigpwned.dropwizard.jose.jwt.verification;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sigpwned.dropwizard.jose.jwt.factory.DefaultJWTFactory;
+import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenTool;
+import com.sigpwned.dropwizard.jose.jwt.tool.keygen.KeygenToolConfiguration;
+import com.sigpwned.dropwizard.jose.jwt.util.KeyStores;
+
+public class VerifiedTokenCacheTest {
+  public File keyStoreFile;
+  public KeyStore keyStore;
+  public JWKSet jwks;
+
+  public static final String PASSWORD = "password";
+
+  public static final String ISSUER = "issuer";
+
+  public static final JWTClaimsSet NONE = new JWTClaimsSet.Builder().build();
+
+  @Before
+  public void setupVerifiedTokenCacheTest() throws Exception {
+    keyStoreFile = File.createTempFile("keystore.", ".p12");
+
+    KeygenToolConfiguration ktc = new KeygenToolConfiguration();
+    ktc.realm = "realm";
+    ktc.password = PASSWORD;
+    ktc.out = new PrintStream(new FileOutputStream(keyStoreFile));
+
+    KeygenTool.main(ktc);
+
+    keyStore = KeyStores.loadKeyStore(keyStoreFile, PASSWORD);
+
+    jwks = JWKSet.load(keyStore, null);
+  }
+
+  @After
+  public void cleanupVerifiedTokenCacheTest() {
+    keyStoreFile.delete();
+  }
+
+  @Test
+  public void shouldReturnCachedToken() throws Exception {
+    final SignedJWT jwt = new DefaultJWTFactory(jwks, ISSUER, Duration.ofHours(1L)).create(NONE);
+
+    VerifiedTokenCache unit = new VerifiedTokenCache();
+
+    assertThat(unit.getIfPresent(jwt.serialize()), is(nullValue()));
+
+    unit.put(jwt.serialize(), VerifiedJWT.of(jwt, jwt.getJWTClaimsSet()));
+
+    assertThat(unit.getIfPresent(jwt.serialize()).getJwt(), is(sameInstance(jwt)));
+    assertThat(unit.stats().hitCount(), is(1L));
+    assertThat(unit.stats().missCount(), is(1L));
+  }
+
+  @Test
+  public void shouldNotCacheExpiredToken() throws Exception {
+    final SignedJWT jwt = new DefaultJWTFactory(jwks, ISSUER, Duration.ofHours(1L)) {
+      @Override
+      protected Instant now() {
+        return Instant.now().minus(Duration.ofHours(2L));
+      }
+    }.create(NONE);
+
+    VerifiedTokenCache unit = new VerifiedTokenCache();
+
+    unit.put(jwt.serialize(), VerifiedJWT.of(jwt, jwt.getJWTClaimsSet()));
+
+    assertThat(unit.getIfPresent(jwt.serialize()), is(nullValue()));
+  }
+
+  @Test
+  public void shouldForgetTokensAfterInvalidateAll() throws Exception {
+    final SignedJWT jwt = new DefaultJWTFactory(jwks, ISSUER, Duration.ofHours(1L)).create(NONE);
+
+    VerifiedTokenCache unit = new VerifiedTokenCache();
+
+    unit.put(jwt.serialize(), VerifiedJWT.of(jwt, jwt.getJWTClaimsSet()));
+
+    unit.invalidateAll();
+
+    assertThat(unit.getIfPresent(jwt.serialize()), is(nullValue()));
+  }
+
+  @Test
+  public void shouldIgnoreTokenVerifiedBeforeInvalidateAll() throws Exception {
+    final SignedJWT jwt = new DefaultJWTFactory(jwks, ISSUER, Duration.ofHours(1L)).create(NONE);
+
+    VerifiedTokenCache unit = new VerifiedTokenCache();
+
+    // The keys change while the token is being verified against the old ones
+    final long generation = unit.getGeneration();
+    unit.invalidateAll();
+    unit.put(jwt.serialize(), VerifiedJWT.of(jwt, jwt.getJWTClaimsSet()), generation);
+
+    assertThat(unit.getIfPresent(jwt.serialize()), is(nullValue()));
+  }
+}